@@ -0,0 +1,104 @@
+package com.objdetector;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.objdetector.core.stats.LatencySamples;
+import com.objdetector.deepmodel.DetectionResult;
+import com.objdetector.deepmodel.MobileNetObjDetector;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares one batched invocation of N images against N single-image calls. Timings are logged
+ * under the BatchInferenceBenchmark tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BatchInferenceBenchmarkTest {
+    private static final String TAG = "BatchInferenceBenchmark";
+    private static final int[] BATCH_SIZES = {2, 4, 8};
+    private static final int WARMUP_RUNS = 3;
+    private static final int TIMED_RUNS = 20;
+
+    private MobileNetObjDetector detector;
+
+    @Before
+    public void setUp() throws Exception {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        detector = MobileNetObjDetector.create(appContext.getAssets());
+    }
+
+    @After
+    public void tearDown() {
+        detector.close();
+    }
+
+    @Test
+    public void batchedMatchesSingleCalls() {
+        List<Bitmap> bitmaps = createBitmaps(BATCH_SIZES[0]);
+
+        List<List<DetectionResult>> batched = detector.detectObjects(bitmaps);
+
+        assertEquals(bitmaps.size(), batched.size());
+        for (int i = 0; i < bitmaps.size(); i++) {
+            List<DetectionResult> single = detector.detectObjects(bitmaps.get(i));
+            assertEquals(single.size(), batched.get(i).size());
+            for (int j = 0; j < single.size(); j++) {
+                assertEquals(single.get(j).getTitle(), batched.get(i).get(j).getTitle());
+                assertEquals(single.get(j).getConfidence(), batched.get(i).get(j).getConfidence(), 1e-3f);
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkBatchedAgainstSingleCalls() {
+        for (int batchSize : BATCH_SIZES) {
+            List<Bitmap> bitmaps = createBitmaps(batchSize);
+            LatencySamples batched = new LatencySamples(TIMED_RUNS);
+            LatencySamples single = new LatencySamples(TIMED_RUNS);
+
+            for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++) {
+                long start = System.nanoTime();
+                detector.detectObjects(bitmaps);
+                long batchedNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (Bitmap bitmap : bitmaps) {
+                    detector.detectObjects(bitmap);
+                }
+                long singleNanos = System.nanoTime() - start;
+
+                if (run >= WARMUP_RUNS) {
+                    batched.add(batchedNanos);
+                    single.add(singleNanos);
+                }
+            }
+            Log.i(TAG, String.format("batch=%d batched[%s] single[%s] batching supported=%b",
+                    batchSize, batched, single, detector.isBatchingSupported()));
+        }
+    }
+
+    private List<Bitmap> createBitmaps(int count) {
+        List<Bitmap> bitmaps = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Bitmap bitmap = Bitmap.createBitmap(detector.getInputWidth(), detector.getInputHeight(),
+                    Bitmap.Config.ARGB_8888);
+            bitmap.eraseColor(Color.rgb(40 * i, 255 - 30 * i, 128));
+            bitmaps.add(bitmap);
+        }
+        return bitmaps;
+    }
+}
@@ -0,0 +1,104 @@
+package com.objdetector;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.objdetector.core.capture.CaptureReader;
+import com.objdetector.core.capture.CaptureReplayer;
+import com.objdetector.core.detection.DetectionBatch;
+import com.objdetector.core.image.ParallelRowExecutor;
+import com.objdetector.core.image.YuvFrame;
+import com.objdetector.core.image.YuvToTensorConverter;
+import com.objdetector.core.stats.StageInstrumentation;
+import com.objdetector.core.stats.StageInstrumentation.Stage;
+import com.objdetector.deepmodel.DetectionOutputs;
+import com.objdetector.deepmodel.MobileNetObjDetector;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Replays a recorded capture through the camera pipeline's conversion and detection steps and
+ * logs per-stage latencies under the CaptureReplay tag.
+ *
+ * Instrumentation arguments: {@code capture} (default: the newest capture in the app's external
+ * files dir {@code captures}), {@code speed} (1 for recorded speed, 0, the default, for as fast as
+ * possible) and {@code rotation} (default 90, the usual back camera sensor orientation).
+ */
+@RunWith(AndroidJUnit4.class)
+public class CaptureReplayTest {
+    private static final String TAG = "CaptureReplay";
+
+    @Test
+    public void replayCapture() throws Exception {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        File capture = arguments.containsKey("capture")
+                ? new File(arguments.getString("capture"))
+                : newestCapture(appContext.getExternalFilesDir("captures"));
+        float speed = Float.parseFloat(arguments.getString("speed", "0"));
+        int rotation = Integer.parseInt(arguments.getString("rotation", "90"));
+        assumeTrue("No capture to replay", capture != null && capture.isDirectory());
+
+        MobileNetObjDetector detector = MobileNetObjDetector.create(appContext.getAssets());
+        ParallelRowExecutor rowExecutor = new ParallelRowExecutor(Runtime.getRuntime().availableProcessors());
+        CaptureReader reader = new CaptureReader(capture);
+        try {
+            StageInstrumentation instrumentation = new StageInstrumentation();
+            ByteBuffer inputTensor = detector.createInputTensor();
+            DetectionOutputs outputs = detector.createOutputs();
+            DetectionBatch results = new DetectionBatch(detector.getMaxResults());
+            YuvToTensorConverter[] converter = new YuvToTensorConverter[1];
+
+            CaptureReplayer.Summary summary = new CaptureReplayer(speed, CaptureReplayer.SYSTEM_CLOCK)
+                    .replay(reader, (YuvFrame frame) -> {
+                        if (converter[0] == null) {
+                            converter[0] = new YuvToTensorConverter(frame.getWidth(), frame.getHeight(),
+                                    detector.getInputWidth(), detector.getInputHeight(), rotation, true,
+                                    rowExecutor, detector.getInputFormat());
+                        }
+                        long start = System.nanoTime();
+                        frame.convert(converter[0], inputTensor);
+                        long converted = System.nanoTime();
+                        detector.runInference(inputTensor, outputs);
+                        long inferred = System.nanoTime();
+                        detector.decodeResults(outputs, 0, results);
+                        long decoded = System.nanoTime();
+                        instrumentation.record(Stage.PREPROCESS, converted - start);
+                        instrumentation.record(Stage.INFERENCE, inferred - converted);
+                        instrumentation.record(Stage.POST_PROCESS, decoded - inferred);
+                    });
+
+            Log.i(TAG, capture + ": " + summary + "\n" + instrumentation.report());
+            assertEquals(reader.getFrameCount(), summary.getFrameCount());
+            assertTrue(summary.getFrameCount() > 0);
+        } finally {
+            reader.close();
+            rowExecutor.close();
+            detector.close();
+        }
+    }
+
+    private static File newestCapture(File captures) {
+        File[] directories = captures == null ? null : captures.listFiles(File::isDirectory);
+        File newest = null;
+        if (directories != null) {
+            for (File directory : directories) {
+                if (newest == null || directory.getName().compareTo(newest.getName()) > 0) {
+                    newest = directory;
+                }
+            }
+        }
+        return newest;
+    }
+}
@@ -0,0 +1,49 @@
+package com.objdetector;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.objdetector.deepmodel.DetectorOptions;
+import com.objdetector.deepmodel.DetectorOptionsSweep;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Benchmark mode for interpreter settings. Latencies for every combination are logged under the
+ * DetectorOptionsSweep tag; run with
+ * {@code ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=com.objdetector.DetectorOptionsSweepTest}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DetectorOptionsSweepTest {
+    private static final int WARMUP_RUNS = 5;
+    private static final int TIMED_RUNS = 30;
+
+    @Test
+    public void sweepInterpreterOptions() throws Exception {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        List<DetectorOptions> grid =
+                DetectorOptionsSweep.defaultGrid(Runtime.getRuntime().availableProcessors());
+
+        List<DetectorOptionsSweep.Result> results =
+                DetectorOptionsSweep.run(appContext.getAssets(), grid, WARMUP_RUNS, TIMED_RUNS);
+
+        assertEquals(grid.size(), results.size());
+        DetectorOptionsSweep.Result fastest = results.get(0);
+        for (DetectorOptionsSweep.Result result : results) {
+            assertEquals(TIMED_RUNS, result.getWallLatency().getCount());
+            if (result.getWallLatency().getPercentileMillis(50)
+                    < fastest.getWallLatency().getPercentileMillis(50)) {
+                fastest = result;
+            }
+        }
+        Log.i("DetectorOptionsSweep", "Fastest: " + fastest);
+    }
+}
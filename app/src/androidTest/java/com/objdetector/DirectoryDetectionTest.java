@@ -0,0 +1,60 @@
+package com.objdetector;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.objdetector.batch.DirectoryDetectionRunner;
+import com.objdetector.deepmodel.DetectorOptions;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Headless entry point for batch detection over a directory of images on the device.
+ *
+ * Instrumentation arguments: {@code inputDir} (default: the app's external files dir
+ * {@code batch-input}), {@code output} (default: {@code detections.jsonl} next to it) and
+ * {@code decodeThreads} (default 2). Re-running with the same output resumes an interrupted run.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DirectoryDetectionTest {
+    private static final String TAG = "DirectoryDetection";
+
+    @Test
+    public void detectDirectory() throws Exception {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        File inputDir = arguments.containsKey("inputDir")
+                ? new File(arguments.getString("inputDir"))
+                : appContext.getExternalFilesDir("batch-input");
+        File output = arguments.containsKey("output")
+                ? new File(arguments.getString("output"))
+                : new File(appContext.getExternalFilesDir(null), "detections.jsonl");
+        int decodeThreads = Integer.parseInt(arguments.getString("decodeThreads", "2"));
+        assumeTrue("No input directory " + inputDir, inputDir != null && inputDir.isDirectory());
+
+        DetectorOptions options = DetectorOptions.builder()
+                .setNumThreads(Math.max(1, Runtime.getRuntime().availableProcessors() - decodeThreads))
+                .setUseXnnpack(true)
+                .setMinConfidence(0.3f)
+                .build();
+        DirectoryDetectionRunner runner =
+                new DirectoryDetectionRunner(appContext.getAssets(), options, decodeThreads);
+        try {
+            DirectoryDetectionRunner.Summary summary = runner.run(inputDir, output);
+            Log.i(TAG, summary + " output=" + output);
+            assertTrue(output.exists());
+        } finally {
+            runner.close();
+        }
+    }
+}
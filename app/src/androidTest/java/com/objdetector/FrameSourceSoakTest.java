@@ -0,0 +1,78 @@
+package com.objdetector;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.objdetector.core.image.ParallelRowExecutor;
+import com.objdetector.core.image.YuvToTensorConverter;
+import com.objdetector.core.source.PulledFrameSource;
+import com.objdetector.core.source.SyntheticFrameSource;
+import com.objdetector.core.source.Y4mFrameSource;
+import com.objdetector.core.stats.StageInstrumentation;
+import com.objdetector.deepmodel.DetectorService;
+import com.objdetector.deepmodel.ModelRegistry;
+import com.objdetector.pipeline.DetectionPipeline;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives the detection pipeline from a frame source as fast as it takes frames, without the
+ * camera or the UI, and logs throughput and stage latencies under the FrameSourceSoak tag.
+ *
+ * Instrumentation arguments: {@code seconds} (default 30), {@code y4m} to read a video file
+ * instead of the synthetic pattern, and {@code width} and {@code height} of the synthetic frames
+ * (default 1280x720).
+ */
+@RunWith(AndroidJUnit4.class)
+public class FrameSourceSoakTest {
+    private static final String TAG = "FrameSourceSoak";
+    private static final int SOURCE_BUFFERS = 3;
+
+    @Test
+    public void soakPipeline() throws Exception {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        long seconds = Long.parseLong(arguments.getString("seconds", "30"));
+        PulledFrameSource source = arguments.containsKey("y4m")
+                ? Y4mFrameSource.open(new File(arguments.getString("y4m")), SOURCE_BUFFERS)
+                : new SyntheticFrameSource(Integer.parseInt(arguments.getString("width", "1280")),
+                        Integer.parseInt(arguments.getString("height", "720")), 0, SOURCE_BUFFERS);
+        source.setLooping(true);
+
+        ParallelRowExecutor rowExecutor = new ParallelRowExecutor(Runtime.getRuntime().availableProcessors());
+        StageInstrumentation instrumentation = new StageInstrumentation();
+        AtomicLong published = new AtomicLong();
+        DetectionPipeline pipeline = new DetectionPipeline(DetectorService.getInstance(appContext),
+                ModelRegistry.withBundledModels().getDefault(), ObjectDetectorApplication.INTERPRETER_COUNT,
+                ObjectDetectorApplication.createDetectorOptions(),
+                (inputWidth, inputHeight, format) -> new YuvToTensorConverter(source.getWidth(), source.getHeight(),
+                        inputWidth, inputHeight, source.getRotation(), true, rowExecutor, format),
+                results -> published.incrementAndGet());
+        pipeline.setInstrumentation(instrumentation);
+        try {
+            pipeline.start();
+            source.start(pipeline::submit);
+            Thread.sleep(seconds * 1000);
+        } finally {
+            source.close();
+            pipeline.stop();
+            rowExecutor.close();
+        }
+
+        Log.i(TAG, source + String.format(" published %.1f fps", published.get() / (double) seconds));
+        Log.i(TAG, pipeline.getStatsSummary());
+        Log.i(TAG, "Stage latencies:\n" + instrumentation.report());
+        assertNull(source.getFailure());
+        assertTrue(published.get() > 0);
+    }
+}
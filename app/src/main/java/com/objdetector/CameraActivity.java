@@ -13,6 +13,7 @@ import android.util.Size;
 import android.view.WindowManager;
 import android.widget.Toast;
 
+import com.objdetector.core.source.AnalysisSizePolicy;
 import com.objdetector.customview.OverlayView;
 
 public abstract class CameraActivity extends Activity
@@ -108,8 +109,10 @@ public abstract class CameraActivity extends Activity
 
     protected void setFragment() {
         CameraConnectionFragment cameraConnectionFragment = new CameraConnectionFragment();
-        cameraConnectionFragment.addConnectionListener((final Size size, final int rotation) ->
-                CameraActivity.this.onPreviewSizeChosen(size, rotation));
+        cameraConnectionFragment.addConnectionListener(
+                (final Size previewSize, final Size analysisSize, final int rotation) ->
+                        CameraActivity.this.onPreviewSizeChosen(previewSize, analysisSize, rotation));
+        cameraConnectionFragment.setAnalysisSizePolicy(getAnalysisSizePolicy());
         cameraConnectionFragment.addImageAvailableListener(this);
 
         getFragmentManager()
@@ -132,5 +135,13 @@ public abstract class CameraActivity extends Activity
         }
     }
 
-    protected abstract void onPreviewSizeChosen(final Size size, final int rotation);
+    /**
+     * How large the frames handed to {@link #onImageAvailable} need to be; null, the default, reads
+     * them at the preview size.
+     */
+    protected AnalysisSizePolicy getAnalysisSizePolicy() {
+        return null;
+    }
+
+    protected abstract void onPreviewSizeChosen(final Size previewSize, final Size analysisSize, final int rotation);
 }
\ No newline at end of file
@@ -34,6 +34,7 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Toast;
 
+import com.objdetector.core.source.AnalysisSizePolicy;
 import com.objdetector.customview.AutoFitTextureView;
 import com.objdetector.utils.ErrorDialog;
 
@@ -61,6 +62,9 @@ public class CameraConnectionFragment extends Fragment {
     private static final Size DESIRED_PREVIEW_SIZE = new Size(screenWidth, screenHeight);
 
     private static final int MINIMUM_PREVIEW_SIZE = 500;
+    // The detection pipeline may hold two images (one waiting, one being preprocessed) and
+    // acquireLatestImage needs two more.
+    static final int MAX_PREVIEW_IMAGES = 4;
     private static final String FRAGMENT_DIALOG = "dialog";
     private final Semaphore cameraOpenCloseLock = new Semaphore(1);
     private OnImageAvailableListener imageListener;
@@ -71,6 +75,9 @@ public class CameraConnectionFragment extends Fragment {
     private CameraDevice cameraDevice;
     private Integer sensorOrientation;
     private Size previewSize;
+    // Size of the YUV frames the detector reads; the preview size without a policy.
+    private Size analysisSize;
+    private AnalysisSizePolicy analysisSizePolicy;
     private HandlerThread backgroundThread;
     private Handler backgroundHandler;
     private ImageReader previewReader;
@@ -138,8 +145,20 @@ public class CameraConnectionFragment extends Fragment {
         this.imageListener = imageListener;
     }
 
+    /**
+     * Sizes the YUV stream the detector reads independently of the preview; null reads frames at
+     * the preview size. Takes effect when the camera is next opened.
+     */
+    public void setAnalysisSizePolicy(final AnalysisSizePolicy analysisSizePolicy) {
+        this.analysisSizePolicy = analysisSizePolicy;
+    }
+
     public interface ConnectionListener {
-        void onPreviewSizeChosen(Size size, int cameraRotation);
+        /**
+         * @param previewSize size of the frames shown on screen
+         * @param analysisSize size of the frames handed to the image listener
+         */
+        void onPreviewSizeChosen(Size previewSize, Size analysisSize, int cameraRotation);
     }
 
     private static Size chooseOptimalSize(final Size[] choices) {
@@ -173,6 +192,31 @@ public class CameraConnectionFragment extends Fragment {
         return chosenSize;
     }
 
+    /**
+     * The smallest YUV size the policy accepts for {@code preview}, or the preview size itself.
+     */
+    private Size chooseAnalysisSize(final Size[] choices, final Size preview, final int rotation) {
+        if (analysisSizePolicy == null || choices == null) {
+            return preview;
+        }
+        final int[] widths = new int[choices.length];
+        final int[] heights = new int[choices.length];
+        for (int i = 0; i < choices.length; i++) {
+            widths[i] = choices[i].getWidth();
+            heights[i] = choices[i].getHeight();
+        }
+        final int chosen = analysisSizePolicy.choose(widths, heights, preview.getWidth(), preview.getHeight(),
+                rotation);
+        if (chosen < 0) {
+            Log.i(LOGGING_TAG, "No YUV size in [" + TextUtils.join(", ", choices) + "] matches " + analysisSizePolicy
+                    + " at the preview's aspect ratio; analysing at the preview size");
+            return preview;
+        }
+        Log.i(LOGGING_TAG, AnalysisSizePolicy.describeSavings(preview.getWidth(), preview.getHeight(),
+                widths[chosen], heights[chosen], MAX_PREVIEW_IMAGES));
+        return choices[chosen];
+    }
+
     private void showToast(final String text) {
         final Activity activity = getActivity();
         if (activity != null) {
@@ -205,6 +249,9 @@ public class CameraConnectionFragment extends Fragment {
                 // bus' bandwidth limitation, resulting in gorgeous previews but the storage of
                 // garbage capture data.
                 previewSize = chooseOptimalSize(map.getOutputSizes(SurfaceTexture.class));
+                // The detector needs far fewer pixels than the screen, so it reads its own stream
+                analysisSize = chooseAnalysisSize(map.getOutputSizes(ImageFormat.YUV_420_888), previewSize,
+                        sensorOrientation);
 
 
                 // We fit the aspect ratio of TextureView to the size of preview we picked.
@@ -227,7 +274,7 @@ public class CameraConnectionFragment extends Fragment {
             throw new RuntimeException(getString(R.string.camera_error));
         }
 
-        cameraConnectionListener.onPreviewSizeChosen(previewSize, sensorOrientation);
+        cameraConnectionListener.onPreviewSizeChosen(previewSize, analysisSize, sensorOrientation);
     }
 
     private void openCamera(final int width, final int height) {
@@ -336,11 +383,12 @@ public class CameraConnectionFragment extends Fragment {
             previewRequestBuilder.addTarget(surface);
 
             Log.i(LOGGING_TAG, String.format("Opening camera preview: "
-                    + previewSize.getWidth() + "x" + previewSize.getHeight()));
+                    + previewSize.getWidth() + "x" + previewSize.getHeight()
+                    + ", analysis: " + analysisSize.getWidth() + "x" + analysisSize.getHeight()));
 
-            // Create the reader for the preview frames.
-            previewReader = ImageReader.newInstance(previewSize.getWidth(), previewSize.getHeight(),
-                    ImageFormat.YUV_420_888, 2);
+            // Create the reader for the frames the detector reads.
+            previewReader = ImageReader.newInstance(analysisSize.getWidth(), analysisSize.getHeight(),
+                    ImageFormat.YUV_420_888, MAX_PREVIEW_IMAGES);
 
             previewReader.setOnImageAvailableListener(imageListener, backgroundHandler);
             previewRequestBuilder.addTarget(previewReader.getSurface());
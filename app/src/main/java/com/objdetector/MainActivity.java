@@ -1,130 +1,416 @@
 package com.objdetector;
 
-import android.graphics.Bitmap;
-import android.graphics.Bitmap.Config;
-import android.graphics.Canvas;
-import android.graphics.Matrix;
 import android.media.Image;
 import android.media.ImageReader;
 import android.media.ImageReader.OnImageAvailableListener;
 import android.util.Log;
 import android.util.Size;
 import android.util.TypedValue;
+import android.view.KeyEvent;
 import android.widget.Toast;
 
-import com.objdetector.deepmodel.DetectionResult;
-import com.objdetector.deepmodel.MobileNetObjDetector;
+import com.objdetector.core.capture.CaptureRecorder;
+import com.objdetector.core.capture.CaptureWriter;
+import com.objdetector.core.image.ConversionTiming;
+import com.objdetector.core.image.FixedPointYuvToRgbKernel;
+import com.objdetector.core.image.LookupTableYuvToRgbKernel;
+import com.objdetector.core.image.ParallelRowExecutor;
+import com.objdetector.core.image.TensorFormat;
+import com.objdetector.core.image.YuvToRgbKernel;
+import com.objdetector.core.image.YuvToTensorConverter;
+import com.objdetector.core.motion.MotionGate;
+import com.objdetector.core.scheduling.AdaptiveScheduler;
+import com.objdetector.core.source.AnalysisSizePolicy;
+import com.objdetector.core.source.CaptureFrameSource;
+import com.objdetector.core.source.FrameSource;
+import com.objdetector.core.source.PulledFrameSource;
+import com.objdetector.core.source.SourceFrame;
+import com.objdetector.core.source.SyntheticFrameSource;
+import com.objdetector.core.source.Y4mFrameSource;
+import com.objdetector.core.stats.StageInstrumentation;
+import com.objdetector.core.tracking.ObjectTracker;
 import com.objdetector.customview.OverlayView;
-import com.objdetector.utils.ImageUtils;
+import com.objdetector.customview.StatsHud;
+import com.objdetector.deepmodel.DetectorService;
+import com.objdetector.deepmodel.MobileNetObjDetector;
+import com.objdetector.deepmodel.ModelRegistry;
+import com.objdetector.deepmodel.ModelSpec;
+import com.objdetector.pipeline.DetectionPipeline;
+import com.objdetector.source.CameraFrameSource;
+import com.objdetector.source.ImageDirectoryFrameSource;
 
+import java.io.File;
+import java.io.FileDescriptor;
 import java.io.IOException;
-import java.util.List;
+import java.io.PrintWriter;
 
 public class MainActivity extends CameraActivity implements OnImageAvailableListener {
-    private static int MODEL_IMAGE_INPUT_SIZE = 300;
     private static String LOGGING_TAG = MainActivity.class.getName();
     private static float TEXT_SIZE_DIP = 10;
+    private static int KEYFRAME_INTERVAL = 3;
+    private static float TARGET_INFERENCE_FPS = 10f;
+    private static long LATENCY_BUDGET_NANOS = 150_000_000L;
+    private static int SCHEDULER_WINDOW = 8;
+    private static int RESULT_CACHE_ENTRIES = 64;
+    private static long RESULT_CACHE_BYTES = 256 * 1024;
+    private static int RESULT_CACHE_MAX_DISTANCE = 4;
+    private static int TILE_COLUMNS = 2;
+    private static int TILE_ROWS = 2;
+    private static float TILE_OVERLAP = 0.2f;
+    // Stage timing costs a few clock reads per frame; false skips it entirely
+    private static boolean INSTRUMENT_STAGES = true;
+    // Launching with --ez record true writes every camera frame to a capture for replay
+    private static final String EXTRA_RECORD = "record";
+    private static long CAPTURE_SEGMENT_BYTES = 256L * 1024 * 1024;
+    private static int CAPTURE_BUFFERS = 8;
+    // Launching with --es source synthetic, y4m:<file>, images:<dir> or capture:<dir> feeds the
+    // pipeline from that source instead of the camera
+    private static final String EXTRA_SOURCE = "source";
+    private static int SOURCE_BUFFERS = 3;
+    private static int CONVERSION_TIMING_RUNS = 20;
+    // Launching with --es kernel fixedPoint converts frames with the fixed-point formula instead
+    // of the lookup tables
+    private static final String EXTRA_KERNEL = "kernel";
 
     private Integer sensorOrientation;
-    private int previewWidth = 0;
-    private int previewHeight = 0;
-    private MobileNetObjDetector objectDetector;
-    private Bitmap imageBitmapForModel = null;
-    private Bitmap rgbBitmapForCameraImage = null;
-    private boolean computing = false;
-    private Matrix imageTransformMatrix;
+    private int analysisWidth = 0;
+    private int analysisHeight = 0;
+    private ParallelRowExecutor rowExecutor;
+    private YuvToRgbKernel conversionKernel;
+    private final ModelRegistry modelRegistry = ModelRegistry.withBundledModels();
+    private final long createdNanos = System.nanoTime();
+    private volatile DetectionPipeline detectionPipeline;
+    // Guards destroyed, so a pipeline built while the activity is destroyed is never started.
+    private final Object lifecycleLock = new Object();
+    private boolean destroyed;
+    // Results are published one call at a time.
+    private boolean firstResultsLogged;
 
     private OverlayView overlayView;
+    private final StageInstrumentation stageInstrumentation = INSTRUMENT_STAGES ? new StageInstrumentation() : null;
+    private StatsHud statsHud;
+    private boolean statsHudShown;
+    private volatile CaptureRecorder captureRecorder;
+    private volatile FrameSource frameSource;
+    // Set when the camera is the frame source; its images are discarded otherwise.
+    private volatile CameraFrameSource cameraSource;
 
     @Override
-    public void onPreviewSizeChosen(final Size previewSize, final int rotation) {
+    public void onPreviewSizeChosen(final Size previewSize, final Size analysisSize, final int rotation) {
         final float textSizePx = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
                 TEXT_SIZE_DIP, getResources().getDisplayMetrics());
 
-        try {
-            objectDetector = MobileNetObjDetector.create(getAssets());
-            Log.i(LOGGING_TAG, "Model Initiated successfully.");
-            Toast.makeText(getApplicationContext(), "MobileNetObjDetector created", Toast.LENGTH_SHORT).show();
-        } catch(IOException e) {
-            e.printStackTrace();
-            Toast.makeText(getApplicationContext(), "MobileNetObjDetector could not be created", Toast.LENGTH_SHORT).show();
-            finish();
-        }
         overlayView = (OverlayView) findViewById(R.id.overlay);
+        overlayView.setInstrumentation(stageInstrumentation);
+        if (stageInstrumentation != null) {
+            statsHud = new StatsHud(stageInstrumentation, overlayView, textSizePx);
+        }
 
+        // A Surface.ROTATION_* constant, i.e. quarter turns rather than degrees
         final int screenOrientation = getWindowManager().getDefaultDisplay().getRotation();
         //Sensor orientation: 90, Screen orientation: 0
-        sensorOrientation = rotation + screenOrientation;
+        sensorOrientation = toFrameRotation(rotation, screenOrientation);
         Log.i(LOGGING_TAG, String.format("Camera rotation: %d, Screen orientation: %d, Sensor orientation: %d",
                 rotation, screenOrientation, sensorOrientation));
 
-        previewWidth = previewSize.getWidth();
-        previewHeight = previewSize.getHeight();
-        Log.i(LOGGING_TAG, "preview width: " + previewWidth);
-        Log.i(LOGGING_TAG, "preview height: " + previewHeight);
-        // create empty bitmap
-        imageBitmapForModel = Bitmap.createBitmap(MODEL_IMAGE_INPUT_SIZE, MODEL_IMAGE_INPUT_SIZE, Config.ARGB_8888);
-        rgbBitmapForCameraImage = Bitmap.createBitmap(previewWidth, previewHeight, Config.ARGB_8888);
-
-        imageTransformMatrix = ImageUtils.getTransformationMatrix(previewWidth, previewHeight,
-                MODEL_IMAGE_INPUT_SIZE, MODEL_IMAGE_INPUT_SIZE, sensorOrientation,true);
-        imageTransformMatrix.invert(new Matrix());
+        analysisWidth = analysisSize.getWidth();
+        analysisHeight = analysisSize.getHeight();
+        Log.i(LOGGING_TAG, "preview size: " + previewSize + ", analysis size: " + analysisSize);
+        rowExecutor = new ParallelRowExecutor(Runtime.getRuntime().availableProcessors());
+        conversionKernel = createKernel();
+        frameSource = createFrameSource();
+        if (getIntent().getBooleanExtra(EXTRA_RECORD, false)) {
+            startRecording();
+        }
+
+        // A long press loads the next registered model while the current one keeps running
+        overlayView.setOnLongClickListener(view -> {
+            final DetectionPipeline pipeline = detectionPipeline;
+            if (pipeline != null) {
+                final String next = modelRegistry.next(pipeline.getModel()).getName();
+                pipeline.switchModel(modelRegistry.get(next));
+                Toast.makeText(getApplicationContext(), "Loading " + next, Toast.LENGTH_SHORT).show();
+            }
+            return true;
+        });
+        // A tap switches tiling for small objects on or off
+        overlayView.setOnClickListener(view -> {
+            final DetectionPipeline pipeline = detectionPipeline;
+            if (pipeline != null) {
+                final boolean tiling = !pipeline.isTiling();
+                pipeline.setTiling(tiling ? TILE_COLUMNS : 1, tiling ? TILE_ROWS : 1, TILE_OVERLAP);
+                Toast.makeText(getApplicationContext(),
+                        tiling ? "Tiling " + TILE_COLUMNS + "x" + TILE_ROWS : "Tiling off", Toast.LENGTH_SHORT).show();
+            }
+        });
+        // Waits for the model preloaded at app start, if it is not ready yet, off the UI thread
+        runInBackground(this::startPipeline);
+        if (INSTRUMENT_STAGES && !analysisSize.equals(previewSize)) {
+            runInBackground(() -> logConversionSavings(previewSize, analysisSize));
+        }
+    }
+
+    /**
+     * The colour conversion kernel. Lookup tables fill the 300x300 uint8 input about 13% faster than
+     * the fixed-point formula from 720p and 1080p frames in TensorFillBenchmark, so they are the
+     * default; the extra lets a device be compared the other way.
+     */
+    private YuvToRgbKernel createKernel() {
+        final String name = getIntent().getStringExtra(EXTRA_KERNEL);
+        final YuvToRgbKernel kernel = "fixedPoint".equals(name)
+                ? new FixedPointYuvToRgbKernel() : new LookupTableYuvToRgbKernel();
+        Log.i(LOGGING_TAG, "Conversion kernel: " + kernel.getClass().getSimpleName());
+        return kernel;
+    }
+
+    /**
+     * Clockwise degrees, in [0, 360), that turn a camera frame upright on a display turned by
+     * {@code displayRotation} quarter turns.
+     */
+    private static int toFrameRotation(final int cameraRotation, final int displayRotation) {
+        return ((cameraRotation - 90 * displayRotation) % 360 + 360) % 360;
     }
 
+    /**
+     * Enough pixels for the largest registered model's input in each tile, so frames keep their
+     * detail when tiling is switched on.
+     */
     @Override
-    public void onImageAvailable(final ImageReader reader) {
-        Image imageFromCamera = null;
+    protected AnalysisSizePolicy getAnalysisSizePolicy() {
+        int width = 1;
+        int height = 1;
+        for (final String name : modelRegistry.getNames()) {
+            final ModelSpec spec = modelRegistry.get(name);
+            width = Math.max(width, AnalysisSizePolicy.tiledExtent(spec.getInputWidth(), TILE_COLUMNS, TILE_OVERLAP));
+            height = Math.max(height, AnalysisSizePolicy.tiledExtent(spec.getInputHeight(), TILE_ROWS, TILE_OVERLAP));
+        }
+        return new AnalysisSizePolicy(width, height);
+    }
+
+    /**
+     * Logs the conversion time the analysis size saves over converting preview-sized frames.
+     */
+    private void logConversionSavings(final Size previewSize, final Size analysisSize) {
+        final ModelSpec spec = modelRegistry.getDefault();
+        final long previewNanos = ConversionTiming.medianNanos(previewSize.getWidth(), previewSize.getHeight(),
+                spec.getInputWidth(), spec.getInputHeight(), sensorOrientation, conversionKernel,
+                TensorFormat.uint8(), CONVERSION_TIMING_RUNS);
+        final long analysisNanos = ConversionTiming.medianNanos(analysisSize.getWidth(), analysisSize.getHeight(),
+                spec.getInputWidth(), spec.getInputHeight(), sensorOrientation, conversionKernel,
+                TensorFormat.uint8(), CONVERSION_TIMING_RUNS);
+        Log.i(LOGGING_TAG, String.format("Single-threaded conversion into the %dx%d input: %.2fms from %s,"
+                        + " %.2fms from %s", spec.getInputWidth(), spec.getInputHeight(), analysisNanos / 1e6,
+                analysisSize, previewNanos / 1e6, previewSize));
+    }
+
+    /**
+     * The camera, unless the activity was launched with a source extra. Other sources loop and
+     * are read as fast as the pipeline takes their frames, while the preview keeps running.
+     */
+    private FrameSource createFrameSource() {
+        final String spec = getIntent().getStringExtra(EXTRA_SOURCE);
+        if (spec != null) {
+            try {
+                final PulledFrameSource source = openFrameSource(spec);
+                source.setLooping(true);
+                Log.i(LOGGING_TAG, "Reading frames from " + source);
+                return source;
+            } catch (final IOException | IllegalArgumentException ex) {
+                Log.e(LOGGING_TAG, "Could not open frame source " + spec + ", using the camera", ex);
+            }
+        }
+        final CameraFrameSource camera = new CameraFrameSource(analysisWidth, analysisHeight, sensorOrientation,
+                CameraConnectionFragment.MAX_PREVIEW_IMAGES);
+        cameraSource = camera;
+        return camera;
+    }
 
+    private PulledFrameSource openFrameSource(final String spec) throws IOException {
+        final int colon = spec.indexOf(':');
+        final String type = colon < 0 ? spec : spec.substring(0, colon);
+        final File path = new File(spec.substring(colon + 1));
+        switch (type) {
+            case "synthetic":
+                return new SyntheticFrameSource(analysisWidth, analysisHeight, 0, SOURCE_BUFFERS);
+            case "y4m":
+                return Y4mFrameSource.open(path, SOURCE_BUFFERS);
+            case "images":
+                return new ImageDirectoryFrameSource(path, analysisWidth, analysisHeight, SOURCE_BUFFERS);
+            case "capture":
+                // Recorded on this device, so the sensor orientation still applies
+                return CaptureFrameSource.open(path, sensorOrientation, SOURCE_BUFFERS);
+            default:
+                throw new IllegalArgumentException("Unknown frame source: " + spec);
+        }
+    }
+
+    private void startRecording() {
+        final File directory = new File(getExternalFilesDir("captures"), "capture-" + System.currentTimeMillis());
         try {
-            imageFromCamera = reader.acquireLatestImage();
-            if (imageFromCamera == null) {
-                return;
+            captureRecorder = new CaptureRecorder(new CaptureWriter(directory, CAPTURE_SEGMENT_BYTES), CAPTURE_BUFFERS);
+            Log.i(LOGGING_TAG, "Recording camera frames to " + directory);
+        } catch (final IOException ex) {
+            Log.e(LOGGING_TAG, "Could not start recording to " + directory, ex);
+        }
+    }
+
+    private void startPipeline() {
+        final int interpreterCount = ObjectDetectorApplication.INTERPRETER_COUNT;
+        final FrameSource source = frameSource;
+        try {
+            // The source frame is rotated, cropped and scaled straight into the model input
+            final DetectionPipeline pipeline = new DetectionPipeline(DetectorService.getInstance(this),
+                    modelRegistry.getDefault(), interpreterCount,
+                    ObjectDetectorApplication.createDetectorOptions(),
+                    (inputWidth, inputHeight, format) -> new YuvToTensorConverter(source.getWidth(),
+                            source.getHeight(), inputWidth, inputHeight, source.getRotation(), true, rowExecutor,
+                            conversionKernel, format),
+                    results -> {
+                        if (!firstResultsLogged) {
+                            firstResultsLogged = true;
+                            Log.i(LOGGING_TAG, String.format("First results %.1fms after activity start",
+                                    (System.nanoTime() - createdNanos) / 1e6));
+                        }
+                        // The overlay invalidates the area its boxes cover
+                        overlayView.setResults(results);
+                    });
+            pipeline.setModelListener((spec, labels, inputWidth, inputHeight) ->
+                    overlayView.setModel(inputWidth, inputHeight, labels));
+            // Boxes between detector runs come from the tracker
+            pipeline.setTracker(new ObjectTracker(KEYFRAME_INTERVAL));
+            pipeline.setMotionGate(new MotionGate());
+            pipeline.setResultCache(MobileNetObjDetector.createResultCache(
+                    RESULT_CACHE_ENTRIES, RESULT_CACHE_BYTES, RESULT_CACHE_MAX_DISTANCE));
+            pipeline.setInstrumentation(stageInstrumentation);
+            // The bundled SSD has fixed anchors for a 300x300 input, so there is one resolution
+            // tier and the scheduler adapts the keyframe interval only
+            pipeline.setScheduler(new AdaptiveScheduler(AdaptiveScheduler.SYSTEM_CLOCK,
+                    TARGET_INFERENCE_FPS, LATENCY_BUDGET_NANOS, new float[]{1f}, interpreterCount,
+                    SCHEDULER_WINDOW));
+            final boolean started;
+            synchronized (lifecycleLock) {
+                started = !destroyed;
+                if (started) {
+                    pipeline.start();
+                    detectionPipeline = pipeline;
+                    source.start(this::onFrame);
+                }
             }
-            if (computing) {
-                imageFromCamera.close();
+            if (!started) {
+                // onDestroy ran while the model was loading; keeps the interpreters for the next activity
+                pipeline.stop();
+                Log.i(LOGGING_TAG, "Activity destroyed before the pipeline started.");
                 return;
             }
-            computing = true;
-            preprocessImageForModel(imageFromCamera);
-            imageFromCamera.close();
-        } catch (final Exception ex) {
-            if (imageFromCamera != null) {
-                imageFromCamera.close();
-            }
-            Log.e(LOGGING_TAG, ex.getMessage());
+            Log.i(LOGGING_TAG, "Model Initiated successfully. "
+                    + DetectorService.getInstance(this).getLastStartup());
+            runOnUiThread(() -> Toast.makeText(getApplicationContext(), "MobileNetObjDetector created",
+                    Toast.LENGTH_SHORT).show());
+        } catch(IOException e) {
+            e.printStackTrace();
+            runOnUiThread(() -> {
+                Toast.makeText(getApplicationContext(), "MobileNetObjDetector could not be created",
+                        Toast.LENGTH_SHORT).show();
+                finish();
+            });
         }
+    }
 
-        runInBackground(() -> {
-            final List<DetectionResult> results = objectDetector.detectObjects(imageBitmapForModel);
-            overlayView.setResults(results);
-            //Log.i(LOGGING_TAG, results.get(0).toString());
-
-            /*if(results.size() > 0) {
-                String title = results.get(0).getTitle();
-                for(int ix = 1 ; ix < results.size() - 1; ix++) {
-                    title += ", ";
-                    title += results.get(ix).getTitle();
-                }
-                Toast.makeText(MainActivity.this, title, Toast.LENGTH_LONG).show();
-            } */
+    /**
+     * The volume keys show and hide the stage latency HUD.
+     */
+    @Override
+    public boolean onKeyDown(final int keyCode, final KeyEvent event) {
+        if (statsHud != null && overlayView != null
+                && (keyCode == KeyEvent.KEYCODE_VOLUME_UP || keyCode == KeyEvent.KEYCODE_VOLUME_DOWN)) {
+            statsHudShown = !statsHudShown;
+            if (statsHudShown) {
+                overlayView.addCallback(statsHud);
+                overlayView.postInvalidate();
+            } else {
+                overlayView.removeCallback(statsHud);
+            }
+            return true;
+        }
+        return super.onKeyDown(keyCode, event);
+    }
 
-            requestRender();
-            computing = false;
-        });
+    /**
+     * Adds the stage latencies and pipeline stats to {@code adb shell dumpsys activity}.
+     */
+    @Override
+    public void dump(final String prefix, final FileDescriptor fd, final PrintWriter writer, final String[] args) {
+        super.dump(prefix, fd, writer, args);
+        if (stageInstrumentation != null) {
+            writer.println(prefix + "Stage latencies:");
+            for (final String line : stageInstrumentation.report().split("\n")) {
+                writer.println(prefix + "  " + line);
+            }
+        }
+        final DetectionPipeline pipeline = detectionPipeline;
+        if (pipeline != null) {
+            writer.println(prefix + pipeline.getStatsSummary());
+        }
+        writer.println(prefix + "Frame source: " + frameSource);
     }
 
-    private void preprocessImageForModel(final Image imageFromCamera) {
-        rgbBitmapForCameraImage.setPixels(ImageUtils.convertYUVToARGB(imageFromCamera, previewWidth, previewHeight),
-                0, previewWidth, 0, 0, previewWidth, previewHeight);
+    @Override
+    public void onImageAvailable(final ImageReader reader) {
+        final CameraFrameSource camera = cameraSource;
+        if (camera != null) {
+            camera.onImageAvailable(reader);
+            return;
+        }
+        final Image image = reader.acquireLatestImage();
+        if (image != null) {
+            image.close();
+        }
+    }
 
-        new Canvas(imageBitmapForModel).drawBitmap(rgbBitmapForCameraImage, imageTransformMatrix, null);
+    private void onFrame(final SourceFrame frame) {
+        try {
+            final CaptureRecorder recorder = captureRecorder;
+            if (recorder != null) {
+                recorder.record(frame);
+            }
+            detectionPipeline.submit(frame);
+        } catch (final Exception ex) {
+            frame.close();
+            Log.e(LOGGING_TAG, ex.getMessage());
+        }
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (objectDetector != null) {
-            objectDetector.close();
+        final DetectionPipeline pipeline;
+        synchronized (lifecycleLock) {
+            destroyed = true;
+            pipeline = detectionPipeline;
+        }
+        final FrameSource source = frameSource;
+        if (source != null) {
+            source.close();
+            Log.i(LOGGING_TAG, "Frame source: " + source);
+        }
+        if (pipeline != null) {
+            pipeline.stop();
+        }
+        if (stageInstrumentation != null) {
+            Log.i(LOGGING_TAG, "Stage latencies:\n" + stageInstrumentation.report());
+        }
+        final CaptureRecorder recorder = captureRecorder;
+        if (recorder != null) {
+            captureRecorder = null;
+            try {
+                recorder.close();
+                Log.i(LOGGING_TAG, "Capture saved to " + recorder.getWriter().getDirectory() + ": " + recorder);
+            } catch (final IOException ex) {
+                Log.e(LOGGING_TAG, "Capture " + recorder.getWriter().getDirectory() + " is incomplete", ex);
+            }
+        }
+        if (rowExecutor != null) {
+            rowExecutor.close();
         }
     }
 }
@@ -0,0 +1,37 @@
+package com.objdetector;
+
+import android.app.Application;
+
+import com.objdetector.deepmodel.DetectorOptions;
+import com.objdetector.deepmodel.DetectorService;
+import com.objdetector.deepmodel.ModelRegistry;
+
+/**
+ * Starts loading the default model as soon as the process starts, while the camera is still
+ * being opened, so the first frames are not held up by the interpreters.
+ */
+public class ObjectDetectorApplication extends Application {
+    static final int INTERPRETER_COUNT = 2;
+    private static final float MIN_CONFIDENCE = 0.5f;
+    private static final float NMS_IOU_THRESHOLD = 0.5f;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        DetectorService.getInstance(this).preload(ModelRegistry.withBundledModels().getDefault(),
+                INTERPRETER_COUNT, createDetectorOptions());
+    }
+
+    /**
+     * The settings the camera pipeline runs its interpreters with, so preloaded ones match.
+     */
+    static DetectorOptions createDetectorOptions() {
+        // Split the cores between the interpreters rather than oversubscribing them
+        return DetectorOptions.builder()
+                .setNumThreads(Math.max(1, Runtime.getRuntime().availableProcessors() / INTERPRETER_COUNT))
+                .setUseXnnpack(true)
+                .setMinConfidence(MIN_CONFIDENCE)
+                .setNmsIouThreshold(NMS_IOU_THRESHOLD)
+                .build();
+    }
+}
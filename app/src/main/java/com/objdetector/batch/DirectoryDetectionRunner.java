@@ -0,0 +1,347 @@
+package com.objdetector.batch;
+
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Debug;
+import android.util.Log;
+
+import com.objdetector.core.batch.DetectionJournal;
+import com.objdetector.core.cache.DetectionCache;
+import com.objdetector.core.detection.DetectionBatch;
+import com.objdetector.core.image.DecodeSampling;
+import com.objdetector.core.pipeline.OrderedWorkerPool;
+import com.objdetector.deepmodel.DetectorOptions;
+import com.objdetector.deepmodel.MobileNetObjDetector;
+import com.objdetector.deepmodel.ModelRegistry;
+import com.objdetector.deepmodel.ModelSpec;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the detector over every image in a directory without the camera UI.
+ *
+ * Images are decoded on {@code decodeThreads} background threads, subsampled while decoding to
+ * roughly the model's input size, and handed in file-name order to the calling thread, which runs
+ * inference. Results go to a {@link DetectionJournal}, so a run that is interrupted picks up after
+ * the last checkpointed image when started again with the same output file.
+ */
+public class DirectoryDetectionRunner {
+    private static final String LOGGING_TAG = DirectoryDetectionRunner.class.getName();
+    private static final int CHECKPOINT_INTERVAL = 50;
+    private static final int DECODED_QUEUE_SIZE = 4;
+    private static final long HAND_OFF_POLL_MILLIS = 100;
+    private static final int RESULT_CACHE_ENTRIES = 512;
+    private static final long RESULT_CACHE_BYTES = 4 * 1024 * 1024;
+    // Duplicate photos survive re-encoding and resizing with a few flipped hash bits at most.
+    private static final int RESULT_CACHE_MAX_DISTANCE = 2;
+    private static final String[] IMAGE_SUFFIXES = {".jpg", ".jpeg", ".png", ".webp", ".bmp"};
+
+    public static class Summary {
+        private final int imageCount;
+        private final long resumedCount;
+        private final int failedCount;
+        private final long elapsedNanos;
+        private final long peakHeapBytes;
+        private final long peakNativeBytes;
+
+        Summary(final int imageCount, final long resumedCount, final int failedCount,
+                final long elapsedNanos, final long peakHeapBytes, final long peakNativeBytes) {
+            this.imageCount = imageCount;
+            this.resumedCount = resumedCount;
+            this.failedCount = failedCount;
+            this.elapsedNanos = elapsedNanos;
+            this.peakHeapBytes = peakHeapBytes;
+            this.peakNativeBytes = peakNativeBytes;
+        }
+
+        /**
+         * Images processed by this run, not counting those skipped on resume.
+         */
+        public int getImageCount() {
+            return imageCount;
+        }
+
+        public long getResumedCount() {
+            return resumedCount;
+        }
+
+        public int getFailedCount() {
+            return failedCount;
+        }
+
+        public double getImagesPerSecond() {
+            return elapsedNanos == 0 ? 0 : imageCount / (elapsedNanos / 1e9);
+        }
+
+        public long getPeakHeapBytes() {
+            return peakHeapBytes;
+        }
+
+        public long getPeakNativeBytes() {
+            return peakNativeBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "Batch detection: images=%d resumed=%d failed=%d %.2f images/s "
+                            + "peak heap=%.1fMB peak native=%.1fMB",
+                    imageCount, resumedCount, failedCount, getImagesPerSecond(),
+                    peakHeapBytes / 1048576.0, peakNativeBytes / 1048576.0);
+        }
+    }
+
+    private static final class DecodedImage {
+        final File file;
+        final Bitmap bitmap;
+        final int width;
+        final int height;
+
+        DecodedImage(final File file, final Bitmap bitmap, final int width, final int height) {
+            this.file = file;
+            this.bitmap = bitmap;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private static final DecodedImage END = new DecodedImage(null, null, 0, 0);
+
+    private final MobileNetObjDetector detector;
+    private final DetectionCache<DetectionBatch> resultCache;
+    private final int decodeThreads;
+
+    public DirectoryDetectionRunner(final AssetManager assetManager, final DetectorOptions options,
+                                    final int decodeThreads) throws IOException {
+        this(assetManager, ModelRegistry.SSD_MOBILENET_V1, options, decodeThreads);
+    }
+
+    public DirectoryDetectionRunner(final AssetManager assetManager, final ModelSpec spec,
+                                    final DetectorOptions options, final int decodeThreads) throws IOException {
+        if (decodeThreads < 1) {
+            throw new IllegalArgumentException("At least one decode thread is required: " + decodeThreads);
+        }
+        this.detector = MobileNetObjDetector.create(assetManager, spec, options);
+        this.resultCache = MobileNetObjDetector.createResultCache(
+                RESULT_CACHE_ENTRIES, RESULT_CACHE_BYTES, RESULT_CACHE_MAX_DISTANCE);
+        detector.setResultCache(resultCache);
+        this.decodeThreads = decodeThreads;
+    }
+
+    /**
+     * Detects objects in every image in {@code inputDir} and appends one JSON object per image to
+     * {@code output}, resuming an earlier run on the same output if there is one.
+     */
+    public Summary run(final File inputDir, final File output) throws IOException, InterruptedException {
+        final File[] listed = inputDir.listFiles(DirectoryDetectionRunner::isImage);
+        if (listed == null) {
+            throw new IOException("Cannot list " + inputDir);
+        }
+        Arrays.sort(listed);
+
+        try (DetectionJournal journal = new DetectionJournal(output, CHECKPOINT_INTERVAL)) {
+            final List<File> pending = new ArrayList<>(listed.length);
+            final String lastDone = journal.getLastKey();
+            for (final File file : listed) {
+                if (lastDone == null || file.getName().compareTo(lastDone) > 0) {
+                    pending.add(file);
+                }
+            }
+            Log.i(LOGGING_TAG, String.format(Locale.US, "%d images in %s, %d already done",
+                    listed.length, inputDir, journal.getResumedCount()));
+            return detectAll(pending, journal);
+        }
+    }
+
+    public void close() {
+        detector.close();
+    }
+
+    private Summary detectAll(final List<File> files, final DetectionJournal journal)
+            throws IOException, InterruptedException {
+        final BlockingQueue<DecodedImage> decoded = new ArrayBlockingQueue<>(DECODED_QUEUE_SIZE);
+        // Set when inference stops early, so decode threads stop waiting for queue space
+        final AtomicBoolean aborted = new AtomicBoolean();
+        final List<BitmapFactory.Options> decoders = new ArrayList<>(decodeThreads);
+        for (int i = 0; i < decodeThreads; i++) {
+            decoders.add(new BitmapFactory.Options());
+        }
+        final OrderedWorkerPool<BitmapFactory.Options, File, DecodedImage> decodePool =
+                new OrderedWorkerPool<>("decode", decoders, this::decode,
+                        (sequence, file, image) -> handOff(decoded,
+                                image != null ? image : new DecodedImage(file, null, 0, 0), aborted));
+
+        final Thread feeder = new Thread(() -> {
+            try {
+                for (final File file : files) {
+                    decodePool.submit(file);
+                }
+                decodePool.shutdown();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                handOff(decoded, END, aborted);
+            }
+        }, "decode-feeder");
+
+        final long start = System.nanoTime();
+        long peakHeap = 0;
+        long peakNative = 0;
+        int processed = 0;
+        int failed = 0;
+        feeder.start();
+        boolean finished = false;
+        final DetectionBatch results = detector.createBatch();
+        try {
+            DecodedImage image;
+            while ((image = decoded.take()) != END) {
+                if (image.bitmap == null) {
+                    journal.append(image.file.getName(), toErrorJson(image.file.getName()));
+                    failed++;
+                } else {
+                    detector.detectObjects(image.bitmap, results);
+                    image.bitmap.recycle();
+                    journal.append(image.file.getName(), toJson(image, results));
+                }
+                processed++;
+
+                final Runtime runtime = Runtime.getRuntime();
+                peakHeap = Math.max(peakHeap, runtime.totalMemory() - runtime.freeMemory());
+                peakNative = Math.max(peakNative, Debug.getNativeHeapAllocatedSize());
+            }
+            finished = true;
+        } finally {
+            if (!finished) {
+                aborted.set(true);
+                feeder.interrupt();
+            }
+            feeder.join();
+            if (!finished) {
+                decodePool.shutdown();
+            }
+            DecodedImage leftover;
+            while ((leftover = decoded.poll()) != null) {
+                if (leftover.bitmap != null) {
+                    leftover.bitmap.recycle();
+                }
+            }
+        }
+
+        final Summary summary = new Summary(processed, journal.getResumedCount(), failed,
+                System.nanoTime() - start, peakHeap, peakNative);
+        Log.i(LOGGING_TAG, summary.toString());
+        Log.i(LOGGING_TAG, resultCache.toString());
+        return summary;
+    }
+
+    private DecodedImage decode(final BitmapFactory.Options options, final File file) {
+        final int inputWidth = detector.getInputWidth();
+        final int inputHeight = detector.getInputHeight();
+        options.inJustDecodeBounds = true;
+        options.inSampleSize = 1;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        final int width = options.outWidth;
+        final int height = options.outHeight;
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inSampleSize = DecodeSampling.inSampleSize(width, height, inputWidth, inputHeight);
+        final Bitmap sampled = BitmapFactory.decodeFile(file.getPath(), options);
+        if (sampled == null) {
+            return null;
+        }
+        final Bitmap scaled = Bitmap.createScaledBitmap(sampled, inputWidth, inputHeight, true);
+        if (scaled != sampled) {
+            sampled.recycle();
+        }
+        return new DecodedImage(file, scaled, width, height);
+    }
+
+    /**
+     * One line per image with boxes in the original image's pixels.
+     */
+    private String toJson(final DecodedImage image, final DetectionBatch results) {
+        final List<String> labels = detector.getLabels();
+        final float scaleX = image.width / (float) detector.getInputWidth();
+        final float scaleY = image.height / (float) detector.getInputHeight();
+        final float[] boxes = results.getBoxes();
+        final StringBuilder json = new StringBuilder(128 + results.getCount() * 96);
+        json.append("{\"image\":").append(DetectionJournal.quote(image.file.getName()))
+                .append(",\"width\":").append(image.width)
+                .append(",\"height\":").append(image.height)
+                .append(",\"detections\":[");
+        for (int i = 0; i < results.getCount(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"label\":").append(DetectionJournal.quote(labels.get(results.getClassId(i))))
+                    .append(",\"score\":").append(results.getScore(i))
+                    .append(",\"box\":[")
+                    .append(boxes[i * 4] * scaleX).append(',')
+                    .append(boxes[i * 4 + 1] * scaleY).append(',')
+                    .append(boxes[i * 4 + 2] * scaleX).append(',')
+                    .append(boxes[i * 4 + 3] * scaleY).append("]}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String toErrorJson(final String name) {
+        return "{\"image\":" + DetectionJournal.quote(name) + ",\"error\":\"decode failed\"}";
+    }
+
+    /**
+     * True for files with one of the image suffixes the decoder reads.
+     */
+    public static boolean isImage(final File file) {
+        if (!file.isFile()) {
+            return false;
+        }
+        final String name = file.getName().toLowerCase(Locale.US);
+        for (final String suffix : IMAGE_SUFFIXES) {
+            if (name.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Waits for queue space, ignoring interrupts so the end marker always arrives, unless the
+     * consumer has given up, in which case the image is dropped.
+     */
+    private static void handOff(final BlockingQueue<DecodedImage> queue, final DecodedImage image,
+                                final AtomicBoolean aborted) {
+        boolean interrupted = false;
+        try {
+            while (!aborted.get()) {
+                try {
+                    if (queue.offer(image, HAND_OFF_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (final InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (image.bitmap != null) {
+                image.bitmap.recycle();
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
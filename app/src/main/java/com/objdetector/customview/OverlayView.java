@@ -4,89 +4,149 @@ import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.RectF;
 import android.util.AttributeSet;
 import android.util.TypedValue;
 import android.view.View;
 
-import com.objdetector.deepmodel.DetectionResult;
+import com.objdetector.core.detection.DetectionBatch;
+import com.objdetector.core.overlay.LabelTextCache;
+import com.objdetector.core.overlay.OverlayRenderer;
+import com.objdetector.core.stats.StageInstrumentation;
+import com.objdetector.core.stats.StageInstrumentation.Stage;
 
-import java.util.LinkedList;
 import java.util.List;
-
-
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Draws detection boxes and labels over the camera preview.
+ *
+ * Results reach the draw pass through an {@link OverlayRenderer}, so publishing never waits for a
+ * draw or the other way round, and only the part of the view the old and new boxes cover is
+ * invalidated. Drawing does not allocate.
+ *
+ * With a {@link StageInstrumentation} set, each draw is timed, and the first draw of each frame's
+ * boxes records the latency from that frame's capture.
+ */
 public class OverlayView extends View {
-    private static int INPUT_SIZE = 300;
-
-    private final Paint paint;
-    private final List<DrawCallback> callbacks = new LinkedList();
-    private List<DetectionResult> results;
-    private List<Integer> colors;
-    private float resultsViewHeight;
+    private static final float MIN_CONFIDENCE = 0.5f;
+    private static final int MAX_BOXES = 100;
+    private static final float STROKE_WIDTH = 2.0f;
+
+    private final Paint boxPaint;
+    private final Paint textPaint;
+    // Only used from the thread setting the model, so it never races the draw pass.
+    private final Paint measurePaint;
+    private final List<DrawCallback> callbacks = new CopyOnWriteArrayList<>();
+    private final OverlayRenderer renderer;
+    // Only used from the thread publishing results.
+    private final float[] dirty = new float[4];
+    private long submittedCaptureNanos;
+    private volatile StageInstrumentation instrumentation;
+    // Capture time of the last frame drawn; written by the draw pass only.
+    private volatile long drawnCaptureNanos;
 
     public OverlayView(final Context context, final AttributeSet attrs) {
         super(context, attrs);
-        paint = new Paint();
-        paint.setColor(Color.RED);
-        paint.setStyle(Paint.Style.STROKE);
-        paint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
+        boxPaint = new Paint();
+        boxPaint.setColor(Color.RED);
+        boxPaint.setStyle(Paint.Style.STROKE);
+        textPaint = new Paint(boxPaint);
+        textPaint.setStrokeWidth(STROKE_WIDTH);
+        textPaint.setStyle(Paint.Style.FILL_AND_STROKE);
+        textPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
                 20, getResources().getDisplayMetrics()));
-        resultsViewHeight = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
+        measurePaint = new Paint(textPaint);
+        final float resultsViewHeight = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
                 112, getResources().getDisplayMetrics());
+        renderer = new OverlayRenderer(MAX_BOXES, MIN_CONFIDENCE, resultsViewHeight,
+                textPaint.getTextSize(), 2 * STROKE_WIDTH);
     }
 
     public void addCallback(final DrawCallback callback) {
         callbacks.add(callback);
     }
 
+    public void removeCallback(final DrawCallback callback) {
+        callbacks.remove(callback);
+        postInvalidate();
+    }
+
+    /**
+     * Records draw and end-to-end latency into {@code instrumentation}; null records nothing.
+     */
+    public void setInstrumentation(final StageInstrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    @Override
+    protected void onSizeChanged(final int width, final int height, final int oldWidth, final int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+        renderer.setViewSize(width, height);
+    }
+
     @Override
-    public synchronized void onDraw(final Canvas canvas) {
-        for (final DrawCallback callback : callbacks) {
-            callback.drawCallback(canvas);
+    public void onDraw(final Canvas canvas) {
+        final StageInstrumentation instrumentation = this.instrumentation;
+        final long start = instrumentation == null ? 0 : System.nanoTime();
+        for (int i = 0; i < callbacks.size(); i++) {
+            callbacks.get(i).drawCallback(canvas);
+        }
+
+        final OverlayRenderer.Frame frame = renderer.acquireFrame();
+        final float[] boxes = frame.getViewBoxes();
+        for (int i = 0; i < frame.getCount(); i++) {
+            final int offset = i * 4;
+            canvas.drawRect(boxes[offset], boxes[offset + 1], boxes[offset + 2], boxes[offset + 3], boxPaint);
+            canvas.drawText(frame.getLabelText(i), boxes[offset], boxes[offset + 1], textPaint);
         }
 
-        if (results != null) {
-            for (int i = 0; i < results.size(); i++) {
-                if (results.get(i).getConfidence() > 0.5) {
-                    RectF box = reCalcSize(results.get(i).getLocation());
-                    String title = results.get(i).getTitle() + String.format(" %2.2f", results.get(i).getConfidence()*100) + "%";
-                    paint.setColor(Color.RED);
-                    paint.setStyle(Paint.Style.STROKE);
-                    canvas.drawRect(box, paint);
-                    paint.setStrokeWidth(2.0f);
-                    paint.setStyle(Paint.Style.FILL_AND_STROKE);
-                    canvas.drawText(title, box.left, box.top, paint);
-                }
+        if (instrumentation != null) {
+            final long end = System.nanoTime();
+            instrumentation.record(Stage.DRAW, end - start);
+            final long captureNanos = frame.getCaptureNanos();
+            if (captureNanos != 0 && captureNanos != drawnCaptureNanos) {
+                drawnCaptureNanos = captureNanos;
+                instrumentation.record(Stage.END_TO_END, end - captureNanos);
             }
         }
     }
 
-    public void setResults(final List<DetectionResult> results) {
-        this.results = results;
+    /**
+     * Sets the model whose results are drawn from now on, dropping any drawn for the previous one.
+     * Called in turn with {@link #setResults}.
+     *
+     * @param labels labels indexed by the class ids of the batches passed to {@link #setResults}
+     */
+    public void setModel(final int inputWidth, final int inputHeight, final List<String> labels) {
+        final LabelTextCache labelTexts = new LabelTextCache(labels);
+        renderer.setModel(inputWidth, inputHeight, labelTexts, measurePaint.measureText(labelTexts.getLongestText()));
         postInvalidate();
     }
 
-    public interface DrawCallback {
-        void drawCallback(final Canvas canvas);
+    /**
+     * Copies the boxes of {@code results} to be drawn; no reference to the batch is kept.
+     */
+    public void setResults(final DetectionBatch results) {
+        final StageInstrumentation instrumentation = this.instrumentation;
+        if (instrumentation != null && results.getCaptureNanos() != submittedCaptureNanos) {
+            // The previous frame's boxes are replaced before they were ever drawn.
+            if (submittedCaptureNanos != 0 && submittedCaptureNanos != drawnCaptureNanos) {
+                instrumentation.recordDrop(Stage.DRAW);
+            }
+            submittedCaptureNanos = results.getCaptureNanos();
+        }
+        if (!renderer.submit(results, dirty)) {
+            return;
+        }
+        if (callbacks.isEmpty()) {
+            postInvalidate((int) dirty[0], (int) dirty[1], (int) Math.ceil(dirty[2]), (int) Math.ceil(dirty[3]));
+        } else {
+            // Callbacks may draw anywhere.
+            postInvalidate();
+        }
     }
 
-    private RectF reCalcSize(RectF rect) {
-        int padding = 5;
-        float overlayViewHeight = getHeight() - resultsViewHeight;
-        float sizeMultiplier = Math.min((float) getWidth() / (float) INPUT_SIZE,
-                overlayViewHeight / (float) INPUT_SIZE);
-
-        float offsetX = (getWidth() - INPUT_SIZE * sizeMultiplier) / 2;
-        float offsetY = (overlayViewHeight - INPUT_SIZE * sizeMultiplier) / 2 + resultsViewHeight;
-
-        float left = Math.max(padding, sizeMultiplier * rect.left + offsetX);
-        float top = Math.max(offsetY + padding, sizeMultiplier * rect.top + offsetY);
-
-        float right = Math.min(rect.right * sizeMultiplier, getWidth() - padding);
-        float bottom = Math.min(rect.bottom * sizeMultiplier + offsetY, getHeight() - padding);
-
-        RectF newRect = new RectF(left, top, right, bottom);
-        return newRect;
+    public interface DrawCallback {
+        void drawCallback(final Canvas canvas);
     }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,63 @@
+package com.objdetector.customview;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.view.View;
+
+import com.objdetector.core.stats.StageInstrumentation;
+
+/**
+ * Draws the stage latency report in the bottom left corner of an {@link OverlayView}.
+ *
+ * The report is rebuilt at most twice a second, so draws in between only paint cached text. Each
+ * rebuild asks the view for another draw once the next one is due, so the report keeps updating
+ * while no new boxes invalidate the view, e.g. on a static scene.
+ */
+public class StatsHud implements OverlayView.DrawCallback {
+    private static final long REFRESH_NANOS = 500_000_000L;
+
+    private final StageInstrumentation instrumentation;
+    private final View view;
+    private final Paint textPaint = new Paint();
+    private final Paint backgroundPaint = new Paint();
+    private final float margin;
+    private String[] lines = new String[0];
+    private long refreshedNanos;
+    private float textWidth;
+
+    /**
+     * @param view the view the HUD is drawn on
+     */
+    public StatsHud(final StageInstrumentation instrumentation, final View view, final float textSizePx) {
+        this.instrumentation = instrumentation;
+        this.view = view;
+        this.margin = textSizePx / 2;
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTextSize(textSizePx);
+        textPaint.setTypeface(Typeface.MONOSPACE);
+        textPaint.setAntiAlias(true);
+        backgroundPaint.setColor(Color.argb(160, 0, 0, 0));
+    }
+
+    @Override
+    public void drawCallback(final Canvas canvas) {
+        final long now = System.nanoTime();
+        if (refreshedNanos == 0 || now - refreshedNanos >= REFRESH_NANOS) {
+            refreshedNanos = now;
+            view.postInvalidateDelayed(REFRESH_NANOS / 1_000_000);
+            lines = instrumentation.report().split("\n");
+            textWidth = 0;
+            for (final String line : lines) {
+                textWidth = Math.max(textWidth, textPaint.measureText(line));
+            }
+        }
+        final float lineHeight = textPaint.getFontSpacing();
+        final float top = canvas.getHeight() - lines.length * lineHeight - 2 * margin;
+        canvas.drawRect(0, top, textWidth + 2 * margin, canvas.getHeight(), backgroundPaint);
+        for (int i = 0; i < lines.length; i++) {
+            canvas.drawText(lines[i], margin, top + margin + (i + 1) * lineHeight - textPaint.descent(), textPaint);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.objdetector.deepmodel;
+
+import com.objdetector.core.detection.Quantization;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Output tensors of one inference, so inference of one frame can overlap post-processing of the
+ * previous one. Created by {@link MobileNetObjDetector#createOutputs()}, or with a leading batch
+ * dimension by {@link MobileNetObjDetector#createOutputs(int)}.
+ *
+ * Quantised outputs are read into byte buffers and dequantised into the float arrays once the
+ * interpreter has run, so decoding sees floats whatever the model's output types.
+ */
+public final class DetectionOutputs {
+    final float[][][] outputLocations;
+    final float[][] outputClasses;
+    final float[][] outputScores;
+    final float[] numDetections;
+    final float[] outputBoxes;
+    final int[] outputClassIds;
+    final int[] keptIndices;
+    final Map<Integer, Object> outputMap = new HashMap<>();
+    // Raw bytes and their quantisation for each quantised output, else null.
+    private final ByteBuffer locationBytes;
+    private final ByteBuffer classBytes;
+    private final ByteBuffer scoreBytes;
+    private final ByteBuffer countBytes;
+    private final Quantization locationQuantization;
+    private final Quantization classQuantization;
+    private final Quantization scoreQuantization;
+    private final Quantization countQuantization;
+
+    /**
+     * @param quantizations by output tensor index; null or missing for float outputs
+     */
+    DetectionOutputs(final int batchSize, final int numDetections, final ModelSpec.OutputLayout layout,
+                     final Quantization[] quantizations) {
+        this.outputLocations = new float[batchSize][numDetections][4];
+        this.outputClasses = new float[batchSize][numDetections];
+        this.outputScores = new float[batchSize][numDetections];
+        this.numDetections = new float[batchSize];
+        this.outputBoxes = new float[numDetections * 4];
+        this.outputClassIds = new int[numDetections];
+        this.keptIndices = new int[numDetections];
+
+        locationQuantization = quantizationOf(layout.getLocations(), quantizations);
+        classQuantization = quantizationOf(layout.getClasses(), quantizations);
+        scoreQuantization = quantizationOf(layout.getScores(), quantizations);
+        countQuantization = quantizationOf(layout.getCount(), quantizations);
+        locationBytes = bind(layout.getLocations(), locationQuantization, outputLocations,
+                batchSize * numDetections * 4);
+        classBytes = bind(layout.getClasses(), classQuantization, outputClasses, batchSize * numDetections);
+        scoreBytes = bind(layout.getScores(), scoreQuantization, outputScores, batchSize * numDetections);
+        countBytes = bind(layout.getCount(), countQuantization, this.numDetections, batchSize);
+    }
+
+    private static Quantization quantizationOf(final int index, final Quantization[] quantizations) {
+        return index < quantizations.length ? quantizations[index] : null;
+    }
+
+    /**
+     * Maps output {@code index} to its float array, or to a new byte buffer if it is quantised.
+     */
+    private ByteBuffer bind(final int index, final Quantization quantization, final Object floats,
+                            final int elements) {
+        if (quantization == null) {
+            outputMap.put(index, floats);
+            return null;
+        }
+        final ByteBuffer bytes = ByteBuffer.allocateDirect(elements).order(ByteOrder.nativeOrder());
+        outputMap.put(index, bytes);
+        return bytes;
+    }
+
+    public int getBatchSize() {
+        return numDetections.length;
+    }
+
+    /**
+     * Rewinds the quantised outputs' buffers, which the interpreter fills with relative puts.
+     */
+    void prepare() {
+        rewind(locationBytes);
+        rewind(classBytes);
+        rewind(scoreBytes);
+        rewind(countBytes);
+    }
+
+    private static void rewind(final ByteBuffer bytes) {
+        if (bytes != null) {
+            bytes.rewind();
+        }
+    }
+
+    /**
+     * Converts the quantised outputs of the last inference into the float arrays.
+     */
+    void dequantize() {
+        if (locationBytes != null) {
+            int offset = 0;
+            for (final float[][] image : outputLocations) {
+                for (final float[] box : image) {
+                    locationQuantization.dequantize(locationBytes, offset, box, 0, 4);
+                    offset += 4;
+                }
+            }
+        }
+        if (classBytes != null) {
+            dequantizeRows(classQuantization, classBytes, outputClasses);
+        }
+        if (scoreBytes != null) {
+            dequantizeRows(scoreQuantization, scoreBytes, outputScores);
+        }
+        if (countBytes != null) {
+            countQuantization.dequantize(countBytes, 0, numDetections, 0, numDetections.length);
+        }
+    }
+
+    private static void dequantizeRows(final Quantization quantization, final ByteBuffer bytes,
+                                       final float[][] rows) {
+        int offset = 0;
+        for (final float[] row : rows) {
+            quantization.dequantize(bytes, offset, row, 0, row.length);
+            offset += row.length;
+        }
+    }
+}
@@ -2,27 +2,32 @@ package com.objdetector.deepmodel;
 
 import android.graphics.RectF;
 
+/**
+ * One detection as an object, for callers of the list-based API. Frame-rate paths read a
+ * {@link com.objdetector.core.detection.DetectionBatch} instead, which
+ * {@link MobileNetObjDetector#toResults} turns into these.
+ */
 public final class DetectionResult implements Comparable<DetectionResult> {
-    private final Integer id;
+    private final int id;
     private final String title;
-    private final Float confidence;
+    private final float confidence;
     private RectF location;
 
-    public DetectionResult(final Integer id, final String title,
-                           final Float confidence, final RectF location) {
+    public DetectionResult(final int id, final String title,
+                           final float confidence, final RectF location) {
         this.id = id;
         this.title = title;
         this.confidence = confidence;
         this.location = location;
     }
 
-    public Integer getId() {
+    public int getId() {
         return id;
     }
 
     public String getTitle() { return title; }
 
-    public Float getConfidence() { return confidence; }
+    public float getConfidence() { return confidence; }
 
     public RectF getLocation() {
         return new RectF(location);
@@ -0,0 +1,218 @@
+package com.objdetector.deepmodel;
+
+import org.tensorflow.lite.Interpreter;
+
+/**
+ * Interpreter and result settings for a {@link MobileNetObjDetector}.
+ */
+public final class DetectorOptions {
+    private final int numThreads;
+    private final boolean useXnnpack;
+    private final boolean allowFp16Precision;
+    private final float minConfidence;
+    private final int maxDetections;
+    private final float nmsIouThreshold;
+    private final boolean classAwareNms;
+
+    private DetectorOptions(final Builder builder) {
+        this.numThreads = builder.numThreads;
+        this.useXnnpack = builder.useXnnpack;
+        this.allowFp16Precision = builder.allowFp16Precision;
+        this.minConfidence = builder.minConfidence;
+        this.maxDetections = builder.maxDetections;
+        this.nmsIouThreshold = builder.nmsIouThreshold;
+        this.classAwareNms = builder.classAwareNms;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The interpreter's own defaults and every detection the model reports, without further NMS.
+     */
+    public static DetectorOptions defaults() {
+        return builder().build();
+    }
+
+    public Builder toBuilder() {
+        return new Builder()
+                .setNumThreads(numThreads)
+                .setUseXnnpack(useXnnpack)
+                .setAllowFp16Precision(allowFp16Precision)
+                .setMinConfidence(minConfidence)
+                .setMaxDetections(maxDetections)
+                .setNmsIouThreshold(nmsIouThreshold)
+                .setClassAwareNms(classAwareNms);
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public boolean isUseXnnpack() {
+        return useXnnpack;
+    }
+
+    public boolean isAllowFp16Precision() {
+        return allowFp16Precision;
+    }
+
+    public float getMinConfidence() {
+        return minConfidence;
+    }
+
+    public int getMaxDetections() {
+        return maxDetections;
+    }
+
+    public float getNmsIouThreshold() {
+        return nmsIouThreshold;
+    }
+
+    public boolean isClassAwareNms() {
+        return classAwareNms;
+    }
+
+    // The fp16 flag is deprecated in favour of NnApiDelegate.Options#setAllowFp16, which needs an
+    // NNAPI delegate that the interpreters are not built with.
+    @SuppressWarnings("deprecation")
+    Interpreter.Options toInterpreterOptions() {
+        final Interpreter.Options options = new Interpreter.Options();
+        if (numThreads > 0) {
+            options.setNumThreads(numThreads);
+        }
+        options.setUseXNNPACK(useXnnpack);
+        options.setAllowFp16PrecisionForFp32(allowFp16Precision);
+        return options;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof DetectorOptions)) {
+            return false;
+        }
+        final DetectorOptions that = (DetectorOptions) other;
+        return numThreads == that.numThreads
+                && useXnnpack == that.useXnnpack
+                && allowFp16Precision == that.allowFp16Precision
+                && Float.compare(minConfidence, that.minConfidence) == 0
+                && maxDetections == that.maxDetections
+                && Float.compare(nmsIouThreshold, that.nmsIouThreshold) == 0
+                && classAwareNms == that.classAwareNms;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = numThreads;
+        result = 31 * result + (useXnnpack ? 1 : 0);
+        result = 31 * result + (allowFp16Precision ? 1 : 0);
+        result = 31 * result + Float.floatToIntBits(minConfidence);
+        result = 31 * result + maxDetections;
+        result = 31 * result + Float.floatToIntBits(nmsIouThreshold);
+        result = 31 * result + (classAwareNms ? 1 : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "DetectorOptions{" +
+                "numThreads=" + (numThreads > 0 ? String.valueOf(numThreads) : "default") +
+                ", useXnnpack=" + useXnnpack +
+                ", allowFp16Precision=" + allowFp16Precision +
+                ", minConfidence=" + minConfidence +
+                ", maxDetections=" + maxDetections +
+                ", nmsIouThreshold=" + nmsIouThreshold +
+                ", classAwareNms=" + classAwareNms +
+                '}';
+    }
+
+    public static final class Builder {
+        private int numThreads = 0;
+        private boolean useXnnpack = false;
+        private boolean allowFp16Precision = false;
+        private float minConfidence = 0f;
+        private int maxDetections = Integer.MAX_VALUE;
+        private float nmsIouThreshold = 1f;
+        private boolean classAwareNms = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Intra-op threads per interpreter; 0 leaves the interpreter's default.
+         */
+        public Builder setNumThreads(final int numThreads) {
+            if (numThreads < 0) {
+                throw new IllegalArgumentException("Thread count cannot be negative: " + numThreads);
+            }
+            this.numThreads = numThreads;
+            return this;
+        }
+
+        /**
+         * Runs supported operations on the XNNPACK CPU delegate.
+         */
+        public Builder setUseXnnpack(final boolean useXnnpack) {
+            this.useXnnpack = useXnnpack;
+            return this;
+        }
+
+        /**
+         * Lets float operations run at fp16 precision where the hardware supports it.
+         */
+        public Builder setAllowFp16Precision(final boolean allowFp16Precision) {
+            this.allowFp16Precision = allowFp16Precision;
+            return this;
+        }
+
+        /**
+         * Drops detections scoring below this value.
+         */
+        public Builder setMinConfidence(final float minConfidence) {
+            if (minConfidence < 0f || minConfidence > 1f) {
+                throw new IllegalArgumentException("Confidence must be in [0, 1]: " + minConfidence);
+            }
+            this.minConfidence = minConfidence;
+            return this;
+        }
+
+        /**
+         * Caps the number of detections returned per image; the model's own limit still applies.
+         */
+        public Builder setMaxDetections(final int maxDetections) {
+            if (maxDetections < 1) {
+                throw new IllegalArgumentException("Max detections must be at least 1: " + maxDetections);
+            }
+            this.maxDetections = maxDetections;
+            return this;
+        }
+
+        /**
+         * Suppresses a detection overlapping a better one by more than this IoU; 1 turns
+         * suppression off and returns the model's detections as they are.
+         */
+        public Builder setNmsIouThreshold(final float nmsIouThreshold) {
+            if (nmsIouThreshold < 0f || nmsIouThreshold > 1f) {
+                throw new IllegalArgumentException("IoU threshold must be in [0, 1]: " + nmsIouThreshold);
+            }
+            this.nmsIouThreshold = nmsIouThreshold;
+            return this;
+        }
+
+        /**
+         * Only suppresses detections of the same class, so e.g. a person on a chair keeps both.
+         */
+        public Builder setClassAwareNms(final boolean classAwareNms) {
+            this.classAwareNms = classAwareNms;
+            return this;
+        }
+
+        public DetectorOptions build() {
+            return new DetectorOptions(this);
+        }
+    }
+}
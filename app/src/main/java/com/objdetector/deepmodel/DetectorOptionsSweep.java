@@ -0,0 +1,112 @@
+package com.objdetector.deepmodel;
+
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import com.objdetector.core.stats.LatencySamples;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Times inference under a range of {@link DetectorOptions} on the current device, so thread
+ * count, XNNPACK and fp16 can be chosen by measurement rather than guesswork.
+ */
+public class DetectorOptionsSweep {
+    private static final String LOGGING_TAG = DetectorOptionsSweep.class.getName();
+
+    public static class Result {
+        private final DetectorOptions options;
+        private final LatencySamples wallLatency;
+        private final LatencySamples nativeLatency;
+
+        Result(final DetectorOptions options, final int runs) {
+            this.options = options;
+            this.wallLatency = new LatencySamples(runs);
+            this.nativeLatency = new LatencySamples(runs);
+        }
+
+        public DetectorOptions getOptions() {
+            return options;
+        }
+
+        /**
+         * Time spent in {@link MobileNetObjDetector#runInference}, including JNI transfers.
+         */
+        public LatencySamples getWallLatency() {
+            return wallLatency;
+        }
+
+        /**
+         * Time spent inside the interpreter, as reported by TensorFlow Lite.
+         */
+        public LatencySamples getNativeLatency() {
+            return nativeLatency;
+        }
+
+        @Override
+        public String toString() {
+            return options + " wall[" + wallLatency + "] native[" + nativeLatency + "]";
+        }
+    }
+
+    /**
+     * Every combination of 1, 2, 4, ... up to {@code maxThreads} threads, XNNPACK on and off, and
+     * fp16 on and off.
+     */
+    public static List<DetectorOptions> defaultGrid(final int maxThreads) {
+        final List<DetectorOptions> grid = new ArrayList<>();
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            for (final boolean xnnpack : new boolean[]{false, true}) {
+                for (final boolean fp16 : new boolean[]{false, true}) {
+                    grid.add(DetectorOptions.builder()
+                            .setNumThreads(threads)
+                            .setUseXnnpack(xnnpack)
+                            .setAllowFp16Precision(fp16)
+                            .build());
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Runs {@code warmupRuns} untimed and then {@code timedRuns} timed inferences on a mid-grey
+     * input for each set of options, one interpreter at a time.
+     */
+    public static List<Result> run(final AssetManager assetManager, final List<DetectorOptions> grid,
+                                   final int warmupRuns, final int timedRuns) throws IOException {
+        final List<Result> results = new ArrayList<>(grid.size());
+        for (final DetectorOptions options : grid) {
+            final MobileNetObjDetector detector = MobileNetObjDetector.create(assetManager, options);
+            try {
+                final ByteBuffer input = detector.createInputTensor();
+                while (input.hasRemaining()) {
+                    input.put((byte) 128);
+                }
+
+                final DetectionOutputs outputs = detector.createOutputs();
+                for (int i = 0; i < warmupRuns; i++) {
+                    detector.runInference(input, outputs);
+                }
+                final Result result = new Result(options, timedRuns);
+                for (int i = 0; i < timedRuns; i++) {
+                    final long start = System.nanoTime();
+                    detector.runInference(input, outputs);
+                    result.wallLatency.add(System.nanoTime() - start);
+                    final long nativeNanos = detector.getLastInferenceNanos();
+                    if (nativeNanos >= 0) {
+                        result.nativeLatency.add(nativeNanos);
+                    }
+                }
+                Log.i(LOGGING_TAG, result.toString());
+                results.add(result);
+            } finally {
+                detector.close();
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,232 @@
+package com.objdetector.deepmodel;
+
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import com.objdetector.core.cache.PerceptualHash;
+import com.objdetector.core.detection.DetectionBatch;
+import com.objdetector.core.image.TensorFormat;
+import com.objdetector.core.pipeline.OrderedWorkerPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Several interpreters over one memory-mapped model, so inferences can run on several cores.
+ *
+ * Each interpreter is used by one request at a time. Requests carry their own input tensor and
+ * {@link DetectionOutputs}, and finished requests are reported in submission order.
+ */
+public class DetectorPool<R extends DetectorPool.InferenceRequest> {
+    private static final String LOGGING_TAG = DetectorPool.class.getName();
+
+    public interface InferenceRequest {
+        ByteBuffer getInputTensor();
+
+        DetectionOutputs getOutputs();
+
+        /**
+         * Called once the interpreter has finished with the request, with the time it took.
+         */
+        void setInferenceNanos(long nanos);
+    }
+
+    public interface Listener<R> {
+        /**
+         * Called in submission order, one request at a time.
+         *
+         * @param succeeded false if the interpreter threw for this request
+         */
+        void onInferenceDone(long sequence, R request, boolean succeeded);
+    }
+
+    private final List<MobileNetObjDetector> detectors;
+    private final boolean ownsDetectors;
+    private final OrderedWorkerPool<MobileNetObjDetector, R, R> workers;
+
+    private DetectorPool(final List<MobileNetObjDetector> detectors, final boolean ownsDetectors,
+                         final Listener<R> listener) {
+        this.detectors = detectors;
+        this.ownsDetectors = ownsDetectors;
+        this.workers = new OrderedWorkerPool<>("inference", detectors,
+                (detector, request) -> {
+                    final long start = System.nanoTime();
+                    detector.runInference(request.getInputTensor(), request.getOutputs());
+                    request.setInferenceNanos(System.nanoTime() - start);
+                    return request;
+                },
+                (sequence, request, output) -> listener.onInferenceDone(sequence, request, output != null));
+    }
+
+    public static <R extends InferenceRequest> DetectorPool<R> create(final AssetManager assetManager,
+                                                                      final int size,
+                                                                      final DetectorOptions options,
+                                                                      final Listener<R> listener)
+            throws IOException {
+        return create(assetManager, ModelRegistry.SSD_MOBILENET_V1, size, options, listener);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the model's tensors do not match {@code spec}
+     */
+    public static <R extends InferenceRequest> DetectorPool<R> create(final AssetManager assetManager,
+                                                                      final ModelSpec spec,
+                                                                      final int size,
+                                                                      final DetectorOptions options,
+                                                                      final Listener<R> listener)
+            throws IOException {
+        return new DetectorPool<>(createDetectors(assetManager, spec, size, options), true, listener);
+    }
+
+    /**
+     * Runs requests on detectors created elsewhere, e.g. by a {@link DetectorService}. The pool does
+     * not own them: {@link #close()} stops its workers and leaves the detectors open.
+     */
+    public static <R extends InferenceRequest> DetectorPool<R> create(final List<MobileNetObjDetector> detectors,
+                                                                      final Listener<R> listener) {
+        if (detectors.isEmpty()) {
+            throw new IllegalArgumentException("A detector pool needs at least one detector.");
+        }
+        return new DetectorPool<>(new ArrayList<>(detectors), false, listener);
+    }
+
+    /**
+     * {@code size} interpreters sharing one mapping of the model and one list of labels.
+     */
+    static List<MobileNetObjDetector> createDetectors(final AssetManager assetManager, final ModelSpec spec,
+                                                      final int size, final DetectorOptions options)
+            throws IOException {
+        final MappedByteBuffer model = MobileNetObjDetector.loadModelFile(assetManager, spec);
+        final List<String> labels = MobileNetObjDetector.loadLabels(assetManager, spec);
+        final List<MobileNetObjDetector> detectors = new ArrayList<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                detectors.add(new MobileNetObjDetector(model, labels, spec, options));
+            }
+        } catch (final RuntimeException ex) {
+            for (final MobileNetObjDetector detector : detectors) {
+                detector.close();
+            }
+            throw ex;
+        }
+        return detectors;
+    }
+
+    public int getSize() {
+        return detectors.size();
+    }
+
+    public ModelSpec getSpec() {
+        return detectors.get(0).getSpec();
+    }
+
+    public int getInputWidth() {
+        return detectors.get(0).getInputWidth();
+    }
+
+    public int getInputHeight() {
+        return detectors.get(0).getInputHeight();
+    }
+
+    public TensorFormat getInputFormat() {
+        return detectors.get(0).getInputFormat();
+    }
+
+    public ByteBuffer createInputTensor() {
+        return detectors.get(0).createInputTensor();
+    }
+
+    public DetectionOutputs createOutputs() {
+        return detectors.get(0).createOutputs();
+    }
+
+    /**
+     * Perceptual hash of a filled input tensor, as used by result caches.
+     *
+     * @param hasher scratch owned by the calling thread
+     */
+    public long hashInput(final ByteBuffer inputTensor, final PerceptualHash hasher) {
+        return detectors.get(0).hashInput(inputTensor, hasher);
+    }
+
+    /**
+     * Decodes a finished request's outputs; safe to call from any thread.
+     */
+    public List<DetectionResult> decodeResults(final DetectionOutputs outputs) {
+        return detectors.get(0).decodeResults(outputs);
+    }
+
+    /**
+     * Decodes a finished request's outputs into {@code out} without allocating; safe to call from
+     * any thread.
+     */
+    public void decodeResults(final DetectionOutputs outputs, final DetectionBatch out) {
+        detectors.get(0).decodeResults(outputs, 0, out);
+    }
+
+    /**
+     * Labels indexed by the class ids of decoded batches.
+     */
+    public List<String> getLabels() {
+        return detectors.get(0).getLabels();
+    }
+
+    public int getMaxResults() {
+        return detectors.get(0).getMaxResults();
+    }
+
+    /**
+     * Waits for a free interpreter and starts inference on it.
+     *
+     * @return the sequence number the request will be reported with
+     * @throws java.util.concurrent.RejectedExecutionException if the pool has been closed
+     */
+    public long submit(final R request) throws InterruptedException {
+        return workers.submit(request);
+    }
+
+    public int getBusyCount() {
+        return workers.getBusyWorkerCount();
+    }
+
+    public double getUtilisation() {
+        return workers.getUtilisation();
+    }
+
+    public double getAverageQueueWaitMillis() {
+        return workers.getAverageQueueWaitMillis();
+    }
+
+    public double getMaxQueueWaitMillis() {
+        return workers.getMaxQueueWaitMillis();
+    }
+
+    public String getStatsSummary() {
+        return String.format("Detector pool: size=%d completed=%d failed=%d utilisation=%.2f "
+                        + "queue wait avg=%.2fms max=%.2fms",
+                detectors.size(), workers.getCompletedCount(), workers.getFailedCount(),
+                workers.getUtilisation(), workers.getAverageQueueWaitMillis(), workers.getMaxQueueWaitMillis());
+    }
+
+    /**
+     * Stops the workers once running inferences finish, then closes the detectors if the pool
+     * created them.
+     */
+    public void close() {
+        try {
+            workers.shutdown();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        Log.i(LOGGING_TAG, getStatsSummary());
+        if (!ownsDetectors) {
+            return;
+        }
+        for (final MobileNetObjDetector detector : detectors) {
+            detector.close();
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.objdetector.deepmodel;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps warmed-up interpreters for the life of the process, so an activity that is recreated,
+ * e.g. after every pause, finds its model already loaded.
+ *
+ * {@link #preload} starts loading on a background thread, as early as the application starts.
+ * Loading maps the model, creates the interpreters and runs each a few times on a blank input,
+ * as the first inferences are several times slower than later ones. {@link #acquire} hands the
+ * interpreters out, waiting for a preload still running, and {@link #release} keeps them for the
+ * next acquire. One set is kept between activities; asking for another model or other options
+ * closes it and loads afresh.
+ *
+ * Loads and acquires run in order on one thread, which alone touches the retained set.
+ */
+public class DetectorService {
+    private static final String LOGGING_TAG = DetectorService.class.getName();
+    // The first inference allocates the interpreter's buffers and packs XNNPACK weights; the next
+    // couple still run slow while caches and clocks settle.
+    private static final int WARM_UP_RUNS = 3;
+
+    private static DetectorService instance;
+
+    private final AssetManager assetManager;
+    private final ExecutorService loader =
+            Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "detector-loader"));
+    // Only used on the loader thread.
+    private Lease idle;
+    private volatile Startup lastStartup;
+
+    /**
+     * Interpreters handed out by {@link #acquire}, to be given back with {@link #release} or closed.
+     */
+    public static final class Lease {
+        private final ModelSpec spec;
+        private final DetectorOptions options;
+        private final List<MobileNetObjDetector> detectors;
+        private final long loadStartNanos;
+        private final long loadNanos;
+        private final long coldInferenceNanos;
+        private final long warmInferenceNanos;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(final ModelSpec spec, final DetectorOptions options,
+                      final List<MobileNetObjDetector> detectors, final long loadStartNanos,
+                      final long loadNanos, final long coldInferenceNanos, final long warmInferenceNanos) {
+            this.spec = spec;
+            this.options = options;
+            this.detectors = Collections.unmodifiableList(detectors);
+            this.loadStartNanos = loadStartNanos;
+            this.loadNanos = loadNanos;
+            this.coldInferenceNanos = coldInferenceNanos;
+            this.warmInferenceNanos = warmInferenceNanos;
+        }
+
+        public ModelSpec getSpec() {
+            return spec;
+        }
+
+        public List<MobileNetObjDetector> getDetectors() {
+            return detectors;
+        }
+
+        boolean matches(final ModelSpec spec, final int count, final DetectorOptions options) {
+            return this.spec.getName().equals(spec.getName()) && detectors.size() == count
+                    && this.options.equals(options);
+        }
+
+        /**
+         * Closes the interpreters instead of keeping them, e.g. for a model switched away from.
+         */
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                for (final MobileNetObjDetector detector : detectors) {
+                    detector.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * How long an {@link #acquire} took to get its interpreters and what loading them cost.
+     */
+    public static final class Startup {
+        private final String model;
+        private final boolean preloaded;
+        private final long waitNanos;
+        private final long loadNanos;
+        private final long coldInferenceNanos;
+        private final long warmInferenceNanos;
+
+        Startup(final String model, final boolean preloaded, final long waitNanos, final long loadNanos,
+                final long coldInferenceNanos, final long warmInferenceNanos) {
+            this.model = model;
+            this.preloaded = preloaded;
+            this.waitNanos = waitNanos;
+            this.loadNanos = loadNanos;
+            this.coldInferenceNanos = coldInferenceNanos;
+            this.warmInferenceNanos = warmInferenceNanos;
+        }
+
+        /**
+         * True if loading began before the acquire, by a preload or for an earlier activity; false
+         * for a cold start that loaded the model on demand.
+         */
+        public boolean isPreloaded() {
+            return preloaded;
+        }
+
+        /**
+         * Time the acquire blocked its caller.
+         */
+        public double getWaitMillis() {
+            return waitNanos / 1e6;
+        }
+
+        /**
+         * Time to map the model and create the interpreters, whenever that happened.
+         */
+        public double getLoadMillis() {
+            return loadNanos / 1e6;
+        }
+
+        /**
+         * The first inference of a fresh interpreter, which warm-up keeps off the first frame.
+         */
+        public double getColdInferenceMillis() {
+            return coldInferenceNanos / 1e6;
+        }
+
+        /**
+         * The last warm-up inference, roughly what each frame will cost.
+         */
+        public double getWarmInferenceMillis() {
+            return warmInferenceNanos / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Startup of %s: %s, waited %.1fms, load %.1fms, inference cold %.1fms warm %.1fms",
+                    model, preloaded ? "preloaded" : "cold", getWaitMillis(), getLoadMillis(),
+                    getColdInferenceMillis(), getWarmInferenceMillis());
+        }
+    }
+
+    DetectorService(final AssetManager assetManager) {
+        this.assetManager = assetManager;
+    }
+
+    public static synchronized DetectorService getInstance(final Context context) {
+        if (instance == null) {
+            instance = new DetectorService(context.getApplicationContext().getAssets());
+        }
+        return instance;
+    }
+
+    /**
+     * Loads and warms up {@code count} interpreters of {@code spec} in the background, unless they
+     * are already kept. Returns straight away; failures are logged and left to {@link #acquire}.
+     */
+    public void preload(final ModelSpec spec, final int count, final DetectorOptions options) {
+        loader.execute(() -> {
+            if (idle != null && idle.matches(spec, count, options)) {
+                return;
+            }
+            try {
+                keep(load(spec, count, options));
+            } catch (final IOException | RuntimeException ex) {
+                Log.e(LOGGING_TAG, "Could not preload " + spec, ex);
+            }
+        });
+    }
+
+    /**
+     * Takes the kept interpreters if they match, waiting for a preload still running, or else
+     * loads and warms up new ones.
+     *
+     * @throws IllegalArgumentException if the model's tensors do not match {@code spec}
+     */
+    public Lease acquire(final ModelSpec spec, final int count, final DetectorOptions options)
+            throws IOException {
+        final long start = System.nanoTime();
+        final Future<Lease> future = loader.submit(() -> take(spec, count, options));
+        final Lease lease;
+        try {
+            lease = future.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            // Tasks run in order, so the lease is ready, or has failed, by the time this runs.
+            loader.execute(() -> {
+                try {
+                    keep(future.get());
+                } catch (final InterruptedException | ExecutionException ignored) {
+                    // Nothing was loaded.
+                }
+            });
+            throw new InterruptedIOException("Interrupted while loading " + spec);
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Could not load " + spec, cause);
+        }
+        final Startup startup = new Startup(spec.getName(), lease.loadStartNanos < start,
+                System.nanoTime() - start, lease.loadNanos, lease.coldInferenceNanos, lease.warmInferenceNanos);
+        lastStartup = startup;
+        Log.i(LOGGING_TAG, startup.toString());
+        return lease;
+    }
+
+    /**
+     * Gives interpreters back to be kept for the next {@link #acquire}, closing any kept before.
+     */
+    public void release(final Lease lease) {
+        loader.execute(() -> keep(lease));
+    }
+
+    /**
+     * The timings of the most recent {@link #acquire}, or null before the first.
+     */
+    public Startup getLastStartup() {
+        return lastStartup;
+    }
+
+    private Lease take(final ModelSpec spec, final int count, final DetectorOptions options) throws IOException {
+        if (idle != null && idle.matches(spec, count, options)) {
+            final Lease lease = idle;
+            idle = null;
+            return lease;
+        }
+        keep(null);
+        return load(spec, count, options);
+    }
+
+    private void keep(final Lease lease) {
+        if (idle != null && idle != lease) {
+            idle.close();
+        }
+        idle = lease;
+    }
+
+    private Lease load(final ModelSpec spec, final int count, final DetectorOptions options) throws IOException {
+        final long start = System.nanoTime();
+        final List<MobileNetObjDetector> detectors = DetectorPool.createDetectors(assetManager, spec, count, options);
+        final long loadNanos = System.nanoTime() - start;
+        long coldInferenceNanos = 0;
+        long warmInferenceNanos = 0;
+        try {
+            for (int i = 0; i < detectors.size(); i++) {
+                for (int run = 0; run < WARM_UP_RUNS; run++) {
+                    final long runStart = System.nanoTime();
+                    detectors.get(i).warmUp();
+                    final long runNanos = System.nanoTime() - runStart;
+                    if (i == 0 && run == 0) {
+                        coldInferenceNanos = runNanos;
+                    } else if (i == 0) {
+                        warmInferenceNanos = runNanos;
+                    }
+                }
+            }
+        } catch (final RuntimeException ex) {
+            for (final MobileNetObjDetector detector : detectors) {
+                detector.close();
+            }
+            throw ex;
+        }
+        Log.i(LOGGING_TAG, String.format("Loaded %d x %s in %.1fms, warmed up in %.1fms", count, spec,
+                loadNanos / 1e6, (System.nanoTime() - start - loadNanos) / 1e6));
+        return new Lease(spec, options, detectors, start, loadNanos, coldInferenceNanos, warmInferenceNanos);
+    }
+}
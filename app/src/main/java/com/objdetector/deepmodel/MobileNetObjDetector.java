@@ -6,7 +6,19 @@ import android.graphics.Bitmap;
 import android.graphics.RectF;
 import android.util.Log;
 
+import com.objdetector.core.cache.DetectionCache;
+import com.objdetector.core.cache.PerceptualHash;
+import com.objdetector.core.detection.DetectionBatch;
+import com.objdetector.core.detection.DetectionPostProcessor;
+import com.objdetector.core.detection.Quantization;
+import com.objdetector.core.detection.SsdOutputDecoder;
+import com.objdetector.core.image.ParallelRowExecutor;
+import com.objdetector.core.image.RgbTensorPacker;
+import com.objdetector.core.image.TensorFormat;
+
+import org.tensorflow.lite.DataType;
 import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
 
 import java.io.BufferedReader;
 import java.io.FileInputStream;
@@ -18,53 +30,71 @@ import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.Vector;
 
+/**
+ * Runs an SSD detection model described by a {@link ModelSpec}. Input and output buffers are
+ * sized from the interpreter's tensor shapes.
+ *
+ * Inputs may be uint8, int8 or float32; the input tensor's type and quantisation, with the spec's
+ * normalisation, give the {@link TensorFormat} that bitmaps and camera frames are packed in.
+ * Quantised outputs are dequantised before decoding.
+ */
 public class MobileNetObjDetector {
-    private static final String MODEL_FILENAME = "detect.tflite";
-    private static final String LABEL_FILENAME = "labelmap.txt";
-    private static final int INPUT_SIZE = 300;
-    private static final int NUM_BYTES_PER_CHANNEL = 1;
-    private static final float IMAGE_MEAN = 128.0f;
-    private static final float IMAGE_STD = 128.0f;
-    private static final int NUM_DETECTIONS = 10;
+    // Rough heap footprint of a cached batch and of each detection in it.
+    private static final int BATCH_BYTES = 96;
+    private static final int DETECTION_BYTES = 28;
     private static final String LOGGING_TAG = MobileNetObjDetector.class.getName();
 
     private ByteBuffer imgData;
     private Interpreter tfLite;
     private int[] intValues;
-    private float[][][] outputLocations;
-    private float[][] outputClasses;
-    private float[][] outputScores;
-    private float[] numDetections;
-    private Vector<String> labels = new Vector<String>();
-
-    private MobileNetObjDetector(final AssetManager assetManager) throws IOException {
-        init(assetManager);
-    }
-
-    private void init(final AssetManager assetManager) throws IOException {
-        imgData = ByteBuffer.allocateDirect(1 * INPUT_SIZE * INPUT_SIZE * 3 * NUM_BYTES_PER_CHANNEL);
-        imgData.order(ByteOrder.nativeOrder());
-        intValues = new int[INPUT_SIZE * INPUT_SIZE];
-        outputLocations = new float[1][NUM_DETECTIONS][4];
-        outputClasses = new float[1][NUM_DETECTIONS];
-        outputScores = new float[1][NUM_DETECTIONS];
-        numDetections = new float[1];
-
-        InputStream labelsInput = assetManager.open(LABEL_FILENAME);
-        BufferedReader br = new BufferedReader(new InputStreamReader(labelsInput));
-        String line;
-        while ((line = br.readLine()) != null) {
-            labels.add(line);
-        }
-        br.close();
+    private DetectionOutputs outputs;
+    private List<String> labels;
+    private final Object[] inputArray = new Object[1];
+    private DetectionBatch resultBatch;
+    private ParallelRowExecutor rowExecutor;
+    private DetectorOptions options;
+    private int inputBatchSize = 1;
+    private boolean batchingSupported = true;
+    private ByteBuffer batchInput;
+    private DetectionOutputs batchOutputs;
+    private DetectionCache<DetectionBatch> resultCache;
+    // Only used by the single-image cached path, which runs one call at a time.
+    private final PerceptualHash inputHasher = new PerceptualHash();
+    private DetectionPostProcessor postProcessor;
+    private ModelSpec spec;
+    private int inputWidth;
+    private int inputHeight;
+    private int imageBytes;
+    private int numDetections;
+    private TensorFormat inputFormat;
+    private Quantization[] outputQuantizations;
+
+    private MobileNetObjDetector(final AssetManager assetManager, final ModelSpec spec,
+                                 final DetectorOptions options) throws IOException {
+        this(loadModelFile(assetManager, spec), loadLabels(assetManager, spec), spec, options);
+    }
+
+    /**
+     * Creates a detector on an already mapped model, which several detectors may share.
+     */
+    MobileNetObjDetector(final MappedByteBuffer model, final List<String> labels, final ModelSpec spec,
+                         final DetectorOptions options) {
+        init(model, labels, spec, options);
+    }
+
+    private void init(final MappedByteBuffer model, final List<String> labels, final ModelSpec spec,
+                      final DetectorOptions options) {
+        this.labels = Collections.unmodifiableList(labels);
+        this.spec = spec;
+        this.options = options;
 
         try {
-            tfLite = new Interpreter(loadModelFile(assetManager));
+            tfLite = new Interpreter(model, options.toInterpreterOptions());
+            Log.i(LOGGING_TAG, "Created interpreter with " + options);
             Log.i(LOGGING_TAG, "Input tensor shapes:");
             for (int i=0; i<tfLite.getInputTensorCount(); i++) {
                 int[] shape = tfLite.getInputTensor(i).shape();
@@ -88,15 +118,208 @@ public class MobileNetObjDetector {
             throw new RuntimeException(e);
         }
 
+        try {
+            readTensorShapes();
+        } catch (final IllegalArgumentException ex) {
+            tfLite.close();
+            throw ex;
+        }
+        imgData = createInputTensor();
+        intValues = new int[inputWidth * inputHeight];
+        outputs = createOutputs();
+        resultBatch = createBatch();
+        postProcessor = new DetectionPostProcessor(options.getMinConfidence(), numDetections,
+                options.getNmsIouThreshold(), options.isClassAwareNms());
+    }
+
+    /**
+     * Takes the input size and detection count from the interpreter, checking them against the spec.
+     */
+    private void readTensorShapes() {
+        final Tensor input = tfLite.getInputTensor(0);
+        final int[] shape = input.shape();
+        if (shape.length != 4 || shape[3] != 3 || shape[1] != spec.getInputHeight()
+                || shape[2] != spec.getInputWidth() || input.dataType() != spec.getInputType()) {
+            throw new IllegalArgumentException("Model " + spec + " has an input tensor of "
+                    + Arrays.toString(shape) + " " + input.dataType());
+        }
+        inputHeight = shape[1];
+        inputWidth = shape[2];
+        inputFormat = createInputFormat(input);
+        imageBytes = inputWidth * inputHeight * inputFormat.getBytesPerPixel();
+        numDetections = tfLite.getOutputTensor(spec.getOutputLayout().getLocations()).shape()[1];
+        outputQuantizations = new Quantization[tfLite.getOutputTensorCount()];
+        for (int i = 0; i < outputQuantizations.length; i++) {
+            outputQuantizations[i] = quantizationOf(tfLite.getOutputTensor(i));
+        }
+        Log.i(LOGGING_TAG, "Input format: " + inputFormat + ", output quantisation: "
+                + Arrays.toString(outputQuantizations));
+    }
+
+    private TensorFormat createInputFormat(final Tensor input) {
+        final Tensor.QuantizationParams params = input.quantizationParams();
+        final boolean quantized = params != null && params.getScale() > 0f;
+        switch (input.dataType()) {
+            case FLOAT32:
+                return TensorFormat.float32(spec.getInputMean(), spec.getInputStd());
+            case UINT8:
+                return quantized ? TensorFormat.quantized(TensorFormat.ElementType.UINT8, spec.getInputMean(),
+                        spec.getInputStd(), params.getScale(), params.getZeroPoint()) : TensorFormat.uint8();
+            case INT8:
+                return quantized ? TensorFormat.quantized(TensorFormat.ElementType.INT8, spec.getInputMean(),
+                        spec.getInputStd(), params.getScale(), params.getZeroPoint()) : TensorFormat.int8();
+            default:
+                throw new IllegalArgumentException("Unsupported input type " + input.dataType() + ": " + spec);
+        }
+    }
+
+    /**
+     * How to dequantise an output tensor, or null if it holds floats.
+     */
+    private Quantization quantizationOf(final Tensor output) {
+        final DataType type = output.dataType();
+        if (type == DataType.FLOAT32) {
+            return null;
+        }
+        final Tensor.QuantizationParams params = output.quantizationParams();
+        if ((type != DataType.UINT8 && type != DataType.INT8) || params == null || params.getScale() <= 0f) {
+            throw new IllegalArgumentException("Unsupported output " + output.name() + " of " + type + ": " + spec);
+        }
+        return new Quantization(type == DataType.INT8, params.getScale(), params.getZeroPoint());
+    }
+
+    /**
+     * Allocates a direct buffer laid out like the model's input tensor.
+     */
+    public ByteBuffer createInputTensor() {
+        return createInputTensor(1);
+    }
+
+    /**
+     * Allocates a direct buffer holding {@code batchSize} input images back to back.
+     */
+    public ByteBuffer createInputTensor(final int batchSize) {
+        ByteBuffer inputTensor = ByteBuffer.allocateDirect(batchSize * imageBytes);
+        inputTensor.order(ByteOrder.nativeOrder());
+        return inputTensor;
     }
 
     public static MobileNetObjDetector create(final AssetManager assetManager) throws IOException {
-        return new MobileNetObjDetector(assetManager);
+        return create(assetManager, DetectorOptions.defaults());
+    }
+
+    public static MobileNetObjDetector create(final AssetManager assetManager,
+                                              final DetectorOptions options) throws IOException {
+        return create(assetManager, ModelRegistry.SSD_MOBILENET_V1, options);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the model's tensors do not match {@code spec}
+     */
+    public static MobileNetObjDetector create(final AssetManager assetManager, final ModelSpec spec,
+                                              final DetectorOptions options) throws IOException {
+        return new MobileNetObjDetector(assetManager, spec, options);
+    }
+
+    public DetectorOptions getOptions() {
+        return options;
+    }
+
+    public ModelSpec getSpec() {
+        return spec;
+    }
+
+    public int getInputWidth() {
+        return inputWidth;
+    }
+
+    public int getInputHeight() {
+        return inputHeight;
+    }
+
+    /**
+     * How pixels are stored in {@link #createInputTensor()}'s buffers.
+     */
+    public TensorFormat getInputFormat() {
+        return inputFormat;
+    }
+
+    /**
+     * Runs the model once on a blank input, so the first real frame does not pay for the
+     * interpreter's lazy allocations.
+     */
+    public void warmUp() {
+        final ByteBuffer blank = createInputTensor();
+        runInference(blank, createOutputs());
+    }
+
+    /**
+     * Labels indexed by the class ids in a {@link DetectionBatch}.
+     */
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    /**
+     * Most detections decoded per image, the model's limit capped by the options.
+     */
+    public int getMaxResults() {
+        return Math.min(numDetections, options.getMaxDetections());
+    }
+
+    /**
+     * An unpooled batch large enough for one image's results.
+     */
+    public DetectionBatch createBatch() {
+        return new DetectionBatch(numDetections);
+    }
+
+    /**
+     * Creates a cache for {@link #setResultCache}, weighing entries by their number of detections.
+     *
+     * @param maxDistance largest Hamming distance between input hashes treated as the same image
+     */
+    public static DetectionCache<DetectionBatch> createResultCache(
+            final int maxEntries, final long maxBytes, final int maxDistance) {
+        return new DetectionCache<>(maxEntries, maxBytes, maxDistance,
+                DetectionCache.EvictionPolicy.LEAST_RECENTLY_USED,
+                batch -> BATCH_BYTES + (long) DETECTION_BYTES * batch.getCapacity());
+    }
+
+    /**
+     * Returns cached results instead of running inference when an input tensor's perceptual hash
+     * is close to one seen before; null disables caching. A cache may be shared between detectors.
+     * Only single-image calls use it, not {@link #detectObjects(List)}. Cached batches are
+     * unpooled copies and must not be written to.
+     */
+    public void setResultCache(final DetectionCache<DetectionBatch> resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Perceptual hash of a filled input tensor, the key used by the result cache.
+     *
+     * @param hasher scratch owned by the calling thread
+     */
+    public long hashInput(final ByteBuffer inputTensor, final PerceptualHash hasher) {
+        return hasher.dHash(inputTensor, inputWidth, inputHeight, inputFormat);
+    }
+
+    static List<String> loadLabels(final AssetManager assetManager, final ModelSpec spec) throws IOException {
+        final List<String> labels = new ArrayList<>();
+        InputStream labelsInput = assetManager.open(spec.getLabelFile());
+        BufferedReader br = new BufferedReader(new InputStreamReader(labelsInput));
+        String line;
+        while ((line = br.readLine()) != null) {
+            labels.add(line);
+        }
+        br.close();
+        return labels;
     }
 
-    private static MappedByteBuffer loadModelFile(AssetManager assets)
+    static MappedByteBuffer loadModelFile(AssetManager assets, ModelSpec spec)
             throws IOException {
-        AssetFileDescriptor fileDescriptor = assets.openFd(MODEL_FILENAME);
+        AssetFileDescriptor fileDescriptor = assets.openFd(spec.getModelFile());
         FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
         FileChannel fileChannel = inputStream.getChannel();
         long startOffset = fileDescriptor.getStartOffset();
@@ -109,42 +332,222 @@ public class MobileNetObjDetector {
     }
 
     public List<DetectionResult> detectObjects(final Bitmap bitmap) {
-        bitmap.getPixels(intValues, 0, bitmap.getWidth(), 0, 0, bitmap.getWidth(), bitmap.getHeight());
+        packBitmap(bitmap, imgData, 0);
+        return detectObjects(imgData);
+    }
+
+    /**
+     * Detects objects in a model-sized bitmap, replacing the contents of {@code out}.
+     */
+    public void detectObjects(final Bitmap bitmap, final DetectionBatch out) {
+        packBitmap(bitmap, imgData, 0);
+        detectObjects(imgData, out);
+    }
 
-        imgData.rewind();
-        for (int i = 0; i < INPUT_SIZE; ++i) {
-            for (int j = 0; j < INPUT_SIZE; ++j) {
-                int pixelValue = intValues[i * INPUT_SIZE + j];
-                imgData.put((byte) ((pixelValue >> 16) & 0xFF));
-                imgData.put((byte) ((pixelValue >> 8) & 0xFF));
-                imgData.put((byte) (pixelValue & 0xFF));
+    /**
+     * Detects objects in several model-sized bitmaps with a single interpreter invocation.
+     *
+     * The input and output buffers are kept for the next call with the same number of bitmaps.
+     * Models whose operations only accept a batch of one, such as the SSD post-processing op in
+     * the bundled model, are detected on the first call and run image by image instead.
+     *
+     * @return one result list per bitmap, in the same order
+     */
+    public List<List<DetectionResult>> detectObjects(final List<Bitmap> bitmaps) {
+        final int count = bitmaps.size();
+        final List<List<DetectionResult>> results = new ArrayList<>(count);
+        if (count == 1 || !prepareBatch(count)) {
+            for (final Bitmap bitmap : bitmaps) {
+                results.add(detectObjects(bitmap));
             }
+            return results;
+        }
+
+        for (int i = 0; i < count; i++) {
+            packBitmap(bitmaps.get(i), batchInput, i * imageBytes);
+        }
+        runInference(batchInput, batchOutputs);
+        for (int i = 0; i < count; i++) {
+            results.add(decodeResults(batchOutputs, i));
+        }
+        return results;
+    }
+
+    /**
+     * Whether the interpreter accepted an input batch larger than one; true until a batch is tried.
+     */
+    public boolean isBatchingSupported() {
+        return batchingSupported;
+    }
+
+    private boolean prepareBatch(final int batchSize) {
+        if (!batchingSupported) {
+            return false;
+        }
+        if (batchOutputs != null && batchOutputs.getBatchSize() == batchSize) {
+            return true;
+        }
+        try {
+            resizeInput(batchSize);
+            tfLite.allocateTensors();
+        } catch (final IllegalArgumentException | IllegalStateException ex) {
+            Log.w(LOGGING_TAG, "Model does not accept a batch of " + batchSize
+                    + ", falling back to one image per invocation", ex);
+            batchingSupported = false;
+            resizeInput(1);
+            return false;
+        }
+        batchInput = createInputTensor(batchSize);
+        batchOutputs = createOutputs(batchSize);
+        return true;
+    }
+
+    private void resizeInput(final int batchSize) {
+        if (batchSize != inputBatchSize) {
+            tfLite.resizeInput(0, new int[]{batchSize, inputHeight, inputWidth, 3});
+            inputBatchSize = batchSize;
+        }
+    }
+
+    private void packBitmap(final Bitmap bitmap, final ByteBuffer target, final int offset) {
+        bitmap.getPixels(intValues, 0, bitmap.getWidth(), 0, 0, bitmap.getWidth(), bitmap.getHeight());
+
+        if (rowExecutor == null) {
+            RgbTensorPacker.packRows(intValues, inputWidth, 0, inputHeight, target, offset, inputFormat);
+        } else {
+            rowExecutor.execute(inputHeight, (startRow, endRow) ->
+                    RgbTensorPacker.packRows(intValues, inputWidth, startRow, endRow, target, offset, inputFormat));
+        }
+    }
+
+    /**
+     * Packs bitmap pixels into the input tensor in row stripes on {@code rowExecutor}, or on the
+     * calling thread when it is null. The executor is not owned by the detector.
+     */
+    public void setRowExecutor(final ParallelRowExecutor rowExecutor) {
+        this.rowExecutor = rowExecutor;
+    }
+
+    /**
+     * Runs the model on an input tensor that is already filled, e.g. by a
+     * {@link com.objdetector.core.image.YuvToTensorConverter}.
+     */
+    public List<DetectionResult> detectObjects(final ByteBuffer inputTensor) {
+        detectObjects(inputTensor, resultBatch);
+        return toResults(resultBatch);
+    }
+
+    /**
+     * Like {@link #detectObjects(ByteBuffer)}, replacing the contents of {@code out} instead of
+     * allocating results.
+     */
+    public void detectObjects(final ByteBuffer inputTensor, final DetectionBatch out) {
+        final DetectionCache<DetectionBatch> cache = resultCache;
+        if (cache == null) {
+            runInference(inputTensor, outputs);
+            decodeResults(outputs, 0, out);
+            return;
         }
 
-        Object[] inputArray = {imgData};
-        Map<Integer, Object> outputMap = new HashMap<>();
-        outputMap.put(0, outputLocations);
-        outputMap.put(1, outputClasses);
-        outputMap.put(2, outputScores);
-        outputMap.put(3, numDetections);
-        tfLite.runForMultipleInputsOutputs(inputArray, outputMap);
-
-        final ArrayList<DetectionResult> recognitions = new ArrayList<>(NUM_DETECTIONS);
-        for (int i = 0; i < NUM_DETECTIONS; ++i) {
-            final RectF detection =
-                    new RectF(
-                            outputLocations[0][i][1] * INPUT_SIZE,
-                            outputLocations[0][i][0] * INPUT_SIZE,
-                            outputLocations[0][i][3] * INPUT_SIZE,
-                            outputLocations[0][i][2] * INPUT_SIZE);
-            int labelOffset = 1;
-            recognitions.add(
-                    new DetectionResult(
-                            i,
-                            labels.get((int) outputClasses[0][i] + labelOffset),
-                            outputScores[0][i],
-                            detection));
-        }
-        return recognitions;
+        final long hash = hashInput(inputTensor, inputHasher);
+        final DetectionBatch cached = cache.get(hash);
+        if (cached != null) {
+            out.copyFrom(cached);
+            return;
+        }
+        runInference(inputTensor, outputs);
+        decodeResults(outputs, 0, out);
+        cache.put(hash, DetectionBatch.copyOf(out));
+    }
+
+    public DetectionOutputs createOutputs() {
+        return createOutputs(1);
+    }
+
+    public DetectionOutputs createOutputs(final int batchSize) {
+        return new DetectionOutputs(batchSize, numDetections, spec.getOutputLayout(), outputQuantizations);
+    }
+
+    /**
+     * Runs the interpreter only, leaving the raw tensors in {@code outputs}, dequantised to floats
+     * if the model's outputs are quantised. The batch size is
+     * taken from {@code outputs}, and the input is resized when it differs from the last call.
+     * Must not be called from more than one thread at a time.
+     */
+    public void runInference(final ByteBuffer inputTensor, final DetectionOutputs outputs) {
+        resizeInput(outputs.getBatchSize());
+        inputTensor.rewind();
+        inputArray[0] = inputTensor;
+        outputs.prepare();
+        tfLite.runForMultipleInputsOutputs(inputArray, outputs.outputMap);
+        outputs.dequantize();
+    }
+
+    /**
+     * Wall-clock time of the last {@link #runInference} inside the interpreter, or -1 if unknown.
+     */
+    public long getLastInferenceNanos() {
+        final Long nanos = tfLite.getLastNativeInferenceDurationNanoseconds();
+        return nanos == null ? -1 : nanos;
+    }
+
+    /**
+     * Turns the raw tensors of a finished inference into results, keeping those that pass the
+     * options' confidence threshold and NMS, best first, up to its maximum count. Safe to call on a different
+     * thread from {@link #runInference} as long as each {@code outputs} is used by one at a time.
+     */
+    public List<DetectionResult> decodeResults(final DetectionOutputs outputs) {
+        return decodeResults(outputs, 0);
+    }
+
+    /**
+     * Decodes the results of image {@code index} of a batched inference.
+     */
+    public List<DetectionResult> decodeResults(final DetectionOutputs outputs, final int index) {
+        final DetectionBatch batch = createBatch();
+        decodeResults(outputs, index, batch);
+        return toResults(batch);
+    }
+
+    /**
+     * Decodes the results of image {@code index} into {@code out}, replacing its contents, with
+     * the candidate index as id and the index into {@link #getLabels()} as class id. Does not
+     * allocate.
+     */
+    public void decodeResults(final DetectionOutputs outputs, final int index, final DetectionBatch out) {
+        final float[] outputBoxes = outputs.outputBoxes;
+        final float[] scores = outputs.outputScores[index];
+        final float[] classes = outputs.outputClasses[index];
+        SsdOutputDecoder.decodeBoxes(outputs.outputLocations[index], numDetections, inputWidth, inputHeight,
+                outputBoxes);
+        for (int i = 0; i < numDetections; i++) {
+            outputs.outputClassIds[i] = (int) classes[i];
+        }
+        final int kept;
+        // One processor per detector, shared by every outputs decoded on it.
+        synchronized (postProcessor) {
+            kept = postProcessor.process(outputBoxes, scores, outputs.outputClassIds, numDetections,
+                    outputs.keptIndices, getMaxResults());
+        }
+        out.clear();
+        for (int k = 0; k < kept; ++k) {
+            final int i = outputs.keptIndices[k];
+            out.add(i, outputs.outputClassIds[i] + spec.getLabelOffset(), scores[i],
+                    outputBoxes[i * 4], outputBoxes[i * 4 + 1], outputBoxes[i * 4 + 2], outputBoxes[i * 4 + 3]);
+        }
+    }
+
+    /**
+     * Adapts a batch to the list-based API, allocating a result and a {@link RectF} per detection.
+     */
+    public List<DetectionResult> toResults(final DetectionBatch batch) {
+        final int count = batch.getCount();
+        final float[] boxes = batch.getBoxes();
+        final List<DetectionResult> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(new DetectionResult(batch.getId(i), labels.get(batch.getClassId(i)), batch.getScore(i),
+                    new RectF(boxes[i * 4], boxes[i * 4 + 1], boxes[i * 4 + 2], boxes[i * 4 + 3])));
+        }
+        return results;
     }
 }
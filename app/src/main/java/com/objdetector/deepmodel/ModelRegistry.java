@@ -0,0 +1,68 @@
+package com.objdetector.deepmodel;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The detection models the app can run, by name, in registration order.
+ */
+public class ModelRegistry {
+    /**
+     * The quantised SSD MobileNet v1 bundled with the app.
+     */
+    public static final ModelSpec SSD_MOBILENET_V1 =
+            ModelSpec.builder("ssd_mobilenet_v1", "detect.tflite", "labelmap.txt")
+                    .setLabelOffset(1)
+                    .build();
+
+    private final Map<String, ModelSpec> models = new LinkedHashMap<>();
+
+    /**
+     * A registry holding the models bundled with the app, the first of them the default.
+     */
+    public static ModelRegistry withBundledModels() {
+        final ModelRegistry registry = new ModelRegistry();
+        registry.register(SSD_MOBILENET_V1);
+        return registry;
+    }
+
+    /**
+     * Adds a model, replacing any registered under the same name.
+     */
+    public synchronized void register(final ModelSpec spec) {
+        models.put(spec.getName(), spec);
+    }
+
+    public synchronized ModelSpec get(final String name) {
+        final ModelSpec spec = models.get(name);
+        if (spec == null) {
+            throw new IllegalArgumentException("No model registered as " + name + "; known: " + models.keySet());
+        }
+        return spec;
+    }
+
+    /**
+     * The first registered model.
+     */
+    public synchronized ModelSpec getDefault() {
+        if (models.isEmpty()) {
+            throw new IllegalStateException("No models registered.");
+        }
+        return models.values().iterator().next();
+    }
+
+    /**
+     * The model registered after {@code current}, wrapping around, e.g. to cycle through them.
+     */
+    public synchronized ModelSpec next(final ModelSpec current) {
+        final List<String> names = getNames();
+        final int index = names.indexOf(current.getName());
+        return models.get(names.get((index + 1) % names.size()));
+    }
+
+    public synchronized List<String> getNames() {
+        return new ArrayList<>(models.keySet());
+    }
+}
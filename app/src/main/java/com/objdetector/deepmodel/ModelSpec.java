@@ -0,0 +1,205 @@
+package com.objdetector.deepmodel;
+
+import org.tensorflow.lite.DataType;
+
+/**
+ * Describes a detection model in the app's assets: its files, the input it expects and where
+ * its outputs are.
+ *
+ * The input shape and type are what the model is expected to declare; the detector sizes its
+ * buffers from the interpreter's tensors and refuses a model that disagrees with its spec.
+ */
+public final class ModelSpec {
+    private final String name;
+    private final String modelFile;
+    private final String labelFile;
+    private final int labelOffset;
+    private final int inputWidth;
+    private final int inputHeight;
+    private final DataType inputType;
+    private final float inputMean;
+    private final float inputStd;
+    private final OutputLayout outputLayout;
+
+    /**
+     * Output tensor indices of an SSD with the TFLite detection post-processing op.
+     */
+    public static final class OutputLayout {
+        /**
+         * Boxes, classes, scores and count, as exported by the TF1 object detection API.
+         */
+        public static final OutputLayout TF1_SSD = new OutputLayout(0, 1, 2, 3);
+        /**
+         * Scores, boxes, count and classes, as exported by the TF2 object detection API.
+         */
+        public static final OutputLayout TF2_SSD = new OutputLayout(1, 3, 0, 2);
+
+        private final int locations;
+        private final int classes;
+        private final int scores;
+        private final int count;
+
+        public OutputLayout(final int locations, final int classes, final int scores, final int count) {
+            this.locations = locations;
+            this.classes = classes;
+            this.scores = scores;
+            this.count = count;
+        }
+
+        public int getLocations() {
+            return locations;
+        }
+
+        public int getClasses() {
+            return classes;
+        }
+
+        public int getScores() {
+            return scores;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    private ModelSpec(final Builder builder) {
+        this.name = builder.name;
+        this.modelFile = builder.modelFile;
+        this.labelFile = builder.labelFile;
+        this.labelOffset = builder.labelOffset;
+        this.inputWidth = builder.inputWidth;
+        this.inputHeight = builder.inputHeight;
+        this.inputType = builder.inputType;
+        this.inputMean = builder.inputMean;
+        this.inputStd = builder.inputStd;
+        this.outputLayout = builder.outputLayout;
+    }
+
+    public static Builder builder(final String name, final String modelFile, final String labelFile) {
+        return new Builder(name, modelFile, labelFile);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getModelFile() {
+        return modelFile;
+    }
+
+    public String getLabelFile() {
+        return labelFile;
+    }
+
+    /**
+     * Added to the model's class ids to index the label file, e.g. 1 to skip a background entry.
+     */
+    public int getLabelOffset() {
+        return labelOffset;
+    }
+
+    public int getInputWidth() {
+        return inputWidth;
+    }
+
+    public int getInputHeight() {
+        return inputHeight;
+    }
+
+    public DataType getInputType() {
+        return inputType;
+    }
+
+    /**
+     * Subtracted from each 0-255 channel value before dividing by {@link #getInputStd()}.
+     */
+    public float getInputMean() {
+        return inputMean;
+    }
+
+    public float getInputStd() {
+        return inputStd;
+    }
+
+    public OutputLayout getOutputLayout() {
+        return outputLayout;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + modelFile + ", " + inputWidth + "x" + inputHeight + " " + inputType + ")";
+    }
+
+    public static final class Builder {
+        private final String name;
+        private final String modelFile;
+        private final String labelFile;
+        private int labelOffset = 0;
+        private int inputWidth = 300;
+        private int inputHeight = 300;
+        private DataType inputType = DataType.UINT8;
+        // Maps 0-255 onto [-1, 1), what the TF object detection API's SSDs are trained on.
+        private float inputMean = 128f;
+        private float inputStd = 128f;
+        private OutputLayout outputLayout = OutputLayout.TF1_SSD;
+
+        private Builder(final String name, final String modelFile, final String labelFile) {
+            this.name = name;
+            this.modelFile = modelFile;
+            this.labelFile = labelFile;
+        }
+
+        public Builder setLabelOffset(final int labelOffset) {
+            if (labelOffset < 0) {
+                throw new IllegalArgumentException("Label offset cannot be negative: " + labelOffset);
+            }
+            this.labelOffset = labelOffset;
+            return this;
+        }
+
+        public Builder setInputSize(final int width, final int height) {
+            if (width < 1 || height < 1) {
+                throw new IllegalArgumentException("Input size must be positive: " + width + "x" + height);
+            }
+            this.inputWidth = width;
+            this.inputHeight = height;
+            return this;
+        }
+
+        /**
+         * Element type of the input tensor: uint8 or int8 for quantised models, float32 for float
+         * ones.
+         */
+        public Builder setInputType(final DataType inputType) {
+            if (inputType != DataType.UINT8 && inputType != DataType.INT8 && inputType != DataType.FLOAT32) {
+                throw new IllegalArgumentException("Unsupported input type: " + inputType);
+            }
+            this.inputType = inputType;
+            return this;
+        }
+
+        /**
+         * The normalisation the model was trained with, {@code (value - mean) / std} per channel.
+         * Float inputs receive the normalised value; quantised ones receive it quantised with the
+         * input tensor's scale and zero point.
+         */
+        public Builder setInputNormalization(final float mean, final float std) {
+            if (std == 0f) {
+                throw new IllegalArgumentException("Std cannot be zero.");
+            }
+            this.inputMean = mean;
+            this.inputStd = std;
+            return this;
+        }
+
+        public Builder setOutputLayout(final OutputLayout outputLayout) {
+            this.outputLayout = outputLayout;
+            return this;
+        }
+
+        public ModelSpec build() {
+            return new ModelSpec(this);
+        }
+    }
+}
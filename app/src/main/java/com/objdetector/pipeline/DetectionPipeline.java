@@ -0,0 +1,964 @@
+package com.objdetector.pipeline;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.objdetector.core.cache.DetectionCache;
+import com.objdetector.core.cache.PerceptualHash;
+import com.objdetector.core.detection.DetectionBatch;
+import com.objdetector.core.detection.DetectionBatchPool;
+import com.objdetector.core.detection.TileMerger;
+import com.objdetector.core.geometry.TileGrid;
+import com.objdetector.core.image.TensorFormat;
+import com.objdetector.core.image.YuvToTensorConverter;
+import com.objdetector.core.motion.MotionGate;
+import com.objdetector.core.pipeline.HandOffSlot;
+import com.objdetector.core.pipeline.ObjectPool;
+import com.objdetector.core.pipeline.PipelineStage;
+import com.objdetector.core.scheduling.AdaptiveScheduler;
+import com.objdetector.core.source.FrameSource;
+import com.objdetector.core.source.SourceFrame;
+import com.objdetector.core.stats.LatencySamples;
+import com.objdetector.core.stats.StageInstrumentation;
+import com.objdetector.core.stats.StageInstrumentation.Stage;
+import com.objdetector.core.tracking.ObjectTracker;
+import com.objdetector.deepmodel.DetectionOutputs;
+import com.objdetector.deepmodel.DetectorOptions;
+import com.objdetector.deepmodel.DetectorPool;
+import com.objdetector.deepmodel.DetectorService;
+import com.objdetector.deepmodel.ModelSpec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Frame processing split into acquire, preprocess, infer, post-process and publish stages.
+ *
+ * Frames come from a {@link FrameSource}; acquisition runs on the source's thread and every other
+ * stage has its own. Stages are joined by latest-frame-wins {@link HandOffSlot}s, so preprocessing
+ * of frame N+1 overlaps inference of frame N while a slow stage only ever sees the freshest frame.
+ * Each frame in flight owns its input tensors and outputs, taken from a small pool, and its
+ * inferences on the {@link DetectorPool} come back in frame order. Results are published as pooled
+ * {@link DetectionBatch}es, one listener call at a time.
+ *
+ * Interpreters come from a {@link DetectorService}. Those of the model active when the pipeline
+ * stops go back to it, so a pipeline built for the next activity starts without loading the model.
+ */
+public class DetectionPipeline {
+    private static final String LOGGING_TAG = DetectionPipeline.class.getName();
+    // A frame being preprocessed and one waiting for inference, plus two per interpreter so
+    // post-processing and publishing of earlier frames never starve preprocessing.
+    private static final int BASE_FRAMES_IN_FLIGHT = 2;
+    // Batches held outside the frames: the last published, one being drawn and one being tracked.
+    private static final int EXTRA_BATCHES = 3;
+    // Unmatched tracks outlive a keyframe, so there can be more tracks than detections.
+    private static final int TRACKS_PER_DETECTION = 2;
+
+    // Upper bound on waiting for a model being loaded in the background when stopping.
+    private static final long MODEL_LOADER_STOP_SECONDS = 5;
+    // IoU for merging tiles when the interpreters' own NMS is disabled.
+    private static final float DEFAULT_TILE_IOU_THRESHOLD = 0.5f;
+    // Frame latencies kept per tile count.
+    private static final int TILE_LATENCY_SAMPLES = 1000;
+    // Sensor timestamps older than this are assumed to be on another clock.
+    private static final long MAX_CAPTURE_AGE_NANOS = 1_000_000_000L;
+
+    public interface ResultsListener {
+        /**
+         * Called from the publish stage, or from the source thread for tracked and static frames,
+         * one call at a time. The batch may be recycled once the call returns, so listeners keeping
+         * it must {@link DetectionBatch#retain()} it and release it when done.
+         */
+        void onResults(DetectionBatch results);
+    }
+
+    public interface ModelListener {
+        /**
+         * Called when a model becomes active, before any of its results are published, and in
+         * turn with {@link ResultsListener#onResults}.
+         *
+         * @param labels labels indexed by the class ids of the model's results
+         */
+        void onModelChanged(ModelSpec spec, List<String> labels, int inputWidth, int inputHeight);
+    }
+
+    /**
+     * Builds the frame-to-tensor converter for a model's input size and element format.
+     */
+    public interface ConverterFactory {
+        YuvToTensorConverter create(int inputWidth, int inputHeight, TensorFormat format);
+    }
+
+    /**
+     * One model's interpreters with the frames and batches sized for it.
+     */
+    private static final class ModelSession {
+        final DetectorService.Lease lease;
+        final DetectorPool<Tile> detectorPool;
+        final YuvToTensorConverter converter;
+        final ObjectPool<Frame> framePool;
+        final DetectionBatchPool batchPool;
+        final AtomicBoolean closed = new AtomicBoolean();
+        volatile boolean retired;
+        // Only used by the preprocess stage.
+        private Tiling tiling;
+
+        ModelSession(final DetectorService.Lease lease, final DetectorPool<Tile> detectorPool,
+                     final YuvToTensorConverter converter) {
+            this.lease = lease;
+            this.detectorPool = detectorPool;
+            this.converter = converter;
+            final int framesInFlight = BASE_FRAMES_IN_FLIGHT + 2 * detectorPool.getSize();
+            this.framePool = new ObjectPool<>(framesInFlight, () -> new Frame(this));
+            this.batchPool = new DetectionBatchPool(framesInFlight + EXTRA_BATCHES,
+                    TRACKS_PER_DETECTION * detectorPool.getMaxResults());
+        }
+
+        /**
+         * The tiles for {@code config}, built the first time it is seen; null when not tiling.
+         */
+        Tiling tilingFor(final TilingConfig config, final DetectorOptions options) {
+            if (config == null) {
+                return null;
+            }
+            if (tiling == null || tiling.config != config) {
+                tiling = new Tiling(config, this, options);
+            }
+            return tiling;
+        }
+
+        boolean isIdle() {
+            return framePool.getAvailableCount() == framePool.getSize();
+        }
+
+        /**
+         * @param keepIn service to give the interpreters back to, or null to close them
+         */
+        void close(final DetectorService keepIn) {
+            if (closed.compareAndSet(false, true)) {
+                detectorPool.close();
+                if (keepIn != null) {
+                    keepIn.release(lease);
+                } else {
+                    lease.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * A tile grid as set by {@link #setTiling}.
+     */
+    private static final class TilingConfig {
+        final int columns;
+        final int rows;
+        final float overlap;
+
+        TilingConfig(final int columns, final int rows, final float overlap) {
+            this.columns = columns;
+            this.rows = rows;
+            this.overlap = overlap;
+        }
+    }
+
+    /**
+     * One model's tiles for a tile grid: where each tile is in the frame and how to fill and merge
+     * them. The merger and scratch batch are only used by the post-processing stage.
+     */
+    private static final class Tiling {
+        final TilingConfig config;
+        final TileGrid grid;
+        final YuvToTensorConverter[] converters;
+        final TileMerger merger;
+        final DetectionBatch tileResults;
+
+        Tiling(final TilingConfig config, final ModelSession session, final DetectorOptions options) {
+            this.config = config;
+            final YuvToTensorConverter frameConverter = session.converter;
+            grid = new TileGrid(frameConverter.getUprightWidth(), frameConverter.getUprightHeight(),
+                    config.columns, config.rows, config.overlap);
+            converters = new YuvToTensorConverter[grid.getTileCount()];
+            for (int i = 0; i < converters.length; i++) {
+                converters[i] = frameConverter.forRegion(grid.getLeft(i), grid.getTop(i),
+                        grid.getTileWidth(), grid.getTileHeight());
+            }
+            final int maxResults = session.detectorPool.getMaxResults();
+            final float iouThreshold = options.getNmsIouThreshold() < 1f
+                    ? options.getNmsIouThreshold() : DEFAULT_TILE_IOU_THRESHOLD;
+            merger = new TileMerger(converters.length * maxResults, iouThreshold, options.isClassAwareNms());
+            tileResults = new DetectionBatch(maxResults);
+        }
+    }
+
+    /**
+     * One input tensor of a frame, with its outputs; the whole frame unless it is tiled.
+     */
+    private static final class Tile implements DetectorPool.InferenceRequest {
+        final Frame frame;
+        final ByteBuffer inputTensor;
+        final DetectionOutputs outputs;
+        long inferenceNanos;
+
+        Tile(final Frame frame, final ByteBuffer inputTensor, final DetectionOutputs outputs) {
+            this.frame = frame;
+            this.inputTensor = inputTensor;
+            this.outputs = outputs;
+        }
+
+        @Override
+        public ByteBuffer getInputTensor() {
+            return inputTensor;
+        }
+
+        @Override
+        public DetectionOutputs getOutputs() {
+            return outputs;
+        }
+
+        @Override
+        public void setInferenceNanos(final long nanos) {
+            inferenceNanos = nanos;
+        }
+    }
+
+    private static final class Frame {
+        final ModelSession session;
+        // Grown the first time the frame is tiled, so untiled frames hold one tensor.
+        Tile[] tiles;
+        Tiling tiling;
+        final AtomicInteger pendingTiles = new AtomicInteger();
+        volatile boolean failed;
+        DetectionBatch results;
+        // When the frame was captured, or submitted if its timestamp is on another clock, and when
+        // preprocessing began; both on the System.nanoTime() clock.
+        long captureNanos;
+        long startNanos;
+        long inputHash;
+        boolean cached;
+
+        Frame(final ModelSession session) {
+            this.session = session;
+            this.tiles = new Tile[]{createTile()};
+        }
+
+        private Tile createTile() {
+            return new Tile(this, session.detectorPool.createInputTensor(), session.detectorPool.createOutputs());
+        }
+
+        int getTileCount() {
+            return tiling == null ? 1 : tiling.grid.getTileCount();
+        }
+
+        void ensureTiles(final int count) {
+            if (tiles.length >= count) {
+                return;
+            }
+            final Tile[] grown = new Tile[count];
+            System.arraycopy(tiles, 0, grown, 0, tiles.length);
+            for (int i = tiles.length; i < count; i++) {
+                grown[i] = createTile();
+            }
+            tiles = grown;
+        }
+
+        long getInferenceNanos() {
+            long nanos = 0;
+            for (int i = 0; i < getTileCount(); i++) {
+                nanos += tiles[i].inferenceNanos;
+            }
+            return nanos;
+        }
+    }
+
+    private final DetectorService detectorService;
+    private final int interpreterCount;
+    private final DetectorOptions options;
+    private final ConverterFactory converterFactory;
+    private final ResultsListener listener;
+    private final ExecutorService modelLoader;
+    private final Object publishLock = new Object();
+    private final HandOffSlot<SourceFrame> acquired;
+    private final HandOffSlot<Frame> preprocessed;
+    private final HandOffSlot<Frame> inferred;
+    private final HandOffSlot<Frame> decoded;
+    private final PipelineStage<SourceFrame, Frame> preprocessStage;
+    private final PipelineStage<Frame, Frame> inferenceStage;
+    private final PipelineStage<Frame, Frame> postProcessStage;
+    private final PipelineStage<Frame, Frame> publishStage;
+    private volatile ObjectTracker tracker;
+    private volatile AdaptiveScheduler scheduler;
+    private volatile MotionGate motionGate;
+    // Set when a frame that passed the motion gate is dropped, so the gate takes a new reference.
+    private final AtomicBoolean motionReferenceStale = new AtomicBoolean();
+    private volatile DetectionCache<DetectionBatch> resultCache;
+    // Only used by the preprocess stage.
+    private final PerceptualHash inputHasher = new PerceptualHash();
+    private volatile ModelSession session;
+    private volatile TilingConfig tilingConfig;
+    private volatile StageInstrumentation instrumentation;
+    // Guarded by itself; keyed by tiles per frame.
+    private final Map<Integer, LatencySamples> latencyByTileCount = new TreeMap<>();
+    // Guarded by publishLock.
+    private DetectionBatch lastResults;
+    private ModelListener modelListener;
+    private boolean stopped;
+
+    /**
+     * @param detectorService where interpreters are loaded and kept; blocks until {@code spec}'s
+     *                        are ready
+     * @param spec the model to start with
+     * @param interpreterCount number of interpreters inferring concurrently
+     * @param options settings applied to every interpreter, of this and later models
+     * @throws IllegalArgumentException if the model's tensors do not match {@code spec}
+     */
+    public DetectionPipeline(final DetectorService detectorService, final ModelSpec spec, final int interpreterCount,
+                             final DetectorOptions options, final ConverterFactory converterFactory,
+                             final ResultsListener listener)
+            throws IOException {
+        this.detectorService = detectorService;
+        this.interpreterCount = interpreterCount;
+        this.options = options;
+        this.converterFactory = converterFactory;
+        this.listener = listener;
+
+        session = createSession(spec);
+        modelLoader = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "model-loader"));
+        acquired = new HandOffSlot<>("acquire", input -> {
+            recordDrop(Stage.ACQUIRE);
+            motionReferenceStale.set(true);
+            input.close();
+        });
+        preprocessed = new HandOffSlot<>("preprocess", frame -> dropFrame(Stage.PREPROCESS, frame));
+        inferred = new HandOffSlot<>("infer", frame -> dropFrame(Stage.INFERENCE, frame));
+        decoded = new HandOffSlot<>("postprocess", frame -> dropFrame(Stage.POST_PROCESS, frame));
+
+        preprocessStage = new PipelineStage<>("preprocess", acquired, preprocessed, this::preprocess);
+        inferenceStage = new PipelineStage<>("inference", preprocessed, null, this::infer);
+        postProcessStage = new PipelineStage<>("postprocess", inferred, decoded, this::postProcess);
+        publishStage = new PipelineStage<>("publish", decoded, null, this::publish);
+    }
+
+    public void start() {
+        preprocessStage.start();
+        inferenceStage.start();
+        postProcessStage.start();
+        publishStage.start();
+    }
+
+    /**
+     * Runs detection on keyframes only and tracks objects in between; null detects every frame.
+     * Other frames are closed on the source thread and published straight away with the tracks'
+     * predicted boxes. The pipeline locks the tracker while using it.
+     */
+    public void setTracker(final ObjectTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    /**
+     * Paces inference by {@code scheduler}, from the latency of published frames; null infers
+     * every frame the stages can take. With a tracker, the scheduler's stride becomes the
+     * keyframe interval, so decaying tracks can still ask for an early keyframe.
+     */
+    public void setScheduler(final AdaptiveScheduler scheduler) {
+        if (scheduler != null) {
+            scheduler.setDecisionListener(decision -> Log.i(LOGGING_TAG, "Scheduler: " + decision));
+        }
+        this.scheduler = scheduler;
+    }
+
+    public AdaptiveScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Skips inference of frames in which nothing moved since the last inferred one; null infers
+     * every frame due. Only used from the source thread.
+     */
+    public void setMotionGate(final MotionGate motionGate) {
+        this.motionGate = motionGate;
+    }
+
+    public MotionGate getMotionGate() {
+        return motionGate;
+    }
+
+    /**
+     * Reuses results for inputs whose perceptual hash is close to an earlier one's; null infers
+     * every frame. Tiled frames bypass the cache.
+     */
+    public void setResultCache(final DetectionCache<DetectionBatch> resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Records stage latencies and drops into {@code instrumentation}; null records nothing. Results
+     * then carry their frame's capture time, so the overlay can record latency to the screen.
+     */
+    public void setInstrumentation(final StageInstrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    public StageInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Cuts each frame into a {@code columns} x {@code rows} grid of tiles, neighbours sharing
+     * {@code overlap} of a tile, and infers every tile; a single tile turns tiling off. Applies
+     * from the next frame preprocessed. Tiles are inferred in parallel and their boxes merged with
+     * NMS across tile edges, then reported in the model input coordinates of an untiled frame.
+     *
+     * @param overlap fraction of a tile shared with its neighbour, in [0, 1)
+     */
+    public void setTiling(final int columns, final int rows, final float overlap) {
+        if (columns < 1 || rows < 1) {
+            throw new IllegalArgumentException("Grid must have at least one tile: " + columns + "x" + rows);
+        }
+        if (overlap < 0 || overlap >= 1) {
+            throw new IllegalArgumentException("Overlap must be in [0, 1): " + overlap);
+        }
+        tilingConfig = columns * rows == 1 ? null : new TilingConfig(columns, rows, overlap);
+    }
+
+    public boolean isTiling() {
+        return tilingConfig != null;
+    }
+
+    /**
+     * Told about the active model straight away and about every later switch.
+     */
+    public void setModelListener(final ModelListener modelListener) {
+        synchronized (publishLock) {
+            this.modelListener = modelListener;
+            if (modelListener != null) {
+                notifyModelChanged(session);
+            }
+        }
+    }
+
+    public ModelSpec getModel() {
+        return session.detectorPool.getSpec();
+    }
+
+    /**
+     * Loads {@code spec} and warms it up in the background, then makes it the active model.
+     * Returns straight away; switches requested in a row are applied in order. A model that
+     * fails to load is logged and the current one stays active. Frames of the old model still in
+     * flight are dropped, and the tracker, result cache and last results are cleared.
+     */
+    public void switchModel(final ModelSpec spec) {
+        try {
+            modelLoader.execute(() -> loadModel(spec));
+        } catch (final RejectedExecutionException ex) {
+            Log.w(LOGGING_TAG, "Pipeline stopped, not switching to " + spec);
+        }
+    }
+
+    private void loadModel(final ModelSpec spec) {
+        final long start = System.nanoTime();
+        final ModelSession next;
+        try {
+            next = createSession(spec);
+        } catch (final IOException | RuntimeException ex) {
+            Log.e(LOGGING_TAG, "Could not load model " + spec, ex);
+            return;
+        }
+        Log.i(LOGGING_TAG, String.format("Loaded and warmed up %s in %.1fms", spec,
+                (System.nanoTime() - start) / 1e6));
+        activate(next);
+    }
+
+    private ModelSession createSession(final ModelSpec spec) throws IOException {
+        final DetectorService.Lease lease = detectorService.acquire(spec, interpreterCount, options);
+        final DetectorPool<Tile> detectorPool = DetectorPool.create(lease.getDetectors(), this::onInferenceDone);
+        return new ModelSession(lease, detectorPool,
+                converterFactory.create(detectorPool.getInputWidth(), detectorPool.getInputHeight(),
+                        detectorPool.getInputFormat()));
+    }
+
+    private void activate(final ModelSession next) {
+        final ModelSession previous;
+        synchronized (publishLock) {
+            if (stopped) {
+                next.close(null);
+                return;
+            }
+            previous = session;
+            previous.retired = true;
+            session = next;
+            // Later frames of the previous model see it retired, so they cannot refill any of these.
+            final ObjectTracker tracker = this.tracker;
+            if (tracker != null) {
+                synchronized (tracker) {
+                    tracker.reset();
+                }
+            }
+            final DetectionCache<DetectionBatch> cache = resultCache;
+            if (cache != null) {
+                cache.clear();
+            }
+            if (lastResults != null) {
+                lastResults.release();
+                lastResults = null;
+            }
+            notifyModelChanged(next);
+        }
+        Log.i(LOGGING_TAG, "Switched model to " + next.detectorPool.getSpec());
+        if (previous.isIdle()) {
+            previous.close(null);
+        }
+    }
+
+    private void notifyModelChanged(final ModelSession active) {
+        if (modelListener != null) {
+            final DetectorPool<Tile> detectorPool = active.detectorPool;
+            modelListener.onModelChanged(detectorPool.getSpec(), detectorPool.getLabels(),
+                    detectorPool.getInputWidth(), detectorPool.getInputHeight());
+        }
+    }
+
+    /**
+     * Hands a frame from the source to the pipeline, which takes over closing it.
+     */
+    public void submit(final SourceFrame input) {
+        final StageInstrumentation instrumentation = this.instrumentation;
+        // Stamped here rather than in preprocessing, so latency includes the wait for that stage.
+        final long captureNanos = toNanoTime(input.getTimestampNanos());
+        input.setCaptureNanos(captureNanos);
+        if (instrumentation != null) {
+            instrumentation.record(Stage.ACQUIRE, System.nanoTime() - captureNanos);
+        }
+        final ModelSession session = this.session;
+        final ObjectTracker tracker = this.tracker;
+        final AdaptiveScheduler scheduler = this.scheduler;
+        if (scheduler != null) {
+            final boolean due = scheduler.onFrame();
+            if (tracker == null && !due) {
+                input.close();
+                return;
+            }
+        }
+        if (tracker != null) {
+            DetectionBatch tracked = null;
+            synchronized (tracker) {
+                if (scheduler != null) {
+                    tracker.setKeyframeInterval(scheduler.getStride());
+                }
+                if (!tracker.advance()) {
+                    tracked = session.batchPool.acquire();
+                    tracker.writeTo(tracked);
+                    tracked.setCaptureNanos(captureNanos);
+                }
+            }
+            if (tracked != null) {
+                input.close();
+                publishResults(tracked, session);
+                tracked.release();
+                return;
+            }
+        }
+        // Gated last, so the gate's reference is always a frame sent on for inference.
+        final MotionGate motionGate = this.motionGate;
+        if (motionGate != null) {
+            if (motionReferenceStale.getAndSet(false)) {
+                motionGate.invalidate();
+            }
+            if (!hasMotion(motionGate, input) && republishLastResults()) {
+                input.close();
+                return;
+            }
+        }
+        acquired.offer(input);
+    }
+
+    /**
+     * Moves a camera2 sensor timestamp onto the {@link System#nanoTime()} clock the stages are
+     * timed with. Sensors with a realtime timestamp source stamp images with
+     * {@link SystemClock#elapsedRealtimeNanos()}; a timestamp on another clock, such as a file
+     * source's, is taken as now.
+     */
+    private static long toNanoTime(final long sensorTimestamp) {
+        final long age = SystemClock.elapsedRealtimeNanos() - sensorTimestamp;
+        final long now = System.nanoTime();
+        return age >= 0 && age < MAX_CAPTURE_AGE_NANOS ? now - age : now;
+    }
+
+    /**
+     * Stops every stage front to back, letting frames already past a stage drain out.
+     */
+    public void stop() {
+        synchronized (publishLock) {
+            stopped = true;
+        }
+        try {
+            modelLoader.shutdownNow();
+            modelLoader.awaitTermination(MODEL_LOADER_STOP_SECONDS, TimeUnit.SECONDS);
+            preprocessStage.stop();
+            inferenceStage.stop();
+            // Lets inferences already running finish and reach the post-processing slot, then keeps
+            // the interpreters for the next pipeline.
+            session.close(detectorService);
+            postProcessStage.stop();
+            publishStage.stop();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            Log.e(LOGGING_TAG, "Interrupted while stopping the pipeline.");
+        }
+        synchronized (publishLock) {
+            if (lastResults != null) {
+                lastResults.release();
+                lastResults = null;
+            }
+        }
+        Log.i(LOGGING_TAG, getStatsSummary());
+    }
+
+    public long getAcquireDroppedCount() {
+        return acquired.getDroppedCount();
+    }
+
+    public long getPreprocessDroppedCount() {
+        return preprocessed.getDroppedCount() + preprocessStage.getDroppedCount();
+    }
+
+    public long getInferenceDroppedCount() {
+        return inferred.getDroppedCount();
+    }
+
+    public long getPostProcessDroppedCount() {
+        return decoded.getDroppedCount();
+    }
+
+    public String getStatsSummary() {
+        final ObjectTracker tracker = this.tracker;
+        final AdaptiveScheduler scheduler = this.scheduler;
+        final MotionGate motionGate = this.motionGate;
+        final ModelSession session = this.session;
+        return "Pipeline model: " + session.detectorPool.getSpec().getName()
+                + " frames: acquired=" + acquired.getOfferedCount()
+                + " published=" + publishStage.getProcessedCount()
+                + (motionGate == null ? "" : " static=" + motionGate.getSkippedCount())
+                + (tracker == null ? "" : " tracked=" + tracker.getTrackedFrameCount())
+                + (scheduler == null ? "" : " stride=" + scheduler.getStride() + " tier=" + scheduler.getTier()
+                        + " decisions=" + scheduler.getDecisionCount())
+                + " | drops: acquire=" + getAcquireDroppedCount()
+                + " preprocess=" + getPreprocessDroppedCount()
+                + " (no free buffer=" + session.framePool.getExhaustedCount()
+                + " batches allocated=" + session.batchPool.getExhaustedCount() + ")"
+                + " infer=" + getInferenceDroppedCount()
+                + " postprocess=" + getPostProcessDroppedCount()
+                + " | " + session.detectorPool.getStatsSummary()
+                + " | latency by tiles: " + getTileLatencySummary()
+                + (resultCache == null ? "" : " | " + resultCache);
+    }
+
+    /**
+     * Capture-to-publish latency of inferred frames, by the number of tiles they were cut into.
+     */
+    public String getTileLatencySummary() {
+        synchronized (latencyByTileCount) {
+            if (latencyByTileCount.isEmpty()) {
+                return "none";
+            }
+            final StringBuilder summary = new StringBuilder();
+            for (final Map.Entry<Integer, LatencySamples> entry : latencyByTileCount.entrySet()) {
+                if (summary.length() > 0) {
+                    summary.append(' ');
+                }
+                summary.append(entry.getKey()).append("=[").append(entry.getValue()).append(']');
+            }
+            return summary.toString();
+        }
+    }
+
+    public DetectorPool<?> getDetectorPool() {
+        return session.detectorPool;
+    }
+
+    private Frame preprocess(final SourceFrame input) {
+        final ModelSession session = this.session;
+        final Frame frame = session.framePool.acquire();
+        final StageInstrumentation instrumentation = this.instrumentation;
+        try {
+            if (frame == null) {
+                recordDrop(Stage.PREPROCESS);
+                motionReferenceStale.set(true);
+            } else {
+                frame.startNanos = System.nanoTime();
+                frame.captureNanos = input.getCaptureNanos();
+                frame.tiling = session.tilingFor(tilingConfig, options);
+                if (frame.tiling != null) {
+                    frame.ensureTiles(frame.getTileCount());
+                    for (int i = 0; i < frame.getTileCount(); i++) {
+                        input.convert(frame.tiling.converters[i], frame.tiles[i].inputTensor);
+                    }
+                    recordSince(instrumentation, Stage.PREPROCESS, frame.startNanos);
+                    return frame;
+                }
+                final ByteBuffer inputTensor = frame.tiles[0].inputTensor;
+                input.convert(session.converter, inputTensor);
+                final DetectionCache<DetectionBatch> cache = resultCache;
+                if (cache != null) {
+                    frame.inputHash = session.detectorPool.hashInput(inputTensor, inputHasher);
+                    frame.results = cache.get(frame.inputHash);
+                    frame.cached = frame.results != null;
+                }
+                recordSince(instrumentation, Stage.PREPROCESS, frame.startNanos);
+            }
+            return frame;
+        } catch (final RuntimeException ex) {
+            Log.e(LOGGING_TAG, "Exception: " + ex.getMessage());
+            releaseFrame(frame);
+            return null;
+        } finally {
+            input.close();
+        }
+    }
+
+    private Frame infer(final Frame frame) {
+        if (frame.session.retired) {
+            releaseFrame(frame);
+            return null;
+        }
+        if (frame.cached) {
+            inferred.offer(frame);
+            return null;
+        }
+        final int tileCount = frame.getTileCount();
+        frame.failed = false;
+        frame.pendingTiles.set(tileCount);
+        for (int i = 0; i < tileCount; i++) {
+            try {
+                frame.session.detectorPool.submit(frame.tiles[i]);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                abandonTiles(frame, tileCount - i);
+                break;
+            } catch (final RejectedExecutionException ex) {
+                // The interpreters were closed under the frame, e.g. by a model switch.
+                abandonTiles(frame, tileCount - i);
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gives up on {@code unsubmitted} tiles of {@code frame}. Tiles already submitted still report
+     * back, and the last one to finish drops the frame.
+     */
+    private void abandonTiles(final Frame frame, final int unsubmitted) {
+        frame.failed = true;
+        if (frame.pendingTiles.addAndGet(-unsubmitted) == 0) {
+            dropFrame(Stage.INFERENCE, frame);
+        }
+    }
+
+    private void onInferenceDone(final long sequence, final Tile tile, final boolean succeeded) {
+        final Frame frame = tile.frame;
+        final StageInstrumentation instrumentation = this.instrumentation;
+        if (!succeeded) {
+            frame.failed = true;
+        } else if (instrumentation != null) {
+            instrumentation.record(Stage.INFERENCE, tile.inferenceNanos);
+        }
+        if (frame.pendingTiles.decrementAndGet() > 0) {
+            return;
+        }
+        if (frame.failed) {
+            dropFrame(Stage.INFERENCE, frame);
+        } else {
+            inferred.offer(frame);
+        }
+    }
+
+    private Frame postProcess(final Frame frame) {
+        final ModelSession session = frame.session;
+        if (session.retired) {
+            releaseFrame(frame);
+            return null;
+        }
+        final StageInstrumentation instrumentation = this.instrumentation;
+        final long start = instrumentation == null ? 0 : System.nanoTime();
+        if (frame.tiling != null) {
+            frame.results = session.batchPool.acquire();
+            mergeTiles(frame, frame.tiling, frame.results);
+        } else if (!frame.cached) {
+            frame.results = session.batchPool.acquire();
+            session.detectorPool.decodeResults(frame.tiles[0].outputs, frame.results);
+            final DetectionCache<DetectionBatch> cache = resultCache;
+            if (cache != null) {
+                cache.put(frame.inputHash, DetectionBatch.copyOf(frame.results));
+                if (session.retired) {
+                    // The switch may have cleared the cache just before the put.
+                    cache.clear();
+                }
+            }
+        }
+        final ObjectTracker tracker = this.tracker;
+        if (tracker != null) {
+            final DetectionBatch tracked = session.batchPool.acquire();
+            synchronized (tracker) {
+                if (!session.retired) {
+                    tracker.update(frame.results);
+                    tracker.writeTo(tracked);
+                }
+            }
+            frame.results.release();
+            frame.results = tracked;
+        } else if (frame.cached && instrumentation != null) {
+            // Cached batches are shared, so the capture time goes on a copy.
+            final DetectionBatch copy = session.batchPool.acquire();
+            copy.copyFrom(frame.results);
+            frame.results.release();
+            frame.results = copy;
+        }
+        if (instrumentation != null) {
+            frame.results.setCaptureNanos(frame.captureNanos);
+            instrumentation.record(Stage.POST_PROCESS, System.nanoTime() - start);
+        }
+        return frame;
+    }
+
+    /**
+     * Decodes every tile of {@code frame}, maps the boxes from tile to frame coordinates, merges
+     * them across tiles and maps the merged boxes into the model input as the untiled frame
+     * would be converted, so consumers do not need to know about tiling.
+     */
+    private static void mergeTiles(final Frame frame, final Tiling tiling, final DetectionBatch out) {
+        final DetectionBatch tileResults = tiling.tileResults;
+        tiling.merger.clear();
+        for (int i = 0; i < tiling.converters.length; i++) {
+            frame.session.detectorPool.decodeResults(frame.tiles[i].outputs, tileResults);
+            tiling.converters[i].mapToFrame(tileResults.getBoxes(), tileResults.getCount());
+            tiling.merger.add(tileResults);
+        }
+        tiling.merger.merge(out);
+        frame.session.converter.mapFromFrame(out.getBoxes(), out.getCount());
+    }
+
+    private Frame publish(final Frame frame) {
+        final AdaptiveScheduler scheduler = this.scheduler;
+        if (!frame.cached) {
+            final long latencyNanos = System.nanoTime() - frame.captureNanos;
+            if (scheduler != null) {
+                scheduler.onInferenceDone(latencyNanos, frame.getInferenceNanos());
+            }
+            recordTileLatency(frame.getTileCount(), latencyNanos);
+        }
+        publishResults(frame.results, frame.session);
+        recycleFrame(frame);
+        return null;
+    }
+
+    private void recordTileLatency(final int tileCount, final long latencyNanos) {
+        synchronized (latencyByTileCount) {
+            LatencySamples samples = latencyByTileCount.get(tileCount);
+            if (samples == null) {
+                samples = new LatencySamples(TILE_LATENCY_SAMPLES);
+                latencyByTileCount.put(tileCount, samples);
+            }
+            samples.add(latencyNanos);
+        }
+    }
+
+    /**
+     * Publishes {@code results} unless {@code session}'s model has been switched away from.
+     */
+    private void publishResults(final DetectionBatch results, final ModelSession session) {
+        synchronized (publishLock) {
+            if (session != this.session) {
+                return;
+            }
+            if (results != lastResults) {
+                results.retain();
+                if (lastResults != null) {
+                    lastResults.release();
+                }
+                lastResults = results;
+            }
+            listener.onResults(results);
+        }
+    }
+
+    /**
+     * Publishes the last results again, e.g. for a frame in which nothing moved.
+     *
+     * @return false if nothing has been published yet
+     */
+    private boolean republishLastResults() {
+        synchronized (publishLock) {
+            if (lastResults == null) {
+                return false;
+            }
+            listener.onResults(lastResults);
+            return true;
+        }
+    }
+
+    private static boolean hasMotion(final MotionGate motionGate, final SourceFrame input) {
+        // YUV_420_888 luma samples are always adjacent
+        return motionGate.update(input.getY(), input.getWidth(), input.getHeight(), input.getYRowStride(), 1);
+    }
+
+    private void recordDrop(final Stage stage) {
+        final StageInstrumentation instrumentation = this.instrumentation;
+        if (instrumentation != null) {
+            instrumentation.recordDrop(stage);
+        }
+    }
+
+    private static void recordSince(final StageInstrumentation instrumentation, final Stage stage,
+                                    final long startNanos) {
+        if (instrumentation != null) {
+            instrumentation.record(stage, System.nanoTime() - startNanos);
+        }
+    }
+
+    private void dropFrame(final Stage stage, final Frame frame) {
+        recordDrop(stage);
+        releaseFrame(frame);
+    }
+
+    /**
+     * Returns a frame whose results will never be published.
+     */
+    private void releaseFrame(final Frame frame) {
+        motionReferenceStale.set(true);
+        recycleFrame(frame);
+    }
+
+    private void recycleFrame(final Frame frame) {
+        if (frame.results != null) {
+            frame.results.release();
+            frame.results = null;
+        }
+        frame.cached = false;
+        frame.tiling = null;
+        final ModelSession session = frame.session;
+        session.framePool.release(frame);
+        if (session.retired && session.isIdle()) {
+            closeRetired(session);
+        }
+    }
+
+    /**
+     * Closes a switched-away model off the calling thread, which may be one of its own workers.
+     */
+    private void closeRetired(final ModelSession session) {
+        try {
+            modelLoader.execute(() -> session.close(null));
+        } catch (final RejectedExecutionException ex) {
+            new Thread(() -> session.close(null), "model-close").start();
+        }
+    }
+}
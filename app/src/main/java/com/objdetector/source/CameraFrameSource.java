@@ -0,0 +1,120 @@
+package com.objdetector.source;
+
+import android.media.Image;
+import android.media.ImageReader;
+import android.media.ImageReader.OnImageAvailableListener;
+
+import com.objdetector.core.pipeline.ObjectPool;
+import com.objdetector.core.source.FrameSource;
+import com.objdetector.core.source.SourceFrame;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Camera preview frames from an {@link ImageReader}, delivered on the reader's handler thread.
+ *
+ * Each frame wraps the latest {@link Image} without copying it and closing the frame closes the
+ * image. Images arriving before {@link #start} or after {@link #close} are closed straight away.
+ */
+public class CameraFrameSource implements FrameSource, OnImageAvailableListener {
+    private static final class CameraFrame extends SourceFrame {
+        Image image;
+
+        CameraFrame(final Recycler recycler) {
+            super(recycler);
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final int rotation;
+    private final ObjectPool<CameraFrame> frames;
+    private final AtomicLong delivered = new AtomicLong();
+    private volatile FrameListener listener;
+    private volatile boolean closed;
+
+    /**
+     * @param maxImages the reader's maximum image count, which bounds the frames out at once
+     */
+    public CameraFrameSource(final int width, final int height, final int rotation, final int maxImages) {
+        this.width = width;
+        this.height = height;
+        this.rotation = rotation;
+        this.frames = new ObjectPool<>(maxImages, () -> new CameraFrame(this::recycle));
+    }
+
+    @Override
+    public void onImageAvailable(final ImageReader reader) {
+        final Image image = reader.acquireLatestImage();
+        if (image == null) {
+            return;
+        }
+        final FrameListener frameListener = listener;
+        final CameraFrame frame = frameListener == null || closed ? null : frames.acquire();
+        if (frame == null) {
+            image.close();
+            return;
+        }
+        final Image.Plane[] planes = image.getPlanes();
+        frame.image = image;
+        frame.set(planes[0].getBuffer(), planes[1].getBuffer(), planes[2].getBuffer(), image.getWidth(),
+                image.getHeight(), planes[0].getRowStride(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                image.getTimestamp());
+        delivered.incrementAndGet();
+        frameListener.onFrame(frame);
+    }
+
+    private void recycle(final SourceFrame frame) {
+        final CameraFrame cameraFrame = (CameraFrame) frame;
+        cameraFrame.image.close();
+        cameraFrame.image = null;
+        cameraFrame.set(null, null, null, 0, 0, 0, 0, 0, 0);
+        frames.release(cameraFrame);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getRotation() {
+        return rotation;
+    }
+
+    @Override
+    public void start(final FrameListener listener) {
+        if (this.listener != null) {
+            throw new IllegalStateException("Camera source already started.");
+        }
+        this.listener = listener;
+    }
+
+    @Override
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /**
+     * Frames dropped because every frame was still out, which the reader's image limit should
+     * prevent.
+     */
+    public long getDroppedCount() {
+        return frames.getExhaustedCount();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @Override
+    public String toString() {
+        return "camera " + width + "x" + height + " delivered=" + delivered.get() + " dropped=" + getDroppedCount();
+    }
+}
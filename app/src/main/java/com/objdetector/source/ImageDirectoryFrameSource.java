@@ -0,0 +1,89 @@
+package com.objdetector.source;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import com.objdetector.batch.DirectoryDetectionRunner;
+import com.objdetector.core.image.DecodeSampling;
+import com.objdetector.core.source.ArgbFrameSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The images in a directory, in name order, each decoded and stretched to one frame size. Files
+ * that fail to decode are skipped. Decoding dominates the cost of a frame, so this source tests
+ * detection on known content rather than the pipeline's throughput.
+ */
+public class ImageDirectoryFrameSource extends ArgbFrameSource {
+    private static final String LOGGING_TAG = ImageDirectoryFrameSource.class.getName();
+    private static final long FRAME_INTERVAL_NANOS = 33_333_333L;
+
+    private final File[] files;
+    // Decoder state is only touched by the source thread.
+    private final BitmapFactory.Options options = new BitmapFactory.Options();
+    private int next;
+
+    /**
+     * @throws IOException if the directory cannot be listed or holds no images
+     */
+    public ImageDirectoryFrameSource(final File directory, final int width, final int height, final int bufferCount)
+            throws IOException {
+        super(directory.getName(), width, height, bufferCount);
+        final File[] listed = directory.listFiles(DirectoryDetectionRunner::isImage);
+        if (listed == null || listed.length == 0) {
+            throw new IOException("No images in " + directory);
+        }
+        Arrays.sort(listed);
+        this.files = listed;
+    }
+
+    @Override
+    protected boolean readArgb(final int[] argb, final long index) {
+        while (next < files.length) {
+            final Bitmap bitmap = decode(files[next++]);
+            if (bitmap != null) {
+                bitmap.getPixels(argb, 0, getWidth(), 0, 0, getWidth(), getHeight());
+                bitmap.recycle();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Bitmap decode(final File file) {
+        options.inJustDecodeBounds = true;
+        options.inSampleSize = 1;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            Log.w(LOGGING_TAG, "Skipping " + file + ": not decodable");
+            return null;
+        }
+        options.inJustDecodeBounds = false;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inSampleSize = DecodeSampling.inSampleSize(options.outWidth, options.outHeight,
+                getWidth(), getHeight());
+        final Bitmap sampled = BitmapFactory.decodeFile(file.getPath(), options);
+        if (sampled == null) {
+            Log.w(LOGGING_TAG, "Skipping " + file + ": decode failed");
+            return null;
+        }
+        final Bitmap scaled = Bitmap.createScaledBitmap(sampled, getWidth(), getHeight(), true);
+        if (scaled != sampled) {
+            sampled.recycle();
+        }
+        return scaled;
+    }
+
+    @Override
+    protected long getTimestampNanos(final long index) {
+        return index * FRAME_INTERVAL_NANOS;
+    }
+
+    @Override
+    protected void rewind() {
+        next = 0;
+    }
+}
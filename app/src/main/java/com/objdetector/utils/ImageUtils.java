@@ -3,15 +3,15 @@ package com.objdetector.utils;
 import android.graphics.Matrix;
 import android.media.Image;
 
+import com.objdetector.core.image.YuvUtils;
+
 import java.nio.ByteBuffer;
 
 public class ImageUtils {
-    static final int kMaxChannelValue = 262143;
-
     public static int[] convertYUVToARGB(final Image image, final int previewWidth, final int previewHeight) {
         final Image.Plane[] planes = image.getPlanes();
         byte[][] yuvBytes = fillBytes(planes);
-        return ImageUtils.convertYUV420ToARGB8888(yuvBytes[0], yuvBytes[1], yuvBytes[2], previewWidth,
+        return YuvUtils.convertYUV420ToARGB8888(yuvBytes[0], yuvBytes[1], yuvBytes[2], previewWidth,
                 previewHeight, planes[0].getRowStride(), planes[1].getRowStride(), planes[1].getPixelStride());
     }
 
@@ -28,53 +28,6 @@ public class ImageUtils {
         return yuvBytes;
     }
 
-    private static int[] convertYUV420ToARGB8888(byte[] yData, byte[] uData, byte[] vData, int width, int height,
-                                                 int yRowStride, int uvRowStride, int uvPixelStride) {
-        int[] out = new int[width * height];
-        int i = 0;
-        for (int y = 0; y < height; y++) {
-            int pY = yRowStride * y;
-            int uv_row_start = uvRowStride * (y >> 1);
-            int pU = uv_row_start;
-            int pV = uv_row_start;
-
-            for (int x = 0; x < width; x++) {
-                int uv_offset = (x >> 1) * uvPixelStride;
-                out[i++] = YUV2RGB(
-                        convertByteToInt(yData, pY + x),
-                        convertByteToInt(uData, pU + uv_offset),
-                        convertByteToInt(vData, pV + uv_offset));
-            }
-        }
-
-        return out;
-    }
-
-    private static int convertByteToInt(byte[] arr, int pos) {
-        return arr[pos] & 0xFF;
-    }
-
-    private static int YUV2RGB(int nY, int nU, int nV) {
-        nY -= 16;
-        nU -= 128;
-        nV -= 128;
-        if (nY < 0) nY = 0;
-
-        int nR = 1192 * nY + 1634 * nV;
-        int nG = 1192 * nY - 833 * nV - 400 * nU;
-        int nB = 1192 * nY + 2066 * nU;
-
-        nR = Math.min(kMaxChannelValue, Math.max(0, nR));
-        nG = Math.min(kMaxChannelValue, Math.max(0, nG));
-        nB = Math.min(kMaxChannelValue, Math.max(0, nB));
-
-        nR = (nR >> 10) & 0xff;
-        nG = (nG >> 10) & 0xff;
-        nB = (nB >> 10) & 0xff;
-
-        return 0xff000000 | (nR << 16) | (nG << 8) | nB;
-    }
-
     public static Matrix getTransformationMatrix(final int srcWidth, final int srcHeight,
                                                  final int dstWidth, final int dstHeight,
                                                  final int applyRotation, final boolean maintainAspectRatio) {
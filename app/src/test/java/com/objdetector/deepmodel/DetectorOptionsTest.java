@@ -0,0 +1,74 @@
+package com.objdetector.deepmodel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DetectorOptionsTest {
+    @Test
+    public void defaults_keepEveryDetection() {
+        final DetectorOptions options = DetectorOptions.defaults();
+
+        assertEquals(0, options.getNumThreads());
+        assertFalse(options.isUseXnnpack());
+        assertFalse(options.isAllowFp16Precision());
+        assertEquals(0f, options.getMinConfidence(), 0f);
+        assertEquals(Integer.MAX_VALUE, options.getMaxDetections());
+        assertEquals(1f, options.getNmsIouThreshold(), 0f);
+        assertTrue(options.isClassAwareNms());
+    }
+
+    @Test
+    public void toBuilder_copiesEverySetting() {
+        final DetectorOptions options = DetectorOptions.builder()
+                .setNumThreads(3)
+                .setUseXnnpack(true)
+                .setAllowFp16Precision(true)
+                .setMinConfidence(0.4f)
+                .setMaxDetections(5)
+                .setNmsIouThreshold(0.45f)
+                .setClassAwareNms(false)
+                .build();
+
+        final DetectorOptions copy = options.toBuilder().setNumThreads(1).build();
+
+        assertEquals(1, copy.getNumThreads());
+        assertTrue(copy.isUseXnnpack());
+        assertTrue(copy.isAllowFp16Precision());
+        assertEquals(0.4f, copy.getMinConfidence(), 0f);
+        assertEquals(5, copy.getMaxDetections());
+        assertEquals(0.45f, copy.getNmsIouThreshold(), 0f);
+        assertFalse(copy.isClassAwareNms());
+        assertEquals(3, options.getNumThreads());
+    }
+
+    @Test
+    public void equals_comparesEverySetting() {
+        final DetectorOptions options = DetectorOptions.builder()
+                .setNumThreads(2)
+                .setMinConfidence(0.5f)
+                .setNmsIouThreshold(0.5f)
+                .build();
+
+        assertEquals(options, options.toBuilder().build());
+        assertEquals(options.hashCode(), options.toBuilder().build().hashCode());
+        assertNotEquals(options, options.toBuilder().setClassAwareNms(false).build());
+        assertNotEquals(options, options.toBuilder().setMinConfidence(0.6f).build());
+        assertNotEquals(options, DetectorOptions.defaults());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_rejectsConfidenceAboveOne() {
+        DetectorOptions.builder().setMinConfidence(1.5f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_rejectsZeroMaxDetections() {
+        DetectorOptions.builder().setMaxDetections(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_rejectsNegativeIouThreshold() {
+        DetectorOptions.builder().setNmsIouThreshold(-0.1f);
+    }
+}
@@ -0,0 +1,53 @@
+package com.objdetector.deepmodel;
+
+import org.junit.Test;
+import org.tensorflow.lite.DataType;
+
+import static org.junit.Assert.*;
+
+public class ModelRegistryTest {
+    private static final ModelSpec EFFICIENTDET = ModelSpec.builder("efficientdet_lite0", "efficientdet.tflite", "coco.txt")
+            .setInputSize(320, 320)
+            .setOutputLayout(ModelSpec.OutputLayout.TF2_SSD)
+            .build();
+
+    @Test
+    public void bundled_defaultsToQuantisedSsd() {
+        final ModelSpec spec = ModelRegistry.withBundledModels().getDefault();
+
+        assertSame(ModelRegistry.SSD_MOBILENET_V1, spec);
+        assertEquals("detect.tflite", spec.getModelFile());
+        assertEquals(300, spec.getInputWidth());
+        assertEquals(DataType.UINT8, spec.getInputType());
+        assertEquals(1, spec.getLabelOffset());
+        assertEquals(0, spec.getOutputLayout().getLocations());
+    }
+
+    @Test
+    public void next_cyclesInRegistrationOrder() {
+        final ModelRegistry registry = ModelRegistry.withBundledModels();
+        registry.register(EFFICIENTDET);
+
+        assertSame(EFFICIENTDET, registry.next(ModelRegistry.SSD_MOBILENET_V1));
+        assertSame(ModelRegistry.SSD_MOBILENET_V1, registry.next(EFFICIENTDET));
+        assertEquals(3, registry.get("efficientdet_lite0").getOutputLayout().getClasses());
+    }
+
+    @Test
+    public void register_replacesModelOfSameName() {
+        final ModelRegistry registry = ModelRegistry.withBundledModels();
+        final ModelSpec fp32 = ModelSpec.builder("ssd_mobilenet_v1", "detect_fp32.tflite", "labelmap.txt")
+                .setInputType(DataType.FLOAT32)
+                .build();
+
+        registry.register(fp32);
+
+        assertEquals(1, registry.getNames().size());
+        assertSame(fp32, registry.get("ssd_mobilenet_v1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void get_rejectsUnknownModel() {
+        ModelRegistry.withBundledModels().get("yolo");
+    }
+}
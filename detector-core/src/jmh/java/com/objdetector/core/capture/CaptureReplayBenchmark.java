@@ -0,0 +1,111 @@
+package com.objdetector.core.capture;
+
+import com.objdetector.core.image.ParallelRowExecutor;
+import com.objdetector.core.image.TensorFormat;
+import com.objdetector.core.image.YuvFrame;
+import com.objdetector.core.image.YuvToTensorConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a capture as fast as possible through the camera pipeline's conversion into a 300x300
+ * uint8 tensor; one operation is the whole capture. Pass {@code -Pjmh.capture=<dir>} to replay a
+ * capture pulled from a device, otherwise sixty synthetic 1280x720 frames are written in setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CaptureReplayBenchmark {
+    private static final int MODEL_SIZE = 300;
+    private static final int SYNTHETIC_WIDTH = 1280;
+    private static final int SYNTHETIC_HEIGHT = 720;
+    private static final int SYNTHETIC_FRAMES = 60;
+    private static final long FRAME_INTERVAL_NANOS = 33_333_333L;
+
+    private File syntheticDirectory;
+    private CaptureReader reader;
+    private ParallelRowExecutor executor;
+    private final CaptureReplayer replayer = new CaptureReplayer(CaptureReplayer.AS_FAST_AS_POSSIBLE,
+            CaptureReplayer.SYSTEM_CLOCK);
+    private final ByteBuffer tensor = ByteBuffer.allocateDirect(MODEL_SIZE * MODEL_SIZE * 3);
+    private YuvToTensorConverter converter;
+
+    @Setup
+    public void setUp() throws IOException {
+        final String captureDir = System.getProperty("capture.dir");
+        final File directory;
+        if (captureDir != null) {
+            directory = new File(captureDir);
+        } else {
+            syntheticDirectory = Files.createTempDirectory("capture-bench").toFile();
+            directory = new File(syntheticDirectory, "capture");
+            writeSyntheticCapture(directory);
+        }
+        reader = new CaptureReader(directory);
+        executor = new ParallelRowExecutor(Runtime.getRuntime().availableProcessors());
+    }
+
+    private static void writeSyntheticCapture(final File directory) throws IOException {
+        final Random random = new Random(1);
+        final ByteBuffer y = randomDirect(SYNTHETIC_WIDTH * SYNTHETIC_HEIGHT, random);
+        final ByteBuffer u = randomDirect(SYNTHETIC_WIDTH * (SYNTHETIC_HEIGHT / 2) - 1, random);
+        final ByteBuffer v = randomDirect(SYNTHETIC_WIDTH * (SYNTHETIC_HEIGHT / 2) - 1, random);
+        try (CaptureWriter writer = new CaptureWriter(directory, 64L * 1024 * 1024)) {
+            for (int i = 0; i < SYNTHETIC_FRAMES; i++) {
+                writer.write(y, u, v, SYNTHETIC_WIDTH, SYNTHETIC_HEIGHT, SYNTHETIC_WIDTH, SYNTHETIC_WIDTH, 2,
+                        i * FRAME_INTERVAL_NANOS);
+            }
+        }
+    }
+
+    private static ByteBuffer randomDirect(final int size, final Random random) {
+        final byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        buffer.put(bytes);
+        buffer.rewind();
+        return buffer;
+    }
+
+    @TearDown
+    public void tearDown() {
+        reader.close();
+        executor.close();
+        if (syntheticDirectory != null) {
+            final File directory = new File(syntheticDirectory, "capture");
+            for (final File segment : CaptureFormat.listSegments(directory)) {
+                segment.delete();
+            }
+            directory.delete();
+            syntheticDirectory.delete();
+        }
+    }
+
+    @Benchmark
+    public long replay() throws IOException, InterruptedException {
+        reader.rewind();
+        return replayer.replay(reader, this::convert).getFrameCount();
+    }
+
+    private void convert(final YuvFrame frame) {
+        if (converter == null) {
+            converter = new YuvToTensorConverter(frame.getWidth(), frame.getHeight(), MODEL_SIZE, MODEL_SIZE,
+                    90, true, executor, TensorFormat.uint8());
+        }
+        frame.convert(converter, tensor);
+    }
+}
@@ -0,0 +1,152 @@
+package com.objdetector.core.detection;
+
+import com.objdetector.core.geometry.OverlayMapping;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dequantising and decoding SSD box outputs, selecting and suppressing candidates, and mapping
+ * them onto the overlay, by candidate count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PostProcessingBenchmark {
+    private static final int MODEL_SIZE = 300;
+    private static final int CLASSES = 90;
+    private static final int MAX_KEPT = 100;
+
+    @Param({"10", "100", "1917"})
+    public int detections;
+
+    private float[][] locations;
+    private float[] boxes;
+    private float[] viewBoxes;
+    private OverlayMapping overlayMapping;
+    private float[] scores;
+    private int[] classes;
+    private int[] kept;
+    private DetectionPostProcessor postProcessor;
+    private ByteBuffer quantizedLocations;
+    private ByteBuffer quantizedScores;
+    private float[] dequantizedLocations;
+    private float[] dequantizedScores;
+    private Quantization locationQuantization;
+    private Quantization scoreQuantization;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(detections);
+        locations = new float[detections][4];
+        for (final float[] location : locations) {
+            location[0] = random.nextFloat() * 0.5f;
+            location[1] = random.nextFloat() * 0.5f;
+            location[2] = location[0] + random.nextFloat() * 0.5f;
+            location[3] = location[1] + random.nextFloat() * 0.5f;
+        }
+        boxes = new float[detections * 4];
+        viewBoxes = new float[detections * 4];
+        overlayMapping = new OverlayMapping(MODEL_SIZE);
+        overlayMapping.update(1080, 2160, 300);
+
+        scores = new float[detections];
+        classes = new int[detections];
+        for (int i = 0; i < detections; i++) {
+            // Mostly background, as SSD candidates are.
+            scores[i] = random.nextFloat() < 0.9f ? random.nextFloat() * 0.1f : random.nextFloat();
+            classes[i] = random.nextInt(CLASSES);
+        }
+        SsdOutputDecoder.decodeBoxes(locations, detections, MODEL_SIZE, boxes);
+        kept = new int[MAX_KEPT];
+        postProcessor = new DetectionPostProcessor(0.3f, 200, 0.5f, true);
+
+        final byte[] locationBytes = new byte[detections * 4];
+        final byte[] scoreBytes = new byte[detections];
+        random.nextBytes(locationBytes);
+        random.nextBytes(scoreBytes);
+        quantizedLocations = ByteBuffer.allocateDirect(locationBytes.length).put(locationBytes);
+        quantizedScores = ByteBuffer.allocateDirect(scoreBytes.length).put(scoreBytes);
+        dequantizedLocations = new float[detections * 4];
+        dequantizedScores = new float[detections];
+        locationQuantization = new Quantization(false, 1f / 255, 0);
+        scoreQuantization = new Quantization(true, 1f / 256, -128);
+    }
+
+    /**
+     * Converting a quantised model's uint8 boxes and int8 scores back to floats.
+     */
+    @Benchmark
+    public float[] dequantizeOutputs() {
+        locationQuantization.dequantize(quantizedLocations, 0, dequantizedLocations, 0, detections * 4);
+        scoreQuantization.dequantize(quantizedScores, 0, dequantizedScores, 0, detections);
+        return dequantizedScores;
+    }
+
+    @Benchmark
+    public int thresholdTopKNms() {
+        return postProcessor.process(boxes, scores, classes, detections, kept, MAX_KEPT);
+    }
+
+    /**
+     * Baseline: sort every candidate by boxed index, then NMS the ones above the threshold.
+     */
+    @Benchmark
+    public int sortAllThenNms() {
+        final Integer[] order = new Integer[detections];
+        for (int i = 0; i < detections; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> -scores[i]));
+        int keptCount = 0;
+        for (int i = 0; i < detections && keptCount < MAX_KEPT && scores[order[i]] >= 0.3f; i++) {
+            boolean keep = true;
+            for (int k = 0; k < keptCount && keep; k++) {
+                keep = classes[kept[k]] != classes[order[i]] || iou(kept[k], order[i]) <= 0.5f;
+            }
+            if (keep) {
+                kept[keptCount++] = order[i];
+            }
+        }
+        return keptCount;
+    }
+
+    private float iou(final int a, final int b) {
+        final float width = Math.min(boxes[a * 4 + 2], boxes[b * 4 + 2]) - Math.max(boxes[a * 4], boxes[b * 4]);
+        final float height = Math.min(boxes[a * 4 + 3], boxes[b * 4 + 3]) - Math.max(boxes[a * 4 + 1], boxes[b * 4 + 1]);
+        if (width <= 0 || height <= 0) {
+            return 0;
+        }
+        final float intersection = width * height;
+        final float areaA = (boxes[a * 4 + 2] - boxes[a * 4]) * (boxes[a * 4 + 3] - boxes[a * 4 + 1]);
+        final float areaB = (boxes[b * 4 + 2] - boxes[b * 4]) * (boxes[b * 4 + 3] - boxes[b * 4 + 1]);
+        return intersection / (areaA + areaB - intersection);
+    }
+
+    @Benchmark
+    public float[] decodeBoxes() {
+        SsdOutputDecoder.decodeBoxes(locations, detections, MODEL_SIZE, boxes);
+        return boxes;
+    }
+
+    @Benchmark
+    public float[] decodeAndMapToOverlay() {
+        SsdOutputDecoder.decodeBoxes(locations, detections, MODEL_SIZE, boxes);
+        for (int i = 0; i < detections; i++) {
+            overlayMapping.mapBox(boxes, i * 4, viewBoxes, i * 4);
+        }
+        return viewBoxes;
+    }
+}
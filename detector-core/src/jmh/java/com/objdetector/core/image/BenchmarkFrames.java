@@ -0,0 +1,48 @@
+package com.objdetector.core.image;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Builds NV21-style YUV_420_888 planes (chroma pixel stride 2) the way camera readers hand them out.
+ */
+final class BenchmarkFrames {
+    private BenchmarkFrames() {
+    }
+
+    static int parseWidth(final String size) {
+        return Integer.parseInt(size.substring(0, size.indexOf('x')));
+    }
+
+    static int parseHeight(final String size) {
+        return Integer.parseInt(size.substring(size.indexOf('x') + 1));
+    }
+
+    static ByteBuffer[] randomPlanes(final int width, final int height) {
+        final Random random = new Random(width * 31L + height);
+        final ByteBuffer y = randomDirect(width * height, random);
+        final ByteBuffer u = randomDirect(width * (height / 2) - 1, random);
+        final ByteBuffer v = randomDirect(width * (height / 2) - 1, random);
+        return new ByteBuffer[]{y, u, v};
+    }
+
+    static YuvToRgbKernel kernel(final String name) {
+        switch (name) {
+            case "fixedPoint":
+                return new FixedPointYuvToRgbKernel();
+            case "lookupTable":
+                return new LookupTableYuvToRgbKernel();
+            default:
+                throw new IllegalArgumentException("Unknown kernel: " + name);
+        }
+    }
+
+    private static ByteBuffer randomDirect(final int size, final Random random) {
+        final byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        buffer.put(bytes);
+        buffer.rewind();
+        return buffer;
+    }
+}
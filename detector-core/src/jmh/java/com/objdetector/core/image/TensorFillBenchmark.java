@@ -0,0 +1,81 @@
+package com.objdetector.core.image;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filling the 300x300 model input: the fused rotate, crop, scale and convert pass straight from
+ * the YUV planes with each kernel, and packing an already-scaled ARGB bitmap, for raw uint8,
+ * shifted int8 and normalised float32 tensors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TensorFillBenchmark {
+    private static final int MODEL_SIZE = 300;
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String previewSize;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"uint8", "int8", "float32"})
+    public String format;
+
+    @Param({"fixedPoint", "lookupTable"})
+    public String kernel;
+
+    private ByteBuffer[] planes;
+    private int width;
+    private ParallelRowExecutor executor;
+    private YuvToTensorConverter tensorConverter;
+    private int[] modelArgb;
+    private TensorFormat tensorFormat;
+    private ByteBuffer tensor;
+
+    @Setup
+    public void setUp() {
+        width = BenchmarkFrames.parseWidth(previewSize);
+        final int height = BenchmarkFrames.parseHeight(previewSize);
+        planes = BenchmarkFrames.randomPlanes(width, height);
+        executor = new ParallelRowExecutor(threads);
+        tensorFormat = "float32".equals(format) ? TensorFormat.float32(127.5f, 127.5f)
+                : "int8".equals(format) ? TensorFormat.int8() : TensorFormat.uint8();
+        tensorConverter = new YuvToTensorConverter(width, height, MODEL_SIZE, MODEL_SIZE, 90, true, executor,
+                BenchmarkFrames.kernel(kernel), tensorFormat);
+        modelArgb = new Random(1).ints(MODEL_SIZE * MODEL_SIZE).toArray();
+        tensor = ByteBuffer.allocateDirect(MODEL_SIZE * MODEL_SIZE * tensorFormat.getBytesPerPixel())
+                .order(ByteOrder.nativeOrder());
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public ByteBuffer fusedYuvToTensor() {
+        tensorConverter.convert(planes[0], planes[1], planes[2], width, width, 2, tensor);
+        return tensor;
+    }
+
+    @Benchmark
+    public ByteBuffer packArgbBitmap() {
+        executor.execute(MODEL_SIZE, (startRow, endRow) ->
+                RgbTensorPacker.packRows(modelArgb, MODEL_SIZE, startRow, endRow, tensor, 0, tensorFormat));
+        return tensor;
+    }
+}
@@ -0,0 +1,98 @@
+package com.objdetector.core.image;
+
+import com.objdetector.core.detection.DetectionBatch;
+import com.objdetector.core.detection.TileMerger;
+import com.objdetector.core.geometry.TileGrid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CPU cost tiling adds around inference: filling one 300x300 tensor per tile of a 1280x720
+ * frame, and mapping and merging ten detections per tile across tile boundaries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TilingBenchmark {
+    private static final int MODEL_SIZE = 300;
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+    private static final int DETECTIONS_PER_TILE = 10;
+
+    @Param({"1x1", "2x2", "3x3"})
+    public String grid;
+
+    private ByteBuffer[] planes;
+    private ParallelRowExecutor executor;
+    private YuvToTensorConverter[] converters;
+    private ByteBuffer[] tensors;
+    private DetectionBatch[] tileResults;
+    private DetectionBatch scratch;
+    private TileMerger merger;
+    private DetectionBatch merged;
+
+    @Setup
+    public void setUp() {
+        planes = BenchmarkFrames.randomPlanes(WIDTH, HEIGHT);
+        executor = new ParallelRowExecutor(Runtime.getRuntime().availableProcessors());
+        final YuvToTensorConverter frameConverter = new YuvToTensorConverter(WIDTH, HEIGHT, MODEL_SIZE, MODEL_SIZE,
+                90, true, executor, TensorFormat.uint8());
+        final TileGrid tiles = new TileGrid(frameConverter.getUprightWidth(), frameConverter.getUprightHeight(),
+                BenchmarkFrames.parseWidth(grid), BenchmarkFrames.parseHeight(grid), 0.2f);
+        converters = new YuvToTensorConverter[tiles.getTileCount()];
+        tensors = new ByteBuffer[tiles.getTileCount()];
+        tileResults = new DetectionBatch[tiles.getTileCount()];
+        final Random random = new Random(1);
+        for (int i = 0; i < converters.length; i++) {
+            converters[i] = frameConverter.forRegion(tiles.getLeft(i), tiles.getTop(i),
+                    tiles.getTileWidth(), tiles.getTileHeight());
+            tensors[i] = ByteBuffer.allocateDirect(MODEL_SIZE * MODEL_SIZE * 3);
+            tileResults[i] = new DetectionBatch(DETECTIONS_PER_TILE);
+            for (int d = 0; d < DETECTIONS_PER_TILE; d++) {
+                final float left = random.nextFloat() * (MODEL_SIZE - 60);
+                final float top = random.nextFloat() * (MODEL_SIZE - 60);
+                tileResults[i].add(d, random.nextInt(5), random.nextFloat(), left, top, left + 60, top + 60);
+            }
+        }
+        scratch = new DetectionBatch(DETECTIONS_PER_TILE);
+        merger = new TileMerger(converters.length * DETECTIONS_PER_TILE, 0.5f, true);
+        merged = new DetectionBatch(2 * DETECTIONS_PER_TILE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public ByteBuffer[] fillTiles() {
+        for (int i = 0; i < converters.length; i++) {
+            converters[i].convert(planes[0], planes[1], planes[2], WIDTH, WIDTH, 2, tensors[i]);
+        }
+        return tensors;
+    }
+
+    @Benchmark
+    public DetectionBatch mergeTiles() {
+        merger.clear();
+        for (int i = 0; i < converters.length; i++) {
+            scratch.copyFrom(tileResults[i]);
+            converters[i].mapToFrame(scratch.getBoxes(), scratch.getCount());
+            merger.add(scratch);
+        }
+        merger.merge(merged);
+        return merged;
+    }
+}
@@ -0,0 +1,54 @@
+package com.objdetector.core.image;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The original copy-then-convert path against {@link YuvToRgbConverter}. Read the
+ * {@code gc.alloc.rate.norm} column for bytes allocated per frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class YuvAllocationBenchmark {
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String previewSize;
+
+    private ByteBuffer[] planes;
+    private int width;
+    private int height;
+    private YuvToRgbConverter converter;
+
+    @Setup
+    public void setUp() {
+        width = BenchmarkFrames.parseWidth(previewSize);
+        height = BenchmarkFrames.parseHeight(previewSize);
+        planes = BenchmarkFrames.randomPlanes(width, height);
+        converter = new YuvToRgbConverter(width, height);
+    }
+
+    @Benchmark
+    public int[] legacyCopyAndConvert() {
+        final byte[][] yuvBytes = new byte[3][];
+        for (int i = 0; i < planes.length; ++i) {
+            yuvBytes[i] = new byte[planes[i].capacity()];
+            planes[i].duplicate().get(yuvBytes[i]);
+        }
+        return YuvUtils.convertYUV420ToARGB8888(yuvBytes[0], yuvBytes[1], yuvBytes[2], width, height,
+                width, width, 2);
+    }
+
+    @Benchmark
+    public int[] convertInPlace() {
+        return converter.convert(planes[0], planes[1], planes[2], width, width, 2);
+    }
+}
@@ -0,0 +1,55 @@
+package com.objdetector.core.image;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-frame YUV to ARGB conversion by kernel and thread count at common preview sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class YuvConversionBenchmark {
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String previewSize;
+
+    @Param({"fixedPoint", "lookupTable"})
+    public String kernel;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private ByteBuffer[] planes;
+    private int width;
+    private ParallelRowExecutor executor;
+    private YuvToRgbConverter converter;
+
+    @Setup
+    public void setUp() {
+        width = BenchmarkFrames.parseWidth(previewSize);
+        final int height = BenchmarkFrames.parseHeight(previewSize);
+        planes = BenchmarkFrames.randomPlanes(width, height);
+        executor = new ParallelRowExecutor(threads);
+        converter = new YuvToRgbConverter(width, height, executor, BenchmarkFrames.kernel(kernel));
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public int[] convertToArgb() {
+        return converter.convert(planes[0], planes[1], planes[2], width, width, 2);
+    }
+}
@@ -0,0 +1,65 @@
+package com.objdetector.core.source;
+
+import com.objdetector.core.image.ParallelRowExecutor;
+import com.objdetector.core.image.TensorFormat;
+import com.objdetector.core.image.YuvToTensorConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frames taken from a synthetic source and converted into a 300x300 uint8 tensor, one per
+ * operation: the rate a source can feed the pipeline's preprocessing with inference left out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FrameSourceBenchmark {
+    private static final int MODEL_SIZE = 300;
+    private static final int BUFFER_COUNT = 3;
+
+    @Param({"640x480", "1280x720"})
+    public String size;
+
+    private final LinkedBlockingQueue<SourceFrame> frames = new LinkedBlockingQueue<>();
+    private final ByteBuffer tensor = ByteBuffer.allocateDirect(MODEL_SIZE * MODEL_SIZE * 3);
+    private SyntheticFrameSource source;
+    private ParallelRowExecutor executor;
+    private YuvToTensorConverter converter;
+
+    @Setup
+    public void setUp() {
+        final int width = Integer.parseInt(size.substring(0, size.indexOf('x')));
+        final int height = Integer.parseInt(size.substring(size.indexOf('x') + 1));
+        executor = new ParallelRowExecutor(Runtime.getRuntime().availableProcessors());
+        converter = new YuvToTensorConverter(width, height, MODEL_SIZE, MODEL_SIZE, 90, true, executor,
+                TensorFormat.uint8());
+        source = new SyntheticFrameSource(width, height, 0, BUFFER_COUNT);
+        source.start(frames::add);
+    }
+
+    @TearDown
+    public void tearDown() {
+        source.close();
+        executor.close();
+    }
+
+    @Benchmark
+    public ByteBuffer takeAndConvert() throws InterruptedException {
+        final SourceFrame frame = frames.take();
+        frame.convert(converter, tensor);
+        frame.close();
+        return tensor;
+    }
+}
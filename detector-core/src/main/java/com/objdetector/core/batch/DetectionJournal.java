@@ -0,0 +1,175 @@
+package com.objdetector.core.batch;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Properties;
+
+/**
+ * Append-only JSON Lines output that can be resumed after the process is killed.
+ *
+ * Every {@code checkpointInterval} records the file is synced and a small checkpoint, written
+ * next to it with a {@code .checkpoint} suffix, records how many bytes and records are durable
+ * and the key of the last one. Reopening the journal truncates anything written after the last
+ * checkpoint, so a record is never duplicated or left half written; the caller skips inputs up to
+ * {@link #getLastKey()} and carries on.
+ */
+public class DetectionJournal implements Closeable {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String SUFFIX = ".checkpoint";
+    private static final String KEY_RECORDS = "records";
+    private static final String KEY_BYTES = "bytes";
+    private static final String KEY_LAST = "last";
+
+    private final File checkpointFile;
+    private final int checkpointInterval;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final Writer writer;
+    private final long resumedRecords;
+    private long records;
+    private String lastKey;
+    private int sinceCheckpoint;
+
+    public DetectionJournal(final File output, final int checkpointInterval) throws IOException {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be at least 1: " + checkpointInterval);
+        }
+        this.checkpointFile = new File(output.getPath() + SUFFIX);
+        this.checkpointInterval = checkpointInterval;
+
+        long bytes = 0;
+        if (checkpointFile.exists()) {
+            final Properties checkpoint = new Properties();
+            try (InputStream in = new FileInputStream(checkpointFile)) {
+                checkpoint.load(in);
+            }
+            records = Long.parseLong(checkpoint.getProperty(KEY_RECORDS, "0"));
+            bytes = Long.parseLong(checkpoint.getProperty(KEY_BYTES, "0"));
+            lastKey = checkpoint.getProperty(KEY_LAST);
+        }
+        resumedRecords = records;
+
+        file = new RandomAccessFile(output, "rw");
+        if (file.length() < bytes) {
+            file.close();
+            throw new IOException("Output " + output + " is shorter than its checkpoint");
+        }
+        file.setLength(bytes);
+        channel = file.getChannel();
+        channel.position(bytes);
+        writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), UTF_8));
+    }
+
+    /**
+     * Number of records that were already durable when the journal was opened.
+     */
+    public long getResumedCount() {
+        return resumedRecords;
+    }
+
+    public long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Key of the last record written, or null if there is none.
+     */
+    public String getLastKey() {
+        return lastKey;
+    }
+
+    /**
+     * Appends one record; {@code json} must not contain a line break.
+     *
+     * @param key identifies the input the record belongs to, e.g. its file name
+     */
+    public void append(final String key, final String json) throws IOException {
+        writer.write(json);
+        writer.write('\n');
+        records++;
+        lastKey = key;
+        if (++sinceCheckpoint >= checkpointInterval) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Makes every record appended so far durable.
+     */
+    public void checkpoint() throws IOException {
+        writer.flush();
+        channel.force(false);
+
+        final Properties checkpoint = new Properties();
+        checkpoint.setProperty(KEY_RECORDS, Long.toString(records));
+        checkpoint.setProperty(KEY_BYTES, Long.toString(channel.position()));
+        if (lastKey != null) {
+            checkpoint.setProperty(KEY_LAST, lastKey);
+        }
+        final File temp = new File(checkpointFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            checkpoint.store(out, null);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(checkpointFile)) {
+            throw new IOException("Could not replace checkpoint " + checkpointFile);
+        }
+        sinceCheckpoint = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            checkpoint();
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Quotes and escapes {@code value} as a JSON string.
+     */
+    public static String quote(final String value) {
+        final StringBuilder builder = new StringBuilder(value.length() + 2);
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
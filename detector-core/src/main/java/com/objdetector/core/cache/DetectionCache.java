@@ -0,0 +1,146 @@
+package com.objdetector.core.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of detection results keyed by {@link PerceptualHash} values.
+ *
+ * A lookup returns the value of the closest stored hash within {@code maxDistance} bits, so an
+ * image that differs from a cached one only by noise reuses its results. The cache holds at most
+ * {@code maxEntries} values and at most {@code maxBytes} as estimated by the {@link Weigher},
+ * evicting in least-recently-used or insertion order. Lookups scan every entry, which for the few
+ * hundred entries such a cache holds costs far less than an inference.
+ *
+ * All methods are synchronized, so one cache can serve several detectors. Cached values are
+ * shared between callers and must not be modified.
+ */
+public class DetectionCache<V> {
+    public enum EvictionPolicy {
+        LEAST_RECENTLY_USED,
+        OLDEST_INSERTED
+    }
+
+    public interface Weigher<V> {
+        /**
+         * Approximate memory held by {@code value}, in bytes.
+         */
+        long weigh(V value);
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long bytes;
+
+        Entry(final V value, final long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final int maxDistance;
+    private final Weigher<V> weigher;
+    private final LinkedHashMap<Long, Entry<V>> entries;
+    private long totalBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public DetectionCache(final int maxEntries, final long maxBytes, final int maxDistance,
+                          final EvictionPolicy policy, final Weigher<V> weigher) {
+        if (maxEntries < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("Cache limits must be positive.");
+        }
+        if (maxDistance < 0 || maxDistance > 64) {
+            throw new IllegalArgumentException("Hamming distance must be in [0, 64]: " + maxDistance);
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxDistance = maxDistance;
+        this.weigher = weigher;
+        this.entries = new LinkedHashMap<>(16, 0.75f, policy == EvictionPolicy.LEAST_RECENTLY_USED);
+    }
+
+    /**
+     * Returns the value stored under the nearest hash within the distance limit, or null.
+     */
+    public synchronized V get(final long hash) {
+        Long bestKey = null;
+        int bestDistance = maxDistance + 1;
+        for (final Long key : entries.keySet()) {
+            final int distance = PerceptualHash.hammingDistance(hash, key);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestKey = key;
+                if (distance == 0) {
+                    break;
+                }
+            }
+        }
+        if (bestKey == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        // Looked up by key so an access-ordered map moves the entry to the young end.
+        return entries.get(bestKey).value;
+    }
+
+    public synchronized void put(final long hash, final V value) {
+        final long bytes = weigher.weigh(value);
+        if (bytes > maxBytes) {
+            return;
+        }
+        final Entry<V> previous = entries.put(hash, new Entry<>(value, bytes));
+        if (previous != null) {
+            totalBytes -= previous.bytes;
+        }
+        totalBytes += bytes;
+
+        final Iterator<Map.Entry<Long, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || totalBytes > maxBytes) {
+            totalBytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    public synchronized double getHitRate() {
+        final long lookups = hits + misses;
+        return lookups == 0 ? 0 : hits / (double) lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Detection cache: entries=%d bytes=%d hits=%d misses=%d hit rate=%.2f evictions=%d",
+                entries.size(), totalBytes, hits, misses, getHitRate(), evictions);
+    }
+}
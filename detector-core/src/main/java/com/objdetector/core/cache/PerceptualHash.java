@@ -0,0 +1,102 @@
+package com.objdetector.core.cache;
+
+import com.objdetector.core.image.TensorFormat;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Difference hash (dHash) of an RGB input tensor, for spotting repeated or nearly repeated images.
+ *
+ * The image is reduced to a 9x8 grid of mean luma values and each of the 64 bits records whether
+ * a cell is brighter than its right-hand neighbour. Re-encoding, small shifts and sensor noise
+ * flip only a few bits, so similar images are a small Hamming distance apart.
+ *
+ * The cell sums are kept between calls, so hashing does not allocate; use one hasher per thread.
+ */
+public class PerceptualHash {
+    private static final int GRID_WIDTH = 9;
+    private static final int GRID_HEIGHT = 8;
+    // Every other pixel in each direction is enough for cell means and quarters the reads.
+    private static final int SAMPLE_STEP = 2;
+
+    // Luma sums per cell; whole numbers for byte tensors, fractional ones for float tensors.
+    private final long[] sums = new long[GRID_WIDTH * GRID_HEIGHT];
+    private final double[] floatSums = new double[GRID_WIDTH * GRID_HEIGHT];
+    private final int[] counts = new int[GRID_WIDTH * GRID_HEIGHT];
+
+    /**
+     * Hashes a packed uint8 RGB tensor of {@code width} x {@code height} pixels starting at byte 0.
+     */
+    public long dHash(final ByteBuffer rgb, final int width, final int height) {
+        return dHash(rgb, width, height, TensorFormat.uint8());
+    }
+
+    /**
+     * Hashes a tensor in {@code format}, whose stored values rise with the channel values. Float
+     * tensors are read in the buffer's byte order.
+     */
+    public long dHash(final ByteBuffer tensor, final int width, final int height, final TensorFormat format) {
+        final TensorFormat.ElementType type = format.getElementType();
+        Arrays.fill(counts, 0);
+        if (type == TensorFormat.ElementType.FLOAT32) {
+            Arrays.fill(floatSums, 0);
+            sumFloats(tensor, width, height);
+        } else {
+            Arrays.fill(sums, 0);
+            sumBytes(tensor, width, height, type == TensorFormat.ElementType.INT8 ? 128 : 0);
+        }
+
+        long hash = 0;
+        int bit = 0;
+        for (int row = 0; row < GRID_HEIGHT; row++) {
+            for (int col = 0; col < GRID_WIDTH - 1; col++) {
+                final int cell = row * GRID_WIDTH + col;
+                // Compare means without dividing: a/ca > b/cb  <=>  a*cb > b*ca.
+                final boolean brighter = type == TensorFormat.ElementType.FLOAT32
+                        ? floatSums[cell] * counts[cell + 1] > floatSums[cell + 1] * counts[cell]
+                        : sums[cell] * counts[cell + 1] > sums[cell + 1] * counts[cell];
+                if (brighter) {
+                    hash |= 1L << bit;
+                }
+                bit++;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Sums uint8 channels, or int8 ones moved back up by {@code offset}, in integers.
+     */
+    private void sumBytes(final ByteBuffer tensor, final int width, final int height, final int offset) {
+        final int mask = offset == 0 ? 0xff : -1;
+        for (int y = 0; y < height; y += SAMPLE_STEP) {
+            final int cellRow = y * GRID_HEIGHT / height * GRID_WIDTH;
+            int pos = y * width * 3;
+            for (int x = 0; x < width; x += SAMPLE_STEP, pos += 3 * SAMPLE_STEP) {
+                final int cell = cellRow + x * GRID_WIDTH / width;
+                // Integer approximation of Rec. 601 luma.
+                sums[cell] += 77 * ((tensor.get(pos) & mask) + offset) + 150 * ((tensor.get(pos + 1) & mask) + offset)
+                        + 29 * ((tensor.get(pos + 2) & mask) + offset);
+                counts[cell]++;
+            }
+        }
+    }
+
+    private void sumFloats(final ByteBuffer tensor, final int width, final int height) {
+        for (int y = 0; y < height; y += SAMPLE_STEP) {
+            final int cellRow = y * GRID_HEIGHT / height * GRID_WIDTH;
+            int pos = y * width * 3;
+            for (int x = 0; x < width; x += SAMPLE_STEP, pos += 3 * SAMPLE_STEP) {
+                final int cell = cellRow + x * GRID_WIDTH / width;
+                floatSums[cell] += 77 * tensor.getFloat(pos * 4) + 150 * tensor.getFloat((pos + 1) * 4)
+                        + 29 * tensor.getFloat((pos + 2) * 4);
+                counts[cell]++;
+            }
+        }
+    }
+
+    public static int hammingDistance(final long a, final long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
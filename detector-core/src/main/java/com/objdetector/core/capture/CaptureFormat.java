@@ -0,0 +1,50 @@
+package com.objdetector.core.capture;
+
+import java.io.File;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Layout of a capture: a directory of numbered segment files, {@code segment-00000.cap} and on.
+ *
+ * Each segment starts with {@link #SEGMENT_MAGIC} and {@link #VERSION} and holds whole frames,
+ * each a {@link #FRAME_MAGIC}, the capture timestamp, width, height, Y row stride, chroma row
+ * stride, chroma pixel stride and the byte lengths of the three planes, followed by the planes'
+ * bytes as the camera laid them out. Everything is little endian whatever the device, so captures
+ * taken on a phone replay on a build machine. A segment ends at its end of file or at the first
+ * word that is not {@link #FRAME_MAGIC}.
+ */
+final class CaptureFormat {
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    // "ODCS" and "ODCF" read as little-endian ints.
+    static final int SEGMENT_MAGIC = 0x5343444F;
+    static final int FRAME_MAGIC = 0x4643444F;
+    static final int VERSION = 1;
+    static final int SEGMENT_HEADER_BYTES = 8;
+    static final int FRAME_HEADER_BYTES = 4 + 8 + 5 * 4 + 3 * 4;
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".cap";
+
+    private CaptureFormat() {
+    }
+
+    static File segmentFile(final File directory, final int index) {
+        return new File(directory, String.format(Locale.US, "%s%05d%s", PREFIX, index, SUFFIX));
+    }
+
+    /**
+     * The segments of the capture in {@code directory}, in recording order.
+     */
+    static File[] listSegments(final File directory) {
+        final File[] segments = directory.listFiles(file -> file.isFile()
+                && file.getName().startsWith(PREFIX) && file.getName().endsWith(SUFFIX));
+        if (segments == null) {
+            return new File[0];
+        }
+        // Zero padded, so name order is segment order.
+        Arrays.sort(segments);
+        return segments;
+    }
+}
@@ -0,0 +1,121 @@
+package com.objdetector.core.capture;
+
+import com.objdetector.core.image.YuvFrame;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the frames of a capture written by a {@link CaptureWriter}, in order.
+ *
+ * Segments are memory mapped read-only one at a time and frames are handed out as views of the
+ * mapping, so reading copies nothing and the page cache keeps a replayed capture in memory
+ * across runs.
+ */
+public class CaptureReader implements Closeable {
+    private final File directory;
+    private final File[] segments;
+    private int nextSegment;
+    private MappedByteBuffer segment;
+    private long frameCount;
+
+    public CaptureReader(final File directory) throws IOException {
+        this.directory = directory;
+        this.segments = CaptureFormat.listSegments(directory);
+        if (segments.length == 0) {
+            throw new IOException("No capture in " + directory);
+        }
+    }
+
+    /**
+     * Fills {@code frame} with the next frame; its planes stay valid until the reader moves on to
+     * another segment or is closed.
+     *
+     * @return false at the end of the capture
+     */
+    public boolean next(final YuvFrame frame) throws IOException {
+        while (segment == null || segment.remaining() < CaptureFormat.FRAME_HEADER_BYTES
+                || segment.getInt(segment.position()) != CaptureFormat.FRAME_MAGIC) {
+            if (nextSegment == segments.length) {
+                segment = null;
+                return false;
+            }
+            openSegment(segments[nextSegment++]);
+        }
+        segment.getInt();
+        final long timestampNanos = segment.getLong();
+        final int width = segment.getInt();
+        final int height = segment.getInt();
+        final int yRowStride = segment.getInt();
+        final int uvRowStride = segment.getInt();
+        final int uvPixelStride = segment.getInt();
+        final int yLength = segment.getInt();
+        final int uLength = segment.getInt();
+        final int vLength = segment.getInt();
+        if (yLength < 0 || uLength < 0 || vLength < 0
+                || (long) yLength + uLength + vLength > segment.remaining()) {
+            throw new IOException("Truncated frame " + frameCount + " in " + segments[nextSegment - 1]);
+        }
+        frame.set(slice(yLength), slice(uLength), slice(vLength), width, height,
+                yRowStride, uvRowStride, uvPixelStride, timestampNanos);
+        frameCount++;
+        return true;
+    }
+
+    private ByteBuffer slice(final int length) {
+        final ByteBuffer view = segment.duplicate();
+        view.limit(view.position() + length);
+        segment.position(segment.position() + length);
+        return view.slice();
+    }
+
+    private void openSegment(final File file) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            segment = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length());
+        }
+        segment.order(CaptureFormat.BYTE_ORDER);
+        if (segment.remaining() < CaptureFormat.SEGMENT_HEADER_BYTES
+                || segment.getInt() != CaptureFormat.SEGMENT_MAGIC) {
+            throw new IOException(file + " is not a capture segment");
+        }
+        final int version = segment.getInt();
+        if (version != CaptureFormat.VERSION) {
+            throw new IOException(file + " has unsupported version " + version);
+        }
+    }
+
+    /**
+     * Starts again from the first frame.
+     */
+    public void rewind() {
+        nextSegment = 0;
+        segment = null;
+        frameCount = 0;
+    }
+
+    /**
+     * Frames read since opening or rewinding.
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void close() {
+        // Mappings are released when collected; dropping the reference is all there is to do.
+        segment = null;
+    }
+}
@@ -0,0 +1,207 @@
+package com.objdetector.core.capture;
+
+import com.objdetector.core.image.YuvFrame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records frames to a {@link CaptureWriter} on its own thread, so the camera thread never waits
+ * for the disk.
+ *
+ * {@link #record} copies the planes into one of a few preallocated buffers and queues it; the
+ * writer thread appends queued frames to the capture and hands the buffers back. When every buffer
+ * is queued the frame is dropped and counted rather than blocking the caller, so a capture may
+ * have gaps but the live pipeline keeps its frame rate. Buffers are sized from the first frame;
+ * larger frames are dropped.
+ */
+public class CaptureRecorder implements Closeable {
+    private static final long POLL_MILLIS = 100;
+
+    private static final class PendingFrame {
+        final ByteBuffer data;
+        int width;
+        int height;
+        int yRowStride;
+        int uvRowStride;
+        int uvPixelStride;
+        int yLength;
+        int uLength;
+        int vLength;
+        long timestampNanos;
+
+        PendingFrame(final int capacity) {
+            this.data = ByteBuffer.allocateDirect(capacity);
+        }
+    }
+
+    private final CaptureWriter writer;
+    private final int bufferCount;
+    private final Thread writerThread;
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final ArrayBlockingQueue<PendingFrame> queued;
+    // Created with the first frame, before the writer thread can see any.
+    private ArrayBlockingQueue<PendingFrame> free;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    /**
+     * @param bufferCount frames that can wait for the disk before new ones are dropped
+     */
+    public CaptureRecorder(final CaptureWriter writer, final int bufferCount) {
+        if (bufferCount < 1) {
+            throw new IllegalArgumentException("Buffer count must be at least 1: " + bufferCount);
+        }
+        this.writer = writer;
+        this.bufferCount = bufferCount;
+        this.queued = new ArrayBlockingQueue<>(bufferCount);
+        this.writerThread = new Thread(this::drain, "capture-writer");
+        writerThread.start();
+    }
+
+    /**
+     * Queues a copy of one frame for writing without blocking. The planes' positions and limits
+     * are left as they were. Must be called from one thread at a time.
+     *
+     * @return false if the frame was dropped
+     */
+    public boolean record(final ByteBuffer y, final ByteBuffer u, final ByteBuffer v, final int width,
+                          final int height, final int yRowStride, final int uvRowStride, final int uvPixelStride,
+                          final long timestampNanos) {
+        final int frameBytes = y.remaining() + u.remaining() + v.remaining();
+        if (closed || failure != null) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        if (free == null) {
+            free = new ArrayBlockingQueue<>(bufferCount);
+            for (int i = 0; i < bufferCount; i++) {
+                free.add(new PendingFrame(frameBytes));
+            }
+        }
+        final PendingFrame frame = free.poll();
+        if (frame == null || frame.data.capacity() < frameBytes) {
+            if (frame != null) {
+                free.add(frame);
+            }
+            dropped.incrementAndGet();
+            return false;
+        }
+        frame.data.clear();
+        frame.yLength = copy(y, frame.data);
+        frame.uLength = copy(u, frame.data);
+        frame.vLength = copy(v, frame.data);
+        frame.data.flip();
+        frame.width = width;
+        frame.height = height;
+        frame.yRowStride = yRowStride;
+        frame.uvRowStride = uvRowStride;
+        frame.uvPixelStride = uvPixelStride;
+        frame.timestampNanos = timestampNanos;
+        queued.add(frame);
+        return true;
+    }
+
+    /**
+     * Queues a copy of {@code frame}'s planes, as the method above.
+     */
+    public boolean record(final YuvFrame frame) {
+        return record(frame.getY(), frame.getU(), frame.getV(), frame.getWidth(), frame.getHeight(),
+                frame.getYRowStride(), frame.getUvRowStride(), frame.getUvPixelStride(), frame.getTimestampNanos());
+    }
+
+    private static int copy(final ByteBuffer plane, final ByteBuffer out) {
+        final int position = plane.position();
+        final int length = plane.remaining();
+        out.put(plane);
+        plane.position(position);
+        return length;
+    }
+
+    private void drain() {
+        try {
+            while (!closed || !queued.isEmpty()) {
+                final PendingFrame frame = queued.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (frame == null) {
+                    continue;
+                }
+                if (failure == null) {
+                    write(frame);
+                }
+                free.add(frame);
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(final PendingFrame frame) {
+        final ByteBuffer data = frame.data;
+        try {
+            final ByteBuffer y = slice(data, 0, frame.yLength);
+            final ByteBuffer u = slice(data, frame.yLength, frame.uLength);
+            final ByteBuffer v = slice(data, frame.yLength + frame.uLength, frame.vLength);
+            writer.write(y, u, v, frame.width, frame.height, frame.yRowStride, frame.uvRowStride,
+                    frame.uvPixelStride, frame.timestampNanos);
+            recorded.incrementAndGet();
+        } catch (final IOException ex) {
+            failure = ex;
+        }
+    }
+
+    private static ByteBuffer slice(final ByteBuffer data, final int offset, final int length) {
+        final ByteBuffer view = data.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+        return view;
+    }
+
+    public long getRecordedCount() {
+        return recorded.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * The error that stopped recording, or null.
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    public CaptureWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Writes the frames still queued, then closes the writer.
+     *
+     * @throws IOException if writing failed at any point
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            writerThread.join();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        writer.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CaptureRecorder{recorded=" + recorded.get() + " dropped=" + dropped.get()
+                + " segments=" + writer.getSegmentCount() + " bytes=" + writer.getBytesWritten() + "}";
+    }
+}
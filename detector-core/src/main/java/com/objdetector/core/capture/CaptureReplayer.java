@@ -0,0 +1,141 @@
+package com.objdetector.core.capture;
+
+import com.objdetector.core.image.YuvFrame;
+
+import java.io.IOException;
+
+/**
+ * Feeds the frames of a capture to a listener, paced as they were recorded or as fast as the
+ * listener takes them.
+ *
+ * Every frame is delivered, in order, whatever the pacing: a listener slower than the recording
+ * falls behind instead of skipping frames, so two replays of one capture see the same input.
+ */
+public class CaptureReplayer {
+    /** Pass as the speed to deliver frames back to back. */
+    public static final float AS_FAST_AS_POSSIBLE = 0f;
+
+    public interface FrameListener {
+        /**
+         * @param frame valid until the call returns
+         */
+        void onFrame(YuvFrame frame) throws IOException;
+    }
+
+    public interface Clock {
+        long nanoTime();
+
+        void sleepNanos(long nanos) throws InterruptedException;
+    }
+
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void sleepNanos(final long nanos) throws InterruptedException {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        }
+    };
+
+    /**
+     * How a replay went.
+     */
+    public static final class Summary {
+        private final long frames;
+        private final long elapsedNanos;
+        private final long recordedNanos;
+        private final long lateFrames;
+
+        Summary(final long frames, final long elapsedNanos, final long recordedNanos, final long lateFrames) {
+            this.frames = frames;
+            this.elapsedNanos = elapsedNanos;
+            this.recordedNanos = recordedNanos;
+            this.lateFrames = lateFrames;
+        }
+
+        public long getFrameCount() {
+            return frames;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Time between the first and last frame's timestamps.
+         */
+        public long getRecordedNanos() {
+            return recordedNanos;
+        }
+
+        /**
+         * Frames delivered after their paced time because the listener fell behind; always 0 when
+         * replaying as fast as possible.
+         */
+        public long getLateFrameCount() {
+            return lateFrames;
+        }
+
+        public double getFramesPerSecond() {
+            return elapsedNanos == 0 ? 0 : frames * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Replayed %d frames in %.1fms (recorded over %.1fms): %.1f fps, %d late",
+                    frames, elapsedNanos / 1e6, recordedNanos / 1e6, getFramesPerSecond(), lateFrames);
+        }
+    }
+
+    // A frame this far past its paced time counts as late.
+    private static final long LATE_NANOS = 1_000_000L;
+
+    private final float speed;
+    private final Clock clock;
+
+    /**
+     * @param speed 1 replays at recorded speed, 2 twice as fast, {@link #AS_FAST_AS_POSSIBLE}
+     *              without pausing
+     */
+    public CaptureReplayer(final float speed, final Clock clock) {
+        if (speed < 0 || Float.isNaN(speed)) {
+            throw new IllegalArgumentException("Speed must not be negative: " + speed);
+        }
+        this.speed = speed;
+        this.clock = clock;
+    }
+
+    /**
+     * Delivers every remaining frame of {@code reader} to {@code listener}.
+     */
+    public Summary replay(final CaptureReader reader, final FrameListener listener)
+            throws IOException, InterruptedException {
+        final YuvFrame frame = new YuvFrame();
+        final long start = clock.nanoTime();
+        long firstTimestamp = 0;
+        long lastTimestamp = 0;
+        long frames = 0;
+        long late = 0;
+        while (reader.next(frame)) {
+            if (frames == 0) {
+                firstTimestamp = frame.getTimestampNanos();
+            }
+            lastTimestamp = frame.getTimestampNanos();
+            if (speed != AS_FAST_AS_POSSIBLE) {
+                final long due = start + (long) ((lastTimestamp - firstTimestamp) / (double) speed);
+                final long wait = due - clock.nanoTime();
+                if (wait > 0) {
+                    clock.sleepNanos(wait);
+                } else if (wait < -LATE_NANOS) {
+                    late++;
+                }
+            }
+            listener.onFrame(frame);
+            frames++;
+        }
+        return new Summary(frames, clock.nanoTime() - start, lastTimestamp - firstTimestamp, late);
+    }
+}
@@ -0,0 +1,136 @@
+package com.objdetector.core.capture;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Appends frames to a capture directory in the {@link CaptureFormat} layout.
+ *
+ * Each segment is memory mapped at its full size up front, so a frame is written with plain
+ * memory copies and the kernel writes the pages back in the background. Once a frame does not fit,
+ * the segment is cut down to what was written and the next one is mapped, which bounds both the
+ * size of any one file and how much is lost if the process dies. A frame larger than a whole
+ * segment gets a segment of its own.
+ *
+ * Not thread safe; see {@link CaptureRecorder} for recording off the camera thread.
+ */
+public class CaptureWriter implements Closeable {
+    private final File directory;
+    private final long segmentBytes;
+    private RandomAccessFile file;
+    private MappedByteBuffer segment;
+    private int segmentCount;
+    private long frameCount;
+    private long bytesWritten;
+
+    /**
+     * @param directory    created if missing; must not hold a capture already
+     * @param segmentBytes size each segment is mapped at
+     */
+    public CaptureWriter(final File directory, final long segmentBytes) throws IOException {
+        if (segmentBytes <= CaptureFormat.SEGMENT_HEADER_BYTES + CaptureFormat.FRAME_HEADER_BYTES
+                || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size out of range: " + segmentBytes);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        if (CaptureFormat.listSegments(directory).length > 0) {
+            throw new IOException(directory + " already holds a capture");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Appends one frame. The planes' positions and limits are left as they were.
+     */
+    public void write(final ByteBuffer y, final ByteBuffer u, final ByteBuffer v, final int width,
+                      final int height, final int yRowStride, final int uvRowStride, final int uvPixelStride,
+                      final long timestampNanos) throws IOException {
+        final int yLength = y.remaining();
+        final int uLength = u.remaining();
+        final int vLength = v.remaining();
+        final long frameBytes = (long) CaptureFormat.FRAME_HEADER_BYTES + yLength + uLength + vLength;
+        if (segment == null || segment.remaining() < frameBytes) {
+            startSegment(frameBytes);
+        }
+        segment.putInt(CaptureFormat.FRAME_MAGIC)
+                .putLong(timestampNanos)
+                .putInt(width)
+                .putInt(height)
+                .putInt(yRowStride)
+                .putInt(uvRowStride)
+                .putInt(uvPixelStride)
+                .putInt(yLength)
+                .putInt(uLength)
+                .putInt(vLength);
+        putPlane(y);
+        putPlane(u);
+        putPlane(v);
+        frameCount++;
+        bytesWritten += frameBytes;
+    }
+
+    private void putPlane(final ByteBuffer plane) {
+        final int position = plane.position();
+        segment.put(plane);
+        plane.position(position);
+    }
+
+    private void startSegment(final long frameBytes) throws IOException {
+        finishSegment();
+        final long size = Math.max(segmentBytes, CaptureFormat.SEGMENT_HEADER_BYTES + frameBytes);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Frame of " + frameBytes + " bytes is too large for a segment");
+        }
+        file = new RandomAccessFile(CaptureFormat.segmentFile(directory, segmentCount), "rw");
+        segment = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        segment.order(CaptureFormat.BYTE_ORDER);
+        segment.putInt(CaptureFormat.SEGMENT_MAGIC).putInt(CaptureFormat.VERSION);
+        segmentCount++;
+    }
+
+    /**
+     * Cuts the current segment down to the frames written to it.
+     */
+    private void finishSegment() throws IOException {
+        if (file == null) {
+            return;
+        }
+        try {
+            segment.force();
+            file.setLength(segment.position());
+        } finally {
+            file.close();
+            file = null;
+            segment = null;
+        }
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finishSegment();
+    }
+}
@@ -0,0 +1,192 @@
+package com.objdetector.core.detection;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The detections of one frame as parallel primitive arrays: a box, score, class id and id each.
+ *
+ * Batches taken from a {@link DetectionBatchPool} are reference counted. Whoever acquired one
+ * holds the first reference, anyone keeping it past a call takes another with {@link #retain()},
+ * and the last {@link #release()} returns it to the pool to be overwritten. Batches created
+ * directly are not pooled; retaining and releasing them does nothing, so they can be shared
+ * freely as long as nobody writes to them.
+ *
+ * Readers may look at the arrays returned by the getters but must not write to them.
+ */
+public final class DetectionBatch {
+    private final float[] boxes;
+    private final float[] scores;
+    private final int[] classIds;
+    private final int[] ids;
+    private final DetectionBatchPool pool;
+    private final AtomicInteger references = new AtomicInteger();
+    private int count;
+    private long captureNanos;
+
+    /**
+     * Creates an unpooled batch.
+     */
+    public DetectionBatch(final int capacity) {
+        this(capacity, null);
+    }
+
+    DetectionBatch(final int capacity, final DetectionBatchPool pool) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        this.boxes = new float[capacity * 4];
+        this.scores = new float[capacity];
+        this.classIds = new int[capacity];
+        this.ids = new int[capacity];
+        this.pool = pool;
+    }
+
+    /**
+     * An unpooled copy holding exactly {@code source}'s detections.
+     */
+    public static DetectionBatch copyOf(final DetectionBatch source) {
+        final DetectionBatch copy = new DetectionBatch(Math.max(1, source.count));
+        copy.copyFrom(source);
+        return copy;
+    }
+
+    /**
+     * Appends a detection.
+     *
+     * @return false, leaving the batch unchanged, if it is already full
+     */
+    public boolean add(final int id, final int classId, final float score,
+                       final float left, final float top, final float right, final float bottom) {
+        if (count == scores.length) {
+            return false;
+        }
+        final int offset = count * 4;
+        boxes[offset] = left;
+        boxes[offset + 1] = top;
+        boxes[offset + 2] = right;
+        boxes[offset + 3] = bottom;
+        scores[count] = score;
+        classIds[count] = classId;
+        ids[count] = id;
+        count++;
+        return true;
+    }
+
+    /**
+     * Replaces the contents with {@code source}'s, dropping whatever does not fit.
+     */
+    public void copyFrom(final DetectionBatch source) {
+        final int copied = Math.min(source.count, scores.length);
+        System.arraycopy(source.boxes, 0, boxes, 0, copied * 4);
+        System.arraycopy(source.scores, 0, scores, 0, copied);
+        System.arraycopy(source.classIds, 0, classIds, 0, copied);
+        System.arraycopy(source.ids, 0, ids, 0, copied);
+        count = copied;
+        captureNanos = source.captureNanos;
+    }
+
+    public void clear() {
+        count = 0;
+        captureNanos = 0;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return scores.length;
+    }
+
+    /**
+     * {@code [left, top, right, bottom]} per detection.
+     */
+    public float[] getBoxes() {
+        return boxes;
+    }
+
+    public float[] getScores() {
+        return scores;
+    }
+
+    public int[] getClassIds() {
+        return classIds;
+    }
+
+    public int[] getIds() {
+        return ids;
+    }
+
+    public float getScore(final int index) {
+        return scores[index];
+    }
+
+    public int getClassId(final int index) {
+        return classIds[index];
+    }
+
+    public int getId(final int index) {
+        return ids[index];
+    }
+
+    /**
+     * {@link System#nanoTime()} at which the frame these detections are for was captured, or 0 if
+     * unknown.
+     */
+    public long getCaptureNanos() {
+        return captureNanos;
+    }
+
+    public void setCaptureNanos(final long captureNanos) {
+        this.captureNanos = captureNanos;
+    }
+
+    public boolean isPooled() {
+        return pool != null;
+    }
+
+    /**
+     * Takes another reference to a pooled batch.
+     *
+     * @return this batch
+     */
+    public DetectionBatch retain() {
+        if (pool != null && references.getAndIncrement() <= 0) {
+            references.decrementAndGet();
+            throw new IllegalStateException("Batch has already been returned to its pool.");
+        }
+        return this;
+    }
+
+    /**
+     * Drops a reference, returning a pooled batch to its pool once nobody holds it.
+     */
+    public void release() {
+        if (pool == null) {
+            return;
+        }
+        final int remaining = references.decrementAndGet();
+        if (remaining == 0) {
+            pool.recycle(this);
+        } else if (remaining < 0) {
+            references.incrementAndGet();
+            throw new IllegalStateException("Batch released more often than it was retained.");
+        }
+    }
+
+    void acquired() {
+        count = 0;
+        captureNanos = 0;
+        references.set(1);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("DetectionBatch{count=").append(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? ", [" : ", ")
+                    .append(ids[i]).append(':').append(classIds[i]).append('@').append(scores[i]);
+        }
+        return builder.append(count == 0 ? "}" : "]}").toString();
+    }
+}
@@ -0,0 +1,61 @@
+package com.objdetector.core.detection;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recycles {@link DetectionBatch}es of one capacity between frames.
+ *
+ * Unlike an {@link com.objdetector.core.pipeline.ObjectPool}, running dry does not drop work:
+ * {@link #acquire()} then allocates a new batch, counted as an exhaustion, and batches returned
+ * to a full pool are left to the garbage collector.
+ */
+public class DetectionBatchPool {
+    private final ArrayBlockingQueue<DetectionBatch> free;
+    private final int capacity;
+    private final AtomicLong exhausted = new AtomicLong();
+
+    /**
+     * @param size     batches kept for reuse
+     * @param capacity detections each batch holds
+     */
+    public DetectionBatchPool(final int size, final int capacity) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1: " + size);
+        }
+        this.capacity = capacity;
+        this.free = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            free.add(new DetectionBatch(capacity, this));
+        }
+    }
+
+    /**
+     * An empty batch holding one reference, which the caller must {@link DetectionBatch#release()}.
+     */
+    public DetectionBatch acquire() {
+        DetectionBatch batch = free.poll();
+        if (batch == null) {
+            exhausted.incrementAndGet();
+            batch = new DetectionBatch(capacity, this);
+        }
+        batch.acquired();
+        return batch;
+    }
+
+    void recycle(final DetectionBatch batch) {
+        free.offer(batch);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getAvailableCount() {
+        return free.size();
+    }
+
+    public long getExhaustedCount() {
+        return exhausted.get();
+    }
+}
@@ -0,0 +1,168 @@
+package com.objdetector.core.detection;
+
+/**
+ * Score threshold, top-K selection and non-maximum suppression over primitive candidate arrays.
+ *
+ * Candidates below the threshold are dropped first, the best {@code topK} of the rest are picked
+ * with a bounded min-heap, and greedy NMS then keeps a box only if it overlaps no better kept box
+ * by more than {@code iouThreshold}. NMS compares every pair of classes when class-agnostic, or
+ * only boxes of the same class when class-aware. Work is bounded by {@code topK} whatever the
+ * candidate count, and the scratch arrays are sized by it up front, so calls do not allocate.
+ *
+ * Not thread safe.
+ */
+public class DetectionPostProcessor {
+    private final float scoreThreshold;
+    private final int topK;
+    private final float iouThreshold;
+    private final boolean classAware;
+    private final int[] heap;
+    private final boolean[] suppressed;
+    private final float[] areas;
+
+    /**
+     * @param scoreThreshold smallest score kept
+     * @param topK           most candidates passed to NMS
+     * @param iouThreshold   IoU above which the weaker of two boxes is suppressed; 1 disables NMS
+     * @param classAware     only suppress boxes of the same class
+     */
+    public DetectionPostProcessor(final float scoreThreshold, final int topK, final float iouThreshold,
+                                  final boolean classAware) {
+        if (topK < 1) {
+            throw new IllegalArgumentException("Top K must be at least 1: " + topK);
+        }
+        if (iouThreshold < 0 || iouThreshold > 1) {
+            throw new IllegalArgumentException("IoU threshold must be in [0, 1]: " + iouThreshold);
+        }
+        this.scoreThreshold = scoreThreshold;
+        this.topK = topK;
+        this.iouThreshold = iouThreshold;
+        this.classAware = classAware;
+        this.heap = new int[topK];
+        this.suppressed = new boolean[topK];
+        this.areas = new float[topK];
+    }
+
+    /**
+     * Selects the candidates to keep.
+     *
+     * @param boxes      {@code [left, top, right, bottom]} per candidate
+     * @param scores     score per candidate
+     * @param classes    class id per candidate; ignored when class-agnostic
+     * @param count      number of candidates
+     * @param keptOut    receives the indices of kept candidates, best score first
+     * @param maxKept    most indices written to {@code keptOut}
+     * @return the number of indices written
+     */
+    public int process(final float[] boxes, final float[] scores, final int[] classes, final int count,
+                       final int[] keptOut, final int maxKept) {
+        final int selected = selectTopK(scores, count);
+        sortHeapDescending(scores, selected);
+        return suppress(boxes, classes, selected, keptOut, maxKept);
+    }
+
+    /**
+     * Fills {@code heap[0, n)} with a min-heap, by score, of the best {@code topK} candidates at or
+     * above the threshold.
+     */
+    private int selectTopK(final float[] scores, final int count) {
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            final float score = scores[i];
+            if (score < scoreThreshold) {
+                continue;
+            }
+            if (size < topK) {
+                heap[size] = i;
+                siftUp(scores, size++);
+            } else if (score > scores[heap[0]]) {
+                heap[0] = i;
+                siftDown(scores, 0, size);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Heap-sorts {@code heap[0, size)} in place so the best score comes first.
+     */
+    private void sortHeapDescending(final float[] scores, final int size) {
+        for (int end = size - 1; end > 0; end--) {
+            final int smallest = heap[0];
+            heap[0] = heap[end];
+            heap[end] = smallest;
+            siftDown(scores, 0, end);
+        }
+    }
+
+    private int suppress(final float[] boxes, final int[] classes, final int size,
+                         final int[] keptOut, final int maxKept) {
+        for (int i = 0; i < size; i++) {
+            final int box = heap[i] * 4;
+            suppressed[i] = false;
+            areas[i] = Math.max(0f, boxes[box + 2] - boxes[box]) * Math.max(0f, boxes[box + 3] - boxes[box + 1]);
+        }
+
+        int kept = 0;
+        for (int i = 0; i < size && kept < maxKept; i++) {
+            if (suppressed[i]) {
+                continue;
+            }
+            final int candidate = heap[i];
+            keptOut[kept++] = candidate;
+            if (iouThreshold >= 1f) {
+                continue;
+            }
+            final int a = candidate * 4;
+            for (int j = i + 1; j < size; j++) {
+                if (suppressed[j] || (classAware && classes[heap[j]] != classes[candidate])) {
+                    continue;
+                }
+                final int b = heap[j] * 4;
+                final float width = Math.min(boxes[a + 2], boxes[b + 2]) - Math.max(boxes[a], boxes[b]);
+                final float height = Math.min(boxes[a + 3], boxes[b + 3]) - Math.max(boxes[a + 1], boxes[b + 1]);
+                if (width <= 0 || height <= 0) {
+                    continue;
+                }
+                final float intersection = width * height;
+                final float union = areas[i] + areas[j] - intersection;
+                if (union > 0 && intersection > iouThreshold * union) {
+                    suppressed[j] = true;
+                }
+            }
+        }
+        return kept;
+    }
+
+    private void siftUp(final float[] scores, int child) {
+        final int item = heap[child];
+        while (child > 0) {
+            final int parent = (child - 1) >>> 1;
+            if (scores[heap[parent]] <= scores[item]) {
+                break;
+            }
+            heap[child] = heap[parent];
+            child = parent;
+        }
+        heap[child] = item;
+    }
+
+    private void siftDown(final float[] scores, int parent, final int size) {
+        final int item = heap[parent];
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && scores[heap[child + 1]] < scores[heap[child]]) {
+                child++;
+            }
+            if (scores[item] <= scores[heap[child]]) {
+                break;
+            }
+            heap[parent] = heap[child];
+            parent = child;
+        }
+        heap[parent] = item;
+    }
+}
@@ -0,0 +1,58 @@
+package com.objdetector.core.detection;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Affine quantisation of a uint8 or int8 tensor: {@code real = scale * (stored - zeroPoint)}.
+ */
+public final class Quantization {
+    private final boolean signed;
+    private final float scale;
+    private final int zeroPoint;
+
+    /**
+     * @param signed true for int8 elements, false for uint8
+     */
+    public Quantization(final boolean signed, final float scale, final int zeroPoint) {
+        if (scale <= 0f) {
+            throw new IllegalArgumentException("Scale must be positive: " + scale);
+        }
+        this.signed = signed;
+        this.scale = scale;
+        this.zeroPoint = zeroPoint;
+    }
+
+    public boolean isSigned() {
+        return signed;
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    public int getZeroPoint() {
+        return zeroPoint;
+    }
+
+    /**
+     * Dequantises {@code count} elements of {@code src} from byte {@code srcOffset} into
+     * {@code dst} from {@code dstOffset}, with absolute reads.
+     */
+    public void dequantize(final ByteBuffer src, final int srcOffset, final float[] dst, final int dstOffset,
+                           final int count) {
+        if (signed) {
+            for (int i = 0; i < count; i++) {
+                dst[dstOffset + i] = scale * (src.get(srcOffset + i) - zeroPoint);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                dst[dstOffset + i] = scale * ((src.get(srcOffset + i) & 0xff) - zeroPoint);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return (signed ? "int8" : "uint8") + " scale=" + scale + " zeroPoint=" + zeroPoint;
+    }
+}
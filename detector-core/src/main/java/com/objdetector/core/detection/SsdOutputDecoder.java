@@ -0,0 +1,30 @@
+package com.objdetector.core.detection;
+
+/**
+ * Decodes the box tensor of an SSD detection model.
+ */
+public class SsdOutputDecoder {
+    /**
+     * Converts {@code count} normalised {@code [ymin, xmin, ymax, xmax]} boxes into
+     * {@code [left, top, right, bottom]} quadruples in model input pixels.
+     */
+    public static void decodeBoxes(final float[][] locations, final int count, final float inputSize,
+                                   final float[] boxesOut) {
+        decodeBoxes(locations, count, inputSize, inputSize, boxesOut);
+    }
+
+    /**
+     * Like {@link #decodeBoxes(float[][], int, float, float[])} for a model with a non-square input.
+     */
+    public static void decodeBoxes(final float[][] locations, final int count, final float inputWidth,
+                                   final float inputHeight, final float[] boxesOut) {
+        for (int i = 0; i < count; ++i) {
+            final float[] location = locations[i];
+            final int offset = i * 4;
+            boxesOut[offset] = location[1] * inputWidth;
+            boxesOut[offset + 1] = location[0] * inputHeight;
+            boxesOut[offset + 2] = location[3] * inputWidth;
+            boxesOut[offset + 3] = location[2] * inputHeight;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.objdetector.core.detection;
+
+/**
+ * Merges the detections of the tiles of one frame, once their boxes are in frame coordinates.
+ *
+ * An object in the strip two tiles share is usually found by both, so the collected detections
+ * go through non-maximum suppression again across tile boundaries, best score first. Once the
+ * capacity is reached, a detection only gets in by replacing the weakest one collected, so the
+ * best detections over all tiles are kept whichever tile they come from. The scratch arrays are
+ * sized up front, so merging does not allocate.
+ *
+ * Not thread safe.
+ */
+public class TileMerger {
+    private final DetectionPostProcessor postProcessor;
+    private final float[] boxes;
+    private final float[] scores;
+    private final int[] classIds;
+    private final int[] kept;
+    private int count;
+
+    /**
+     * @param capacity     most detections collected over all tiles
+     * @param iouThreshold IoU above which the weaker of two boxes is suppressed
+     * @param classAware   only suppress boxes of the same class
+     */
+    public TileMerger(final int capacity, final float iouThreshold, final boolean classAware) {
+        this.postProcessor = new DetectionPostProcessor(Float.NEGATIVE_INFINITY, capacity, iouThreshold, classAware);
+        this.boxes = new float[capacity * 4];
+        this.scores = new float[capacity];
+        this.classIds = new int[capacity];
+        this.kept = new int[capacity];
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Collects the detections of one tile, replacing weaker ones collected earlier once the merger
+     * is full.
+     *
+     * @return the number collected, less than the batch's count if the merger is full
+     */
+    public int add(final DetectionBatch tile) {
+        final int appended = Math.min(tile.getCount(), scores.length - count);
+        System.arraycopy(tile.getBoxes(), 0, boxes, count * 4, appended * 4);
+        System.arraycopy(tile.getScores(), 0, scores, count, appended);
+        System.arraycopy(tile.getClassIds(), 0, classIds, count, appended);
+        count += appended;
+        int added = appended;
+        final float[] tileScores = tile.getScores();
+        for (int i = appended; i < tile.getCount(); i++) {
+            final int weakest = findWeakest();
+            if (weakest >= 0 && tileScores[i] > scores[weakest]) {
+                System.arraycopy(tile.getBoxes(), i * 4, boxes, weakest * 4, 4);
+                scores[weakest] = tileScores[i];
+                classIds[weakest] = tile.getClassIds()[i];
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private int findWeakest() {
+        int weakest = -1;
+        for (int i = 0; i < count; i++) {
+            if (weakest < 0 || scores[i] < scores[weakest]) {
+                weakest = i;
+            }
+        }
+        return weakest;
+    }
+
+    /**
+     * Replaces the contents of {@code out} with the collected detections that survive
+     * suppression, best score first and numbered from 0.
+     *
+     * @return the number of detections written
+     */
+    public int merge(final DetectionBatch out) {
+        out.clear();
+        final int merged = postProcessor.process(boxes, scores, classIds, count, kept, out.getCapacity());
+        for (int i = 0; i < merged; i++) {
+            final int index = kept[i];
+            final int box = index * 4;
+            out.add(i, classIds[index], scores[index], boxes[box], boxes[box + 1], boxes[box + 2], boxes[box + 3]);
+        }
+        return merged;
+    }
+}
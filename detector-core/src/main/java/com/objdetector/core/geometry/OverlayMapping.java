@@ -0,0 +1,56 @@
+package com.objdetector.core.geometry;
+
+/**
+ * Maps boxes from model input pixels onto the overlay view.
+ *
+ * The model input is scaled to fit the part of the view below the results strip and centred
+ * in it; mapped boxes are kept a few pixels inside the view edges.
+ */
+public class OverlayMapping {
+    private static final int PADDING = 5;
+
+    private final int inputWidth;
+    private final int inputHeight;
+    private float viewWidth;
+    private float viewHeight;
+    private float scale;
+    private float offsetX;
+    private float offsetY;
+
+    public OverlayMapping(final int inputSize) {
+        this(inputSize, inputSize);
+    }
+
+    public OverlayMapping(final int inputWidth, final int inputHeight) {
+        this.inputWidth = inputWidth;
+        this.inputHeight = inputHeight;
+    }
+
+    public void update(final int viewWidth, final int viewHeight, final float resultsViewHeight) {
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+        final float overlayViewHeight = viewHeight - resultsViewHeight;
+        scale = Math.min((float) viewWidth / (float) inputWidth, overlayViewHeight / (float) inputHeight);
+        offsetX = (viewWidth - inputWidth * scale) / 2;
+        offsetY = (overlayViewHeight - inputHeight * scale) / 2 + resultsViewHeight;
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    /**
+     * Maps the {@code [left, top, right, bottom]} box at {@code offset} in {@code box} and writes the
+     * result at {@code outOffset} in {@code out}.
+     */
+    public void mapBox(final float[] box, final int offset, final float[] out, final int outOffset) {
+        final float left = Math.max(PADDING, scale * box[offset] + offsetX);
+        final float top = Math.max(offsetY + PADDING, scale * box[offset + 1] + offsetY);
+        final float right = Math.min(box[offset + 2] * scale + offsetX, viewWidth - PADDING);
+        final float bottom = Math.min(box[offset + 3] * scale + offsetY, viewHeight - PADDING);
+        out[outOffset] = left;
+        out[outOffset + 1] = top;
+        out[outOffset + 2] = right;
+        out[outOffset + 3] = bottom;
+    }
+}
@@ -0,0 +1,88 @@
+package com.objdetector.core.geometry;
+
+/**
+ * Splits a frame into a grid of equally sized, overlapping tiles that together cover it.
+ *
+ * Neighbouring tiles share {@code overlap} of their width or height, so an object cut by one
+ * tile edge is whole in the next tile as long as it is smaller than the shared strip. Tiles are
+ * numbered row by row from the top left; the last tile of each row and column is flush with the
+ * frame edge.
+ */
+public class TileGrid {
+    private final int columns;
+    private final int rows;
+    private final float overlap;
+    private final float tileWidth;
+    private final float tileHeight;
+    private final float[] lefts;
+    private final float[] tops;
+
+    /**
+     * @param overlap fraction of a tile shared with its neighbour, in [0, 1)
+     */
+    public TileGrid(final int frameWidth, final int frameHeight, final int columns, final int rows,
+                    final float overlap) {
+        if (frameWidth <= 0 || frameHeight <= 0) {
+            throw new IllegalArgumentException("Frame size must be positive: " + frameWidth + "x" + frameHeight);
+        }
+        if (columns < 1 || rows < 1) {
+            throw new IllegalArgumentException("Grid must have at least one tile: " + columns + "x" + rows);
+        }
+        if (overlap < 0 || overlap >= 1) {
+            throw new IllegalArgumentException("Overlap must be in [0, 1): " + overlap);
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.overlap = overlap;
+        this.tileWidth = frameWidth / (columns - (columns - 1) * overlap);
+        this.tileHeight = frameHeight / (rows - (rows - 1) * overlap);
+        this.lefts = offsets(frameWidth, tileWidth, columns, overlap);
+        this.tops = offsets(frameHeight, tileHeight, rows, overlap);
+    }
+
+    private static float[] offsets(final int frameSize, final float tileSize, final int count, final float overlap) {
+        final float[] offsets = new float[count];
+        for (int i = 0; i < count - 1; i++) {
+            offsets[i] = i * tileSize * (1 - overlap);
+        }
+        offsets[count - 1] = count == 1 ? 0f : frameSize - tileSize;
+        return offsets;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public float getOverlap() {
+        return overlap;
+    }
+
+    public int getTileCount() {
+        return columns * rows;
+    }
+
+    public float getTileWidth() {
+        return tileWidth;
+    }
+
+    public float getTileHeight() {
+        return tileHeight;
+    }
+
+    public float getLeft(final int tile) {
+        return lefts[tile % columns];
+    }
+
+    public float getTop(final int tile) {
+        return tops[tile / columns];
+    }
+
+    @Override
+    public String toString() {
+        return columns + "x" + rows + " tiles of " + tileWidth + "x" + tileHeight + " overlap=" + overlap;
+    }
+}
@@ -0,0 +1,41 @@
+package com.objdetector.core.image;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Times the fused frame-to-tensor conversion on a synthetic frame, so the cost of converting from
+ * different source sizes can be compared on the device itself.
+ */
+public final class ConversionTiming {
+    private ConversionTiming() {
+    }
+
+    /**
+     * Median time of {@code runs} single-threaded conversions of a {@code srcWidth x srcHeight}
+     * frame laid out like a camera's (chroma pixel stride 2), after as many warm-up runs.
+     */
+    public static long medianNanos(final int srcWidth, final int srcHeight, final int dstWidth, final int dstHeight,
+                                   final int rotation, final YuvToRgbKernel kernel, final TensorFormat format,
+                                   final int runs) {
+        if (runs < 1) {
+            throw new IllegalArgumentException("At least one run is required: " + runs);
+        }
+        final YuvToTensorConverter converter = new YuvToTensorConverter(srcWidth, srcHeight, dstWidth, dstHeight,
+                rotation, true, null, kernel, format);
+        final ByteBuffer y = ByteBuffer.allocateDirect(srcWidth * srcHeight);
+        final ByteBuffer u = ByteBuffer.allocateDirect(srcWidth * (srcHeight / 2) - 1);
+        final ByteBuffer v = ByteBuffer.allocateDirect(srcWidth * (srcHeight / 2) - 1);
+        final ByteBuffer out = ByteBuffer.allocateDirect(dstWidth * dstHeight * format.getBytesPerPixel());
+        final long[] nanos = new long[runs];
+        for (int i = -runs; i < runs; i++) {
+            final long start = System.nanoTime();
+            converter.convert(y, u, v, srcWidth, srcWidth, 2, out);
+            if (i >= 0) {
+                nanos[i] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(nanos);
+        return nanos[runs / 2];
+    }
+}
@@ -0,0 +1,23 @@
+package com.objdetector.core.image;
+
+/**
+ * Picks a power-of-two subsampling factor for decoding an encoded image close to a target size.
+ */
+public class DecodeSampling {
+    /**
+     * Largest power of two that keeps both decoded dimensions at or above the target, so the
+     * decoder skips most of the pixels and only a small downscale is left. Matches the rounding
+     * of {@code BitmapFactory.Options.inSampleSize}.
+     */
+    public static int inSampleSize(final int srcWidth, final int srcHeight,
+                                   final int dstWidth, final int dstHeight) {
+        if (dstWidth < 1 || dstHeight < 1) {
+            throw new IllegalArgumentException("Target size must be positive: " + dstWidth + "x" + dstHeight);
+        }
+        int sampleSize = 1;
+        while (srcWidth / (sampleSize * 2) >= dstWidth && srcHeight / (sampleSize * 2) >= dstHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+}
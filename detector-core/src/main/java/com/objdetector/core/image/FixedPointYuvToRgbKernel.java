@@ -0,0 +1,32 @@
+package com.objdetector.core.image;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The original per-pixel fixed-point conversion from {@link YuvUtils#YUV2RGB}.
+ */
+public class FixedPointYuvToRgbKernel implements YuvToRgbKernel {
+    @Override
+    public int toArgb(final int y, final int u, final int v) {
+        return YuvUtils.YUV2RGB(y, u, v);
+    }
+
+    @Override
+    public void convertRows(final ByteBuffer yBuffer, final ByteBuffer uBuffer, final ByteBuffer vBuffer,
+                            final int yRowStride, final int uvRowStride, final int uvPixelStride,
+                            final int width, final int startRow, final int endRow, final int[] out) {
+        int i = startRow * width;
+        for (int y = startRow; y < endRow; y++) {
+            final int pY = yRowStride * y;
+            final int uvRowStart = uvRowStride * (y >> 1);
+
+            for (int x = 0; x < width; x++) {
+                final int uvOffset = uvRowStart + (x >> 1) * uvPixelStride;
+                out[i++] = YuvUtils.YUV2RGB(
+                        yBuffer.get(pY + x) & 0xFF,
+                        uBuffer.get(uvOffset) & 0xFF,
+                        vBuffer.get(uvOffset) & 0xFF);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.objdetector.core.image;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Table-driven conversion that is bit-exact with {@link YuvUtils#YUV2RGB}.
+ *
+ * The per-channel products of the fixed-point formula are precomputed for every byte value, so
+ * a pixel costs a few table reads and adds. Clamping to {@code [0, kMaxChannelValue]} followed by
+ * the 10-bit shift is equivalent to shifting first and clamping to {@code [0, 255]}, which is
+ * what the clamp tables hold, already moved into each channel's position. Frames are walked two
+ * rows at a time so each chroma sample is looked up once for the four pixels sharing it.
+ */
+public class LookupTableYuvToRgbKernel implements YuvToRgbKernel {
+    // (sum >> 10) spans roughly [-260, 535] for 8-bit inputs; the tables cover [-512, 1023].
+    private static final int CLAMP_OFFSET = 512;
+    private static final int CLAMP_SIZE = 1536;
+
+    private static final int[] Y_CONTRIBUTION = new int[256];
+    private static final int[] V_TO_R = new int[256];
+    private static final int[] V_TO_G = new int[256];
+    private static final int[] U_TO_G = new int[256];
+    private static final int[] U_TO_B = new int[256];
+    private static final int[] CLAMP_R = new int[CLAMP_SIZE];
+    private static final int[] CLAMP_G = new int[CLAMP_SIZE];
+    private static final int[] CLAMP_B = new int[CLAMP_SIZE];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            Y_CONTRIBUTION[i] = 1192 * Math.max(0, i - 16);
+            V_TO_R[i] = 1634 * (i - 128);
+            V_TO_G[i] = -833 * (i - 128);
+            U_TO_G[i] = -400 * (i - 128);
+            U_TO_B[i] = 2066 * (i - 128);
+        }
+        for (int i = 0; i < CLAMP_SIZE; i++) {
+            final int value = Math.min(255, Math.max(0, i - CLAMP_OFFSET));
+            CLAMP_R[i] = 0xff000000 | (value << 16);
+            CLAMP_G[i] = value << 8;
+            CLAMP_B[i] = value;
+        }
+    }
+
+    @Override
+    public int toArgb(final int y, final int u, final int v) {
+        return pixel(Y_CONTRIBUTION[y], V_TO_R[v], U_TO_G[u] + V_TO_G[v], U_TO_B[u]);
+    }
+
+    @Override
+    public void convertRows(final ByteBuffer yBuffer, final ByteBuffer uBuffer, final ByteBuffer vBuffer,
+                            final int yRowStride, final int uvRowStride, final int uvPixelStride,
+                            final int width, final int startRow, final int endRow, final int[] out) {
+        int row = startRow;
+        // A stripe may start or end halfway through a chroma row; those rows are done singly.
+        if ((row & 1) == 1 && row < endRow) {
+            convertRowPair(yBuffer, uBuffer, vBuffer, yRowStride, uvRowStride, uvPixelStride, width, row, false, out);
+            row++;
+        }
+        for (; row + 1 < endRow; row += 2) {
+            convertRowPair(yBuffer, uBuffer, vBuffer, yRowStride, uvRowStride, uvPixelStride, width, row, true, out);
+        }
+        if (row < endRow) {
+            convertRowPair(yBuffer, uBuffer, vBuffer, yRowStride, uvRowStride, uvPixelStride, width, row, false, out);
+        }
+    }
+
+    private static void convertRowPair(final ByteBuffer yBuffer, final ByteBuffer uBuffer, final ByteBuffer vBuffer,
+                                       final int yRowStride, final int uvRowStride, final int uvPixelStride,
+                                       final int width, final int row, final boolean both, final int[] out) {
+        final int pY0 = yRowStride * row;
+        final int pY1 = pY0 + yRowStride;
+        final int out0 = row * width;
+        final int out1 = out0 + width;
+        int uvOffset = uvRowStride * (row >> 1);
+
+        for (int x = 0; x < width; x += 2, uvOffset += uvPixelStride) {
+            final int u = uBuffer.get(uvOffset) & 0xFF;
+            final int v = vBuffer.get(uvOffset) & 0xFF;
+            final int r = V_TO_R[v];
+            final int g = U_TO_G[u] + V_TO_G[v];
+            final int b = U_TO_B[u];
+            final boolean pair = x + 1 < width;
+
+            out[out0 + x] = pixel(Y_CONTRIBUTION[yBuffer.get(pY0 + x) & 0xFF], r, g, b);
+            if (pair) {
+                out[out0 + x + 1] = pixel(Y_CONTRIBUTION[yBuffer.get(pY0 + x + 1) & 0xFF], r, g, b);
+            }
+            if (both) {
+                out[out1 + x] = pixel(Y_CONTRIBUTION[yBuffer.get(pY1 + x) & 0xFF], r, g, b);
+                if (pair) {
+                    out[out1 + x + 1] = pixel(Y_CONTRIBUTION[yBuffer.get(pY1 + x + 1) & 0xFF], r, g, b);
+                }
+            }
+        }
+    }
+
+    private static int pixel(final int y, final int r, final int g, final int b) {
+        return CLAMP_R[((y + r) >> 10) + CLAMP_OFFSET]
+                | CLAMP_G[((y + g) >> 10) + CLAMP_OFFSET]
+                | CLAMP_B[((y + b) >> 10) + CLAMP_OFFSET];
+    }
+}
@@ -0,0 +1,96 @@
+package com.objdetector.core.image;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits row loops into contiguous stripes and runs them on a fixed pool of worker threads.
+ *
+ * The pool is created once and reused for every frame. The calling thread processes the first
+ * stripe itself, so a pool of {@code n} threads keeps {@code n - 1} workers, and a thread count of
+ * one runs everything inline. Tasks must only write rows inside the range they are given.
+ */
+public class ParallelRowExecutor {
+    public interface RowRangeTask {
+        void run(int startRow, int endRow);
+    }
+
+    private final int threadCount;
+    private final ExecutorService workers;
+
+    public ParallelRowExecutor(final int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threadCount);
+        }
+        this.threadCount = threadCount;
+        this.workers = threadCount == 1 ? null : Executors.newFixedThreadPool(threadCount - 1, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "row-worker-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Runs {@code task} over rows {@code [0, rows)} and returns once every stripe has finished.
+     */
+    public void execute(final int rows, final RowRangeTask task) {
+        final int stripes = Math.min(threadCount, rows);
+        if (stripes <= 1) {
+            task.run(0, rows);
+            return;
+        }
+
+        final CountDownLatch done = new CountDownLatch(stripes - 1);
+        final Throwable[] failure = new Throwable[1];
+        for (int stripe = 1; stripe < stripes; stripe++) {
+            final int startRow = stripeStart(rows, stripes, stripe);
+            final int endRow = stripeStart(rows, stripes, stripe + 1);
+            workers.execute(() -> {
+                try {
+                    task.run(startRow, endRow);
+                } catch (final Throwable t) {
+                    synchronized (failure) {
+                        failure[0] = t;
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        task.run(0, stripeStart(rows, stripes, 1));
+        try {
+            done.await();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for row stripes.", ex);
+        }
+        synchronized (failure) {
+            if (failure[0] != null) {
+                throw new RuntimeException("Row stripe failed.", failure[0]);
+            }
+        }
+    }
+
+    public void close() {
+        if (workers != null) {
+            workers.shutdown();
+        }
+    }
+
+    private static int stripeStart(final int rows, final int stripes, final int stripe) {
+        return (int) ((long) rows * stripe / stripes);
+    }
+}
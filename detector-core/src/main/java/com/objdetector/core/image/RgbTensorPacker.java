@@ -0,0 +1,79 @@
+package com.objdetector.core.image;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Packs ARGB_8888 pixels into an RGB input tensor, as raw uint8 bytes or in a {@link TensorFormat}.
+ */
+public class RgbTensorPacker {
+    /**
+     * Writes rows {@code [startRow, endRow)} of {@code argb} into {@code out} with absolute puts,
+     * three bytes per pixel, so disjoint row ranges can be packed concurrently.
+     */
+    public static void packRows(final int[] argb, final int width, final int startRow, final int endRow,
+                                final ByteBuffer out) {
+        packRows(argb, width, startRow, endRow, out, 0);
+    }
+
+    /**
+     * Like {@link #packRows(int[], int, int, int, ByteBuffer)}, with the image starting at byte
+     * {@code outOffset}, e.g. one slot of a batched tensor.
+     */
+    public static void packRows(final int[] argb, final int width, final int startRow, final int endRow,
+                                final ByteBuffer out, final int outOffset) {
+        int pos = outOffset + startRow * width * 3;
+        for (int i = startRow; i < endRow; ++i) {
+            for (int j = 0; j < width; ++j) {
+                int pixelValue = argb[i * width + j];
+                out.put(pos++, (byte) ((pixelValue >> 16) & 0xFF));
+                out.put(pos++, (byte) ((pixelValue >> 8) & 0xFF));
+                out.put(pos++, (byte) (pixelValue & 0xFF));
+            }
+        }
+    }
+
+    /**
+     * Like {@link #packRows(int[], int, int, int, ByteBuffer, int)}, storing channels as
+     * {@code format} says. {@code outOffset} is in bytes; floats are written in the byte order of
+     * {@code out}.
+     */
+    public static void packRows(final int[] argb, final int width, final int startRow, final int endRow,
+                                final ByteBuffer out, final int outOffset, final TensorFormat format) {
+        if (format.raw) {
+            packRows(argb, width, startRow, endRow, out, outOffset);
+        } else if (format.getElementType() == TensorFormat.ElementType.FLOAT32) {
+            final ByteBuffer view = out.duplicate().order(out.order());
+            view.position(outOffset);
+            packFloatRows(argb, width, startRow, endRow, view.asFloatBuffer(), format.floatTable);
+        } else {
+            packByteRows(argb, width, startRow, endRow, out, outOffset, format.byteTable);
+        }
+    }
+
+    private static void packByteRows(final int[] argb, final int width, final int startRow, final int endRow,
+                                     final ByteBuffer out, final int outOffset, final byte[] table) {
+        int pos = outOffset + startRow * width * 3;
+        for (int i = startRow; i < endRow; ++i) {
+            for (int j = 0; j < width; ++j) {
+                final int pixelValue = argb[i * width + j];
+                out.put(pos++, table[(pixelValue >> 16) & 0xFF]);
+                out.put(pos++, table[(pixelValue >> 8) & 0xFF]);
+                out.put(pos++, table[pixelValue & 0xFF]);
+            }
+        }
+    }
+
+    private static void packFloatRows(final int[] argb, final int width, final int startRow, final int endRow,
+                                      final FloatBuffer out, final float[] table) {
+        int pos = startRow * width * 3;
+        for (int i = startRow; i < endRow; ++i) {
+            for (int j = 0; j < width; ++j) {
+                final int pixelValue = argb[i * width + j];
+                out.put(pos++, table[(pixelValue >> 16) & 0xFF]);
+                out.put(pos++, table[(pixelValue >> 8) & 0xFF]);
+                out.put(pos++, table[pixelValue & 0xFF]);
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.objdetector.core.image;
+
+/**
+ * How an 8-bit RGB channel value is stored in a model's input tensor.
+ *
+ * A pixel is first normalised to {@code (value - mean) / std}. Float models take that as it is;
+ * quantised models store it as {@code round(normalised / scale) + zeroPoint}, clamped to the
+ * element type. Either way there are only 256 possible inputs, so the mapping is tabulated once
+ * and the fill loops do one table lookup per channel.
+ */
+public final class TensorFormat {
+    public enum ElementType {
+        UINT8(1),
+        INT8(1),
+        FLOAT32(4);
+
+        private final int byteSize;
+
+        ElementType(final int byteSize) {
+            this.byteSize = byteSize;
+        }
+
+        public int byteSize() {
+            return byteSize;
+        }
+    }
+
+    private static final TensorFormat UINT8 = new TensorFormat(ElementType.UINT8, 0f, 1f, 1f, 0);
+    private static final TensorFormat INT8 = new TensorFormat(ElementType.INT8, 0f, 1f, 1f, -128);
+
+    private final ElementType elementType;
+    private final float mean;
+    private final float std;
+    private final float scale;
+    private final int zeroPoint;
+    // Stored value for each channel value; only the one matching the element type is set.
+    final byte[] byteTable;
+    final float[] floatTable;
+    // True if each channel is stored as its own unsigned byte, so no table is needed.
+    final boolean raw;
+
+    private TensorFormat(final ElementType elementType, final float mean, final float std,
+                         final float scale, final int zeroPoint) {
+        if (std == 0f || scale <= 0f) {
+            throw new IllegalArgumentException("Std and scale must be non-zero: std=" + std + " scale=" + scale);
+        }
+        this.elementType = elementType;
+        this.mean = mean;
+        this.std = std;
+        this.scale = scale;
+        this.zeroPoint = zeroPoint;
+        if (elementType == ElementType.FLOAT32) {
+            floatTable = new float[256];
+            for (int value = 0; value < 256; value++) {
+                floatTable[value] = (value - mean) / std;
+            }
+            byteTable = null;
+            raw = false;
+        } else {
+            final int min = elementType == ElementType.INT8 ? -128 : 0;
+            final int max = elementType == ElementType.INT8 ? 127 : 255;
+            byteTable = new byte[256];
+            boolean identity = elementType == ElementType.UINT8;
+            for (int value = 0; value < 256; value++) {
+                final int stored = Math.round((value - mean) / std / scale) + zeroPoint;
+                final int clamped = Math.min(max, Math.max(min, stored));
+                byteTable[value] = (byte) clamped;
+                identity &= clamped == value;
+            }
+            floatTable = null;
+            raw = identity;
+        }
+    }
+
+    /**
+     * Channel values as they are, the layout of most quantised uint8 models.
+     */
+    public static TensorFormat uint8() {
+        return UINT8;
+    }
+
+    /**
+     * Channel values shifted down by 128 into the signed range.
+     */
+    public static TensorFormat int8() {
+        return INT8;
+    }
+
+    /**
+     * Normalised channel values quantised with a tensor's scale and zero point.
+     *
+     * @param elementType {@link ElementType#UINT8} or {@link ElementType#INT8}
+     */
+    public static TensorFormat quantized(final ElementType elementType, final float mean, final float std,
+                                         final float scale, final int zeroPoint) {
+        if (elementType == ElementType.FLOAT32) {
+            throw new IllegalArgumentException("Float tensors are not quantised; use float32().");
+        }
+        return new TensorFormat(elementType, mean, std, scale, zeroPoint);
+    }
+
+    /**
+     * Normalised channel values as floats, written in the byte order of the output buffer; input
+     * tensors handed to an interpreter are in native order.
+     */
+    public static TensorFormat float32(final float mean, final float std) {
+        return new TensorFormat(ElementType.FLOAT32, mean, std, 1f, 0);
+    }
+
+    public ElementType getElementType() {
+        return elementType;
+    }
+
+    /**
+     * Bytes taken by one RGB pixel.
+     */
+    public int getBytesPerPixel() {
+        return 3 * elementType.byteSize();
+    }
+
+    /**
+     * True if channel values are copied as they are, which the fill loops special-case.
+     */
+    public boolean isRaw() {
+        return raw;
+    }
+
+    /**
+     * The stored form of a channel value, as the fill loops write it; for tests and tools.
+     */
+    public float encode(final int value) {
+        return elementType == ElementType.FLOAT32 ? floatTable[value & 0xff]
+                : elementType == ElementType.INT8 ? byteTable[value & 0xff] : byteTable[value & 0xff] & 0xff;
+    }
+
+    @Override
+    public String toString() {
+        if (raw) {
+            return elementType + " raw";
+        }
+        return elementType + " mean=" + mean + " std=" + std
+                + (elementType == ElementType.FLOAT32 ? "" : " scale=" + scale + " zeroPoint=" + zeroPoint);
+    }
+}
@@ -0,0 +1,88 @@
+package com.objdetector.core.image;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One YUV_420_888 frame as camera2 hands it out: three planes with their strides, the frame size
+ * and a capture timestamp.
+ *
+ * A holder that sources refill for every frame, so the planes are only valid until the next one.
+ */
+public class YuvFrame {
+    private ByteBuffer y;
+    private ByteBuffer u;
+    private ByteBuffer v;
+    private int width;
+    private int height;
+    private int yRowStride;
+    private int uvRowStride;
+    private int uvPixelStride;
+    private long timestampNanos;
+
+    public void set(final ByteBuffer y, final ByteBuffer u, final ByteBuffer v, final int width, final int height,
+                    final int yRowStride, final int uvRowStride, final int uvPixelStride,
+                    final long timestampNanos) {
+        this.y = y;
+        this.u = u;
+        this.v = v;
+        this.width = width;
+        this.height = height;
+        this.yRowStride = yRowStride;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+        this.timestampNanos = timestampNanos;
+    }
+
+    public ByteBuffer getY() {
+        return y;
+    }
+
+    public ByteBuffer getU() {
+        return u;
+    }
+
+    public ByteBuffer getV() {
+        return v;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getYRowStride() {
+        return yRowStride;
+    }
+
+    public int getUvRowStride() {
+        return uvRowStride;
+    }
+
+    public int getUvPixelStride() {
+        return uvPixelStride;
+    }
+
+    /**
+     * Capture time in nanoseconds on whatever clock the source uses; only differences between
+     * frames of one source are meaningful.
+     */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * Converts this frame into {@code out} with {@code converter}.
+     */
+    public void convert(final YuvToTensorConverter converter, final ByteBuffer out) {
+        converter.convert(y, u, v, yRowStride, uvRowStride, uvPixelStride, out);
+    }
+
+    @Override
+    public String toString() {
+        return "YuvFrame{" + width + "x" + height + " strides=" + yRowStride + "/" + uvRowStride + "/"
+                + uvPixelStride + " t=" + timestampNanos + "}";
+    }
+}
@@ -0,0 +1,66 @@
+package com.objdetector.core.image;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts YUV_420_888 frames to ARGB_8888 pixels without allocating per frame.
+ *
+ * The output array is sized once for the preview size and reused for every frame, and the
+ * plane buffers are read in place through absolute gets, so nothing is copied off the camera
+ * buffers. The returned array is overwritten by the next call.
+ */
+public class YuvToRgbConverter {
+    private final int width;
+    private final int height;
+    private final int[] argbOutput;
+    private final ParallelRowExecutor rowExecutor;
+    private final YuvToRgbKernel kernel;
+
+    public YuvToRgbConverter(final int width, final int height) {
+        this(width, height, null);
+    }
+
+    /**
+     * Creates a converter that splits each frame into row stripes on {@code rowExecutor}. The
+     * executor is not owned by the converter and may be shared.
+     */
+    public YuvToRgbConverter(final int width, final int height, final ParallelRowExecutor rowExecutor) {
+        this(width, height, rowExecutor, new FixedPointYuvToRgbKernel());
+    }
+
+    public YuvToRgbConverter(final int width, final int height, final ParallelRowExecutor rowExecutor,
+                             final YuvToRgbKernel kernel) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Size must be positive: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.argbOutput = new int[width * height];
+        this.rowExecutor = rowExecutor;
+        this.kernel = kernel;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int[] getOutput() {
+        return argbOutput;
+    }
+
+    public int[] convert(final ByteBuffer yBuffer, final ByteBuffer uBuffer, final ByteBuffer vBuffer,
+                         final int yRowStride, final int uvRowStride, final int uvPixelStride) {
+        if (rowExecutor == null) {
+            kernel.convertRows(yBuffer, uBuffer, vBuffer, yRowStride, uvRowStride, uvPixelStride,
+                    width, 0, height, argbOutput);
+        } else {
+            rowExecutor.execute(height, (startRow, endRow) -> kernel.convertRows(yBuffer, uBuffer, vBuffer,
+                    yRowStride, uvRowStride, uvPixelStride, width, startRow, endRow, argbOutput));
+        }
+        return argbOutput;
+    }
+}
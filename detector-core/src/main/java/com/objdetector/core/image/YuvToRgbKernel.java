@@ -0,0 +1,24 @@
+package com.objdetector.core.image;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Colour conversion strategy used by {@link YuvToRgbConverter} and {@link YuvToTensorConverter}.
+ *
+ * Every implementation must produce the same pixels as {@link YuvUtils#YUV2RGB}, so kernels
+ * can be swapped freely to pick whichever runs fastest on a given device.
+ */
+public interface YuvToRgbKernel {
+    /**
+     * Converts a single sample to an opaque ARGB_8888 pixel.
+     */
+    int toArgb(int y, int u, int v);
+
+    /**
+     * Converts rows {@code [startRow, endRow)} of a YUV_420_888 frame into {@code out}, which holds
+     * {@code width} pixels per row.
+     */
+    void convertRows(ByteBuffer yBuffer, ByteBuffer uBuffer, ByteBuffer vBuffer,
+                     int yRowStride, int uvRowStride, int uvPixelStride,
+                     int width, int startRow, int endRow, int[] out);
+}
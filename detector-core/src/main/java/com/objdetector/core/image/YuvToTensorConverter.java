@@ -0,0 +1,386 @@
+package com.objdetector.core.image;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Samples YUV_420_888 planes straight into a model's RGB input tensor.
+ *
+ * Rotation, aspect-preserving crop and scaling follow the app's ImageUtils.getTransformationMatrix
+ * with nearest-neighbour sampling, the same as drawing the preview through that matrix onto a
+ * model-sized bitmap. Only the destination pixels are colour-converted, so a full-resolution
+ * ARGB frame is never produced.
+ *
+ * The mapping is separable for rotations in steps of 90 degrees, so it is precomputed as one
+ * table per destination axis and only re-derived when the plane strides change.
+ *
+ * A converter can also sample a region of the upright frame, the frame as it looks after rotation,
+ * stretched to fill the tensor, e.g. one tile of a {@link com.objdetector.core.geometry.TileGrid}.
+ * {@link #mapToFrame} and {@link #mapFromFrame} move boxes between tensor and upright frame pixels.
+ *
+ * Channels are stored as the {@link TensorFormat} says, with a separate loop for raw bytes,
+ * tabulated bytes for int8 and requantised uint8, and floats written through a {@link FloatBuffer}.
+ */
+public class YuvToTensorConverter {
+    private final int srcWidth;
+    private final int srcHeight;
+    private final int dstWidth;
+    private final int dstHeight;
+    private final int rotation;
+    private final ParallelRowExecutor rowExecutor;
+    private final YuvToRgbKernel kernel;
+    private final TensorFormat format;
+    private final int uprightWidth;
+    private final int uprightHeight;
+    // Upright frame point sampled at the tensor's origin, and tensor pixels per frame pixel.
+    private float uprightLeft;
+    private float uprightTop;
+    private float scaleX;
+    private float scaleY;
+
+    // Source pixel coordinate sampled for each destination column and row.
+    private final int[] srcXForDstX;
+    private final int[] srcYForDstX;
+    private final int[] srcXForDstY;
+    private final int[] srcYForDstY;
+
+    // Plane offsets derived from the coordinates above for the current strides.
+    private final int[] yOffsetForDstX;
+    private final int[] yOffsetForDstY;
+    private final int[] uvOffsetForDstX;
+    private final int[] uvOffsetForDstY;
+    private int yRowStride = -1;
+    private int uvRowStride = -1;
+    private int uvPixelStride = -1;
+
+    public YuvToTensorConverter(final int srcWidth, final int srcHeight,
+                                final int dstWidth, final int dstHeight,
+                                final int rotation, final boolean maintainAspectRatio) {
+        this(srcWidth, srcHeight, dstWidth, dstHeight, rotation, maintainAspectRatio, null);
+    }
+
+    /**
+     * Creates a converter that fills the tensor in row stripes on {@code rowExecutor}. The
+     * executor is not owned by the converter and may be shared.
+     */
+    public YuvToTensorConverter(final int srcWidth, final int srcHeight,
+                                final int dstWidth, final int dstHeight,
+                                final int rotation, final boolean maintainAspectRatio,
+                                final ParallelRowExecutor rowExecutor) {
+        this(srcWidth, srcHeight, dstWidth, dstHeight, rotation, maintainAspectRatio, rowExecutor,
+                new FixedPointYuvToRgbKernel());
+    }
+
+    /**
+     * Creates a converter filling a tensor of {@code format}, e.g. a float model's input.
+     */
+    public YuvToTensorConverter(final int srcWidth, final int srcHeight,
+                                final int dstWidth, final int dstHeight,
+                                final int rotation, final boolean maintainAspectRatio,
+                                final ParallelRowExecutor rowExecutor, final TensorFormat format) {
+        this(srcWidth, srcHeight, dstWidth, dstHeight, rotation, maintainAspectRatio, rowExecutor,
+                new FixedPointYuvToRgbKernel(), format);
+    }
+
+    public YuvToTensorConverter(final int srcWidth, final int srcHeight,
+                                final int dstWidth, final int dstHeight,
+                                final int rotation, final boolean maintainAspectRatio,
+                                final ParallelRowExecutor rowExecutor, final YuvToRgbKernel kernel) {
+        this(srcWidth, srcHeight, dstWidth, dstHeight, rotation, maintainAspectRatio, rowExecutor, kernel,
+                TensorFormat.uint8());
+    }
+
+    public YuvToTensorConverter(final int srcWidth, final int srcHeight,
+                                final int dstWidth, final int dstHeight,
+                                final int rotation, final boolean maintainAspectRatio,
+                                final ParallelRowExecutor rowExecutor, final YuvToRgbKernel kernel,
+                                final TensorFormat format) {
+        this(srcWidth, srcHeight, dstWidth, dstHeight, rotation, rowExecutor, kernel, format);
+        float scaleX = dstWidth / (float) uprightWidth;
+        float scaleY = dstHeight / (float) uprightHeight;
+        if (maintainAspectRatio) {
+            scaleX = scaleY = Math.max(scaleX, scaleY);
+        }
+        // Without rotation the matrix is a plain scale about the origin; otherwise it rotates
+        // about the frame centres.
+        if (this.rotation == 0) {
+            buildSamplingTables(0f, 0f, scaleX, scaleY);
+        } else {
+            buildSamplingTables((uprightWidth - dstWidth / scaleX) / 2, (uprightHeight - dstHeight / scaleY) / 2,
+                    scaleX, scaleY);
+        }
+    }
+
+    /**
+     * Creates a converter that stretches the {@code regionWidth} x {@code regionHeight} region at
+     * ({@code regionLeft}, {@code regionTop}) of the upright frame over the whole tensor.
+     */
+    public YuvToTensorConverter(final int srcWidth, final int srcHeight,
+                                final int dstWidth, final int dstHeight, final int rotation,
+                                final float regionLeft, final float regionTop,
+                                final float regionWidth, final float regionHeight,
+                                final ParallelRowExecutor rowExecutor, final YuvToRgbKernel kernel,
+                                final TensorFormat format) {
+        this(srcWidth, srcHeight, dstWidth, dstHeight, rotation, rowExecutor, kernel, format);
+        if (regionWidth <= 0 || regionHeight <= 0) {
+            throw new IllegalArgumentException("Region must not be empty: " + regionWidth + "x" + regionHeight);
+        }
+        buildSamplingTables(regionLeft, regionTop, dstWidth / regionWidth, dstHeight / regionHeight);
+    }
+
+    private YuvToTensorConverter(final int srcWidth, final int srcHeight,
+                                 final int dstWidth, final int dstHeight, final int rotation,
+                                 final ParallelRowExecutor rowExecutor, final YuvToRgbKernel kernel,
+                                 final TensorFormat format) {
+        if (srcWidth <= 0 || srcHeight <= 0 || dstWidth <= 0 || dstHeight <= 0) {
+            throw new IllegalArgumentException("Sizes must be positive: " + srcWidth + "x" + srcHeight
+                    + " -> " + dstWidth + "x" + dstHeight);
+        }
+        if (rotation % 90 != 0) {
+            throw new IllegalArgumentException("Rotation must be a multiple of 90 degrees: " + rotation);
+        }
+        this.srcWidth = srcWidth;
+        this.srcHeight = srcHeight;
+        this.dstWidth = dstWidth;
+        this.dstHeight = dstHeight;
+        this.rotation = ((rotation % 360) + 360) % 360;
+        this.rowExecutor = rowExecutor;
+        this.kernel = kernel;
+        this.format = format;
+        final boolean transpose = this.rotation == 90 || this.rotation == 270;
+        this.uprightWidth = transpose ? srcHeight : srcWidth;
+        this.uprightHeight = transpose ? srcWidth : srcHeight;
+
+        srcXForDstX = new int[dstWidth];
+        srcYForDstX = new int[dstWidth];
+        srcXForDstY = new int[dstHeight];
+        srcYForDstY = new int[dstHeight];
+        yOffsetForDstX = new int[dstWidth];
+        uvOffsetForDstX = new int[dstWidth];
+        yOffsetForDstY = new int[dstHeight];
+        uvOffsetForDstY = new int[dstHeight];
+    }
+
+    /**
+     * A converter like this one for a region of the upright frame, sharing its executor, kernel
+     * and format.
+     */
+    public YuvToTensorConverter forRegion(final float left, final float top, final float width, final float height) {
+        return new YuvToTensorConverter(srcWidth, srcHeight, dstWidth, dstHeight, rotation, left, top, width, height,
+                rowExecutor, kernel, format);
+    }
+
+    /**
+     * Width of the frame after rotation.
+     */
+    public int getUprightWidth() {
+        return uprightWidth;
+    }
+
+    public int getUprightHeight() {
+        return uprightHeight;
+    }
+
+    /**
+     * Maps {@code count} {@code [left, top, right, bottom]} boxes from tensor pixels to upright
+     * frame pixels, in place.
+     */
+    public void mapToFrame(final float[] boxes, final int count) {
+        for (int i = 0; i < count * 4; i += 4) {
+            boxes[i] = uprightLeft + boxes[i] / scaleX;
+            boxes[i + 1] = uprightTop + boxes[i + 1] / scaleY;
+            boxes[i + 2] = uprightLeft + boxes[i + 2] / scaleX;
+            boxes[i + 3] = uprightTop + boxes[i + 3] / scaleY;
+        }
+    }
+
+    /**
+     * Maps {@code count} boxes from upright frame pixels to tensor pixels, in place; parts of the
+     * frame outside the sampled region map outside the tensor.
+     */
+    public void mapFromFrame(final float[] boxes, final int count) {
+        for (int i = 0; i < count * 4; i += 4) {
+            boxes[i] = (boxes[i] - uprightLeft) * scaleX;
+            boxes[i + 1] = (boxes[i + 1] - uprightTop) * scaleY;
+            boxes[i + 2] = (boxes[i + 2] - uprightLeft) * scaleX;
+            boxes[i + 3] = (boxes[i + 3] - uprightTop) * scaleY;
+        }
+    }
+
+    public int getDstWidth() {
+        return dstWidth;
+    }
+
+    public int getDstHeight() {
+        return dstHeight;
+    }
+
+    public TensorFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Writes {@code dstWidth * dstHeight} RGB pixels in the converter's format to {@code out}
+     * starting at its current position, leaving the position unchanged. Floats are written in the
+     * byte order of {@code out}.
+     */
+    public void convert(final ByteBuffer yBuffer, final ByteBuffer uBuffer, final ByteBuffer vBuffer,
+                        final int yRowStride, final int uvRowStride, final int uvPixelStride,
+                        final ByteBuffer out) {
+        if (yRowStride != this.yRowStride || uvRowStride != this.uvRowStride
+                || uvPixelStride != this.uvPixelStride) {
+            updateOffsets(yRowStride, uvRowStride, uvPixelStride);
+        }
+
+        if (format.getElementType() == TensorFormat.ElementType.FLOAT32) {
+            // A view starting at the current position; one small allocation per frame.
+            final FloatBuffer floats = out.asFloatBuffer();
+            if (rowExecutor == null) {
+                convertRowsToFloats(0, dstHeight, yBuffer, uBuffer, vBuffer, floats);
+            } else {
+                rowExecutor.execute(dstHeight, (startRow, endRow) ->
+                        convertRowsToFloats(startRow, endRow, yBuffer, uBuffer, vBuffer, floats));
+            }
+            return;
+        }
+        final int basePos = out.position();
+        if (rowExecutor == null) {
+            convertRowsToBytes(0, dstHeight, yBuffer, uBuffer, vBuffer, out, basePos);
+        } else {
+            rowExecutor.execute(dstHeight, (startRow, endRow) ->
+                    convertRowsToBytes(startRow, endRow, yBuffer, uBuffer, vBuffer, out, basePos));
+        }
+    }
+
+    private void convertRowsToBytes(final int startRow, final int endRow,
+                                    final ByteBuffer yBuffer, final ByteBuffer uBuffer, final ByteBuffer vBuffer,
+                                    final ByteBuffer out, final int basePos) {
+        if (format.raw) {
+            convertRows(startRow, endRow, yBuffer, uBuffer, vBuffer, out, basePos);
+            return;
+        }
+        final byte[] table = format.byteTable;
+        int outPos = basePos + startRow * dstWidth * 3;
+        for (int dy = startRow; dy < endRow; dy++) {
+            final int yRow = yOffsetForDstY[dy];
+            final int uvRow = uvOffsetForDstY[dy];
+            for (int dx = 0; dx < dstWidth; dx++) {
+                final int uvOffset = uvRow + uvOffsetForDstX[dx];
+                final int pixel = kernel.toArgb(
+                        yBuffer.get(yRow + yOffsetForDstX[dx]) & 0xFF,
+                        uBuffer.get(uvOffset) & 0xFF,
+                        vBuffer.get(uvOffset) & 0xFF);
+                out.put(outPos++, table[(pixel >> 16) & 0xFF]);
+                out.put(outPos++, table[(pixel >> 8) & 0xFF]);
+                out.put(outPos++, table[pixel & 0xFF]);
+            }
+        }
+    }
+
+    private void convertRowsToFloats(final int startRow, final int endRow,
+                                     final ByteBuffer yBuffer, final ByteBuffer uBuffer, final ByteBuffer vBuffer,
+                                     final FloatBuffer out) {
+        final float[] table = format.floatTable;
+        int outPos = startRow * dstWidth * 3;
+        for (int dy = startRow; dy < endRow; dy++) {
+            final int yRow = yOffsetForDstY[dy];
+            final int uvRow = uvOffsetForDstY[dy];
+            for (int dx = 0; dx < dstWidth; dx++) {
+                final int uvOffset = uvRow + uvOffsetForDstX[dx];
+                final int pixel = kernel.toArgb(
+                        yBuffer.get(yRow + yOffsetForDstX[dx]) & 0xFF,
+                        uBuffer.get(uvOffset) & 0xFF,
+                        vBuffer.get(uvOffset) & 0xFF);
+                out.put(outPos++, table[(pixel >> 16) & 0xFF]);
+                out.put(outPos++, table[(pixel >> 8) & 0xFF]);
+                out.put(outPos++, table[pixel & 0xFF]);
+            }
+        }
+    }
+
+    private void convertRows(final int startRow, final int endRow,
+                             final ByteBuffer yBuffer, final ByteBuffer uBuffer, final ByteBuffer vBuffer,
+                             final ByteBuffer out, final int basePos) {
+        int outPos = basePos + startRow * dstWidth * 3;
+        for (int dy = startRow; dy < endRow; dy++) {
+            final int yRow = yOffsetForDstY[dy];
+            final int uvRow = uvOffsetForDstY[dy];
+            for (int dx = 0; dx < dstWidth; dx++) {
+                final int uvOffset = uvRow + uvOffsetForDstX[dx];
+                final int pixel = kernel.toArgb(
+                        yBuffer.get(yRow + yOffsetForDstX[dx]) & 0xFF,
+                        uBuffer.get(uvOffset) & 0xFF,
+                        vBuffer.get(uvOffset) & 0xFF);
+                out.put(outPos++, (byte) ((pixel >> 16) & 0xFF));
+                out.put(outPos++, (byte) ((pixel >> 8) & 0xFF));
+                out.put(outPos++, (byte) (pixel & 0xFF));
+            }
+        }
+    }
+
+    private void buildSamplingTables(final float left, final float top, final float scaleX, final float scaleY) {
+        this.uprightLeft = left;
+        this.uprightTop = top;
+        this.scaleX = scaleX;
+        this.scaleY = scaleY;
+        // Invert the transformation at each destination pixel centre: find the upright frame
+        // point, then undo the rotation to find the sensor pixel.
+        for (int dx = 0; dx < dstWidth; dx++) {
+            final float u = left + (dx + 0.5f) / scaleX;
+            switch (rotation) {
+                case 0:
+                    srcXForDstX[dx] = clamp(u, srcWidth);
+                    break;
+                case 90:
+                    srcYForDstX[dx] = clamp(srcHeight - u, srcHeight);
+                    break;
+                case 180:
+                    srcXForDstX[dx] = clamp(srcWidth - u, srcWidth);
+                    break;
+                default:
+                    srcYForDstX[dx] = clamp(u, srcHeight);
+                    break;
+            }
+        }
+        for (int dy = 0; dy < dstHeight; dy++) {
+            final float v = top + (dy + 0.5f) / scaleY;
+            switch (rotation) {
+                case 0:
+                    srcYForDstY[dy] = clamp(v, srcHeight);
+                    break;
+                case 90:
+                    srcXForDstY[dy] = clamp(v, srcWidth);
+                    break;
+                case 180:
+                    srcYForDstY[dy] = clamp(srcHeight - v, srcHeight);
+                    break;
+                default:
+                    srcXForDstY[dy] = clamp(srcWidth - v, srcWidth);
+                    break;
+            }
+        }
+    }
+
+    private void updateOffsets(final int yRowStride, final int uvRowStride, final int uvPixelStride) {
+        // Each source coordinate comes from exactly one of the two tables; the other holds zero.
+        for (int dx = 0; dx < dstWidth; dx++) {
+            final int sx = srcXForDstX[dx];
+            final int sy = srcYForDstX[dx];
+            yOffsetForDstX[dx] = sy * yRowStride + sx;
+            uvOffsetForDstX[dx] = (sy >> 1) * uvRowStride + (sx >> 1) * uvPixelStride;
+        }
+        for (int dy = 0; dy < dstHeight; dy++) {
+            final int sx = srcXForDstY[dy];
+            final int sy = srcYForDstY[dy];
+            yOffsetForDstY[dy] = sy * yRowStride + sx;
+            uvOffsetForDstY[dy] = (sy >> 1) * uvRowStride + (sx >> 1) * uvPixelStride;
+        }
+        this.yRowStride = yRowStride;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+    }
+
+    private static int clamp(final float coordinate, final int size) {
+        return Math.min(size - 1, Math.max(0, (int) Math.floor(coordinate)));
+    }
+}
@@ -0,0 +1,56 @@
+package com.objdetector.core.image;
+
+/**
+ * The fixed-point YUV to ARGB formula, plus the original array-based converter kept as the
+ * reference the faster converters are tested against.
+ */
+public class YuvUtils {
+    static final int kMaxChannelValue = 262143;
+
+    public static int[] convertYUV420ToARGB8888(byte[] yData, byte[] uData, byte[] vData, int width, int height,
+                                                int yRowStride, int uvRowStride, int uvPixelStride) {
+        int[] out = new int[width * height];
+        int i = 0;
+        for (int y = 0; y < height; y++) {
+            int pY = yRowStride * y;
+            int uv_row_start = uvRowStride * (y >> 1);
+            int pU = uv_row_start;
+            int pV = uv_row_start;
+
+            for (int x = 0; x < width; x++) {
+                int uv_offset = (x >> 1) * uvPixelStride;
+                out[i++] = YUV2RGB(
+                        convertByteToInt(yData, pY + x),
+                        convertByteToInt(uData, pU + uv_offset),
+                        convertByteToInt(vData, pV + uv_offset));
+            }
+        }
+
+        return out;
+    }
+
+    private static int convertByteToInt(byte[] arr, int pos) {
+        return arr[pos] & 0xFF;
+    }
+
+    public static int YUV2RGB(int nY, int nU, int nV) {
+        nY -= 16;
+        nU -= 128;
+        nV -= 128;
+        if (nY < 0) nY = 0;
+
+        int nR = 1192 * nY + 1634 * nV;
+        int nG = 1192 * nY - 833 * nV - 400 * nU;
+        int nB = 1192 * nY + 2066 * nU;
+
+        nR = Math.min(kMaxChannelValue, Math.max(0, nR));
+        nG = Math.min(kMaxChannelValue, Math.max(0, nG));
+        nB = Math.min(kMaxChannelValue, Math.max(0, nB));
+
+        nR = (nR >> 10) & 0xff;
+        nG = (nG >> 10) & 0xff;
+        nB = (nB >> 10) & 0xff;
+
+        return 0xff000000 | (nR << 16) | (nG << 8) | nB;
+    }
+}
@@ -0,0 +1,211 @@
+package com.objdetector.core.motion;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decides from the Y plane alone whether a camera frame differs enough from the last inferred one
+ * to be worth inferring again.
+ *
+ * Each frame is shrunk to a small luma thumbnail by averaging four samples per cell, and compared
+ * block by block with the thumbnail of the last frame that passed the gate. A block changes when
+ * its mean absolute difference exceeds {@code pixelThreshold}, and the frame passes once at least
+ * {@code minChangedBlocks} blocks have changed. Comparing against the last passed frame rather
+ * than the previous one lets slow changes build up until they count. After
+ * {@code maxSkippedFrames} skipped frames in a row a frame passes regardless, so results never go
+ * stale for long. The bounds of the blocks that changed in the last passed frame are kept, so
+ * later stages can focus on them.
+ *
+ * Not thread safe.
+ */
+public class MotionGate {
+    private final int thumbWidth;
+    private final int thumbHeight;
+    private final int blockSize;
+    private final int pixelThreshold;
+    private final int minChangedBlocks;
+    private final int maxSkippedFrames;
+    private final int blocksX;
+    private final int blocksY;
+    private final int[] xOffsets;
+    private final int[] current;
+    private final int[] reference;
+    private boolean hasReference;
+    private int skippedInARow;
+    private int frameWidth;
+    private int frameHeight;
+    private int changedLeft;
+    private int changedTop;
+    private int changedRight;
+    private int changedBottom;
+    private int lastChangedBlocks;
+    private long checkedCount;
+    private long skippedCount;
+
+    /**
+     * A 64x48 thumbnail in 8x8 blocks; a block changes above a mean difference of 12 levels and a
+     * frame passes with two changed blocks, or after 30 skipped frames.
+     */
+    public MotionGate() {
+        this(64, 48, 8, 12, 2, 30);
+    }
+
+    public MotionGate(final int thumbWidth, final int thumbHeight, final int blockSize, final int pixelThreshold,
+                      final int minChangedBlocks, final int maxSkippedFrames) {
+        if (thumbWidth < 1 || thumbHeight < 1 || blockSize < 1) {
+            throw new IllegalArgumentException("Thumbnail and block sizes must be positive.");
+        }
+        if (minChangedBlocks < 1) {
+            throw new IllegalArgumentException("At least one changed block is required: " + minChangedBlocks);
+        }
+        this.thumbWidth = thumbWidth;
+        this.thumbHeight = thumbHeight;
+        this.blockSize = blockSize;
+        this.pixelThreshold = pixelThreshold;
+        this.minChangedBlocks = minChangedBlocks;
+        this.maxSkippedFrames = maxSkippedFrames;
+        this.blocksX = (thumbWidth + blockSize - 1) / blockSize;
+        this.blocksY = (thumbHeight + blockSize - 1) / blockSize;
+        this.xOffsets = new int[thumbWidth * 2];
+        this.current = new int[thumbWidth * thumbHeight];
+        this.reference = new int[thumbWidth * thumbHeight];
+    }
+
+    /**
+     * Shrinks the Y plane and compares it with the last frame that passed.
+     *
+     * @return true if the frame should be inferred; false if the last results still hold
+     */
+    public boolean update(final ByteBuffer y, final int width, final int height,
+                          final int rowStride, final int pixelStride) {
+        checkedCount++;
+        if (width != frameWidth || height != frameHeight) {
+            frameWidth = width;
+            frameHeight = height;
+            hasReference = false;
+            // Two sample columns per cell, at a quarter and three quarters of its width.
+            for (int tx = 0; tx < thumbWidth; tx++) {
+                xOffsets[tx * 2] = (int) ((tx + 0.25f) * width / thumbWidth) * pixelStride;
+                xOffsets[tx * 2 + 1] = (int) ((tx + 0.75f) * width / thumbWidth) * pixelStride;
+            }
+        }
+        shrink(y, height, rowStride);
+
+        if (!hasReference) {
+            accept(0, 0, width, height, blocksX * blocksY);
+            return true;
+        }
+
+        int changed = 0;
+        int minBx = blocksX;
+        int minBy = blocksY;
+        int maxBx = -1;
+        int maxBy = -1;
+        for (int by = 0; by < blocksY; by++) {
+            final int y0 = by * blockSize;
+            final int y1 = Math.min(thumbHeight, y0 + blockSize);
+            for (int bx = 0; bx < blocksX; bx++) {
+                final int x0 = bx * blockSize;
+                final int x1 = Math.min(thumbWidth, x0 + blockSize);
+                int sum = 0;
+                for (int ty = y0; ty < y1; ty++) {
+                    final int row = ty * thumbWidth;
+                    for (int tx = x0; tx < x1; tx++) {
+                        sum += Math.abs(current[row + tx] - reference[row + tx]);
+                    }
+                }
+                if (sum > pixelThreshold * (y1 - y0) * (x1 - x0)) {
+                    changed++;
+                    minBx = Math.min(minBx, bx);
+                    minBy = Math.min(minBy, by);
+                    maxBx = Math.max(maxBx, bx);
+                    maxBy = Math.max(maxBy, by);
+                }
+            }
+        }
+
+        if (changed >= minChangedBlocks) {
+            accept(toFrameX(minBx * blockSize), toFrameY(minBy * blockSize),
+                    toFrameX(Math.min(thumbWidth, (maxBx + 1) * blockSize)),
+                    toFrameY(Math.min(thumbHeight, (maxBy + 1) * blockSize)), changed);
+            return true;
+        }
+        if (skippedInARow >= maxSkippedFrames) {
+            accept(0, 0, width, height, changed);
+            return true;
+        }
+        skippedInARow++;
+        skippedCount++;
+        lastChangedBlocks = changed;
+        return false;
+    }
+
+    /**
+     * Writes the frame-pixel bounds {@code [left, top, right, bottom]} of the blocks that changed
+     * when the last frame passed; the whole frame for the first one or a forced pass.
+     */
+    public void getChangedRegion(final int[] out) {
+        out[0] = changedLeft;
+        out[1] = changedTop;
+        out[2] = changedRight;
+        out[3] = changedBottom;
+    }
+
+    /**
+     * Blocks found changed in the most recent frame checked.
+     */
+    public int getLastChangedBlocks() {
+        return lastChangedBlocks;
+    }
+
+    public long getCheckedCount() {
+        return checkedCount;
+    }
+
+    /**
+     * Frames skipped as unchanged, i.e. inferences saved.
+     */
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * Makes the next frame pass and become the reference, for when the frame that last passed was
+     * never inferred: later frames matching it would otherwise keep stale results.
+     */
+    public void invalidate() {
+        hasReference = false;
+    }
+
+    private void shrink(final ByteBuffer y, final int height, final int rowStride) {
+        for (int ty = 0; ty < thumbHeight; ty++) {
+            final int row0 = (int) ((ty + 0.25f) * height / thumbHeight) * rowStride;
+            final int row1 = (int) ((ty + 0.75f) * height / thumbHeight) * rowStride;
+            final int out = ty * thumbWidth;
+            for (int tx = 0; tx < thumbWidth; tx++) {
+                final int a = xOffsets[tx * 2];
+                final int b = xOffsets[tx * 2 + 1];
+                current[out + tx] = ((y.get(row0 + a) & 0xff) + (y.get(row0 + b) & 0xff)
+                        + (y.get(row1 + a) & 0xff) + (y.get(row1 + b) & 0xff)) >> 2;
+            }
+        }
+    }
+
+    private void accept(final int left, final int top, final int right, final int bottom, final int changed) {
+        System.arraycopy(current, 0, reference, 0, current.length);
+        hasReference = true;
+        skippedInARow = 0;
+        lastChangedBlocks = changed;
+        changedLeft = left;
+        changedTop = top;
+        changedRight = right;
+        changedBottom = bottom;
+    }
+
+    private int toFrameX(final int thumbX) {
+        return (int) ((long) thumbX * frameWidth / thumbWidth);
+    }
+
+    private int toFrameY(final int thumbY) {
+        return (int) ((long) thumbY * frameHeight / thumbHeight);
+    }
+}
@@ -0,0 +1,51 @@
+package com.objdetector.core.overlay;
+
+import java.util.List;
+
+/**
+ * The text drawn above each box, e.g. {@code "cup 87%"}, built once per class and whole percent
+ * of score and reused on every later draw.
+ *
+ * Not thread safe.
+ */
+public class LabelTextCache {
+    private static final int BUCKETS = 101;
+    private static final String UNKNOWN_LABEL = "?";
+
+    private final List<String> labels;
+    // A row per label plus one for class ids without a label; filled as texts are first needed.
+    private final String[][] texts;
+
+    public LabelTextCache(final List<String> labels) {
+        this.labels = labels;
+        this.texts = new String[labels.size() + 1][];
+    }
+
+    public String get(final int classId, final float score) {
+        final int row = classId >= 0 && classId < labels.size() ? classId : labels.size();
+        final int bucket = Math.round(Math.max(0f, Math.min(1f, score)) * (BUCKETS - 1));
+        String[] bucketTexts = texts[row];
+        if (bucketTexts == null) {
+            bucketTexts = texts[row] = new String[BUCKETS];
+        }
+        String text = bucketTexts[bucket];
+        if (text == null) {
+            final String label = row < labels.size() ? labels.get(row) : UNKNOWN_LABEL;
+            text = bucketTexts[bucket] = label + " " + bucket + "%";
+        }
+        return text;
+    }
+
+    /**
+     * The longest text any box of this model can get, for sizing the area labels are drawn in.
+     */
+    public String getLongestText() {
+        String longest = UNKNOWN_LABEL;
+        for (final String label : labels) {
+            if (label.length() > longest.length()) {
+                longest = label;
+            }
+        }
+        return longest + " " + (BUCKETS - 1) + "%";
+    }
+}
@@ -0,0 +1,238 @@
+package com.objdetector.core.overlay;
+
+import com.objdetector.core.detection.DetectionBatch;
+import com.objdetector.core.geometry.OverlayMapping;
+import com.objdetector.core.pipeline.SwapBuffer;
+
+import java.util.List;
+
+/**
+ * What an overlay draws for each batch of results, handed from the thread publishing results to
+ * the thread drawing them.
+ *
+ * {@link #submit} copies the boxes worth drawing into the back {@link Frame} of a
+ * {@link SwapBuffer}, maps them onto the view and publishes the frame; {@link #acquireFrame} gives
+ * the draw pass the newest one. Neither blocks the other. The model-to-view mapping is rebuilt
+ * only when the model or the view size changes, label texts come from a {@link LabelTextCache},
+ * and once every label text shown has been seen neither side allocates.
+ *
+ * {@link #submit} and {@link #setModel} must be called from one thread at a time, and
+ * {@link #acquireFrame} from the drawing thread.
+ */
+public class OverlayRenderer {
+    /**
+     * Boxes ready to be drawn, in view pixels.
+     */
+    public static final class Frame {
+        private final float[] inputBoxes;
+        private final float[] viewBoxes;
+        private final int[] classIds;
+        private final float[] scores;
+        private int count;
+        private long captureNanos;
+        private OverlayMapping mapping;
+        private LabelTextCache labels;
+
+        Frame(final int capacity) {
+            this.inputBoxes = new float[capacity * 4];
+            this.viewBoxes = new float[capacity * 4];
+            this.classIds = new int[capacity];
+            this.scores = new float[capacity];
+        }
+
+        /**
+         * Number of boxes, 0 until the view has been laid out.
+         */
+        public int getCount() {
+            return mapping == null ? 0 : count;
+        }
+
+        /**
+         * {@code [left, top, right, bottom]} per box in view pixels.
+         */
+        public float[] getViewBoxes() {
+            return viewBoxes;
+        }
+
+        /**
+         * Capture time of the frame the boxes were detected in, see
+         * {@link DetectionBatch#getCaptureNanos()}.
+         */
+        public long getCaptureNanos() {
+            return captureNanos;
+        }
+
+        public String getLabelText(final int index) {
+            return labels.get(classIds[index], scores[index]);
+        }
+
+        private void map(final OverlayMapping mapping) {
+            this.mapping = mapping;
+            if (mapping == null) {
+                return;
+            }
+            for (int i = 0; i < count * 4; i += 4) {
+                mapping.mapBox(inputBoxes, i, viewBoxes, i);
+            }
+        }
+    }
+
+    private final int capacity;
+    private final float minScore;
+    private final float resultsViewHeight;
+    private final float textHeight;
+    private final float padding;
+    private final SwapBuffer<Frame> frames;
+    // Rebuilt under the lock whenever the model or view size changes; read without it.
+    private volatile OverlayMapping mapping;
+    private volatile LabelTextCache labels;
+    private int inputWidth;
+    private int inputHeight;
+    private int viewWidth;
+    private int viewHeight;
+    private float labelWidth;
+    // View area the last submitted frame covers, inverted when it is empty; confined to the
+    // submitting thread.
+    private float lastLeft = Float.MAX_VALUE;
+    private float lastTop = Float.MAX_VALUE;
+    private float lastRight = -Float.MAX_VALUE;
+    private float lastBottom = -Float.MAX_VALUE;
+
+    /**
+     * @param capacity          most boxes drawn per frame
+     * @param minScore          smallest score drawn
+     * @param resultsViewHeight height of the strip at the top of the view kept free of boxes
+     * @param textHeight        height of the label drawn above each box
+     * @param padding           margin around boxes and labels when invalidating, e.g. the stroke width
+     */
+    public OverlayRenderer(final int capacity, final float minScore, final float resultsViewHeight,
+                           final float textHeight, final float padding) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+        this.minScore = minScore;
+        this.resultsViewHeight = resultsViewHeight;
+        this.textHeight = textHeight;
+        this.padding = padding;
+        this.frames = new SwapBuffer<>(() -> new Frame(capacity));
+    }
+
+    /**
+     * Switches to another model's input size and labels and clears the boxes drawn.
+     *
+     * @param labelWidth width of the model's longest label text, see
+     *                   {@link LabelTextCache#getLongestText()}
+     */
+    public void setModel(final int inputWidth, final int inputHeight, final LabelTextCache labels,
+                         final float labelWidth) {
+        synchronized (this) {
+            this.inputWidth = inputWidth;
+            this.inputHeight = inputHeight;
+            this.labelWidth = labelWidth;
+            this.labels = labels;
+            rebuildMapping();
+        }
+        submit(null, null);
+    }
+
+    /**
+     * Convenience for {@link #setModel(int, int, LabelTextCache, float)} with a new cache.
+     */
+    public void setModel(final int inputWidth, final int inputHeight, final List<String> labels,
+                         final float labelWidth) {
+        setModel(inputWidth, inputHeight, new LabelTextCache(labels), labelWidth);
+    }
+
+    /**
+     * Called when the view is laid out at a new size, e.g. after a rotation.
+     */
+    public void setViewSize(final int viewWidth, final int viewHeight) {
+        synchronized (this) {
+            this.viewWidth = viewWidth;
+            this.viewHeight = viewHeight;
+            rebuildMapping();
+        }
+    }
+
+    private void rebuildMapping() {
+        if (inputWidth <= 0 || inputHeight <= 0 || viewWidth <= 0 || viewHeight <= 0) {
+            mapping = null;
+            return;
+        }
+        final OverlayMapping rebuilt = new OverlayMapping(inputWidth, inputHeight);
+        rebuilt.update(viewWidth, viewHeight, resultsViewHeight);
+        mapping = rebuilt;
+    }
+
+    /**
+     * Publishes the boxes of {@code results} scoring at least the minimum, without keeping a
+     * reference to the batch.
+     *
+     * @param results  boxes in model input pixels, or null to draw nothing
+     * @param dirtyOut if not null, receives {@code [left, top, right, bottom]} covering both the
+     *                 previous and the new boxes and labels, in view pixels
+     * @return false if nothing on the view changes, in which case {@code dirtyOut} is not written
+     */
+    public boolean submit(final DetectionBatch results, final float[] dirtyOut) {
+        final Frame frame = frames.getBack();
+        final OverlayMapping mapping = this.mapping;
+        frame.labels = labels;
+        frame.count = 0;
+        frame.captureNanos = results == null ? 0 : results.getCaptureNanos();
+        if (results != null) {
+            final float[] boxes = results.getBoxes();
+            for (int i = 0; i < results.getCount() && frame.count < capacity; i++) {
+                if (results.getScore(i) < minScore) {
+                    continue;
+                }
+                System.arraycopy(boxes, i * 4, frame.inputBoxes, frame.count * 4, 4);
+                frame.classIds[frame.count] = results.getClassId(i);
+                frame.scores[frame.count] = results.getScore(i);
+                frame.count++;
+            }
+        }
+        frame.map(mapping);
+        frames.publish();
+        return mapping != null && updateDirty(frame, dirtyOut);
+    }
+
+    private boolean updateDirty(final Frame frame, final float[] dirtyOut) {
+        float left = Float.MAX_VALUE;
+        float top = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE;
+        float bottom = -Float.MAX_VALUE;
+        final float[] boxes = frame.viewBoxes;
+        for (int i = 0; i < frame.count * 4; i += 4) {
+            left = Math.min(left, boxes[i]);
+            top = Math.min(top, boxes[i + 1] - textHeight);
+            right = Math.max(right, Math.max(boxes[i + 2], boxes[i] + labelWidth));
+            bottom = Math.max(bottom, boxes[i + 3]);
+        }
+        final boolean changed = frame.count > 0 || lastLeft <= lastRight;
+        if (changed && dirtyOut != null) {
+            dirtyOut[0] = Math.min(left, lastLeft) - padding;
+            dirtyOut[1] = Math.min(top, lastTop) - padding;
+            dirtyOut[2] = Math.max(right, lastRight) + padding;
+            dirtyOut[3] = Math.max(bottom, lastBottom) + padding;
+        }
+        lastLeft = left;
+        lastTop = top;
+        lastRight = right;
+        lastBottom = bottom;
+        return changed;
+    }
+
+    /**
+     * The newest frame, re-mapped if the view has changed size since it was submitted. It stays
+     * valid until the next call.
+     */
+    public Frame acquireFrame() {
+        final Frame frame = frames.getFront();
+        final OverlayMapping mapping = this.mapping;
+        if (frame.mapping != mapping) {
+            frame.map(mapping);
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,91 @@
+package com.objdetector.core.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-item hand-off between two pipeline stages where the latest item wins.
+ *
+ * A producer never blocks: offering while an item is still pending replaces it, and the
+ * replaced item is handed to the {@link Recycler} and counted as dropped. Together with the
+ * item the consumer is working on, this keeps at most two items per hand-off in flight, so a
+ * slow consumer always picks up the freshest item instead of a backlog.
+ */
+public class HandOffSlot<T> {
+    public interface Recycler<T> {
+        void recycle(T item);
+    }
+
+    private final String name;
+    private final Recycler<T> recycler;
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private T pending;
+    private boolean closed;
+
+    public HandOffSlot(final String name, final Recycler<T> recycler) {
+        this.name = name;
+        this.recycler = recycler;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Publishes {@code item}, replacing any item the consumer has not taken yet. Items offered
+     * after {@link #close()} are recycled straight away.
+     */
+    public void offer(final T item) {
+        final T displaced;
+        synchronized (this) {
+            offered.incrementAndGet();
+            if (closed) {
+                displaced = item;
+            } else {
+                displaced = pending;
+                pending = item;
+                notifyAll();
+            }
+        }
+        if (displaced != null) {
+            dropped.incrementAndGet();
+            recycler.recycle(displaced);
+        }
+    }
+
+    /**
+     * Waits for the next item, or returns null once the slot is closed.
+     */
+    public synchronized T take() throws InterruptedException {
+        while (pending == null && !closed) {
+            wait();
+        }
+        final T item = pending;
+        pending = null;
+        return item;
+    }
+
+    /**
+     * Stops the slot, recycling the pending item and waking any waiting consumer.
+     */
+    public void close() {
+        final T displaced;
+        synchronized (this) {
+            closed = true;
+            displaced = pending;
+            pending = null;
+            notifyAll();
+        }
+        if (displaced != null) {
+            recycler.recycle(displaced);
+        }
+    }
+
+    public long getOfferedCount() {
+        return offered.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,57 @@
+package com.objdetector.core.pipeline;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed set of reusable items, e.g. input tensors, shared by the stages of a pipeline.
+ *
+ * {@link #acquire()} never blocks; when every item is in flight it returns null and the caller
+ * drops its work, which is counted as an exhaustion.
+ */
+public class ObjectPool<T> {
+    public interface Factory<T> {
+        T create();
+    }
+
+    private final ArrayBlockingQueue<T> free;
+    private final int size;
+    private final AtomicLong exhausted = new AtomicLong();
+
+    public ObjectPool(final int size, final Factory<T> factory) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1: " + size);
+        }
+        this.size = size;
+        this.free = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            free.add(factory.create());
+        }
+    }
+
+    public T acquire() {
+        final T item = free.poll();
+        if (item == null) {
+            exhausted.incrementAndGet();
+        }
+        return item;
+    }
+
+    public void release(final T item) {
+        if (!free.offer(item)) {
+            throw new IllegalStateException("Released more items than the pool holds.");
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getAvailableCount() {
+        return free.size();
+    }
+
+    public long getExhaustedCount() {
+        return exhausted.get();
+    }
+}
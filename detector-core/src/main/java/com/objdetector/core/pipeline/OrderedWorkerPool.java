@@ -0,0 +1,189 @@
+package com.objdetector.core.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs jobs concurrently on a fixed set of stateful workers and reports results in submission
+ * order.
+ *
+ * Each worker, e.g. an interpreter with its own buffers, is used by one job at a time.
+ * {@link #submit} blocks while every worker is busy, so there is no hidden backlog; the time
+ * spent blocked is recorded as queue wait. Results are handed to the {@link ResultListener} one at
+ * a time and strictly in sequence order, holding back jobs that finish early.
+ */
+public class OrderedWorkerPool<W, I, O> {
+    public interface Job<W, I, O> {
+        O run(W worker, I input);
+    }
+
+    public interface ResultListener<I, O> {
+        /**
+         * @param output the job's result, or null if it threw
+         */
+        void onResult(long sequence, I input, O output);
+    }
+
+    private static final class Completed<I, O> {
+        final I input;
+        final O output;
+
+        Completed(final I input, final O output) {
+            this.input = input;
+            this.output = output;
+        }
+    }
+
+    private final ArrayBlockingQueue<W> idleWorkers;
+    private final int size;
+    private final Job<W, I, O> job;
+    private final ResultListener<I, O> listener;
+    private final Semaphore freeWorkers;
+    private final ExecutorService threads;
+    private final TreeMap<Long, Completed<I, O>> reorderBuffer = new TreeMap<>();
+    private final long createdNanos = System.nanoTime();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final AtomicLong queueWaitNanos = new AtomicLong();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private long nextSequence;
+    private long nextToDeliver;
+
+    public OrderedWorkerPool(final String name, final List<W> workers, final Job<W, I, O> job,
+                             final ResultListener<I, O> listener) {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("At least one worker is required.");
+        }
+        this.size = workers.size();
+        this.idleWorkers = new ArrayBlockingQueue<>(size, false, new ArrayList<>(workers));
+        this.job = job;
+        this.listener = listener;
+        this.freeWorkers = new Semaphore(size, true);
+        this.threads = Executors.newFixedThreadPool(size, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(runnable, name + "-" + count.incrementAndGet());
+            }
+        });
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Waits for a free worker and starts {@code input} on it.
+     *
+     * @return the sequence number the result will be reported with
+     * @throws RejectedExecutionException if the pool has been shut down; {@code input} is not
+     *                                    reported and takes no sequence number
+     */
+    public long submit(final I input) throws InterruptedException {
+        final long waitStart = System.nanoTime();
+        freeWorkers.acquire();
+        final long wait = System.nanoTime() - waitStart;
+        queueWaitNanos.addAndGet(wait);
+        updateMax(maxQueueWaitNanos, wait);
+
+        // The sequence number is only taken once the job is accepted, so a rejected job leaves no
+        // gap that would hold back later results.
+        synchronized (reorderBuffer) {
+            final long sequence = nextSequence;
+            try {
+                threads.execute(() -> runJob(sequence, input));
+            } catch (final RejectedExecutionException ex) {
+                freeWorkers.release();
+                throw ex;
+            }
+            nextSequence++;
+            return sequence;
+        }
+    }
+
+    /**
+     * Stops accepting work and waits for running jobs to finish and be reported.
+     */
+    public void shutdown() throws InterruptedException {
+        threads.shutdown();
+        while (!threads.awaitTermination(1, TimeUnit.SECONDS)) {
+            // Keep waiting; jobs are bounded by the number of workers.
+        }
+    }
+
+    public int getBusyWorkerCount() {
+        return size - freeWorkers.availablePermits();
+    }
+
+    /**
+     * Fraction of total worker time spent running jobs since the pool was created.
+     */
+    public double getUtilisation() {
+        final long elapsed = System.nanoTime() - createdNanos;
+        return elapsed <= 0 ? 0 : busyNanos.get() / ((double) elapsed * size);
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public double getAverageQueueWaitMillis() {
+        final long jobs = completed.get() + failed.get();
+        return jobs == 0 ? 0 : queueWaitNanos.get() / (jobs * 1e6);
+    }
+
+    public double getMaxQueueWaitMillis() {
+        return maxQueueWaitNanos.get() / 1e6;
+    }
+
+    private void runJob(final long sequence, final I input) {
+        final W worker = idleWorkers.poll();
+        O output = null;
+        final long start = System.nanoTime();
+        try {
+            output = job.run(worker, input);
+            completed.incrementAndGet();
+        } catch (final RuntimeException ex) {
+            failed.incrementAndGet();
+        } finally {
+            busyNanos.addAndGet(System.nanoTime() - start);
+            idleWorkers.add(worker);
+            freeWorkers.release();
+        }
+        deliverInOrder(sequence, input, output);
+    }
+
+    private void deliverInOrder(final long sequence, final I input, final O output) {
+        synchronized (reorderBuffer) {
+            reorderBuffer.put(sequence, new Completed<>(input, output));
+            Completed<I, O> next;
+            while ((next = reorderBuffer.remove(nextToDeliver)) != null) {
+                listener.onResult(nextToDeliver, next.input, next.output);
+                nextToDeliver++;
+            }
+        }
+    }
+
+    private static void updateMax(final AtomicLong max, final long value) {
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // Retry until the larger value sticks.
+        }
+    }
+}
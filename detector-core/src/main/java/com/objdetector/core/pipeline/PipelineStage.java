@@ -0,0 +1,100 @@
+package com.objdetector.core.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One stage of a frame pipeline, running on its own thread.
+ *
+ * The stage takes items from its input {@link HandOffSlot}, processes them and offers the result
+ * to its output slot. The processor owns the input item once it is handed over and is
+ * responsible for releasing it; returning null drops the frame at this stage. A terminal stage
+ * has no output slot and its processor's return value is ignored.
+ */
+public class PipelineStage<I, O> {
+    public interface Processor<I, O> {
+        O process(I input);
+    }
+
+    private final String name;
+    private final HandOffSlot<I> input;
+    private final HandOffSlot<O> output;
+    private final Processor<I, O> processor;
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private Thread thread;
+
+    /**
+     * @param output the next hand-off, or null for a terminal stage
+     */
+    public PipelineStage(final String name, final HandOffSlot<I> input, final HandOffSlot<O> output,
+                         final Processor<I, O> processor) {
+        this.name = name;
+        this.input = input;
+        this.output = output;
+        this.processor = processor;
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            throw new IllegalStateException("Stage " + name + " already started.");
+        }
+        thread = new Thread(this::run, name);
+        thread.start();
+    }
+
+    /**
+     * Closes the input slot and waits for the stage thread to finish its current item.
+     */
+    public void stop() throws InterruptedException {
+        input.close();
+        final Thread stageThread;
+        synchronized (this) {
+            stageThread = thread;
+        }
+        if (stageThread != null) {
+            stageThread.join();
+        }
+    }
+
+    private void run() {
+        try {
+            I item;
+            while ((item = input.take()) != null) {
+                final long start = System.nanoTime();
+                final O result = processor.process(item);
+                busyNanos.addAndGet(System.nanoTime() - start);
+                processed.incrementAndGet();
+                if (output == null) {
+                    continue;
+                }
+                if (result == null) {
+                    dropped.incrementAndGet();
+                } else {
+                    output.offer(result);
+                }
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getProcessedCount() {
+        return processed.get();
+    }
+
+    /**
+     * Frames the processor gave up on, not counting frames replaced in the input slot.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getBusyNanos() {
+        return busyNanos.get();
+    }
+}
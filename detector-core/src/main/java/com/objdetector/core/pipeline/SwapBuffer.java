@@ -0,0 +1,62 @@
+package com.objdetector.core.pipeline;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free hand-off of the latest state from one writer thread to one reader thread.
+ *
+ * The writer fills its back item and {@link #publish()}es it, which swaps it with a spare in one
+ * atomic step; the reader's {@link #getFront()} swaps the spare for its front item if a newer one
+ * was published. The spare is what makes it a double buffer without locks: each side only ever
+ * touches its own item, so neither waits for the other, and a reader that falls behind skips
+ * straight to the newest state.
+ */
+public class SwapBuffer<T> {
+    public interface Factory<T> {
+        T create();
+    }
+
+    private static final int INDEX_MASK = 3;
+    // Set on the spare's index when it holds something the reader has not seen.
+    private static final int FRESH = 4;
+
+    private final Object[] items = new Object[3];
+    private final AtomicInteger spare = new AtomicInteger(1);
+    // Confined to the writer and the reader respectively.
+    private int back = 2;
+    private int front = 0;
+
+    public SwapBuffer(final Factory<T> factory) {
+        for (int i = 0; i < items.length; i++) {
+            items[i] = factory.create();
+        }
+    }
+
+    /**
+     * The item the writer fills next; writer thread only.
+     */
+    @SuppressWarnings("unchecked")
+    public T getBack() {
+        return (T) items[back];
+    }
+
+    /**
+     * Hands the back item to the reader and takes the spare as the new back item; writer thread
+     * only.
+     */
+    public void publish() {
+        back = spare.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * The latest published item, or the one returned last time if nothing newer has been
+     * published; reader thread only. It stays the reader's until the next call.
+     */
+    @SuppressWarnings("unchecked")
+    public T getFront() {
+        if ((spare.get() & FRESH) != 0) {
+            front = spare.getAndSet(front) & INDEX_MASK;
+        }
+        return (T) items[front];
+    }
+}
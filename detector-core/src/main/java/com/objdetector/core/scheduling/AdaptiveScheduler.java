@@ -0,0 +1,279 @@
+package com.objdetector.core.scheduling;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Chooses how often frames are inferred, and at which resolution tier, so that a latency budget
+ * holds without running faster than a target frame rate.
+ *
+ * {@link #onFrame()} is called for every camera frame and says whether it should be inferred: one
+ * frame in every {@link #getStride()}. {@link #onInferenceDone(long, long)} feeds back how long a
+ * finished frame took in total and how much of that was inference itself. Once a window of
+ * frames has been collected, the 90th percentile latency is compared to the budget: above it, the
+ * scheduler first moves to a coarser tier and then, if frames spent time waiting, raises the
+ * stride; well below it, it first lowers the stride, never under the one the target frame rate
+ * allows nor so far that the interpreters could no longer keep up, and then moves back to a finer
+ * tier if the latency scaled by the tiers' relative costs would still be well within budget.
+ * Windows do not overlap and a change also discards a partly filled one, so each decision is
+ * based only on frames measured under the previous one.
+ *
+ * Tier 0 is the finest; what a tier means, e.g. an input size, is up to the caller, who gives
+ * each tier's cost relative to the others, e.g. its pixel count. All methods are safe to call
+ * from different threads.
+ */
+public class AdaptiveScheduler {
+    public interface Clock {
+        long nanoTime();
+    }
+
+    public interface DecisionListener {
+        void onDecision(Decision decision);
+    }
+
+    public static final Clock SYSTEM_CLOCK = System::nanoTime;
+
+    public static final class Decision {
+        private final long timeNanos;
+        private final int tier;
+        private final int stride;
+        private final long latencyNanos;
+        private final String reason;
+
+        Decision(final long timeNanos, final int tier, final int stride, final long latencyNanos,
+                 final String reason) {
+            this.timeNanos = timeNanos;
+            this.tier = tier;
+            this.stride = stride;
+            this.latencyNanos = latencyNanos;
+            this.reason = reason;
+        }
+
+        public long getTimeNanos() {
+            return timeNanos;
+        }
+
+        public int getTier() {
+            return tier;
+        }
+
+        public int getStride() {
+            return stride;
+        }
+
+        /**
+         * The 90th percentile latency that led to the decision.
+         */
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "tier=%d stride=%d p90=%.1fms: %s",
+                    tier, stride, latencyNanos / 1e6, reason);
+        }
+    }
+
+    // Latency must fall below this fraction of the budget before work is added back.
+    private static final float RELAX_FRACTION = 0.7f;
+    private static final float OVER_BUDGET_FRACTION = 1.1f;
+    // Frames waiting longer than this fraction of the budget for an interpreter are queueing.
+    private static final float QUEUEING_FRACTION = 0.1f;
+    // Weight of the newest camera frame interval in its moving average.
+    private static final float FRAME_INTERVAL_ALPHA = 0.1f;
+    private static final int MAX_STRIDE = 30;
+
+    private final Clock clock;
+    private final long targetIntervalNanos;
+    private final long latencyBudgetNanos;
+    private final float[] tierCosts;
+    private final int parallelism;
+    private final long[] latencies;
+    private final long[] waits;
+    private final long[] inferences;
+    private DecisionListener listener;
+    private int windowCount;
+    private int windowNext;
+    private int tier;
+    private int stride = 1;
+    private int framesSinceInference;
+    private long lastFrameNanos = -1;
+    private float frameIntervalNanos;
+    private long frameCount;
+    private long skippedCount;
+    private long decisionCount;
+    private Decision lastDecision;
+
+    /**
+     * @param targetFps          highest rate at which frames are inferred
+     * @param latencyBudgetNanos per-frame latency to hold
+     * @param tierCosts          relative cost of each resolution tier, finest first
+     * @param parallelism        number of frames that can be inferred at once
+     * @param windowSize         latencies collected before each decision
+     */
+    public AdaptiveScheduler(final Clock clock, final float targetFps, final long latencyBudgetNanos,
+                             final float[] tierCosts, final int parallelism, final int windowSize) {
+        if (targetFps <= 0 || latencyBudgetNanos <= 0) {
+            throw new IllegalArgumentException("Target frame rate and latency budget must be positive.");
+        }
+        if (tierCosts.length < 1 || parallelism < 1 || windowSize < 1) {
+            throw new IllegalArgumentException("Tier count, parallelism and window size must be at least 1.");
+        }
+        for (final float cost : tierCosts) {
+            if (cost <= 0) {
+                throw new IllegalArgumentException("Tier costs must be positive: " + Arrays.toString(tierCosts));
+            }
+        }
+        this.clock = clock;
+        this.targetIntervalNanos = (long) (1e9 / targetFps);
+        this.latencyBudgetNanos = latencyBudgetNanos;
+        this.tierCosts = tierCosts.clone();
+        this.parallelism = parallelism;
+        this.latencies = new long[windowSize];
+        this.waits = new long[windowSize];
+        this.inferences = new long[windowSize];
+    }
+
+    public synchronized void setDecisionListener(final DecisionListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Records a camera frame.
+     *
+     * @return true if the frame should be inferred
+     */
+    public synchronized boolean onFrame() {
+        final long now = clock.nanoTime();
+        if (lastFrameNanos >= 0) {
+            final long interval = now - lastFrameNanos;
+            frameIntervalNanos = frameIntervalNanos == 0
+                    ? interval
+                    : frameIntervalNanos + FRAME_INTERVAL_ALPHA * (interval - frameIntervalNanos);
+        }
+        lastFrameNanos = now;
+        frameCount++;
+
+        final int minStride = getMinStride();
+        if (stride < minStride) {
+            stride = minStride;
+            decide(now, 0, "camera rate above target frame rate");
+        }
+
+        if (++framesSinceInference >= stride) {
+            framesSinceInference = 0;
+            return true;
+        }
+        skippedCount++;
+        return false;
+    }
+
+    /**
+     * Records a finished frame and adjusts tier and stride once the window is full.
+     *
+     * @param latencyNanos   time from the camera frame to its results
+     * @param inferenceNanos part of that spent running the interpreter
+     */
+    public synchronized void onInferenceDone(final long latencyNanos, final long inferenceNanos) {
+        latencies[windowNext] = latencyNanos;
+        waits[windowNext] = Math.max(0, latencyNanos - inferenceNanos);
+        inferences[windowNext] = inferenceNanos;
+        windowNext = (windowNext + 1) % latencies.length;
+        if (++windowCount < latencies.length) {
+            return;
+        }
+
+        final long p90 = percentile90(latencies);
+        final long p90Wait = percentile90(waits);
+        final long p90Inference = percentile90(inferences);
+        windowCount = 0;
+        windowNext = 0;
+        final long now = clock.nanoTime();
+        if (p90 > latencyBudgetNanos * OVER_BUDGET_FRACTION) {
+            if (tier < tierCosts.length - 1) {
+                tier++;
+                decide(now, p90, "over budget, coarser tier");
+            } else if (stride < MAX_STRIDE && p90Wait > latencyBudgetNanos * QUEUEING_FRACTION) {
+                stride++;
+                decide(now, p90, "over budget, fewer frames");
+            }
+        } else if (p90 < latencyBudgetNanos * RELAX_FRACTION) {
+            if (stride > getMinStride()
+                    && p90Inference / parallelism < (stride - 1) * frameIntervalNanos) {
+                stride--;
+                decide(now, p90, "under budget, more frames");
+            } else if (tier > 0 && p90 * (tierCosts[tier - 1] / tierCosts[tier])
+                    < latencyBudgetNanos * RELAX_FRACTION) {
+                tier--;
+                decide(now, p90, "under budget, finer tier");
+            }
+        }
+    }
+
+    public synchronized int getTier() {
+        return tier;
+    }
+
+    /**
+     * One in this many camera frames is inferred.
+     */
+    public synchronized int getStride() {
+        return stride;
+    }
+
+    public synchronized long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Camera frames not inferred because of the stride.
+     */
+    public synchronized long getSkippedCount() {
+        return skippedCount;
+    }
+
+    public synchronized long getDecisionCount() {
+        return decisionCount;
+    }
+
+    /**
+     * The latest change of tier or stride, or null if there has been none.
+     */
+    public synchronized Decision getLastDecision() {
+        return lastDecision;
+    }
+
+    /**
+     * Smallest stride that keeps the inference rate at or below the target frame rate.
+     */
+    private int getMinStride() {
+        if (frameIntervalNanos <= 0) {
+            return 1;
+        }
+        return Math.max(1, Math.min(MAX_STRIDE, (int) Math.ceil(targetIntervalNanos / frameIntervalNanos - 1e-3)));
+    }
+
+    /**
+     * 90th percentile of a full window, sorting it in place; windows do not overlap, so the
+     * order is not needed afterwards.
+     */
+    private static long percentile90(final long[] values) {
+        Arrays.sort(values);
+        return values[(int) Math.ceil(0.9 * values.length) - 1];
+    }
+
+    private void decide(final long now, final long latencyNanos, final String reason) {
+        windowCount = 0;
+        windowNext = 0;
+        decisionCount++;
+        lastDecision = new Decision(now, tier, stride, latencyNanos, reason);
+        if (listener != null) {
+            listener.onDecision(lastDecision);
+        }
+    }
+}
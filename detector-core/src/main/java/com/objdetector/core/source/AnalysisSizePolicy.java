@@ -0,0 +1,110 @@
+package com.objdetector.core.source;
+
+/**
+ * Picks the size of the camera's analysis stream independently of the preview shown on screen.
+ *
+ * The frames the detector reads only need enough pixels for the model input, or for each tile of
+ * a tiled frame, so the policy takes the smallest supported YUV size that still has them once
+ * the frame is turned upright. Only sizes with the preview's aspect ratio qualify: the camera
+ * crops each aspect ratio differently from the sensor, and a stream of another shape would see a
+ * different field of view than the boxes are drawn over.
+ */
+public final class AnalysisSizePolicy {
+    // Sizes whose aspect ratios differ by less than this show the same field of view; camera
+    // sizes are rounded to multiples of 8 or 16, e.g. 1920x1088 for 16:9.
+    private static final float ASPECT_TOLERANCE = 0.02f;
+
+    private final int requiredWidth;
+    private final int requiredHeight;
+
+    /**
+     * @param requiredWidth  pixels the upright frame needs across
+     * @param requiredHeight pixels the upright frame needs down
+     */
+    public AnalysisSizePolicy(final int requiredWidth, final int requiredHeight) {
+        if (requiredWidth < 1 || requiredHeight < 1) {
+            throw new IllegalArgumentException("Required size must be positive: " + requiredWidth + "x"
+                    + requiredHeight);
+        }
+        this.requiredWidth = requiredWidth;
+        this.requiredHeight = requiredHeight;
+    }
+
+    /**
+     * Pixels a frame needs along one axis so that each of {@code tiles} tiles overlapping by
+     * {@code overlap}, laid out as by {@link com.objdetector.core.geometry.TileGrid}, has
+     * {@code modelExtent} of them; {@code modelExtent} itself for a single tile.
+     */
+    public static int tiledExtent(final int modelExtent, final int tiles, final float overlap) {
+        return (int) Math.ceil(modelExtent * (tiles - (tiles - 1) * overlap));
+    }
+
+    public int getRequiredWidth() {
+        return requiredWidth;
+    }
+
+    public int getRequiredHeight() {
+        return requiredHeight;
+    }
+
+    /**
+     * Picks from the supported sizes, given as parallel arrays.
+     *
+     * @param rotation clockwise rotation in degrees that turns frames upright
+     * @return index of the chosen size, or -1 if none with the preview's aspect ratio is large
+     * enough
+     */
+    public int choose(final int[] widths, final int[] heights, final int previewWidth, final int previewHeight,
+                      final int rotation) {
+        if (widths.length != heights.length) {
+            throw new IllegalArgumentException("Got " + widths.length + " widths and " + heights.length
+                    + " heights");
+        }
+        final boolean transposed = rotation % 180 != 0;
+        final float previewAspect = previewWidth / (float) previewHeight;
+        int chosen = -1;
+        for (int i = 0; i < widths.length; i++) {
+            final int uprightWidth = transposed ? heights[i] : widths[i];
+            final int uprightHeight = transposed ? widths[i] : heights[i];
+            if (uprightWidth < requiredWidth || uprightHeight < requiredHeight) {
+                continue;
+            }
+            final float aspect = widths[i] / (float) heights[i];
+            if (Math.abs(aspect / previewAspect - 1f) > ASPECT_TOLERANCE) {
+                continue;
+            }
+            if (chosen < 0 || (long) widths[i] * heights[i] < (long) widths[chosen] * heights[chosen]) {
+                chosen = i;
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Bytes of one YUV_420_888 frame without row padding.
+     */
+    public static long frameBytes(final int width, final int height) {
+        return (long) width * height + 2L * ((width + 1) / 2) * ((height + 1) / 2);
+    }
+
+    /**
+     * What the analysis stream saves over reading frames at the preview size, for logs.
+     *
+     * @param bufferedFrames images the stream's reader holds at most
+     */
+    public static String describeSavings(final int previewWidth, final int previewHeight, final int analysisWidth,
+                                         final int analysisHeight, final int bufferedFrames) {
+        final long previewBytes = frameBytes(previewWidth, previewHeight);
+        final long analysisBytes = frameBytes(analysisWidth, analysisHeight);
+        return String.format("analysis %dx%d instead of %dx%d: %.2fMB instead of %.2fMB per frame, %.1fMB less"
+                        + " for %d buffered frames, %.1fx fewer pixels",
+                analysisWidth, analysisHeight, previewWidth, previewHeight, analysisBytes / 1e6, previewBytes / 1e6,
+                (previewBytes - analysisBytes) * bufferedFrames / 1e6, bufferedFrames,
+                previewBytes / (double) analysisBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "AnalysisSizePolicy{upright >= " + requiredWidth + "x" + requiredHeight + "}";
+    }
+}
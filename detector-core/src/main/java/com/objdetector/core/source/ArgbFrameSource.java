@@ -0,0 +1,90 @@
+package com.objdetector.core.source;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A source of RGB images, e.g. decoded stills, delivered as the planar 4:2:0 frames the rest of the
+ * pipeline reads. Each image is converted with the BT.601 limited-range matrix, the inverse of the
+ * one the YUV converters use, averaging chroma over each 2x2 block.
+ */
+public abstract class ArgbFrameSource extends PulledFrameSource {
+    private final int chromaWidth;
+    private final int chromaHeight;
+    // Only touched by the source thread.
+    private final int[] argb;
+
+    protected ArgbFrameSource(final String name, final int width, final int height, final int bufferCount) {
+        super(name, width, height, 0, bufferCount);
+        this.chromaWidth = (width + 1) / 2;
+        this.chromaHeight = (height + 1) / 2;
+        this.argb = new int[width * height];
+    }
+
+    /**
+     * Fills {@code argb} with the next image's {@code getWidth() * getHeight()} pixels, row by row.
+     *
+     * @param index images read before this one, counting from the start across rewinds
+     * @return false at the end of the input
+     */
+    protected abstract boolean readArgb(int[] argb, long index) throws IOException;
+
+    /**
+     * Timestamp of image {@code index}.
+     */
+    protected abstract long getTimestampNanos(long index);
+
+    @Override
+    protected final boolean read(final SourceFrame frame, final long index) throws IOException {
+        if (!readArgb(argb, index)) {
+            return false;
+        }
+        final ByteBuffer y = reuse(frame.getY(), getWidth() * getHeight());
+        final ByteBuffer u = reuse(frame.getU(), chromaWidth * chromaHeight);
+        final ByteBuffer v = reuse(frame.getV(), chromaWidth * chromaHeight);
+        toI420(argb, getWidth(), getHeight(), y, u, v);
+        frame.set(y, u, v, getWidth(), getHeight(), getWidth(), chromaWidth, 1, getTimestampNanos(index));
+        return true;
+    }
+
+    /**
+     * Converts ARGB pixels into planar Y, U and V with absolute puts; chroma planes are
+     * {@code (width + 1) / 2} samples wide.
+     */
+    static void toI420(final int[] argb, final int width, final int height,
+                       final ByteBuffer y, final ByteBuffer u, final ByteBuffer v) {
+        final int chromaWidth = (width + 1) / 2;
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                final int pixel = argb[row * width + col];
+                final int r = (pixel >> 16) & 0xff;
+                final int g = (pixel >> 8) & 0xff;
+                final int b = pixel & 0xff;
+                y.put(row * width + col, (byte) (((66 * r + 129 * g + 25 * b + 128) >> 8) + 16));
+            }
+        }
+        for (int row = 0; row < height; row += 2) {
+            for (int col = 0; col < width; col += 2) {
+                int r = 0;
+                int g = 0;
+                int b = 0;
+                int count = 0;
+                for (int dy = 0; dy < 2 && row + dy < height; dy++) {
+                    for (int dx = 0; dx < 2 && col + dx < width; dx++) {
+                        final int pixel = argb[(row + dy) * width + col + dx];
+                        r += (pixel >> 16) & 0xff;
+                        g += (pixel >> 8) & 0xff;
+                        b += pixel & 0xff;
+                        count++;
+                    }
+                }
+                r /= count;
+                g /= count;
+                b /= count;
+                final int index = (row / 2) * chromaWidth + col / 2;
+                u.put(index, (byte) (((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128));
+                v.put(index, (byte) (((112 * r - 94 * g - 18 * b + 128) >> 8) + 128));
+            }
+        }
+    }
+}
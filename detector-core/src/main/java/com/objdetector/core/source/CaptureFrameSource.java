@@ -0,0 +1,75 @@
+package com.objdetector.core.source;
+
+import com.objdetector.core.capture.CaptureReader;
+import com.objdetector.core.image.YuvFrame;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Delivers the frames of a capture recorded by a
+ * {@link com.objdetector.core.capture.CaptureRecorder}, with their recorded strides and
+ * timestamps. Frames are views of the reader's memory mapping, so nothing is copied.
+ *
+ * Camera frames are recorded as the sensor sees them, so the capture carries no rotation of its
+ * own; it is given when opening, normally the recording device's sensor orientation.
+ */
+public class CaptureFrameSource extends PulledFrameSource {
+    private final CaptureReader reader;
+    private long timestampOffset;
+    private final long firstTimestamp;
+    private long lastTimestamp;
+
+    private CaptureFrameSource(final CaptureReader reader, final YuvFrame first, final int rotation,
+                               final int bufferCount) {
+        super(reader.getDirectory().getName(), first.getWidth(), first.getHeight(), rotation, bufferCount);
+        this.reader = reader;
+        this.firstTimestamp = first.getTimestampNanos();
+    }
+
+    /**
+     * Opens the capture in {@code directory}, sized from its first frame.
+     *
+     * @throws IOException if it holds no frames
+     */
+    public static CaptureFrameSource open(final File directory, final int rotation, final int bufferCount)
+            throws IOException {
+        final CaptureReader reader = new CaptureReader(directory);
+        try {
+            final YuvFrame first = new YuvFrame();
+            if (!reader.next(first)) {
+                throw new IOException("No frames in " + directory);
+            }
+            reader.rewind();
+            return new CaptureFrameSource(reader, first, rotation, bufferCount);
+        } catch (final IOException | RuntimeException ex) {
+            reader.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    protected boolean read(final SourceFrame frame, final long index) throws IOException {
+        if (!reader.next(frame)) {
+            return false;
+        }
+        lastTimestamp = frame.getTimestampNanos() + timestampOffset;
+        frame.set(frame.getY(), frame.getU(), frame.getV(), frame.getWidth(), frame.getHeight(),
+                frame.getYRowStride(), frame.getUvRowStride(), frame.getUvPixelStride(), lastTimestamp);
+        return true;
+    }
+
+    /**
+     * Starts the capture again, with timestamps carrying on from the last frame delivered.
+     */
+    @Override
+    protected void rewind() {
+        reader.rewind();
+        timestampOffset = lastTimestamp - firstTimestamp + 1;
+    }
+
+    @Override
+    protected void closeInput() {
+        reader.close();
+    }
+}
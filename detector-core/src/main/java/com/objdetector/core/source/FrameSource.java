@@ -0,0 +1,46 @@
+package com.objdetector.core.source;
+
+import java.io.Closeable;
+
+/**
+ * Where the pipeline's YUV_420_888 frames come from: the camera, a recorded capture, a video or
+ * image file, or a generated pattern. All of them hand out the same {@link SourceFrame}s, so the
+ * processing downstream cannot tell a live camera from a file read as fast as it keeps up.
+ *
+ * Frames are pooled by the source. A file source that runs out of free frames waits for one to
+ * be closed, so it is held to the pace of its consumer; the camera drops the frame instead.
+ */
+public interface FrameSource extends Closeable {
+    interface FrameListener {
+        /**
+         * Called on the source's thread, one frame at a time. The listener owns {@code frame} and
+         * must close it, though not necessarily before returning.
+         */
+        void onFrame(SourceFrame frame);
+    }
+
+    int getWidth();
+
+    int getHeight();
+
+    /**
+     * Clockwise rotation in degrees that turns the frames upright.
+     */
+    int getRotation();
+
+    /**
+     * Starts delivering frames to {@code listener}. A source can be started once.
+     */
+    void start(FrameListener listener);
+
+    /**
+     * Frames handed to the listener so far.
+     */
+    long getDeliveredCount();
+
+    /**
+     * Stops delivering frames. Frames already delivered stay valid until they are closed.
+     */
+    @Override
+    void close();
+}
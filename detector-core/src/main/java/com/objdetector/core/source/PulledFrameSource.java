@@ -0,0 +1,249 @@
+package com.objdetector.core.source;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link FrameSource} that reads frames on its own thread, for sources that produce frames on
+ * demand rather than on the sensor's schedule.
+ *
+ * The thread takes a free frame, has the subclass {@link #read} into it and hands it to the
+ * listener. With every frame out it waits for one to be closed, so by default frames are delivered
+ * as fast as the consumer takes them; {@link #setFrameRate} caps the rate instead. Subclasses reuse
+ * a frame's plane buffers from one fill to the next.
+ */
+public abstract class PulledFrameSource implements FrameSource {
+    private final String name;
+    private final int width;
+    private final int height;
+    private final int rotation;
+    private final ArrayBlockingQueue<SourceFrame> free;
+    private final AtomicLong delivered = new AtomicLong();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile boolean looping;
+    private volatile long frameIntervalNanos;
+    private volatile boolean closed;
+    private volatile Exception failure;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private Thread thread;
+    private boolean inputClosed;
+
+    /**
+     * @param bufferCount frames that can be out at once, e.g. one waiting, one being processed
+     *                    and one being read
+     */
+    protected PulledFrameSource(final String name, final int width, final int height, final int rotation,
+                                final int bufferCount) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Frame size must be positive: " + width + "x" + height);
+        }
+        if (bufferCount < 1) {
+            throw new IllegalArgumentException("Buffer count must be at least 1: " + bufferCount);
+        }
+        this.name = name;
+        this.width = width;
+        this.height = height;
+        this.rotation = rotation;
+        this.free = new ArrayBlockingQueue<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            free.add(new SourceFrame(this::recycle));
+        }
+    }
+
+    /**
+     * Fills {@code frame} with the next frame.
+     *
+     * @param index frames read before this one, counting from the start across rewinds
+     * @return false at the end of the input
+     */
+    protected abstract boolean read(SourceFrame frame, long index) throws IOException;
+
+    /**
+     * Goes back to the first frame, for looping.
+     */
+    protected abstract void rewind() throws IOException;
+
+    /**
+     * Releases the input once no more frames will be read.
+     */
+    protected void closeInput() throws IOException {
+    }
+
+    /**
+     * Starts again from the first frame at the end of the input instead of finishing.
+     */
+    public void setLooping(final boolean looping) {
+        this.looping = looping;
+    }
+
+    /**
+     * Caps delivery at {@code framesPerSecond}; 0, the default, delivers as fast as frames are
+     * closed.
+     */
+    public void setFrameRate(final float framesPerSecond) {
+        if (framesPerSecond < 0 || Float.isNaN(framesPerSecond)) {
+            throw new IllegalArgumentException("Frame rate must not be negative: " + framesPerSecond);
+        }
+        frameIntervalNanos = framesPerSecond == 0 ? 0 : (long) (1e9 / framesPerSecond);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getRotation() {
+        return rotation;
+    }
+
+    @Override
+    public synchronized void start(final FrameListener listener) {
+        if (thread != null || closed) {
+            throw new IllegalStateException("Source " + name + " already started.");
+        }
+        thread = new Thread(() -> run(listener), "frame-source");
+        thread.start();
+    }
+
+    private void run(final FrameListener listener) {
+        startNanos = System.nanoTime();
+        long index = 0;
+        try {
+            while (!closed) {
+                final SourceFrame frame = free.take();
+                boolean read = read(frame, index);
+                if (!read && looping && index > 0) {
+                    rewind();
+                    read = read(frame, index);
+                }
+                if (!read) {
+                    free.add(frame);
+                    break;
+                }
+                index++;
+                final long interval = frameIntervalNanos;
+                if (interval > 0) {
+                    final long wait = startNanos + (delivered.get() * interval) - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                }
+                delivered.incrementAndGet();
+                listener.onFrame(frame);
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (final IOException | RuntimeException ex) {
+            // Reads interrupted by close() fail too; only failures while running count
+            if (!closed) {
+                failure = ex;
+            }
+        } finally {
+            endNanos = System.nanoTime();
+            closeInputOnce();
+            finished.countDown();
+        }
+    }
+
+    private void recycle(final SourceFrame frame) {
+        if (!free.offer(frame)) {
+            throw new IllegalStateException("Frame closed more often than it was delivered.");
+        }
+    }
+
+    /**
+     * Waits for the end of the input, which a looping source never reaches unless it fails. The
+     * end is found by trying to read one more frame, so it needs a free frame like any read.
+     *
+     * @return false on timeout
+     */
+    public boolean awaitCompletion(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    /**
+     * What stopped the source before the end of its input, or null.
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    @Override
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /**
+     * Delivered frames per second from the start until now or the end of the input.
+     */
+    public double getDeliveredFramesPerSecond() {
+        final long start = startNanos;
+        if (start == 0) {
+            return 0;
+        }
+        final long end = finished.getCount() == 0 ? endNanos : System.nanoTime();
+        return end > start ? delivered.get() * 1e9 / (end - start) : 0;
+    }
+
+    @Override
+    public void close() {
+        final Thread sourceThread;
+        synchronized (this) {
+            closed = true;
+            sourceThread = thread;
+        }
+        if (sourceThread == null) {
+            closeInputOnce();
+            return;
+        }
+        sourceThread.interrupt();
+        try {
+            sourceThread.join();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void closeInputOnce() {
+        if (inputClosed) {
+            return;
+        }
+        inputClosed = true;
+        try {
+            closeInput();
+        } catch (final IOException ex) {
+            if (failure == null) {
+                failure = ex;
+            }
+        }
+    }
+
+    /**
+     * Returns {@code buffer} cleared if it holds {@code capacity} bytes, else a new direct buffer.
+     */
+    protected static ByteBuffer reuse(final ByteBuffer buffer, final int capacity) {
+        if (buffer != null && buffer.capacity() == capacity && buffer.isDirect()) {
+            buffer.clear();
+            return buffer;
+        }
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + width + "x" + height + " delivered=" + delivered.get()
+                + String.format(" (%.1f fps)", getDeliveredFramesPerSecond())
+                + (failure == null ? "" : " failed: " + failure);
+    }
+}
@@ -0,0 +1,39 @@
+package com.objdetector.core.source;
+
+import com.objdetector.core.image.YuvFrame;
+
+import java.io.Closeable;
+
+/**
+ * A frame handed out by a {@link FrameSource}. Whoever holds it closes it once done with the
+ * planes, which gives them back to the source to be refilled.
+ */
+public class SourceFrame extends YuvFrame implements Closeable {
+    public interface Recycler {
+        void recycle(SourceFrame frame);
+    }
+
+    private final Recycler recycler;
+    private long captureNanos;
+
+    public SourceFrame(final Recycler recycler) {
+        this.recycler = recycler;
+    }
+
+    /**
+     * Capture time on the {@link System#nanoTime()} clock, as set by the consumer, e.g. so latency
+     * counts the time the frame waited before being processed.
+     */
+    public long getCaptureNanos() {
+        return captureNanos;
+    }
+
+    public void setCaptureNanos(final long captureNanos) {
+        this.captureNanos = captureNanos;
+    }
+
+    @Override
+    public void close() {
+        recycler.recycle(this);
+    }
+}
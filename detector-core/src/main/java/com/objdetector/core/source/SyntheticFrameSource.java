@@ -0,0 +1,124 @@
+package com.objdetector.core.source;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Generates planar 4:2:0 frames of a fixed gradient with a coloured square bouncing across it, so
+ * every frame differs from the last. Needs no files and costs little more than copying the planes,
+ * which makes it the source for soak tests and for measuring the pipeline's own ceiling.
+ */
+public class SyntheticFrameSource extends PulledFrameSource {
+    private static final int MIN_SIZE = 8;
+    private static final long FRAME_INTERVAL_NANOS = 33_333_333L;
+    private static final int SQUARE_Y = 200;
+    private static final byte SQUARE_U = (byte) 90;
+    private static final byte SQUARE_V = (byte) 240;
+    private static final byte NEUTRAL_CHROMA = (byte) 128;
+
+    private final long frameCount;
+    private final int chromaWidth;
+    private final int chromaHeight;
+    private final int squareSize;
+    private final int squareStep;
+    private final byte[] background;
+    private final byte[] neutralChroma;
+    private final byte[] squareRow;
+    private final byte[] squareURow;
+    private final byte[] squareVRow;
+    // Frames since the start or the last rewind.
+    private long position;
+
+    /**
+     * @param frameCount frames before the source ends or loops, or 0 for no end
+     */
+    public SyntheticFrameSource(final int width, final int height, final long frameCount, final int bufferCount) {
+        super("synthetic", width, height, 0, bufferCount);
+        if (width < MIN_SIZE || height < MIN_SIZE) {
+            throw new IllegalArgumentException("Synthetic frames must be at least " + MIN_SIZE + " pixels a side: "
+                    + width + "x" + height);
+        }
+        if (frameCount < 0) {
+            throw new IllegalArgumentException("Frame count must not be negative: " + frameCount);
+        }
+        this.frameCount = frameCount;
+        this.chromaWidth = (width + 1) / 2;
+        this.chromaHeight = (height + 1) / 2;
+        // Even, so the square covers whole chroma samples
+        this.squareSize = Math.min(width, height) / 4 & ~1;
+        this.squareStep = Math.max(2, width / 60 & ~1);
+        this.background = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                background[y * width + x] = (byte) (32 + 160 * (x + y) / (width + height));
+            }
+        }
+        this.neutralChroma = new byte[chromaWidth * chromaHeight];
+        Arrays.fill(neutralChroma, NEUTRAL_CHROMA);
+        this.squareRow = filled(squareSize, (byte) SQUARE_Y);
+        this.squareURow = filled(squareSize / 2, SQUARE_U);
+        this.squareVRow = filled(squareSize / 2, SQUARE_V);
+    }
+
+    private static byte[] filled(final int length, final byte value) {
+        final byte[] row = new byte[length];
+        Arrays.fill(row, value);
+        return row;
+    }
+
+    @Override
+    protected boolean read(final SourceFrame frame, final long index) {
+        if (frameCount > 0 && position == frameCount) {
+            return false;
+        }
+        position++;
+        final int width = getWidth();
+        final ByteBuffer y = reuse(frame.getY(), background.length);
+        final ByteBuffer u = reuse(frame.getU(), neutralChroma.length);
+        final ByteBuffer v = reuse(frame.getV(), neutralChroma.length);
+        y.put(background);
+        u.put(neutralChroma);
+        v.put(neutralChroma);
+
+        final int left = squareLeft(index);
+        final int top = (getHeight() - squareSize) / 2 & ~1;
+        for (int row = 0; row < squareSize; row++) {
+            y.position((top + row) * width + left);
+            y.put(squareRow);
+        }
+        for (int row = 0; row < squareSize / 2; row++) {
+            final int offset = (top / 2 + row) * chromaWidth + left / 2;
+            u.position(offset);
+            u.put(squareURow);
+            v.position(offset);
+            v.put(squareVRow);
+        }
+        y.clear();
+        u.clear();
+        v.clear();
+        frame.set(y, u, v, width, getHeight(), width, chromaWidth, 1, index * FRAME_INTERVAL_NANOS);
+        return true;
+    }
+
+    /**
+     * Left edge of the square in frame {@code index}, moving back and forth across the frame.
+     */
+    int squareLeft(final long index) {
+        final int range = (getWidth() - squareSize) & ~1;
+        if (range == 0) {
+            return 0;
+        }
+        final long travelled = index * squareStep % (2L * range);
+        return (int) (travelled <= range ? travelled : 2L * range - travelled) & ~1;
+    }
+
+    int getSquareSize() {
+        return squareSize;
+    }
+
+    @Override
+    protected void rewind() {
+        // The pattern follows the index, which keeps counting, so it carries on moving
+        position = 0;
+    }
+}
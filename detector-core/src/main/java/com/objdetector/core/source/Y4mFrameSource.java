@@ -0,0 +1,186 @@
+package com.objdetector.core.source;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the frames of a YUV4MPEG2 (.y4m) video, the uncompressed format ffmpeg writes with
+ * {@code -pix_fmt yuv420p -f yuv4mpegpipe}. Only 8-bit 4:2:0 colour spaces are read; their
+ * planes go straight into the frame buffers with one positional read each.
+ */
+public class Y4mFrameSource extends PulledFrameSource {
+    private static final String SIGNATURE = "YUV4MPEG2";
+    private static final String FRAME_MARKER = "FRAME";
+    // Header and frame lines are a few dozen bytes; longer ones are not a y4m file.
+    private static final int MAX_LINE_BYTES = 1024;
+    // 8-bit 4:2:0 colour spaces, differing only in chroma siting; 420p10 and the like store two
+    // bytes a sample.
+    private static final List<String> COLOUR_SPACES = Arrays.asList("420", "420jpeg", "420paldv", "420mpeg2");
+
+    private final File file;
+    private final FileChannel channel;
+    private final long firstFrameOffset;
+    private final long frameIntervalNanos;
+    private final int chromaWidth;
+    private final int chromaHeight;
+    private final ByteBuffer line = ByteBuffer.allocate(MAX_LINE_BYTES);
+    private long position;
+
+    private Y4mFrameSource(final File file, final FileChannel channel, final Header header, final int bufferCount) {
+        super(file.getName(), header.width, header.height, 0, bufferCount);
+        this.file = file;
+        this.channel = channel;
+        this.firstFrameOffset = header.length;
+        this.frameIntervalNanos = header.frameIntervalNanos;
+        this.chromaWidth = (header.width + 1) / 2;
+        this.chromaHeight = (header.height + 1) / 2;
+        this.position = firstFrameOffset;
+    }
+
+    private static final class Header {
+        int width;
+        int height;
+        long frameIntervalNanos = 1_000_000_000L / 30;
+        String colourSpace = "420jpeg";
+        long length;
+    }
+
+    /**
+     * Opens {@code file} and reads its stream header.
+     *
+     * @throws IOException if it is not an 8-bit 4:2:0 y4m file
+     */
+    public static Y4mFrameSource open(final File file, final int bufferCount) throws IOException {
+        final FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+        try {
+            return new Y4mFrameSource(file, channel, readHeader(file, channel), bufferCount);
+        } catch (final IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    private static Header readHeader(final File file, final FileChannel channel) throws IOException {
+        final String line = readLine(channel, 0, ByteBuffer.allocate(MAX_LINE_BYTES));
+        if (line == null || !line.startsWith(SIGNATURE + " ")) {
+            throw new IOException(file + " is not a y4m file");
+        }
+        final Header header = new Header();
+        header.length = line.length() + 1;
+        for (final String parameter : line.substring(SIGNATURE.length() + 1).split(" ")) {
+            if (parameter.isEmpty()) {
+                continue;
+            }
+            final String value = parameter.substring(1);
+            try {
+                switch (parameter.charAt(0)) {
+                    case 'W':
+                        header.width = Integer.parseInt(value);
+                        break;
+                    case 'H':
+                        header.height = Integer.parseInt(value);
+                        break;
+                    case 'F':
+                        final int colon = value.indexOf(':');
+                        final long numerator = Long.parseLong(value.substring(0, colon));
+                        final long denominator = Long.parseLong(value.substring(colon + 1));
+                        if (numerator > 0 && denominator > 0) {
+                            header.frameIntervalNanos = 1_000_000_000L * denominator / numerator;
+                        }
+                        break;
+                    case 'C':
+                        header.colourSpace = value;
+                        break;
+                    default:
+                        // Interlacing, aspect ratio and extensions do not change the planes
+                        break;
+                }
+            } catch (final NumberFormatException | StringIndexOutOfBoundsException ex) {
+                throw new IOException(file + " has a malformed header parameter: " + parameter);
+            }
+        }
+        if (header.width < 1 || header.height < 1) {
+            throw new IOException(file + " has no frame size");
+        }
+        if (!COLOUR_SPACES.contains(header.colourSpace)) {
+            throw new IOException(file + " has unsupported colour space " + header.colourSpace
+                    + "; only 8-bit 4:2:0 is read");
+        }
+        return header;
+    }
+
+    /**
+     * Reads the line starting at {@code offset}, without its newline.
+     *
+     * @return null at the end of the file
+     */
+    private static String readLine(final FileChannel channel, final long offset, final ByteBuffer buffer)
+            throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) > 0) {
+            for (int i = 0; i < buffer.position(); i++) {
+                if (buffer.get(i) == '\n') {
+                    return new String(buffer.array(), 0, i, StandardCharsets.US_ASCII);
+                }
+            }
+        }
+        if (buffer.position() == 0) {
+            return null;
+        }
+        throw new IOException("Line at byte " + offset + " is unterminated or longer than "
+                + MAX_LINE_BYTES + " bytes");
+    }
+
+    @Override
+    protected boolean read(final SourceFrame frame, final long index) throws IOException {
+        final String marker = readLine(channel, position, line);
+        if (marker == null) {
+            return false;
+        }
+        if (!marker.startsWith(FRAME_MARKER)) {
+            throw new IOException(file + " has no frame marker at byte " + position);
+        }
+        position += marker.length() + 1;
+        final int width = getWidth();
+        final ByteBuffer y = readPlane(frame.getY(), width * getHeight());
+        final ByteBuffer u = readPlane(frame.getU(), chromaWidth * chromaHeight);
+        final ByteBuffer v = readPlane(frame.getV(), chromaWidth * chromaHeight);
+        frame.set(y, u, v, width, getHeight(), width, chromaWidth, 1, index * frameIntervalNanos);
+        return true;
+    }
+
+    private ByteBuffer readPlane(final ByteBuffer reused, final int length) throws IOException {
+        final ByteBuffer plane = reuse(reused, length);
+        while (plane.hasRemaining()) {
+            if (channel.read(plane, position + plane.position()) < 0) {
+                throw new IOException(file + " ends inside a frame at byte " + (position + plane.position()));
+            }
+        }
+        position += length;
+        plane.flip();
+        return plane;
+    }
+
+    @Override
+    protected void rewind() {
+        position = firstFrameOffset;
+    }
+
+    /**
+     * The stream's frame interval from its header, 30 fps if it has none.
+     */
+    public long getFrameIntervalNanos() {
+        return frameIntervalNanos;
+    }
+
+    @Override
+    protected void closeInput() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,111 @@
+package com.objdetector.core.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, in the style of HdrHistogram.
+ *
+ * Latencies are counted in whole microseconds. Below 32us every value has its own bucket; above,
+ * each power of two is split into 16 buckets, so a percentile is within about 3% of the true
+ * value whatever its magnitude, up to about 35 minutes. Recording is a handful of atomic increments
+ * with no locks or allocation, so any number of threads can record while another reads.
+ * Readers see a consistent enough picture for monitoring but not an atomic snapshot.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    private static final long MAX_MICROS = (1L << 31) - 1;
+    private static final int BUCKETS = bucketOf(MAX_MICROS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void record(final long nanos) {
+        final long micros = Math.min(MAX_MICROS, Math.max(0L, nanos / 1000));
+        counts.incrementAndGet(bucketOf(micros));
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        long max = maxMicros.get();
+        while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+            max = maxMicros.get();
+        }
+    }
+
+    static int bucketOf(final long micros) {
+        if (micros < LINEAR_LIMIT) {
+            return (int) micros;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((micros >> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * The middle of the range of values counted in {@code bucket}.
+     */
+    static double valueOf(final int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKETS - 1;
+        final long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + ((1L << shift) - 1) / 2.0;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getMeanMillis() {
+        final long n = count.get();
+        return n == 0 ? 0 : totalMicros.get() / (double) n / 1e3;
+    }
+
+    public double getMaxMillis() {
+        return maxMicros.get() / 1e3;
+    }
+
+    /**
+     * Nearest-rank percentile, e.g. 99 for the 99th.
+     */
+    public double getPercentileMillis(final double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be in [0, 100]: " + percentile);
+        }
+        final long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(valueOf(bucket), maxMicros.get()) / 1e3;
+            }
+        }
+        // Recorded concurrently with the count being read.
+        return getMaxMillis();
+    }
+
+    /**
+     * Forgets every recorded value; values recorded meanwhile may be partly kept.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts.set(bucket, 0);
+        }
+        count.set(0);
+        totalMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms", getCount(),
+                getPercentileMillis(50), getPercentileMillis(95), getPercentileMillis(99), getMaxMillis());
+    }
+}
@@ -0,0 +1,81 @@
+package com.objdetector.core.stats;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-capacity list of latency samples in nanoseconds, summarised by percentile.
+ *
+ * Samples past the capacity are ignored. Not thread safe.
+ */
+public class LatencySamples {
+    private final long[] samples;
+    private int count;
+    private boolean sorted = true;
+
+    public LatencySamples(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        this.samples = new long[capacity];
+    }
+
+    public void add(final long nanos) {
+        if (count == samples.length) {
+            return;
+        }
+        samples[count++] = nanos;
+        sorted = false;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void clear() {
+        count = 0;
+        sorted = true;
+    }
+
+    public double getMeanMillis() {
+        if (count == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += samples[i];
+        }
+        return total / (double) count / 1e6;
+    }
+
+    /**
+     * Nearest-rank percentile, e.g. 50 for the median.
+     */
+    public double getPercentileMillis(final double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be in [0, 100]: " + percentile);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        if (!sorted) {
+            Arrays.sort(samples, 0, count);
+            sorted = true;
+        }
+        final int rank = (int) Math.ceil(percentile / 100.0 * count);
+        return samples[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    public double getMinMillis() {
+        return getPercentileMillis(0);
+    }
+
+    public double getMaxMillis() {
+        return getPercentileMillis(100);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.2fms p50=%.2fms p90=%.2fms max=%.2fms",
+                count, getMeanMillis(), getPercentileMillis(50), getPercentileMillis(90), getMaxMillis());
+    }
+}
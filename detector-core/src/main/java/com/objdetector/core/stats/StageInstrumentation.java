@@ -0,0 +1,97 @@
+package com.objdetector.core.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histograms and drop counts for each stage a camera frame goes through, from the sensor
+ * to the overlay.
+ *
+ * Every record is lock free, so stages on different threads never contend. Whoever owns the
+ * stages holds a nullable reference to one of these and skips timing altogether when it is null,
+ * so turning instrumentation off costs one field read per stage.
+ */
+public class StageInstrumentation {
+    public enum Stage {
+        /** Sensor exposure to the frame being handed to the pipeline. */
+        ACQUIRE("acquire"),
+        /** Rotating, scaling and converting the frame into the input tensor, in one fused pass. */
+        PREPROCESS("preprocess"),
+        /** One interpreter run. */
+        INFERENCE("inference"),
+        /** Decoding, NMS, tile merging and tracking. */
+        POST_PROCESS("postprocess"),
+        /** Drawing the overlay. */
+        DRAW("draw"),
+        /** Sensor exposure to the frame's boxes first being drawn. */
+        END_TO_END("end-to-end");
+
+        private final String label;
+
+        Stage(final String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+    private final AtomicLongArray drops = new AtomicLongArray(STAGES.length);
+
+    public StageInstrumentation() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void record(final Stage stage, final long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * Counts a frame given up on at {@code stage}, e.g. replaced by a newer one while waiting.
+     */
+    public void recordDrop(final Stage stage) {
+        drops.incrementAndGet(stage.ordinal());
+    }
+
+    public LatencyHistogram getHistogram(final Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public long getDropCount(final Stage stage) {
+        return drops.get(stage.ordinal());
+    }
+
+    public void reset() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i].reset();
+            drops.set(i, 0);
+        }
+    }
+
+    /**
+     * One line per stage with its percentiles and drops, for logs, dumps and the HUD.
+     */
+    public String report() {
+        final StringBuilder report = new StringBuilder();
+        for (final Stage stage : STAGES) {
+            final LatencyHistogram histogram = histograms[stage.ordinal()];
+            if (report.length() > 0) {
+                report.append('\n');
+            }
+            report.append(String.format("%-11s p50=%6.1fms p95=%6.1fms p99=%6.1fms n=%d drops=%d",
+                    stage.getLabel(), histogram.getPercentileMillis(50), histogram.getPercentileMillis(95),
+                    histogram.getPercentileMillis(99), histogram.getCount(), drops.get(stage.ordinal())));
+        }
+        return report.toString();
+    }
+
+    @Override
+    public String toString() {
+        return report();
+    }
+}
@@ -0,0 +1,93 @@
+package com.objdetector.core.tracking;
+
+/**
+ * Constant-velocity Kalman filter over a box's centre, width and height, one frame per step.
+ *
+ * The four coordinates are filtered independently, each with a position and velocity state, which
+ * keeps a step to a few dozen multiplications.
+ */
+class BoxKalmanFilter {
+    private static final int CX = 0;
+    private static final int CY = 1;
+    private static final int W = 2;
+    private static final int H = 3;
+
+    private final float processNoise;
+    private final float measurementNoise;
+    private final float[] position = new float[4];
+    private final float[] velocity = new float[4];
+    private final float[] p00 = new float[4];
+    private final float[] p01 = new float[4];
+    private final float[] p11 = new float[4];
+    private final float[] measured = new float[4];
+
+    BoxKalmanFilter(final float processNoise, final float measurementNoise, final float initialVelocityVariance,
+                    final float left, final float top, final float right, final float bottom) {
+        this.processNoise = processNoise;
+        this.measurementNoise = measurementNoise;
+        setMeasurement(position, left, top, right, bottom);
+        for (int i = 0; i < 4; i++) {
+            p00[i] = measurementNoise;
+            p11[i] = initialVelocityVariance;
+        }
+    }
+
+    /**
+     * Moves the box forward by one frame of its estimated velocity.
+     */
+    void predict() {
+        final float q = processNoise;
+        for (int i = 0; i < 4; i++) {
+            position[i] += velocity[i];
+            p00[i] += 2 * p01[i] + p11[i] + q * 0.25f;
+            p01[i] += p11[i] + q * 0.5f;
+            p11[i] += q;
+        }
+    }
+
+    /**
+     * Corrects the estimate with a detected box.
+     */
+    void update(final float left, final float top, final float right, final float bottom) {
+        setMeasurement(measured, left, top, right, bottom);
+        for (int i = 0; i < 4; i++) {
+            final float innovation = measured[i] - position[i];
+            final float s = p00[i] + measurementNoise;
+            final float k0 = p00[i] / s;
+            final float k1 = p01[i] / s;
+            position[i] += k0 * innovation;
+            velocity[i] += k1 * innovation;
+            p11[i] -= k1 * p01[i];
+            p00[i] *= 1 - k0;
+            p01[i] *= 1 - k0;
+        }
+    }
+
+    /**
+     * Writes the estimated box as {@code [left, top, right, bottom]} at {@code out[offset]}.
+     */
+    void getBox(final float[] out, final int offset) {
+        final float halfWidth = Math.max(0f, position[W]) * 0.5f;
+        final float halfHeight = Math.max(0f, position[H]) * 0.5f;
+        out[offset] = position[CX] - halfWidth;
+        out[offset + 1] = position[CY] - halfHeight;
+        out[offset + 2] = position[CX] + halfWidth;
+        out[offset + 3] = position[CY] + halfHeight;
+    }
+
+    float getVelocityX() {
+        return velocity[CX];
+    }
+
+    float getVelocityY() {
+        return velocity[CY];
+    }
+
+    private static void setMeasurement(final float[] out, final float left, final float top,
+                                       final float right, final float bottom) {
+        out[CX] = (left + right) * 0.5f;
+        out[CY] = (top + bottom) * 0.5f;
+        out[W] = right - left;
+        out[H] = bottom - top;
+    }
+}
@@ -0,0 +1,326 @@
+package com.objdetector.core.tracking;
+
+import com.objdetector.core.detection.DetectionBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Gives detections stable track ids and carries their boxes between detector runs.
+ *
+ * Call {@link #advance()} once per camera frame. It moves every track forward by its estimated
+ * velocity and says whether the frame should be a keyframe, i.e. sent to the detector: every
+ * {@code keyframeInterval} frames, or sooner once a track's confidence has decayed below
+ * {@code minTrackConfidence}. Detector results are fed back through {@link #update}, which
+ * matches them to tracks by IoU within the same label or class id, greedily from the best overlap down.
+ *
+ * Not thread safe.
+ */
+public class ObjectTracker {
+    private static final float PROCESS_NOISE = 1f;
+    private static final float MEASUREMENT_NOISE = 4f;
+    private static final float INITIAL_VELOCITY_VARIANCE = 100f;
+
+    public static final class Track {
+        private final int id;
+        private final BoxKalmanFilter filter;
+        private final String label;
+        private final int classId;
+        private float score;
+        private float confidence;
+        private int hits;
+        private int missedKeyframes;
+
+        Track(final int id, final String label, final int classId, final float score,
+              final BoxKalmanFilter filter) {
+            this.id = id;
+            this.label = label;
+            this.classId = classId;
+            this.score = score;
+            this.confidence = score;
+            this.filter = filter;
+            this.hits = 1;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Label of the detection that started the track; null for tracks fed by a {@link DetectionBatch}.
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Class id of the detection that started the track; -1 for tracks fed by labels.
+         */
+        public int getClassId() {
+            return classId;
+        }
+
+        /**
+         * Detector score from the last keyframe that matched this track.
+         */
+        public float getScore() {
+            return score;
+        }
+
+        /**
+         * Score decayed for every frame since the track was last matched.
+         */
+        public float getConfidence() {
+            return confidence;
+        }
+
+        /**
+         * Number of keyframes that matched this track, including the one that created it.
+         */
+        public int getHits() {
+            return hits;
+        }
+
+        /**
+         * Writes the predicted box as {@code [left, top, right, bottom]} at {@code out[offset]}.
+         */
+        public void getBox(final float[] out, final int offset) {
+            filter.getBox(out, offset);
+        }
+
+        public float getVelocityX() {
+            return filter.getVelocityX();
+        }
+
+        public float getVelocityY() {
+            return filter.getVelocityY();
+        }
+    }
+
+    private static final class Candidate implements Comparable<Candidate> {
+        final float iou;
+        final int track;
+        final int detection;
+
+        Candidate(final float iou, final int track, final int detection) {
+            this.iou = iou;
+            this.track = track;
+            this.detection = detection;
+        }
+
+        @Override
+        public int compareTo(final Candidate other) {
+            return Float.compare(other.iou, iou);
+        }
+    }
+
+    private int keyframeInterval;
+    private final float minMatchIou;
+    private final float confidenceDecay;
+    private final float minTrackConfidence;
+    private final int maxMissedKeyframes;
+    private final List<Track> tracks = new ArrayList<>();
+    private final List<Track> readOnlyTracks = Collections.unmodifiableList(tracks);
+    private final float[] trackBoxes = new float[4];
+    private int nextId;
+    private int framesSinceKeyframe;
+    private long keyframeCount;
+    private long trackedFrameCount;
+
+    /**
+     * Tracker with defaults suited to a 30 fps camera: a match needs an IoU of 0.3, confidence
+     * decays by 5% a frame, a keyframe is forced below 0.4 and tracks are dropped after missing
+     * one keyframe.
+     */
+    public ObjectTracker(final int keyframeInterval) {
+        this(keyframeInterval, 0.3f, 0.95f, 0.4f, 1);
+    }
+
+    /**
+     * @param keyframeInterval   frames between detector runs; 1 detects on every frame
+     * @param minMatchIou        smallest IoU at which a detection continues a track
+     * @param confidenceDecay    factor applied to a track's confidence every frame
+     * @param minTrackConfidence confidence below which a track forces a keyframe
+     * @param maxMissedKeyframes keyframes a track may go unmatched before it is dropped
+     */
+    public ObjectTracker(final int keyframeInterval, final float minMatchIou, final float confidenceDecay,
+                         final float minTrackConfidence, final int maxMissedKeyframes) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("Keyframe interval must be at least 1: " + keyframeInterval);
+        }
+        this.keyframeInterval = keyframeInterval;
+        this.minMatchIou = minMatchIou;
+        this.confidenceDecay = confidenceDecay;
+        this.minTrackConfidence = minTrackConfidence;
+        this.maxMissedKeyframes = maxMissedKeyframes;
+        // The first frame is always a keyframe.
+        this.framesSinceKeyframe = keyframeInterval - 1;
+    }
+
+    /**
+     * Moves the tracks on by one frame.
+     *
+     * @return true if this frame should be run through the detector and passed to {@link #update}
+     */
+    public boolean advance() {
+        boolean decayed = false;
+        for (int i = 0; i < tracks.size(); i++) {
+            final Track track = tracks.get(i);
+            track.filter.predict();
+            track.confidence *= confidenceDecay;
+            decayed |= track.confidence < minTrackConfidence;
+        }
+
+        framesSinceKeyframe++;
+        if (framesSinceKeyframe >= keyframeInterval || decayed) {
+            framesSinceKeyframe = 0;
+            keyframeCount++;
+            return true;
+        }
+        trackedFrameCount++;
+        return false;
+    }
+
+    /**
+     * Matches a keyframe's detections to the tracks, starting tracks for unmatched detections and
+     * dropping tracks that have missed too many keyframes.
+     *
+     * @param boxes  {@code [left, top, right, bottom]} per detection
+     * @param labels label per detection; only detections and tracks with equal labels match
+     * @param scores detector score per detection
+     */
+    public void update(final float[] boxes, final String[] labels, final float[] scores, final int count) {
+        update(boxes, labels, null, scores, count);
+    }
+
+    /**
+     * Like {@link #update(float[], String[], float[], int)}, matching detections and tracks with
+     * equal class ids.
+     */
+    public void update(final DetectionBatch detections) {
+        update(detections.getBoxes(), null, detections.getClassIds(), detections.getScores(),
+                detections.getCount());
+    }
+
+    /**
+     * Replaces the contents of {@code out} with the tracks, using the track id as id and the
+     * decayed confidence as score. Tracks beyond the batch's capacity are left out.
+     */
+    public void writeTo(final DetectionBatch out) {
+        out.clear();
+        for (int i = 0; i < tracks.size(); i++) {
+            final Track track = tracks.get(i);
+            track.getBox(trackBoxes, 0);
+            if (!out.add(track.id, track.classId, track.confidence,
+                    trackBoxes[0], trackBoxes[1], trackBoxes[2], trackBoxes[3])) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Matches on {@code labels}, or on {@code classIds} when labels is null.
+     */
+    private void update(final float[] boxes, final String[] labels, final int[] classIds,
+                        final float[] scores, final int count) {
+        final List<Candidate> candidates = new ArrayList<>();
+        for (int t = 0; t < tracks.size(); t++) {
+            final Track track = tracks.get(t);
+            track.getBox(trackBoxes, 0);
+            for (int d = 0; d < count; d++) {
+                if (labels == null ? track.classId != classIds[d] : !labels[d].equals(track.label)) {
+                    continue;
+                }
+                final float iou = iou(trackBoxes, 0, boxes, d * 4);
+                if (iou >= minMatchIou) {
+                    candidates.add(new Candidate(iou, t, d));
+                }
+            }
+        }
+        Collections.sort(candidates);
+
+        final boolean[] trackMatched = new boolean[tracks.size()];
+        final boolean[] detectionMatched = new boolean[count];
+        for (final Candidate candidate : candidates) {
+            if (trackMatched[candidate.track] || detectionMatched[candidate.detection]) {
+                continue;
+            }
+            trackMatched[candidate.track] = true;
+            detectionMatched[candidate.detection] = true;
+
+            final Track track = tracks.get(candidate.track);
+            final int offset = candidate.detection * 4;
+            track.filter.update(boxes[offset], boxes[offset + 1], boxes[offset + 2], boxes[offset + 3]);
+            track.score = scores[candidate.detection];
+            track.confidence = track.score;
+            track.hits++;
+            track.missedKeyframes = 0;
+        }
+
+        for (int t = tracks.size() - 1; t >= 0; t--) {
+            if (!trackMatched[t] && ++tracks.get(t).missedKeyframes > maxMissedKeyframes) {
+                tracks.remove(t);
+            }
+        }
+
+        for (int d = 0; d < count; d++) {
+            if (!detectionMatched[d]) {
+                final int offset = d * 4;
+                tracks.add(new Track(nextId++, labels == null ? null : labels[d],
+                        labels == null ? classIds[d] : -1, scores[d],
+                        new BoxKalmanFilter(PROCESS_NOISE, MEASUREMENT_NOISE, INITIAL_VELOCITY_VARIANCE,
+                                boxes[offset], boxes[offset + 1], boxes[offset + 2], boxes[offset + 3])));
+            }
+        }
+    }
+
+    /**
+     * Changes the number of frames between detector runs, e.g. as chosen by a scheduler.
+     */
+    public void setKeyframeInterval(final int keyframeInterval) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("Keyframe interval must be at least 1: " + keyframeInterval);
+        }
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    public int getKeyframeInterval() {
+        return keyframeInterval;
+    }
+
+    public List<Track> getTracks() {
+        return readOnlyTracks;
+    }
+
+    public long getKeyframeCount() {
+        return keyframeCount;
+    }
+
+    /**
+     * Frames whose boxes came from prediction alone, i.e. detector runs saved.
+     */
+    public long getTrackedFrameCount() {
+        return trackedFrameCount;
+    }
+
+    public void reset() {
+        tracks.clear();
+        framesSinceKeyframe = keyframeInterval - 1;
+    }
+
+    /**
+     * Intersection over union of two {@code [left, top, right, bottom]} boxes.
+     */
+    public static float iou(final float[] a, final int aOffset, final float[] b, final int bOffset) {
+        final float left = Math.max(a[aOffset], b[bOffset]);
+        final float top = Math.max(a[aOffset + 1], b[bOffset + 1]);
+        final float right = Math.min(a[aOffset + 2], b[bOffset + 2]);
+        final float bottom = Math.min(a[aOffset + 3], b[bOffset + 3]);
+        final float intersection = Math.max(0f, right - left) * Math.max(0f, bottom - top);
+        final float areaA = (a[aOffset + 2] - a[aOffset]) * (a[aOffset + 3] - a[aOffset + 1]);
+        final float areaB = (b[bOffset + 2] - b[bOffset]) * (b[bOffset + 3] - b[bOffset + 1]);
+        final float union = areaA + areaB - intersection;
+        return union <= 0 ? 0f : intersection / union;
+    }
+}
@@ -0,0 +1,64 @@
+package com.objdetector.core.batch;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DetectionJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reopen_dropsRecordsAfterLastCheckpoint() throws IOException {
+        final File output = new File(folder.getRoot(), "out.jsonl");
+        final DetectionJournal journal = new DetectionJournal(output, 2);
+        journal.append("a.jpg", "{\"n\":1}");
+        journal.append("b.jpg", "{\"n\":2}");
+        // Simulate a crash after the checkpoint: the journal is abandoned and a later record
+        // reached the file only half written.
+        try (FileOutputStream out = new FileOutputStream(output, true)) {
+            out.write("{\"n\":3}\n{\"n\":".getBytes(Charset.forName("UTF-8")));
+        }
+
+        final DetectionJournal resumed = new DetectionJournal(output, 2);
+        assertEquals(2, resumed.getResumedCount());
+        assertEquals("b.jpg", resumed.getLastKey());
+        resumed.append("c.jpg", "{\"n\":3}");
+        resumed.close();
+
+        assertEquals(Arrays.asList("{\"n\":1}", "{\"n\":2}", "{\"n\":3}"), readLines(output));
+    }
+
+    @Test
+    public void close_checkpointsEverything() throws IOException {
+        final File output = new File(folder.getRoot(), "out.jsonl");
+        final DetectionJournal journal = new DetectionJournal(output, 100);
+        journal.append("a.jpg", "{}");
+        journal.close();
+
+        final DetectionJournal resumed = new DetectionJournal(output, 100);
+        assertEquals(1, resumed.getResumedCount());
+        assertEquals("a.jpg", resumed.getLastKey());
+        resumed.close();
+        assertEquals(Arrays.asList("{}"), readLines(output));
+    }
+
+    @Test
+    public void quote_escapesControlAndQuoteCharacters() {
+        assertEquals("\"a\\\"b\\\\c\\nd\\u0001\"", DetectionJournal.quote("a\"b\\c\nd\u0001"));
+    }
+
+    private static List<String> readLines(final File file) throws IOException {
+        return Files.readAllLines(file.toPath(), Charset.forName("UTF-8"));
+    }
+}
@@ -0,0 +1,98 @@
+package com.objdetector.core.cache;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DetectionCacheTest {
+    private static DetectionCache<String> cache(final int maxEntries, final long maxBytes,
+                                                final DetectionCache.EvictionPolicy policy) {
+        return new DetectionCache<>(maxEntries, maxBytes, 3, policy, String::length);
+    }
+
+    @Test
+    public void get_matchesNearestHashWithinDistance() {
+        final DetectionCache<String> cache = cache(10, 1000, DetectionCache.EvictionPolicy.LEAST_RECENTLY_USED);
+        cache.put(0b0000L, "zero");
+        cache.put(0b1111_0000L, "high");
+
+        assertEquals("zero", cache.get(0b0011L));
+        assertEquals("high", cache.get(0b0111_0000L));
+        assertNull(cache.get(0b1111L));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2.0 / 3.0, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsed() {
+        final DetectionCache<String> cache = cache(2, 1000, DetectionCache.EvictionPolicy.LEAST_RECENTLY_USED);
+        cache.put(0x0FL, "a");
+        cache.put(0xF0L, "b");
+        cache.get(0x0FL);
+        cache.put(0xF00L, "c");
+
+        assertEquals("a", cache.get(0x0FL));
+        assertNull(cache.get(0xF0L));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void put_evictsOldestInsertedRegardlessOfUse() {
+        final DetectionCache<String> cache = cache(2, 1000, DetectionCache.EvictionPolicy.OLDEST_INSERTED);
+        cache.put(0x0FL, "a");
+        cache.put(0xF0L, "b");
+        cache.get(0x0FL);
+        cache.put(0xF00L, "c");
+
+        assertNull(cache.get(0x0FL));
+        assertEquals("b", cache.get(0xF0L));
+    }
+
+    @Test
+    public void put_keepsWithinMemoryCap() {
+        final DetectionCache<String> cache = cache(100, 10, DetectionCache.EvictionPolicy.LEAST_RECENTLY_USED);
+        cache.put(0x0FL, "aaaa");
+        cache.put(0xF0L, "bbbb");
+        cache.put(0xF00L, "cccc");
+
+        assertEquals(2, cache.size());
+        assertEquals(8, cache.getTotalBytes());
+        cache.put(0xF000L, "this value is too large");
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void cache_isSafeForConcurrentCallers() throws InterruptedException {
+        final DetectionCache<String> cache = cache(16, 1 << 20, DetectionCache.EvictionPolicy.LEAST_RECENTLY_USED);
+        final int threads = 4;
+        final int operations = 5000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicInteger errors = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < operations; i++) {
+                        final long hash = 1L << ((seed * 7 + i) % 64);
+                        if (cache.get(hash) == null) {
+                            cache.put(hash, "v" + i);
+                        }
+                    }
+                } catch (final RuntimeException ex) {
+                    errors.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+
+        assertEquals(0, errors.get());
+        assertTrue(cache.size() <= 16);
+        assertEquals(threads * operations, cache.getHitCount() + cache.getMissCount());
+    }
+}
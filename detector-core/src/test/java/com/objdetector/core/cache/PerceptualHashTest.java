@@ -0,0 +1,74 @@
+package com.objdetector.core.cache;
+
+import com.objdetector.core.image.TensorFormat;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PerceptualHashTest {
+    private static final int SIZE = 300;
+
+    private final PerceptualHash hasher = new PerceptualHash();
+
+    @Test
+    public void dHash_isStableUnderNoise() {
+        final Random random = new Random(4);
+        final ByteBuffer image = gradientImage(false);
+        final ByteBuffer noisy = ByteBuffer.allocate(image.capacity());
+        for (int i = 0; i < image.capacity(); i++) {
+            final int value = (image.get(i) & 0xff) + random.nextInt(9) - 4;
+            noisy.put(i, (byte) Math.max(0, Math.min(255, value)));
+        }
+
+        final int distance = PerceptualHash.hammingDistance(
+                hasher.dHash(image, SIZE, SIZE), hasher.dHash(noisy, SIZE, SIZE));
+        assertTrue("distance " + distance, distance <= 4);
+    }
+
+    @Test
+    public void dHash_separatesDifferentImages() {
+        final long a = hasher.dHash(gradientImage(false), SIZE, SIZE);
+        final long b = hasher.dHash(gradientImage(true), SIZE, SIZE);
+
+        assertTrue(PerceptualHash.hammingDistance(a, b) > 20);
+    }
+
+    @Test
+    public void dHash_isTheSameForEveryFormatOfAnImage() {
+        final ByteBuffer image = gradientImage(false);
+        final ByteBuffer shifted = ByteBuffer.allocate(image.capacity());
+        final ByteBuffer floats = ByteBuffer.allocate(image.capacity() * 4).order(ByteOrder.nativeOrder());
+        final TensorFormat floatFormat = TensorFormat.float32(127.5f, 127.5f);
+        for (int i = 0; i < image.capacity(); i++) {
+            shifted.put(i, (byte) TensorFormat.int8().encode(image.get(i)));
+            floats.putFloat(i * 4, floatFormat.encode(image.get(i)));
+        }
+
+        final long hash = hasher.dHash(image, SIZE, SIZE);
+        assertEquals(hash, hasher.dHash(shifted, SIZE, SIZE, TensorFormat.int8()));
+        assertEquals(hash, hasher.dHash(floats, SIZE, SIZE, floatFormat));
+    }
+
+    /**
+     * Horizontal ripples in luma, mirrored left to right when {@code mirrored}.
+     */
+    private static ByteBuffer gradientImage(final boolean mirrored) {
+        final ByteBuffer image = ByteBuffer.allocate(SIZE * SIZE * 3);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                final int column = mirrored ? SIZE - 1 - x : x;
+                final int value = (int) (128 + 100 * Math.sin(column / 15.0) * Math.cos(y / 40.0));
+                final int pos = (y * SIZE + x) * 3;
+                image.put(pos, (byte) value);
+                image.put(pos + 1, (byte) value);
+                image.put(pos + 2, (byte) (255 - value));
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,60 @@
+package com.objdetector.core.capture;
+
+import com.objdetector.core.image.YuvFrame;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class CaptureRecorderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void close_writesEveryQueuedFrame() throws IOException {
+        final File directory = new File(folder.getRoot(), "capture");
+        final CaptureRecorder recorder = new CaptureRecorder(new CaptureWriter(directory, 1 << 20), 4);
+        int accepted = 0;
+        for (int i = 0; i < 20; i++) {
+            if (recorder.record(CaptureWriterTest.planeOf(64, i), CaptureWriterTest.planeOf(31, i),
+                    CaptureWriterTest.planeOf(31, i), 8, 8, 8, 8, 2, i)) {
+                accepted++;
+            }
+        }
+        recorder.close();
+
+        assertEquals(accepted, recorder.getRecordedCount());
+        assertEquals(20 - accepted, recorder.getDroppedCount());
+        final CaptureReader reader = new CaptureReader(directory);
+        final YuvFrame frame = new YuvFrame();
+        long previous = -1;
+        int read = 0;
+        while (reader.next(frame)) {
+            assertTrue(frame.getTimestampNanos() > previous);
+            assertEquals((byte) (frame.getTimestampNanos() + 5), frame.getY().get(5));
+            previous = frame.getTimestampNanos();
+            read++;
+        }
+        assertEquals(accepted, read);
+    }
+
+    @Test
+    public void frameLargerThanBuffers_isDropped() throws IOException {
+        final File directory = new File(folder.getRoot(), "capture");
+        final CaptureRecorder recorder = new CaptureRecorder(new CaptureWriter(directory, 1 << 20), 2);
+
+        assertTrue(recorder.record(CaptureWriterTest.planeOf(64, 0), CaptureWriterTest.planeOf(31, 0),
+                CaptureWriterTest.planeOf(31, 0), 8, 8, 8, 8, 2, 0));
+        assertFalse(recorder.record(CaptureWriterTest.planeOf(256, 0), CaptureWriterTest.planeOf(127, 0),
+                CaptureWriterTest.planeOf(127, 0), 16, 16, 16, 16, 2, 1));
+        recorder.close();
+
+        assertEquals(1, recorder.getRecordedCount());
+        assertEquals(1, recorder.getDroppedCount());
+    }
+}
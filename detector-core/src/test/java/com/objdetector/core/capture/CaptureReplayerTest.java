@@ -0,0 +1,86 @@
+package com.objdetector.core.capture;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CaptureReplayerTest {
+    private static final long FRAME_NANOS = 33_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final class FakeClock implements CaptureReplayer.Clock {
+        long now = 500;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+        @Override
+        public void sleepNanos(final long nanos) {
+            now += nanos;
+        }
+    }
+
+    @Test
+    public void recordedSpeed_deliversFramesAtTheirOffsets() throws Exception {
+        final FakeClock clock = new FakeClock();
+        final List<Long> deliveredAt = new ArrayList<>();
+
+        final CaptureReplayer.Summary summary = new CaptureReplayer(1f, clock)
+                .replay(new CaptureReader(record(4)), frame -> deliveredAt.add(clock.now - 500));
+
+        assertEquals(Arrays.asList(0L, FRAME_NANOS, 2 * FRAME_NANOS, 3 * FRAME_NANOS), deliveredAt);
+        assertEquals(4, summary.getFrameCount());
+        assertEquals(3 * FRAME_NANOS, summary.getRecordedNanos());
+        assertEquals(0, summary.getLateFrameCount());
+    }
+
+    @Test
+    public void slowListener_getsEveryFrameLate() throws Exception {
+        final FakeClock clock = new FakeClock();
+        final List<Long> timestamps = new ArrayList<>();
+
+        final CaptureReplayer.Summary summary = new CaptureReplayer(1f, clock)
+                .replay(new CaptureReader(record(4)), frame -> {
+                    timestamps.add(frame.getTimestampNanos());
+                    clock.now += 2 * FRAME_NANOS;
+                });
+
+        assertEquals(4, timestamps.size());
+        assertEquals(3, summary.getLateFrameCount());
+        assertEquals(8 * FRAME_NANOS, summary.getElapsedNanos());
+    }
+
+    @Test
+    public void asFastAsPossible_neverSleeps() throws Exception {
+        final FakeClock clock = new FakeClock();
+
+        final CaptureReplayer.Summary summary = new CaptureReplayer(CaptureReplayer.AS_FAST_AS_POSSIBLE, clock)
+                .replay(new CaptureReader(record(3)), frame -> clock.now += 1000);
+
+        assertEquals(3, summary.getFrameCount());
+        assertEquals(3000, summary.getElapsedNanos());
+    }
+
+    private File record(final int frames) throws IOException {
+        final File directory = new File(folder.getRoot(), "capture");
+        final CaptureWriter writer = new CaptureWriter(directory, 1 << 16);
+        for (int i = 0; i < frames; i++) {
+            writer.write(CaptureWriterTest.planeOf(16, i), CaptureWriterTest.planeOf(7, i),
+                    CaptureWriterTest.planeOf(7, i), 4, 4, 4, 4, 2, 1_000_000L + i * FRAME_NANOS);
+        }
+        writer.close();
+        return directory;
+    }
+}
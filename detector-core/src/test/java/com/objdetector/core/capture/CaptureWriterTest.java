@@ -0,0 +1,100 @@
+package com.objdetector.core.capture;
+
+import com.objdetector.core.image.YuvFrame;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class CaptureWriterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reader_returnsFramesAsWritten() throws IOException {
+        final File directory = new File(folder.getRoot(), "capture");
+        final CaptureWriter writer = new CaptureWriter(directory, 1 << 20);
+        final ByteBuffer y = planeOf(48, 1);
+        final ByteBuffer u = planeOf(23, 2);
+        y.position(8);
+        writer.write(y, u, planeOf(23, 3), 8, 5, 8, 8, 2, 1000L);
+        writer.write(planeOf(40, 4), planeOf(20, 5), planeOf(20, 6), 8, 5, 8, 8, 2, 34_000_000L);
+        writer.close();
+
+        // The planes are left as they were passed in.
+        assertEquals(8, y.position());
+        assertEquals(48, y.limit());
+        final CaptureReader reader = new CaptureReader(directory);
+        final YuvFrame frame = new YuvFrame();
+        assertTrue(reader.next(frame));
+        assertEquals(1000L, frame.getTimestampNanos());
+        assertEquals(8, frame.getWidth());
+        assertEquals(5, frame.getHeight());
+        assertEquals(2, frame.getUvPixelStride());
+        assertEquals(40, frame.getY().remaining());
+        assertEquals(9, frame.getY().get(0));
+        assertEquals(23, frame.getU().remaining());
+        assertEquals(3, frame.getV().get(0));
+        assertTrue(reader.next(frame));
+        assertEquals(34_000_000L, frame.getTimestampNanos());
+        assertEquals(6 + 19, frame.getV().get(19));
+        assertFalse(reader.next(frame));
+        assertEquals(2, reader.getFrameCount());
+    }
+
+    @Test
+    public void fullSegment_rotatesToNextFile() throws IOException {
+        final File directory = new File(folder.getRoot(), "capture");
+        final int frameBytes = CaptureFormat.FRAME_HEADER_BYTES + 300;
+        final CaptureWriter writer = new CaptureWriter(directory,
+                CaptureFormat.SEGMENT_HEADER_BYTES + 2 * frameBytes + 10);
+        for (int i = 0; i < 5; i++) {
+            writer.write(planeOf(200, i), planeOf(50, i), planeOf(50, i), 20, 10, 20, 20, 2, i);
+        }
+        // A frame larger than a segment gets one of its own.
+        writer.write(planeOf(2000, 9), planeOf(500, 9), planeOf(500, 9), 50, 40, 50, 50, 2, 5);
+        writer.close();
+
+        final File[] segments = CaptureFormat.listSegments(directory);
+        assertEquals(4, segments.length);
+        assertEquals(4, writer.getSegmentCount());
+        // Segments are cut down to the frames they hold.
+        assertEquals(CaptureFormat.SEGMENT_HEADER_BYTES + 2 * frameBytes, segments[0].length());
+        final CaptureReader reader = new CaptureReader(directory);
+        final YuvFrame frame = new YuvFrame();
+        for (int i = 0; i < 6; i++) {
+            assertTrue(reader.next(frame));
+            assertEquals(i, frame.getTimestampNanos());
+        }
+        assertEquals(3000, frame.getY().remaining() + frame.getU().remaining() + frame.getV().remaining());
+        assertFalse(reader.next(frame));
+
+        reader.rewind();
+        assertTrue(reader.next(frame));
+        assertEquals(0, frame.getTimestampNanos());
+    }
+
+    @Test(expected = IOException.class)
+    public void existingCapture_isNotOverwritten() throws IOException {
+        final File directory = new File(folder.getRoot(), "capture");
+        final CaptureWriter writer = new CaptureWriter(directory, 1 << 16);
+        writer.write(planeOf(4, 0), planeOf(1, 0), planeOf(1, 0), 2, 2, 2, 2, 2, 0);
+        writer.close();
+
+        new CaptureWriter(directory, 1 << 16);
+    }
+
+    static ByteBuffer planeOf(final int length, final int seed) {
+        final ByteBuffer plane = ByteBuffer.allocateDirect(length);
+        for (int i = 0; i < length; i++) {
+            plane.put(i, (byte) (seed + i));
+        }
+        return plane;
+    }
+}
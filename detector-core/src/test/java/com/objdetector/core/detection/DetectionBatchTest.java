@@ -0,0 +1,77 @@
+package com.objdetector.core.detection;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DetectionBatchTest {
+    @Test
+    public void add_fillsParallelArraysUpToCapacity() {
+        final DetectionBatch batch = new DetectionBatch(2);
+
+        assertTrue(batch.add(7, 3, 0.9f, 1, 2, 3, 4));
+        assertTrue(batch.add(8, 5, 0.6f, 5, 6, 7, 8));
+        assertFalse(batch.add(9, 1, 0.5f, 0, 0, 1, 1));
+
+        assertEquals(2, batch.getCount());
+        assertEquals(8, batch.getId(1));
+        assertEquals(5, batch.getClassId(1));
+        assertEquals(0.6f, batch.getScore(1), 0f);
+        assertArrayEquals(new float[]{1, 2, 3, 4, 5, 6, 7, 8}, batch.getBoxes(), 0f);
+    }
+
+    @Test
+    public void copyOf_isUnpooledAndIndependent() {
+        final DetectionBatchPool pool = new DetectionBatchPool(1, 4);
+        final DetectionBatch source = pool.acquire();
+        source.add(1, 2, 0.5f, 0, 0, 10, 10);
+        source.setCaptureNanos(42);
+
+        final DetectionBatch copy = DetectionBatch.copyOf(source);
+        source.release();
+        pool.acquire().add(9, 9, 0.1f, 1, 1, 2, 2);
+
+        assertFalse(copy.isPooled());
+        assertEquals(1, copy.getCount());
+        assertEquals(1, copy.getId(0));
+        assertEquals(10, copy.getBoxes()[2], 0f);
+        assertEquals(42, copy.getCaptureNanos());
+    }
+
+    @Test
+    public void pool_recyclesOnLastRelease() {
+        final DetectionBatchPool pool = new DetectionBatchPool(1, 4);
+        final DetectionBatch batch = pool.acquire();
+        batch.add(1, 1, 0.5f, 0, 0, 1, 1);
+        batch.retain();
+
+        batch.release();
+        assertEquals(0, pool.getAvailableCount());
+        batch.release();
+        assertEquals(1, pool.getAvailableCount());
+
+        final DetectionBatch reused = pool.acquire();
+        assertSame(batch, reused);
+        assertEquals(0, reused.getCount());
+    }
+
+    @Test
+    public void pool_allocatesWhenExhausted() {
+        final DetectionBatchPool pool = new DetectionBatchPool(1, 4);
+        final DetectionBatch first = pool.acquire();
+        final DetectionBatch second = pool.acquire();
+
+        assertNotSame(first, second);
+        assertEquals(1, pool.getExhaustedCount());
+        first.release();
+        second.release();
+        assertEquals(1, pool.getAvailableCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void release_rejectsBatchAlreadyReturned() {
+        final DetectionBatch batch = new DetectionBatchPool(1, 4).acquire();
+        batch.release();
+        batch.release();
+    }
+}
@@ -0,0 +1,138 @@
+package com.objdetector.core.detection;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DetectionPostProcessorTest {
+    @Test
+    public void process_dropsLowScoresAndOrdersByScore() {
+        final float[] boxes = {
+                0, 0, 10, 10,
+                20, 0, 30, 10,
+                40, 0, 50, 10,
+                60, 0, 70, 10};
+        final float[] scores = {0.6f, 0.2f, 0.9f, 0.7f};
+        final int[] kept = new int[4];
+
+        final int count = new DetectionPostProcessor(0.5f, 10, 0.5f, true)
+                .process(boxes, scores, new int[4], 4, kept, 4);
+
+        assertEquals(3, count);
+        assertArrayEquals(new int[]{2, 3, 0}, Arrays.copyOf(kept, count));
+    }
+
+    @Test
+    public void process_keepsOnlyTopK() {
+        final float[] boxes = new float[8 * 4];
+        final float[] scores = new float[8];
+        for (int i = 0; i < 8; i++) {
+            boxes[i * 4] = i * 20;
+            boxes[i * 4 + 2] = i * 20 + 10;
+            boxes[i * 4 + 3] = 10;
+            scores[i] = (i * 5 % 8) / 10f;
+        }
+        final int[] kept = new int[8];
+
+        final int count = new DetectionPostProcessor(0f, 3, 0.5f, true)
+                .process(boxes, scores, new int[8], 8, kept, 8);
+
+        assertEquals(3, count);
+        assertEquals(0.7f, scores[kept[0]], 0f);
+        assertEquals(0.6f, scores[kept[1]], 0f);
+        assertEquals(0.5f, scores[kept[2]], 0f);
+    }
+
+    @Test
+    public void process_classAwareNmsKeepsOverlappingBoxesOfOtherClasses() {
+        final float[] boxes = {
+                0, 0, 10, 10,
+                1, 1, 11, 11,
+                0, 1, 10, 11};
+        final float[] scores = {0.9f, 0.8f, 0.7f};
+        final int[] classes = {1, 1, 2};
+        final int[] kept = new int[3];
+
+        final int aware = new DetectionPostProcessor(0f, 10, 0.5f, true)
+                .process(boxes, scores, classes, 3, kept, 3);
+        assertArrayEquals(new int[]{0, 2}, Arrays.copyOf(kept, aware));
+
+        final int agnostic = new DetectionPostProcessor(0f, 10, 0.5f, false)
+                .process(boxes, scores, classes, 3, kept, 3);
+        assertArrayEquals(new int[]{0}, Arrays.copyOf(kept, agnostic));
+    }
+
+    @Test
+    public void process_matchesReferenceOnManyCandidates() {
+        final Random random = new Random(15);
+        final int count = 2000;
+        final float[] boxes = new float[count * 4];
+        final float[] scores = new float[count];
+        final int[] classes = new int[count];
+        for (int i = 0; i < count; i++) {
+            final float x = random.nextFloat() * 250;
+            final float y = random.nextFloat() * 250;
+            boxes[i * 4] = x;
+            boxes[i * 4 + 1] = y;
+            boxes[i * 4 + 2] = x + 20 + random.nextFloat() * 30;
+            boxes[i * 4 + 3] = y + 20 + random.nextFloat() * 30;
+            scores[i] = random.nextFloat();
+            classes[i] = random.nextInt(5);
+        }
+        final int[] kept = new int[100];
+
+        final int keptCount = new DetectionPostProcessor(0.3f, 200, 0.45f, true)
+                .process(boxes, scores, classes, count, kept, 100);
+
+        final List<Integer> expected = referenceNms(boxes, scores, classes, count, 0.3f, 200, 0.45f, 100);
+        assertEquals(expected.size(), keptCount);
+        for (int i = 0; i < keptCount; i++) {
+            assertEquals((int) expected.get(i), kept[i]);
+        }
+    }
+
+    private static List<Integer> referenceNms(final float[] boxes, final float[] scores, final int[] classes,
+                                              final int count, final float threshold, final int topK,
+                                              final float iouThreshold, final int maxKept) {
+        final List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (scores[i] >= threshold) {
+                order.add(i);
+            }
+        }
+        order.sort((a, b) -> Float.compare(scores[b], scores[a]));
+        final List<Integer> candidates = order.subList(0, Math.min(topK, order.size()));
+        final List<Integer> kept = new ArrayList<>();
+        for (final int candidate : candidates) {
+            boolean keep = true;
+            for (final int other : kept) {
+                if (classes[other] == classes[candidate]
+                        && iou(boxes, other, candidate) > iouThreshold) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep && kept.size() < maxKept) {
+                kept.add(candidate);
+            }
+        }
+        return kept;
+    }
+
+    private static float iou(final float[] boxes, final int a, final int b) {
+        final float width = Math.min(boxes[a * 4 + 2], boxes[b * 4 + 2]) - Math.max(boxes[a * 4], boxes[b * 4]);
+        final float height = Math.min(boxes[a * 4 + 3], boxes[b * 4 + 3]) - Math.max(boxes[a * 4 + 1], boxes[b * 4 + 1]);
+        if (width <= 0 || height <= 0) {
+            return 0;
+        }
+        final float intersection = width * height;
+        final float areaA = (boxes[a * 4 + 2] - boxes[a * 4]) * (boxes[a * 4 + 3] - boxes[a * 4 + 1]);
+        final float areaB = (boxes[b * 4 + 2] - boxes[b * 4]) * (boxes[b * 4 + 3] - boxes[b * 4 + 1]);
+        return intersection / (areaA + areaB - intersection);
+    }
+}
@@ -0,0 +1,34 @@
+package com.objdetector.core.detection;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class QuantizationTest {
+    @Test
+    public void dequantize_readsUnsignedBytes() {
+        final ByteBuffer src = ByteBuffer.wrap(new byte[]{0, (byte) 128, (byte) 255});
+        final float[] dst = new float[3];
+
+        new Quantization(false, 1f / 255, 0).dequantize(src, 0, dst, 0, 3);
+
+        assertArrayEquals(new float[]{0f, 128f / 255, 1f}, dst, 1e-6f);
+    }
+
+    @Test
+    public void dequantize_readsSignedBytesAroundZeroPoint() {
+        final ByteBuffer src = ByteBuffer.wrap(new byte[]{9, -128, 0, 127});
+        final float[] dst = new float[4];
+
+        new Quantization(true, 0.5f, -128).dequantize(src, 1, dst, 1, 3);
+
+        assertArrayEquals(new float[]{0f, 0f, 64f, 127.5f}, dst, 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsZeroScale() {
+        new Quantization(false, 0f, 0);
+    }
+}
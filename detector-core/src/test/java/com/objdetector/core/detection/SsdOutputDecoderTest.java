@@ -0,0 +1,27 @@
+package com.objdetector.core.detection;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SsdOutputDecoderTest {
+    @Test
+    public void decodeBoxes_reordersToLeftTopRightBottomInPixels() {
+        final float[][] locations = {{0.1f, 0.2f, 0.5f, 0.6f}, {0f, 0f, 1f, 1f}, {0.9f, 0.9f, 1f, 1f}};
+        final float[] boxes = new float[8];
+
+        SsdOutputDecoder.decodeBoxes(locations, 2, 300, boxes);
+
+        assertArrayEquals(new float[]{60f, 30f, 180f, 150f, 0f, 0f, 300f, 300f}, boxes, 1e-4f);
+    }
+
+    @Test
+    public void decodeBoxes_scalesAxesSeparatelyForNonSquareInput() {
+        final float[][] locations = {{0.1f, 0.2f, 0.5f, 0.6f}};
+        final float[] boxes = new float[4];
+
+        SsdOutputDecoder.decodeBoxes(locations, 1, 640, 480, boxes);
+
+        assertArrayEquals(new float[]{128f, 48f, 384f, 240f}, boxes, 1e-4f);
+    }
+}
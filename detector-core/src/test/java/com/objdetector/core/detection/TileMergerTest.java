@@ -0,0 +1,81 @@
+package com.objdetector.core.detection;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TileMergerTest {
+    @Test
+    public void merge_suppressesDuplicatesAcrossTiles() {
+        final DetectionBatch left = new DetectionBatch(4);
+        left.add(0, 1, 0.6f, 80, 10, 120, 50);
+        left.add(1, 2, 0.9f, 10, 10, 30, 30);
+        final DetectionBatch right = new DetectionBatch(4);
+        right.add(0, 1, 0.8f, 82, 10, 122, 50);
+        right.add(1, 3, 0.7f, 150, 10, 170, 30);
+        final TileMerger merger = new TileMerger(8, 0.5f, true);
+        final DetectionBatch out = new DetectionBatch(8);
+
+        merger.add(left);
+        merger.add(right);
+        final int merged = merger.merge(out);
+
+        assertEquals(3, merged);
+        assertEquals(3, out.getCount());
+        assertEquals(0.9f, out.getScore(0), 0f);
+        assertEquals(0.8f, out.getScore(1), 0f);
+        assertEquals(82f, out.getBoxes()[4], 0f);
+        assertEquals(3, out.getClassId(2));
+        assertEquals(2, out.getId(2));
+    }
+
+    @Test
+    public void merge_keepsOverlappingBoxesOfDifferentClasses() {
+        final DetectionBatch tile = new DetectionBatch(2);
+        tile.add(0, 1, 0.6f, 0, 0, 10, 10);
+        tile.add(1, 2, 0.5f, 0, 0, 10, 10);
+        final TileMerger merger = new TileMerger(4, 0.5f, true);
+        final DetectionBatch out = new DetectionBatch(4);
+
+        merger.add(tile);
+
+        assertEquals(2, merger.merge(out));
+    }
+
+    @Test
+    public void add_dropsDetectionsBeyondCapacity() {
+        final DetectionBatch tile = new DetectionBatch(3);
+        for (int i = 0; i < 3; i++) {
+            tile.add(i, 0, 0.5f, i * 20, 0, i * 20 + 10, 10);
+        }
+        final TileMerger merger = new TileMerger(4, 0.5f, false);
+
+        assertEquals(3, merger.add(tile));
+        assertEquals(1, merger.add(tile));
+        assertEquals(4, merger.getCount());
+
+        merger.clear();
+        assertEquals(0, merger.getCount());
+        assertEquals(0, merger.merge(new DetectionBatch(4)));
+    }
+
+    @Test
+    public void add_whenFull_replacesWeakerDetectionsOfEarlierTiles() {
+        final DetectionBatch first = new DetectionBatch(2);
+        first.add(0, 1, 0.3f, 0, 0, 10, 10);
+        first.add(1, 1, 0.4f, 20, 0, 30, 10);
+        final DetectionBatch second = new DetectionBatch(2);
+        second.add(0, 1, 0.9f, 40, 0, 50, 10);
+        second.add(1, 1, 0.2f, 60, 0, 70, 10);
+        final TileMerger merger = new TileMerger(2, 0.5f, false);
+        final DetectionBatch out = new DetectionBatch(2);
+
+        merger.add(first);
+        assertEquals(1, merger.add(second));
+
+        assertEquals(2, merger.merge(out));
+        assertEquals(0.9f, out.getScore(0), 0f);
+        assertEquals(40f, out.getBoxes()[0], 0f);
+        assertEquals(0.4f, out.getScore(1), 0f);
+    }
+}
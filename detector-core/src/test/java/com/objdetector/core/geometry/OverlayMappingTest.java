@@ -0,0 +1,43 @@
+package com.objdetector.core.geometry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OverlayMappingTest {
+    @Test
+    public void mapBox_fitsModelSquareBelowResultsStrip() {
+        final OverlayMapping mapping = new OverlayMapping(300);
+        mapping.update(600, 1000, 100);
+        final float[] out = new float[4];
+
+        mapping.mapBox(new float[]{30, 60, 90, 120}, 0, out, 0);
+
+        // Scale 2, centred vertically in the 900px below the strip: offsetY = (900 - 600) / 2 + 100.
+        assertEquals(2f, mapping.getScale(), 0f);
+        assertArrayEquals(new float[]{60, 370, 180, 490}, out, 1e-4f);
+    }
+
+    @Test
+    public void mapBox_shiftsBothEdgesIntoHorizontalLetterbox() {
+        final OverlayMapping mapping = new OverlayMapping(300);
+        mapping.update(1000, 600, 0);
+        final float[] out = new float[4];
+
+        mapping.mapBox(new float[]{30, 60, 90, 120}, 0, out, 0);
+
+        // Scale 2, centred horizontally: offsetX = (1000 - 600) / 2.
+        assertArrayEquals(new float[]{260, 120, 380, 240}, out, 1e-4f);
+    }
+
+    @Test
+    public void mapBox_keepsBoxesInsideThePadding() {
+        final OverlayMapping mapping = new OverlayMapping(300);
+        mapping.update(300, 300, 0);
+        final float[] out = new float[4];
+
+        mapping.mapBox(new float[]{0, 0, 300, 300}, 0, out, 0);
+
+        assertArrayEquals(new float[]{5, 5, 295, 295}, out, 1e-4f);
+    }
+}
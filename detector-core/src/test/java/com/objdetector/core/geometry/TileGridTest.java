@@ -0,0 +1,49 @@
+package com.objdetector.core.geometry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TileGridTest {
+    @Test
+    public void singleTile_coversFrame() {
+        final TileGrid grid = new TileGrid(640, 480, 1, 1, 0.25f);
+
+        assertEquals(1, grid.getTileCount());
+        assertEquals(640f, grid.getTileWidth(), 0f);
+        assertEquals(480f, grid.getTileHeight(), 0f);
+        assertEquals(0f, grid.getLeft(0), 0f);
+        assertEquals(0f, grid.getTop(0), 0f);
+    }
+
+    @Test
+    public void overlappingTiles_shareTheirFractionAndEndAtFrameEdge() {
+        final TileGrid grid = new TileGrid(300, 200, 3, 2, 0.25f);
+
+        assertEquals(6, grid.getTileCount());
+        // 3 tiles of w with 2 shared strips of w / 4: 3w - w / 2 = 300
+        assertEquals(120f, grid.getTileWidth(), 1e-4f);
+        assertEquals(200f / 1.75f, grid.getTileHeight(), 1e-4f);
+        assertEquals(0f, grid.getLeft(0), 0f);
+        assertEquals(90f, grid.getLeft(1), 1e-4f);
+        assertEquals(180f, grid.getLeft(2), 1e-4f);
+        assertEquals(300f, grid.getLeft(2) + grid.getTileWidth(), 1e-4f);
+        assertEquals(0f, grid.getTop(2), 0f);
+        assertEquals(200f, grid.getTop(3) + grid.getTileHeight(), 1e-4f);
+        assertEquals(grid.getLeft(1), grid.getLeft(4), 0f);
+    }
+
+    @Test
+    public void noOverlap_tilesAbut() {
+        final TileGrid grid = new TileGrid(100, 100, 2, 2, 0f);
+
+        assertEquals(50f, grid.getTileWidth(), 0f);
+        assertEquals(50f, grid.getLeft(1), 0f);
+        assertEquals(50f, grid.getTop(2), 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fullOverlap_isRejected() {
+        new TileGrid(100, 100, 2, 2, 1f);
+    }
+}
@@ -0,0 +1,19 @@
+package com.objdetector.core.image;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DecodeSamplingTest {
+    @Test
+    public void inSampleSize_keepsBothSidesAboveTarget() {
+        assertEquals(8, DecodeSampling.inSampleSize(4032, 3024, 300, 300));
+        assertEquals(2, DecodeSampling.inSampleSize(640, 480, 300, 200));
+        assertEquals(1, DecodeSampling.inSampleSize(599, 2000, 300, 300));
+    }
+
+    @Test
+    public void inSampleSize_neverUpsamples() {
+        assertEquals(1, DecodeSampling.inSampleSize(100, 100, 300, 300));
+    }
+}
@@ -0,0 +1,78 @@
+package com.objdetector.core.image;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LookupTableYuvToRgbKernelTest {
+    private final YuvToRgbKernel lookupTable = new LookupTableYuvToRgbKernel();
+
+    @Test
+    public void toArgb_matchesFixedPointForEverySample() {
+        for (int y = 0; y < 256; y++) {
+            for (int u = 0; u < 256; u++) {
+                for (int v = 0; v < 256; v++) {
+                    final int expected = YuvUtils.YUV2RGB(y, u, v);
+                    final int actual = lookupTable.toArgb(y, u, v);
+                    if (expected != actual) {
+                        fail("yuv(" + y + "," + u + "," + v + "): expected " + Integer.toHexString(expected)
+                                + " but was " + Integer.toHexString(actual));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void convertRows_matchesFixedPointOnEvenFrame() {
+        assertFrameMatches(64, 48, 64, 2);
+    }
+
+    @Test
+    public void convertRows_matchesFixedPointOnOddFrame() {
+        assertFrameMatches(33, 21, 40, 1);
+    }
+
+    @Test
+    public void convertRows_handlesStripesStartingMidChromaRow() {
+        final int width = 21;
+        final int height = 15;
+        final ByteBuffer[] planes = YuvToRgbConverterTest.randomPlanes(width, height, 24, 24, 2, new Random(13));
+        final int[] expected = new int[width * height];
+        new FixedPointYuvToRgbKernel().convertRows(planes[0], planes[1], planes[2], 24, 24, 2,
+                width, 0, height, expected);
+
+        final int[] actual = new int[width * height];
+        final int[] boundaries = {0, 1, 4, 7, 8, 15};
+        for (int i = 0; i + 1 < boundaries.length; i++) {
+            lookupTable.convertRows(planes[0], planes[1], planes[2], 24, 24, 2,
+                    width, boundaries[i], boundaries[i + 1], actual);
+        }
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void tensorConverter_matchesFixedPointKernel() {
+        final ByteBuffer[] planes = YuvToRgbConverterTest.randomPlanes(80, 60, 80, 80, 2, new Random(17));
+        final ByteBuffer expected = ByteBuffer.allocateDirect(30 * 30 * 3);
+        new YuvToTensorConverter(80, 60, 30, 30, 90, true)
+                .convert(planes[0], planes[1], planes[2], 80, 80, 2, expected);
+        final ByteBuffer actual = ByteBuffer.allocateDirect(30 * 30 * 3);
+        new YuvToTensorConverter(80, 60, 30, 30, 90, true, null, lookupTable)
+                .convert(planes[0], planes[1], planes[2], 80, 80, 2, actual);
+        assertEquals(expected, actual);
+    }
+
+    private void assertFrameMatches(final int width, final int height, final int rowStride, final int pixelStride) {
+        final ByteBuffer[] planes =
+                YuvToRgbConverterTest.randomPlanes(width, height, rowStride, rowStride, pixelStride, new Random(21));
+        final int[] expected = new YuvToRgbConverter(width, height)
+                .convert(planes[0], planes[1], planes[2], rowStride, rowStride, pixelStride);
+        final int[] actual = new YuvToRgbConverter(width, height, null, lookupTable)
+                .convert(planes[0], planes[1], planes[2], rowStride, rowStride, pixelStride);
+        assertArrayEquals(expected, actual);
+    }
+}
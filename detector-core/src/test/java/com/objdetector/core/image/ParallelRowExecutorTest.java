@@ -0,0 +1,100 @@
+package com.objdetector.core.image;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.*;
+
+public class ParallelRowExecutorTest {
+    @Test
+    public void execute_visitsEveryRowExactlyOnce() {
+        final ParallelRowExecutor executor = new ParallelRowExecutor(4);
+        try {
+            for (final int rows : new int[]{1, 3, 4, 7, 300, 1081}) {
+                final AtomicIntegerArray visits = new AtomicIntegerArray(rows);
+                executor.execute(rows, (startRow, endRow) -> {
+                    for (int row = startRow; row < endRow; row++) {
+                        visits.incrementAndGet(row);
+                    }
+                });
+                for (int row = 0; row < rows; row++) {
+                    assertEquals("row " + row + " of " + rows, 1, visits.get(row));
+                }
+            }
+        } finally {
+            executor.close();
+        }
+    }
+
+    @Test
+    public void singleThread_runsInline() {
+        final ParallelRowExecutor executor = new ParallelRowExecutor(1);
+        final Thread caller = Thread.currentThread();
+        executor.execute(10, (startRow, endRow) -> {
+            assertSame(caller, Thread.currentThread());
+            assertEquals(0, startRow);
+            assertEquals(10, endRow);
+        });
+        executor.close();
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void workerFailure_isRethrownOnCaller() {
+        final ParallelRowExecutor executor = new ParallelRowExecutor(2);
+        try {
+            executor.execute(10, (startRow, endRow) -> {
+                if (startRow > 0) {
+                    throw new IllegalStateException("boom");
+                }
+            });
+        } finally {
+            executor.close();
+        }
+    }
+
+    @Test
+    public void parallelArgbConversion_matchesSerial() {
+        final int width = 97;
+        final int height = 61;
+        final ByteBuffer[] planes = YuvToRgbConverterTest.randomPlanes(width, height, 128, 128, 2, new Random(5));
+        final int[] serial = new YuvToRgbConverter(width, height)
+                .convert(planes[0], planes[1], planes[2], 128, 128, 2).clone();
+
+        final ParallelRowExecutor executor = new ParallelRowExecutor(3);
+        try {
+            final int[] parallel = new YuvToRgbConverter(width, height, executor)
+                    .convert(planes[0], planes[1], planes[2], 128, 128, 2);
+            assertArrayEquals(serial, parallel);
+        } finally {
+            executor.close();
+        }
+    }
+
+    @Test
+    public void parallelTensorFill_matchesSerial() {
+        final int width = 160;
+        final int height = 120;
+        final ByteBuffer[] planes = YuvToRgbConverterTest.randomPlanes(width, height, width, width, 2, new Random(9));
+        final ByteBuffer serial = ByteBuffer.allocateDirect(50 * 50 * 3);
+        new YuvToTensorConverter(width, height, 50, 50, 90, true)
+                .convert(planes[0], planes[1], planes[2], width, width, 2, serial);
+
+        final ParallelRowExecutor executor = new ParallelRowExecutor(4);
+        try {
+            final ByteBuffer parallel = ByteBuffer.allocateDirect(50 * 50 * 3);
+            new YuvToTensorConverter(width, height, 50, 50, 90, true, executor)
+                    .convert(planes[0], planes[1], planes[2], width, width, 2, parallel);
+            assertEquals(serial, parallel);
+        } finally {
+            executor.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroThreads_isRejected() {
+        new ParallelRowExecutor(0);
+    }
+}
@@ -0,0 +1,66 @@
+package com.objdetector.core.image;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class RgbTensorPackerTest {
+    @Test
+    public void packRows_writesRgbAndDropsAlpha() {
+        final int[] argb = {0xff102030, 0x80405060, 0x00708090, 0xffa0b0c0};
+        final ByteBuffer out = ByteBuffer.allocateDirect(argb.length * 3);
+
+        RgbTensorPacker.packRows(argb, 2, 1, 2, out);
+        RgbTensorPacker.packRows(argb, 2, 0, 1, out);
+
+        final byte[] expected = {0x10, 0x20, 0x30, 0x40, 0x50, 0x60,
+                0x70, (byte) 0x80, (byte) 0x90, (byte) 0xa0, (byte) 0xb0, (byte) 0xc0};
+        final byte[] actual = new byte[expected.length];
+        out.get(actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void packRows_writesAtOffset() {
+        final int[] argb = {0x00010203, 0x00040506};
+        final ByteBuffer out = ByteBuffer.allocateDirect(2 * argb.length * 3);
+
+        RgbTensorPacker.packRows(argb, 2, 0, 1, out, 6);
+
+        final byte[] expected = {0, 0, 0, 0, 0, 0, 1, 2, 3, 4, 5, 6};
+        final byte[] actual = new byte[expected.length];
+        out.get(actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void packRows_int8_shiftsEachChannel() {
+        final int[] argb = {0xff0080ff};
+        final ByteBuffer out = ByteBuffer.allocateDirect(3);
+
+        RgbTensorPacker.packRows(argb, 1, 0, 1, out, 0, TensorFormat.int8());
+
+        assertEquals(-128, out.get(0));
+        assertEquals(0, out.get(1));
+        assertEquals(127, out.get(2));
+    }
+
+    @Test
+    public void packRows_float32_normalisesAtByteOffset() {
+        final int[] argb = {0x00000000, 0x0080ff40};
+        final ByteBuffer out = ByteBuffer.allocateDirect(4 * 9).order(ByteOrder.nativeOrder());
+
+        RgbTensorPacker.packRows(argb, 2, 0, 1, out, 12, TensorFormat.float32(128f, 128f));
+
+        assertEquals(0f, out.getFloat(0), 0f);
+        assertEquals(-1f, out.getFloat(12), 0f);
+        assertEquals(-1f, out.getFloat(20), 0f);
+        assertEquals(0f, out.getFloat(24), 0f);
+        assertEquals(127f / 128, out.getFloat(28), 0f);
+        assertEquals(-0.5f, out.getFloat(32), 0f);
+        assertEquals(0, out.position());
+    }
+}
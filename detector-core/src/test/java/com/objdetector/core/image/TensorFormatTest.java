@@ -0,0 +1,64 @@
+package com.objdetector.core.image;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TensorFormatTest {
+    @Test
+    public void uint8_isRaw() {
+        final TensorFormat format = TensorFormat.uint8();
+
+        assertTrue(format.isRaw());
+        assertEquals(3, format.getBytesPerPixel());
+        assertEquals(200f, format.encode(200), 0f);
+    }
+
+    @Test
+    public void quantizedUint8_matchingItsNormalisation_isRaw() {
+        // The bundled SSD: inputs normalised to [-1, 1) and quantised with scale 1/128, zero point 128.
+        final TensorFormat format = TensorFormat.quantized(TensorFormat.ElementType.UINT8, 128f, 128f,
+                1f / 128, 128);
+
+        assertTrue(format.isRaw());
+    }
+
+    @Test
+    public void int8_shiftsByZeroPoint() {
+        final TensorFormat format = TensorFormat.int8();
+
+        assertFalse(format.isRaw());
+        assertEquals(-128f, format.encode(0), 0f);
+        assertEquals(0f, format.encode(128), 0f);
+        assertEquals(127f, format.encode(255), 0f);
+    }
+
+    @Test
+    public void quantizedInt8_normalisesRoundsAndClamps() {
+        final TensorFormat format = TensorFormat.quantized(TensorFormat.ElementType.INT8, 0f, 255f,
+                1f / 128, 0);
+
+        assertEquals(0f, format.encode(0), 0f);
+        assertEquals(50f, format.encode(100), 0f);
+        assertEquals(127f, format.encode(255), 0f);
+    }
+
+    @Test
+    public void float32_normalises() {
+        final TensorFormat format = TensorFormat.float32(127.5f, 127.5f);
+
+        assertEquals(12, format.getBytesPerPixel());
+        assertEquals(-1f, format.encode(0), 1e-6f);
+        assertEquals(1f, format.encode(255), 1e-6f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void quantized_rejectsFloat32() {
+        TensorFormat.quantized(TensorFormat.ElementType.FLOAT32, 0f, 1f, 1f, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void float32_rejectsZeroStd() {
+        TensorFormat.float32(0f, 0f);
+    }
+}
@@ -0,0 +1,107 @@
+package com.objdetector.core.image;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class YuvToRgbConverterTest {
+    @Test
+    public void planarFrame_matchesLegacyConverter() {
+        assertMatchesLegacy(64, 48, 64, 32, 1);
+    }
+
+    @Test
+    public void semiPlanarFrameWithRowPadding_matchesLegacyConverter() {
+        // NV21-style layout: interleaved chroma with a pixel stride of 2 and padded rows.
+        assertMatchesLegacy(62, 46, 80, 80, 2);
+    }
+
+    @Test
+    public void oddSize_matchesLegacyConverter() {
+        assertMatchesLegacy(31, 17, 32, 32, 2);
+    }
+
+    @Test
+    public void convert_reusesOutputAndLeavesBuffersUntouched() {
+        final YuvToRgbConverter converter = new YuvToRgbConverter(16, 16);
+        final ByteBuffer[] planes = randomPlanes(16, 16, 16, 16, 2, new Random(1));
+        final int[] first = converter.convert(planes[0], planes[1], planes[2], 16, 16, 2);
+        final int[] second = converter.convert(planes[0], planes[1], planes[2], 16, 16, 2);
+
+        assertSame(first, second);
+        assertSame(converter.getOutput(), first);
+        assertEquals(0, planes[0].position());
+        assertEquals(0, planes[1].position());
+    }
+
+    @Test
+    public void convert_allocatesNothingPerFrame() {
+        final com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final YuvToRgbConverter converter = new YuvToRgbConverter(640, 480);
+        final ByteBuffer[] planes = randomPlanes(640, 480, 640, 640, 2, new Random(7));
+        for (int i = 0; i < 5; i++) {
+            converter.convert(planes[0], planes[1], planes[2], 640, 640, 2);
+        }
+
+        final long start = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 10; i++) {
+            converter.convert(planes[0], planes[1], planes[2], 640, 640, 2);
+        }
+        final long allocated = threadBean.getThreadAllocatedBytes(threadId) - start;
+
+        // Allow a little slack for allocation done by the measurement itself.
+        assertTrue("Converter allocated " + allocated + " bytes over 10 frames", allocated < 1024);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptySize_isRejected() {
+        new YuvToRgbConverter(0, 10);
+    }
+
+    private static void assertMatchesLegacy(final int width, final int height, final int yRowStride,
+                                            final int uvRowStride, final int uvPixelStride) {
+        final ByteBuffer[] planes = randomPlanes(width, height, yRowStride, uvRowStride, uvPixelStride, new Random(42));
+        final int[] expected = YuvUtils.convertYUV420ToARGB8888(toArray(planes[0]), toArray(planes[1]),
+                toArray(planes[2]), width, height, yRowStride, uvRowStride, uvPixelStride);
+
+        final YuvToRgbConverter converter = new YuvToRgbConverter(width, height);
+        final int[] actual = converter.convert(planes[0], planes[1], planes[2], yRowStride, uvRowStride, uvPixelStride);
+
+        assertArrayEquals(expected, actual);
+    }
+
+    /**
+     * Builds direct Y, U and V buffers laid out the way {@code ImageReader} hands them out.
+     */
+    static ByteBuffer[] randomPlanes(final int width, final int height, final int yRowStride,
+                                     final int uvRowStride, final int uvPixelStride, final Random random) {
+        final int chromaHeight = (height + 1) / 2;
+        final int chromaWidth = (width + 1) / 2;
+        final ByteBuffer y = randomDirect(yRowStride * (height - 1) + width, random);
+        final int uvSize = uvRowStride * (chromaHeight - 1) + (chromaWidth - 1) * uvPixelStride + 1;
+        final ByteBuffer u = randomDirect(uvSize, random);
+        final ByteBuffer v = randomDirect(uvSize, random);
+        return new ByteBuffer[]{y, u, v};
+    }
+
+    private static ByteBuffer randomDirect(final int size, final Random random) {
+        final byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        buffer.put(bytes);
+        buffer.rewind();
+        return buffer;
+    }
+
+    private static byte[] toArray(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.capacity()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,205 @@
+package com.objdetector.core.image;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class YuvToTensorConverterTest {
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 8;
+
+    private final ByteBuffer[] planes =
+            YuvToRgbConverterTest.randomPlanes(WIDTH, HEIGHT, WIDTH + 4, WIDTH + 4, 2, new Random(3));
+    private final int[] argb = new YuvToRgbConverter(WIDTH, HEIGHT)
+            .convert(planes[0], planes[1], planes[2], WIDTH + 4, WIDTH + 4, 2);
+
+    @Test
+    public void noRotationSameSize_matchesFullConversion() {
+        final byte[] tensor = convert(WIDTH, HEIGHT, 0, true);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertPixel(tensor, WIDTH, x, y, x, y);
+            }
+        }
+    }
+
+    @Test
+    public void rotation90_turnsFrameClockwise() {
+        final byte[] tensor = convert(HEIGHT, WIDTH, 90, true);
+        for (int dy = 0; dy < WIDTH; dy++) {
+            for (int dx = 0; dx < HEIGHT; dx++) {
+                assertPixel(tensor, HEIGHT, dx, dy, dy, HEIGHT - 1 - dx);
+            }
+        }
+    }
+
+    @Test
+    public void rotation180_flipsBothAxes() {
+        final byte[] tensor = convert(WIDTH, HEIGHT, 180, true);
+        for (int dy = 0; dy < HEIGHT; dy++) {
+            for (int dx = 0; dx < WIDTH; dx++) {
+                assertPixel(tensor, WIDTH, dx, dy, WIDTH - 1 - dx, HEIGHT - 1 - dy);
+            }
+        }
+    }
+
+    @Test
+    public void rotation270_turnsFrameCounterClockwise() {
+        final byte[] tensor = convert(HEIGHT, WIDTH, -90, true);
+        for (int dy = 0; dy < WIDTH; dy++) {
+            for (int dx = 0; dx < HEIGHT; dx++) {
+                assertPixel(tensor, HEIGHT, dx, dy, WIDTH - 1 - dy, dx);
+            }
+        }
+    }
+
+    @Test
+    public void downscale_samplesPixelCentres() {
+        final byte[] tensor = convert(WIDTH / 2, HEIGHT / 2, 0, false);
+        for (int dy = 0; dy < HEIGHT / 2; dy++) {
+            for (int dx = 0; dx < WIDTH / 2; dx++) {
+                assertPixel(tensor, WIDTH / 2, dx, dy, 2 * dx + 1, 2 * dy + 1);
+            }
+        }
+    }
+
+    @Test
+    public void maintainAspectRatio_cropsAroundCentre() {
+        final byte[] tensor = convert(4, 4, 180, true);
+        for (int dy = 0; dy < 4; dy++) {
+            for (int dx = 0; dx < 4; dx++) {
+                assertPixel(tensor, 4, dx, dy, 11 - 2 * dx, 7 - 2 * dy);
+            }
+        }
+    }
+
+    @Test
+    public void stridesChangeBetweenFrames_offsetsAreRebuilt() {
+        final YuvToTensorConverter converter = new YuvToTensorConverter(WIDTH, HEIGHT, 5, 5, 90, true);
+        final ByteBuffer padded = ByteBuffer.allocateDirect(5 * 5 * 3);
+        converter.convert(planes[0], planes[1], planes[2], WIDTH + 4, WIDTH + 4, 2, padded);
+
+        final ByteBuffer[] packed = repack(WIDTH + 4, WIDTH, 1);
+        final ByteBuffer tight = ByteBuffer.allocateDirect(5 * 5 * 3);
+        converter.convert(packed[0], packed[1], packed[2], WIDTH, WIDTH / 2, 1, tight);
+
+        assertEquals(padded, tight);
+    }
+
+    @Test
+    public void int8Format_storesShiftedChannels() {
+        final byte[] raw = convert(5, 5, 90, true);
+        final YuvToTensorConverter converter =
+                new YuvToTensorConverter(WIDTH, HEIGHT, 5, 5, 90, true, null, TensorFormat.int8());
+        final ByteBuffer out = ByteBuffer.allocateDirect(raw.length);
+        converter.convert(planes[0], planes[1], planes[2], WIDTH + 4, WIDTH + 4, 2, out);
+
+        for (int i = 0; i < raw.length; i++) {
+            assertEquals((raw[i] & 0xFF) - 128, out.get(i));
+        }
+    }
+
+    @Test
+    public void float32Format_storesNormalisedChannelsFromPosition() {
+        final byte[] raw = convert(5, 5, 90, true);
+        final TensorFormat format = TensorFormat.float32(127.5f, 127.5f);
+        final ByteBuffer out = ByteBuffer.allocateDirect(8 + raw.length * 4).order(ByteOrder.nativeOrder());
+        out.position(8);
+        final ParallelRowExecutor executor = new ParallelRowExecutor(2);
+        try {
+            new YuvToTensorConverter(WIDTH, HEIGHT, 5, 5, 90, true, executor, format)
+                    .convert(planes[0], planes[1], planes[2], WIDTH + 4, WIDTH + 4, 2, out);
+        } finally {
+            executor.close();
+        }
+
+        assertEquals(8, out.position());
+        for (int i = 0; i < raw.length; i++) {
+            assertEquals(((raw[i] & 0xFF) - 127.5f) / 127.5f, out.getFloat(8 + i * 4), 0f);
+        }
+    }
+
+    @Test
+    public void forRegion_stretchesRegionOfUprightFrame() {
+        // Rotated by 90 degrees the upright frame is HEIGHT x WIDTH
+        final YuvToTensorConverter converter =
+                new YuvToTensorConverter(WIDTH, HEIGHT, 4, 8, 90, true).forRegion(4, 8, 4, 8);
+        final ByteBuffer out = ByteBuffer.allocateDirect(4 * 8 * 3);
+        converter.convert(planes[0], planes[1], planes[2], WIDTH + 4, WIDTH + 4, 2, out);
+        final byte[] tensor = new byte[out.capacity()];
+        out.get(tensor);
+
+        assertEquals(HEIGHT, converter.getUprightWidth());
+        assertEquals(WIDTH, converter.getUprightHeight());
+        for (int dy = 0; dy < 8; dy++) {
+            for (int dx = 0; dx < 4; dx++) {
+                assertPixel(tensor, 4, dx, dy, 8 + dy, HEIGHT - 1 - (4 + dx));
+            }
+        }
+    }
+
+    @Test
+    public void mapToFrame_undoesCropAndScale() {
+        final YuvToTensorConverter converter = new YuvToTensorConverter(WIDTH, HEIGHT, 4, 4, 180, true);
+        final float[] boxes = {0, 0, 4, 4, 1, 2, 3, 3};
+
+        converter.mapToFrame(boxes, 2);
+        assertArrayEquals(new float[]{4, 0, 12, 8, 6, 4, 10, 6}, boxes, 1e-5f);
+
+        converter.mapFromFrame(boxes, 2);
+        assertArrayEquals(new float[]{0, 0, 4, 4, 1, 2, 3, 3}, boxes, 1e-5f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void arbitraryRotation_isRejected() {
+        new YuvToTensorConverter(WIDTH, HEIGHT, 4, 4, 45, true);
+    }
+
+    private byte[] convert(final int dstWidth, final int dstHeight, final int rotation,
+                           final boolean maintainAspectRatio) {
+        final YuvToTensorConverter converter =
+                new YuvToTensorConverter(WIDTH, HEIGHT, dstWidth, dstHeight, rotation, maintainAspectRatio);
+        final ByteBuffer out = ByteBuffer.allocateDirect(dstWidth * dstHeight * 3);
+        converter.convert(planes[0], planes[1], planes[2], WIDTH + 4, WIDTH + 4, 2, out);
+        assertEquals(0, out.position());
+        final byte[] bytes = new byte[out.capacity()];
+        out.get(bytes);
+        return bytes;
+    }
+
+    private void assertPixel(final byte[] tensor, final int dstWidth, final int dx, final int dy,
+                             final int sx, final int sy) {
+        final int expected = argb[sy * WIDTH + sx];
+        final int offset = (dy * dstWidth + dx) * 3;
+        final String where = "dst(" + dx + "," + dy + ") <- src(" + sx + "," + sy + ")";
+        assertEquals(where, (expected >> 16) & 0xFF, tensor[offset] & 0xFF);
+        assertEquals(where, (expected >> 8) & 0xFF, tensor[offset + 1] & 0xFF);
+        assertEquals(where, expected & 0xFF, tensor[offset + 2] & 0xFF);
+    }
+
+    /**
+     * Copies the test planes into a layout with different row and pixel strides.
+     */
+    private ByteBuffer[] repack(final int oldRowStride, final int newYRowStride, final int newUvPixelStride) {
+        final ByteBuffer y = ByteBuffer.allocateDirect(newYRowStride * HEIGHT);
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                y.put(row * newYRowStride + col, planes[0].get(row * oldRowStride + col));
+            }
+        }
+        final int chromaWidth = WIDTH / 2;
+        final ByteBuffer u = ByteBuffer.allocateDirect(chromaWidth * HEIGHT / 2);
+        final ByteBuffer v = ByteBuffer.allocateDirect(chromaWidth * HEIGHT / 2);
+        for (int row = 0; row < HEIGHT / 2; row++) {
+            for (int col = 0; col < chromaWidth; col++) {
+                u.put(row * chromaWidth + col * newUvPixelStride, planes[1].get(row * oldRowStride + col * 2));
+                v.put(row * chromaWidth + col * newUvPixelStride, planes[2].get(row * oldRowStride + col * 2));
+            }
+        }
+        return new ByteBuffer[]{y, u, v};
+    }
+}
@@ -0,0 +1,125 @@
+package com.objdetector.core.motion;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MotionGateTest {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final int ROW_STRIDE = 704;
+
+    @Test
+    public void update_skipsStaticFramesWithSensorNoise() {
+        final MotionGate gate = new MotionGate();
+        final byte[] scene = texturedScene();
+        final Random random = new Random(1);
+
+        assertTrue(gate.update(plane(scene, random, 0), WIDTH, HEIGHT, ROW_STRIDE, 1));
+        for (int i = 0; i < 10; i++) {
+            assertFalse(gate.update(plane(scene, random, 3), WIDTH, HEIGHT, ROW_STRIDE, 1));
+        }
+        assertEquals(11, gate.getCheckedCount());
+        assertEquals(10, gate.getSkippedCount());
+    }
+
+    @Test
+    public void update_passesMovingObjectAndReportsItsRegion() {
+        final MotionGate gate = new MotionGate();
+        final byte[] scene = texturedScene();
+        final Random random = new Random(2);
+        gate.update(plane(scene, random, 0), WIDTH, HEIGHT, ROW_STRIDE, 1);
+
+        // A bright 100x80 patch appears at (400, 300).
+        for (int y = 300; y < 380; y++) {
+            for (int x = 400; x < 500; x++) {
+                scene[y * ROW_STRIDE + x] = (byte) 250;
+            }
+        }
+
+        assertTrue(gate.update(plane(scene, random, 0), WIDTH, HEIGHT, ROW_STRIDE, 1));
+        final int[] region = new int[4];
+        gate.getChangedRegion(region);
+        assertTrue(region[0] <= 400 && region[2] >= 500);
+        assertTrue(region[1] <= 300 && region[3] >= 380);
+        // Blocks are 80x80 frame pixels, so the region is at most one block larger each side.
+        assertTrue(region[0] >= 320 && region[2] <= 560);
+        assertTrue(region[1] >= 240 && region[3] <= 400);
+
+        // The changed frame is now the reference.
+        assertFalse(gate.update(plane(scene, random, 0), WIDTH, HEIGHT, ROW_STRIDE, 1));
+    }
+
+    @Test
+    public void update_forcesPassAfterMaxSkippedFrames() {
+        final MotionGate gate = new MotionGate(64, 48, 8, 12, 2, 3);
+        final byte[] scene = texturedScene();
+        final Random random = new Random(3);
+        gate.update(plane(scene, random, 0), WIDTH, HEIGHT, ROW_STRIDE, 1);
+
+        final StringBuilder pattern = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            pattern.append(gate.update(plane(scene, random, 0), WIDTH, HEIGHT, ROW_STRIDE, 1) ? 'P' : '-');
+        }
+        assertEquals("---P---P", pattern.toString());
+    }
+
+    @Test
+    public void update_accumulatesSlowChangeAgainstReference() {
+        final MotionGate gate = new MotionGate(64, 48, 8, 12, 2, 1000);
+        final byte[] scene = new byte[ROW_STRIDE * HEIGHT];
+        Arrays.fill(scene, (byte) 100);
+        gate.update(ByteBuffer.wrap(scene), WIDTH, HEIGHT, ROW_STRIDE, 1);
+
+        // The whole frame brightens by 5 levels a frame: no single step passes, the sum does.
+        int passedAt = -1;
+        for (int i = 1; i <= 5 && passedAt < 0; i++) {
+            Arrays.fill(scene, (byte) (100 + 5 * i));
+            if (gate.update(ByteBuffer.wrap(scene), WIDTH, HEIGHT, ROW_STRIDE, 1)) {
+                passedAt = i;
+            }
+        }
+        assertEquals(3, passedAt);
+    }
+
+    @Test
+    public void invalidate_passesNextFrameAsNewReference() {
+        final MotionGate gate = new MotionGate();
+        final byte[] scene = texturedScene();
+        final Random random = new Random(4);
+        gate.update(plane(scene, random, 0), WIDTH, HEIGHT, ROW_STRIDE, 1);
+
+        gate.invalidate();
+
+        assertTrue(gate.update(plane(scene, random, 0), WIDTH, HEIGHT, ROW_STRIDE, 1));
+        final int[] region = new int[4];
+        gate.getChangedRegion(region);
+        assertArrayEquals(new int[]{0, 0, WIDTH, HEIGHT}, region);
+        assertFalse(gate.update(plane(scene, random, 0), WIDTH, HEIGHT, ROW_STRIDE, 1));
+    }
+
+    private static byte[] texturedScene() {
+        final byte[] scene = new byte[ROW_STRIDE * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                scene[y * ROW_STRIDE + x] = (byte) (64 + ((x / 16 + y / 16) % 2) * 96);
+            }
+        }
+        return scene;
+    }
+
+    private static ByteBuffer plane(final byte[] scene, final Random random, final int noise) {
+        final byte[] copy = scene.clone();
+        if (noise > 0) {
+            for (int i = 0; i < copy.length; i++) {
+                final int value = (copy[i] & 0xff) + random.nextInt(2 * noise + 1) - noise;
+                copy[i] = (byte) Math.max(0, Math.min(255, value));
+            }
+        }
+        return ByteBuffer.wrap(copy);
+    }
+}
@@ -0,0 +1,28 @@
+package com.objdetector.core.overlay;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class LabelTextCacheTest {
+    private final LabelTextCache cache = new LabelTextCache(Arrays.asList("person", "cup"));
+
+    @Test
+    public void get_roundsScoreToWholePercent() {
+        assertEquals("cup 88%", cache.get(1, 0.8753f));
+        assertEquals("person 100%", cache.get(0, 1.2f));
+    }
+
+    @Test
+    public void get_reusesTextForSameClassAndPercent() {
+        assertSame(cache.get(0, 0.501f), cache.get(0, 0.498f));
+    }
+
+    @Test
+    public void get_labelsUnknownClasses() {
+        assertEquals("? 50%", cache.get(7, 0.5f));
+        assertEquals("person 100%", cache.getLongestText());
+    }
+}
@@ -0,0 +1,119 @@
+package com.objdetector.core.overlay;
+
+import com.objdetector.core.detection.DetectionBatch;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class OverlayRendererTest {
+    private static final float TEXT_HEIGHT = 10f;
+    private static final float PADDING = 2f;
+
+    private final OverlayRenderer renderer = new OverlayRenderer(8, 0.5f, 0f, TEXT_HEIGHT, PADDING);
+
+    public OverlayRendererTest() {
+        renderer.setViewSize(200, 200);
+        renderer.setModel(100, 100, Arrays.asList("person", "cup"), 30f);
+    }
+
+    @Test
+    public void acquireFrame_mapsBoxesAboveMinScoreOntoView() {
+        final DetectionBatch results = new DetectionBatch(4);
+        results.add(0, 1, 0.9f, 10, 20, 30, 40);
+        results.add(1, 0, 0.2f, 50, 50, 60, 60);
+
+        renderer.submit(results, null);
+        final OverlayRenderer.Frame frame = renderer.acquireFrame();
+
+        assertEquals(1, frame.getCount());
+        assertArrayEquals(new float[]{20, 40, 60, 80}, Arrays.copyOf(frame.getViewBoxes(), 4), 1e-4f);
+        assertEquals("cup 90%", frame.getLabelText(0));
+    }
+
+    @Test
+    public void acquireFrame_remapsAfterViewSizeChange() {
+        final DetectionBatch results = new DetectionBatch(1);
+        results.add(0, 0, 0.9f, 10, 20, 30, 40);
+        renderer.submit(results, null);
+        renderer.acquireFrame();
+
+        renderer.setViewSize(100, 100);
+
+        assertArrayEquals(new float[]{10, 20, 30, 40},
+                Arrays.copyOf(renderer.acquireFrame().getViewBoxes(), 4), 1e-4f);
+    }
+
+    @Test
+    public void submit_reportsAreaOfOldAndNewBoxes() {
+        final float[] dirty = new float[4];
+        final DetectionBatch first = new DetectionBatch(1);
+        first.add(0, 0, 0.9f, 10, 20, 30, 40);
+        final DetectionBatch second = new DetectionBatch(1);
+        second.add(0, 0, 0.9f, 50, 50, 60, 60);
+
+        assertTrue(renderer.submit(first, dirty));
+        // The label is drawn above the box and may be wider than it
+        assertArrayEquals(new float[]{20 - PADDING, 40 - TEXT_HEIGHT - PADDING, 60 + PADDING, 80 + PADDING},
+                dirty, 1e-4f);
+
+        assertTrue(renderer.submit(second, dirty));
+        assertArrayEquals(new float[]{20 - PADDING, 40 - TEXT_HEIGHT - PADDING, 130 + PADDING, 120 + PADDING},
+                dirty, 1e-4f);
+
+        assertTrue(renderer.submit(null, dirty));
+        assertArrayEquals(new float[]{100 - PADDING, 100 - TEXT_HEIGHT - PADDING, 130 + PADDING, 120 + PADDING},
+                dirty, 1e-4f);
+        assertFalse(renderer.submit(null, dirty));
+    }
+
+    @Test
+    public void setModel_clearsBoxes() {
+        final DetectionBatch results = new DetectionBatch(1);
+        results.add(0, 0, 0.9f, 10, 20, 30, 40);
+        renderer.submit(results, null);
+
+        renderer.setModel(300, 300, Arrays.asList("dog"), 20f);
+
+        assertEquals(0, renderer.acquireFrame().getCount());
+    }
+
+    @Test
+    public void submitAndDraw_allocateNothingOnceLabelsAreSeen() {
+        final com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final DetectionBatch results = new DetectionBatch(8);
+        for (int i = 0; i < 8; i++) {
+            results.add(i, i % 2, 0.6f + i * 0.05f, i * 10, i * 5, i * 10 + 20, i * 5 + 20);
+        }
+        final float[] dirty = new float[4];
+        for (int i = 0; i < 5; i++) {
+            submitAndDraw(results, dirty);
+        }
+
+        final long start = threadBean.getThreadAllocatedBytes(threadId);
+        int characters = 0;
+        for (int i = 0; i < 100; i++) {
+            characters += submitAndDraw(results, dirty);
+        }
+        final long allocated = threadBean.getThreadAllocatedBytes(threadId) - start;
+
+        assertTrue(characters > 0);
+        // Allow a little slack for allocation done by the measurement itself.
+        assertTrue("Renderer allocated " + allocated + " bytes over 100 frames", allocated < 1024);
+    }
+
+    private int submitAndDraw(final DetectionBatch results, final float[] dirty) {
+        renderer.submit(results, dirty);
+        final OverlayRenderer.Frame frame = renderer.acquireFrame();
+        int characters = 0;
+        for (int i = 0; i < frame.getCount(); i++) {
+            characters += frame.getLabelText(i).length();
+        }
+        return characters;
+    }
+}
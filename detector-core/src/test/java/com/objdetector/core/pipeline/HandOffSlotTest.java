@@ -0,0 +1,52 @@
+package com.objdetector.core.pipeline;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HandOffSlotTest {
+    private final List<Integer> recycled = new ArrayList<>();
+    private final HandOffSlot<Integer> slot = new HandOffSlot<>("test", recycled::add);
+
+    @Test
+    public void offer_latestItemWins() throws InterruptedException {
+        slot.offer(1);
+        slot.offer(2);
+        slot.offer(3);
+
+        assertEquals(Integer.valueOf(3), slot.take());
+        assertEquals(3, slot.getOfferedCount());
+        assertEquals(2, slot.getDroppedCount());
+        assertEquals(Arrays.asList(1, 2), recycled);
+    }
+
+    @Test
+    public void take_waitsForProducer() throws InterruptedException {
+        final Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (final InterruptedException ignored) {
+            }
+            slot.offer(7);
+        });
+        producer.start();
+
+        assertEquals(Integer.valueOf(7), slot.take());
+        producer.join();
+        assertEquals(0, slot.getDroppedCount());
+    }
+
+    @Test
+    public void close_recyclesPendingAndReleasesConsumer() throws InterruptedException {
+        slot.offer(1);
+        slot.close();
+        slot.offer(2);
+
+        assertNull(slot.take());
+        assertEquals(Arrays.asList(1, 2), recycled);
+    }
+}
@@ -0,0 +1,109 @@
+package com.objdetector.core.pipeline;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class OrderedWorkerPoolTest {
+    /**
+     * Stands in for an interpreter: fails the test if two jobs use it at once.
+     */
+    private static final class Worker {
+        final AtomicInteger users = new AtomicInteger();
+    }
+
+    @Test
+    public void results_arriveInSubmissionOrderDespiteUnevenJobTimes() throws InterruptedException {
+        final List<Long> sequences = Collections.synchronizedList(new ArrayList<Long>());
+        final List<Integer> inputs = Collections.synchronizedList(new ArrayList<Integer>());
+        final AtomicInteger overlaps = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        final AtomicInteger running = new AtomicInteger();
+        final OrderedWorkerPool<Worker, Integer, Integer> pool = new OrderedWorkerPool<>("test",
+                Arrays.asList(new Worker(), new Worker(), new Worker()),
+                (worker, input) -> {
+                    if (worker.users.incrementAndGet() > 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    maxConcurrent.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    sleep(input % 3 == 0 ? 15 : 1);
+                    running.decrementAndGet();
+                    worker.users.decrementAndGet();
+                    return input * 10;
+                },
+                (sequence, input, output) -> {
+                    sequences.add(sequence);
+                    inputs.add(output / 10);
+                });
+
+        for (int i = 0; i < 30; i++) {
+            assertEquals(i, pool.submit(i));
+        }
+        pool.shutdown();
+
+        final List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, inputs);
+        assertEquals(0, overlaps.get());
+        assertTrue("Jobs should have run concurrently", maxConcurrent.get() > 1);
+        assertTrue(maxConcurrent.get() <= 3);
+        assertEquals(30, pool.getCompletedCount());
+        assertTrue(pool.getUtilisation() > 0 && pool.getUtilisation() <= 1);
+        assertTrue("Submitting 30 jobs to 3 workers should have waited", pool.getMaxQueueWaitMillis() > 0);
+    }
+
+    @Test
+    public void failedJob_isReportedWithoutStallingLaterResults() throws InterruptedException {
+        final List<String> delivered = Collections.synchronizedList(new ArrayList<String>());
+        final OrderedWorkerPool<Worker, Integer, String> pool = new OrderedWorkerPool<>("test",
+                Arrays.asList(new Worker(), new Worker()),
+                (worker, input) -> {
+                    if (input == 1) {
+                        throw new IllegalStateException("boom");
+                    }
+                    return "ok" + input;
+                },
+                (sequence, input, output) -> delivered.add(input + ":" + output));
+
+        for (int i = 0; i < 3; i++) {
+            pool.submit(i);
+        }
+        pool.shutdown();
+
+        assertEquals(Arrays.asList("0:ok0", "1:null", "2:ok2"), delivered);
+        assertEquals(1, pool.getFailedCount());
+        assertEquals(0, pool.getBusyWorkerCount());
+    }
+
+    @Test
+    public void submitAfterShutdown_throwsAndReleasesItsWorker() throws InterruptedException {
+        final OrderedWorkerPool<Worker, Integer, Integer> pool = new OrderedWorkerPool<>("test",
+                Collections.singletonList(new Worker()), (worker, input) -> input, (sequence, input, output) -> { });
+        pool.shutdown();
+
+        try {
+            pool.submit(1);
+            fail("Expected the shut down pool to reject the job");
+        } catch (final RejectedExecutionException expected) {
+            // The permit taken for the job is given back.
+        }
+        assertEquals(0, pool.getBusyWorkerCount());
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.objdetector.core.pipeline;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PipelineStageTest {
+    @Test
+    public void slowStage_seesOnlyFreshFramesInOrder() throws InterruptedException {
+        final ObjectPool<int[]> pool = new ObjectPool<>(4, () -> new int[1]);
+        final AtomicInteger preprocessed = new AtomicInteger();
+        final HandOffSlot<Integer> acquired = new HandOffSlot<>("acquire", frame -> { });
+        final HandOffSlot<int[]> ready = new HandOffSlot<>("ready", pool::release);
+        final List<Integer> published = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch lastFrame = new CountDownLatch(1);
+
+        final PipelineStage<Integer, int[]> preprocess = new PipelineStage<>("preprocess", acquired, ready,
+                frame -> {
+                    final int[] buffer = pool.acquire();
+                    if (buffer != null) {
+                        buffer[0] = frame;
+                        preprocessed.incrementAndGet();
+                    }
+                    return buffer;
+                });
+        final PipelineStage<int[], Void> infer = new PipelineStage<>("infer", ready, null,
+                buffer -> {
+                    sleep(5);
+                    published.add(buffer[0]);
+                    if (buffer[0] == 99) {
+                        lastFrame.countDown();
+                    }
+                    pool.release(buffer);
+                    return null;
+                });
+        preprocess.start();
+        infer.start();
+
+        for (int frame = 0; frame < 100; frame++) {
+            acquired.offer(frame);
+            sleep(1);
+        }
+        assertTrue(lastFrame.await(5, TimeUnit.SECONDS));
+        preprocess.stop();
+        infer.stop();
+
+        final List<Integer> frames = new ArrayList<>(published);
+        for (int i = 1; i < frames.size(); i++) {
+            assertTrue("Frames went backwards: " + frames, frames.get(i) > frames.get(i - 1));
+        }
+        assertTrue("Slow stage should have skipped frames", frames.size() < 100);
+        assertEquals(100 - preprocessed.get() - pool.getExhaustedCount(), acquired.getDroppedCount());
+        assertEquals(preprocessed.get() - frames.size(), ready.getDroppedCount());
+        assertEquals(pool.getSize(), pool.getAvailableCount());
+        assertEquals(0, infer.getDroppedCount());
+    }
+
+    @Test
+    public void nullResult_isCountedAsDrop() throws InterruptedException {
+        final HandOffSlot<Integer> input = new HandOffSlot<>("in", item -> { });
+        final HandOffSlot<Integer> output = new HandOffSlot<>("out", item -> { });
+        final PipelineStage<Integer, Integer> stage = new PipelineStage<>("odd", input, output,
+                item -> item % 2 == 1 ? item : null);
+        stage.start();
+
+        input.offer(2);
+        waitForProcessed(stage, 1);
+        input.offer(3);
+        assertEquals(Integer.valueOf(3), output.take());
+        stage.stop();
+
+        assertEquals(2, stage.getProcessedCount());
+        assertEquals(1, stage.getDroppedCount());
+    }
+
+    private static void waitForProcessed(final PipelineStage<?, ?> stage, final long count) {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (stage.getProcessedCount() < count && System.currentTimeMillis() < deadline) {
+            sleep(1);
+        }
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.objdetector.core.pipeline;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SwapBufferTest {
+    private static final class Item {
+        int value;
+    }
+
+    @Test
+    public void getFront_returnsLatestPublished() {
+        final SwapBuffer<Item> buffer = new SwapBuffer<>(Item::new);
+
+        buffer.getBack().value = 1;
+        buffer.publish();
+        buffer.getBack().value = 2;
+        buffer.publish();
+
+        assertEquals(2, buffer.getFront().value);
+    }
+
+    @Test
+    public void getFront_keepsItemUntilNewerIsPublished() {
+        final SwapBuffer<Item> buffer = new SwapBuffer<>(Item::new);
+        buffer.getBack().value = 1;
+        buffer.publish();
+        final Item front = buffer.getFront();
+
+        assertSame(front, buffer.getFront());
+        buffer.getBack().value = 2;
+        assertSame(front, buffer.getFront());
+        assertEquals(1, front.value);
+    }
+
+    @Test
+    public void writerNeverGetsReadersItem() {
+        final SwapBuffer<Item> buffer = new SwapBuffer<>(Item::new);
+        for (int i = 0; i < 10; i++) {
+            final Item front = buffer.getFront();
+            assertNotSame(front, buffer.getBack());
+            buffer.publish();
+            assertNotSame(front, buffer.getBack());
+        }
+    }
+
+    @Test
+    public void concurrentReader_seesIncreasingValues() throws InterruptedException {
+        final SwapBuffer<Item> buffer = new SwapBuffer<>(Item::new);
+        final int last = 100_000;
+        final AtomicInteger outOfOrder = new AtomicInteger();
+        final Thread reader = new Thread(() -> {
+            int seen = 0;
+            while (seen < last) {
+                final int value = buffer.getFront().value;
+                if (value < seen) {
+                    outOfOrder.incrementAndGet();
+                }
+                seen = value;
+            }
+        });
+        reader.start();
+        for (int i = 1; i <= last; i++) {
+            buffer.getBack().value = i;
+            buffer.publish();
+        }
+        reader.join(10_000);
+
+        assertFalse(reader.isAlive());
+        assertEquals(0, outOfOrder.get());
+    }
+}
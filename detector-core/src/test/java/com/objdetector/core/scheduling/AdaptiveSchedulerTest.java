@@ -0,0 +1,159 @@
+package com.objdetector.core.scheduling;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveSchedulerTest {
+    private static final long MS = 1_000_000L;
+    private static final long CAMERA_INTERVAL = 1_000_000_000L / 30;
+    private static final int WINDOW = 8;
+
+    /**
+     * Camera and a single inference worker on a simulated clock. Like the pipeline's hand-off
+     * slots, a frame arriving while another is already waiting for the worker replaces it.
+     */
+    private static final class Simulation implements AdaptiveScheduler.Clock {
+        final AdaptiveScheduler scheduler;
+        final List<AdaptiveScheduler.Decision> decisions = new ArrayList<>();
+        long[] serviceNanosPerTier;
+        long now;
+        long workerFreeAt;
+        long waitingSince = -1;
+        int inferred;
+        long lastLatency;
+
+        Simulation(final float targetFps, final long budget, final float[] tierCosts, final long... serviceNanosPerTier) {
+            this.serviceNanosPerTier = serviceNanosPerTier;
+            this.scheduler = new AdaptiveScheduler(this, targetFps, budget, tierCosts, 1, WINDOW);
+            scheduler.setDecisionListener(decisions::add);
+        }
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+        private long runningSince = -1;
+
+        void runFrames(final int frames) {
+            for (int i = 0; i < frames; i++) {
+                final long frameTime = now + CAMERA_INTERVAL;
+                runWorkerUntil(frameTime);
+                now = frameTime;
+                if (scheduler.onFrame()) {
+                    inferred++;
+                    if (runningSince < 0) {
+                        start(now);
+                    } else {
+                        waitingSince = now;
+                    }
+                }
+            }
+        }
+
+        private long inferenceStart;
+
+        private void start(final long frameTime) {
+            runningSince = frameTime;
+            inferenceStart = now;
+            workerFreeAt = now + serviceNanosPerTier[scheduler.getTier()];
+        }
+
+        private void runWorkerUntil(final long time) {
+            while (runningSince >= 0 && workerFreeAt <= time) {
+                now = workerFreeAt;
+                lastLatency = now - runningSince;
+                runningSince = -1;
+                scheduler.onInferenceDone(lastLatency, now - inferenceStart);
+                if (waitingSince >= 0) {
+                    start(waitingSince);
+                    waitingSince = -1;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void stride_capsInferenceAtTargetFrameRate() {
+        final Simulation sim = new Simulation(10f, 100 * MS, new float[]{1f}, 10 * MS);
+
+        sim.runFrames(300);
+
+        assertEquals(3, sim.scheduler.getStride());
+        assertEquals(100, sim.inferred, 2);
+        assertEquals(sim.scheduler.getFrameCount() - sim.inferred, sim.scheduler.getSkippedCount());
+    }
+
+    @Test
+    public void tier_coarsensUntilLatencyFitsBudgetWithoutOscillating() {
+        final Simulation sim = new Simulation(30f, 50 * MS, new float[]{1f, 0.5f, 0.25f},
+                80 * MS, 40 * MS, 20 * MS);
+
+        sim.runFrames(600);
+
+        assertEquals(2, sim.scheduler.getTier());
+        assertEquals(1, sim.scheduler.getStride());
+        assertTrue(sim.lastLatency <= 50 * MS);
+        // Two steps down and no flapping back up to the tier that cannot keep up.
+        assertEquals(2, sim.decisions.size());
+        assertEquals(2, sim.scheduler.getDecisionCount());
+    }
+
+    @Test
+    public void stride_risesWhenCoarsestTierIsStillOverBudget() {
+        final Simulation sim = new Simulation(30f, 80 * MS, new float[]{1f}, 90 * MS);
+
+        sim.runFrames(900);
+
+        assertEquals(3, sim.scheduler.getStride());
+        assertEquals(90 * MS, sim.lastLatency);
+        final AdaptiveScheduler.Decision last = sim.scheduler.getLastDecision();
+        assertEquals(sim.scheduler.getStride(), last.getStride());
+        assertTrue(last.getReason().contains("fewer frames"));
+    }
+
+    @Test
+    public void stride_risesWhenQueueWaitAlonePushesLatencyOverBudget() {
+        // 50ms inferences fit a 60ms budget, but at 30fps each frame also waits for the previous
+        // one; latency counted from the camera frame sees that wait.
+        final Simulation sim = new Simulation(30f, 60 * MS, new float[]{1f}, 50 * MS);
+
+        sim.runFrames(600);
+
+        assertEquals(2, sim.scheduler.getStride());
+        assertEquals(50 * MS, sim.lastLatency);
+        assertEquals(1, sim.decisions.size());
+        assertTrue(sim.decisions.get(0).getLatencyNanos() > 60 * MS);
+        assertTrue(sim.decisions.get(0).getReason().contains("fewer frames"));
+    }
+
+    @Test
+    public void stride_staysWhenInferenceAloneIsOverBudget() {
+        final Simulation sim = new Simulation(30f, 60 * MS, new float[]{1f}, 100 * MS);
+
+        sim.runFrames(900);
+
+        // The worker just keeps up with the camera, so frames hardly wait and skipping more of
+        // them could not make a 100ms inference fit 60ms.
+        assertEquals(1, sim.scheduler.getStride());
+        assertTrue(sim.decisions.isEmpty());
+    }
+
+    @Test
+    public void stride_recoversWhenLatencyDrops() {
+        final Simulation sim = new Simulation(30f, 80 * MS, new float[]{1f}, 90 * MS);
+        sim.runFrames(900);
+        final int throttledStride = sim.scheduler.getStride();
+        assertTrue(throttledStride > 1);
+
+        sim.serviceNanosPerTier = new long[]{10 * MS};
+        sim.runFrames(900);
+
+        assertEquals(1, sim.scheduler.getStride());
+        assertTrue(sim.scheduler.getLastDecision().getReason().contains("more frames"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.objdetector.core.source;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AnalysisSizePolicyTest {
+    private static final int[] WIDTHS = {1920, 1280, 640, 640, 320, 1440};
+    private static final int[] HEIGHTS = {1080, 720, 480, 360, 180, 1080};
+
+    @Test
+    public void choose_takesSmallestSizeWithPreviewAspect() {
+        final AnalysisSizePolicy policy = new AnalysisSizePolicy(300, 300);
+
+        assertEquals(3, policy.choose(WIDTHS, HEIGHTS, 1920, 1080, 0));
+    }
+
+    @Test
+    public void choose_rotated_swapsRequirement() {
+        // Upright, a 640x360 frame is 360 across and 640 down.
+        final AnalysisSizePolicy policy = new AnalysisSizePolicy(400, 300);
+
+        assertEquals(1, policy.choose(WIDTHS, HEIGHTS, 1920, 1080, 90));
+        assertEquals(3, policy.choose(WIDTHS, HEIGHTS, 1920, 1080, 0));
+    }
+
+    @Test
+    public void choose_skipsOtherAspectRatios() {
+        final AnalysisSizePolicy policy = new AnalysisSizePolicy(300, 300);
+
+        assertEquals(2, policy.choose(WIDTHS, HEIGHTS, 1440, 1080, 0));
+    }
+
+    @Test
+    public void choose_toleratesRoundedSizes() {
+        final AnalysisSizePolicy policy = new AnalysisSizePolicy(300, 300);
+
+        assertEquals(0, policy.choose(new int[]{1920}, new int[]{1088}, 1920, 1080, 0));
+    }
+
+    @Test
+    public void choose_nothingLargeEnough_returnsMinusOne() {
+        final AnalysisSizePolicy policy = new AnalysisSizePolicy(2000, 300);
+
+        assertEquals(-1, policy.choose(WIDTHS, HEIGHTS, 1920, 1080, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void choose_mismatchedArrays_throws() {
+        new AnalysisSizePolicy(300, 300).choose(new int[]{640, 320}, new int[]{480}, 640, 480, 0);
+    }
+
+    @Test
+    public void tiledExtent_coversEachTile() {
+        assertEquals(300, AnalysisSizePolicy.tiledExtent(300, 1, 0.2f));
+        assertEquals(540, AnalysisSizePolicy.tiledExtent(300, 2, 0.2f));
+    }
+
+    @Test
+    public void frameBytes_countsHalfResolutionChroma() {
+        assertEquals(640 * 480 * 3 / 2, AnalysisSizePolicy.frameBytes(640, 480));
+        assertEquals(9 + 2 * 4, AnalysisSizePolicy.frameBytes(3, 3));
+    }
+}
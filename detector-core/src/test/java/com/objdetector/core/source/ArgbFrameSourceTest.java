@@ -0,0 +1,84 @@
+package com.objdetector.core.source;
+
+import com.objdetector.core.image.YuvUtils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ArgbFrameSourceTest {
+    @Test
+    public void toI420_roundTripsThroughYuvToRgb() {
+        final int[] colours = {0xff000000, 0xffffffff, 0xffff0000, 0xff00ff00, 0xff0000ff, 0xff808040};
+        for (final int colour : colours) {
+            final int[] argb = new int[4];
+            Arrays.fill(argb, colour);
+            final ByteBuffer y = ByteBuffer.allocate(4);
+            final ByteBuffer u = ByteBuffer.allocate(1);
+            final ByteBuffer v = ByteBuffer.allocate(1);
+            ArgbFrameSource.toI420(argb, 2, 2, y, u, v);
+
+            final int rgb = YuvUtils.YUV2RGB(y.get(0) & 0xff, u.get(0) & 0xff, v.get(0) & 0xff);
+            for (int shift = 0; shift <= 16; shift += 8) {
+                assertEquals("channel " + shift + " of " + Integer.toHexString(colour),
+                        (colour >> shift) & 0xff, (rgb >> shift) & 0xff, 3);
+            }
+        }
+    }
+
+    @Test
+    public void toI420_averagesChromaOverEdgeBlocks() {
+        // 3x1: a red and a blue pixel share the first chroma sample, the last has its own
+        final int[] argb = {0xffff0000, 0xff0000ff, 0xff0000ff};
+        final ByteBuffer y = ByteBuffer.allocate(3);
+        final ByteBuffer u = ByteBuffer.allocate(2);
+        final ByteBuffer v = ByteBuffer.allocate(2);
+        ArgbFrameSource.toI420(argb, 3, 1, y, u, v);
+
+        final ByteBuffer blueU = ByteBuffer.allocate(1);
+        final ByteBuffer blueV = ByteBuffer.allocate(1);
+        ArgbFrameSource.toI420(new int[]{0xff0000ff}, 1, 1, ByteBuffer.allocate(1), blueU, blueV);
+        assertEquals(blueU.get(0), u.get(1));
+        assertEquals(blueV.get(0), v.get(1));
+        assertTrue((u.get(0) & 0xff) < (blueU.get(0) & 0xff));
+        assertTrue((v.get(0) & 0xff) > (blueV.get(0) & 0xff));
+    }
+
+    @Test
+    public void read_deliversConvertedImages() throws InterruptedException {
+        final ArgbFrameSource source = new ArgbFrameSource("test", 4, 2, 3) {
+            @Override
+            protected boolean readArgb(final int[] argb, final long index) {
+                Arrays.fill(argb, index == 0 ? 0xff000000 : 0xffffffff);
+                return index < 2;
+            }
+
+            @Override
+            protected long getTimestampNanos(final long index) {
+                return index * 10;
+            }
+
+            @Override
+            protected void rewind() {
+            }
+        };
+        final LinkedBlockingQueue<SourceFrame> frames = new LinkedBlockingQueue<>();
+        source.start(frames::add);
+        assertTrue(source.awaitCompletion(5, TimeUnit.SECONDS));
+
+        final SourceFrame black = frames.poll();
+        final SourceFrame white = frames.poll();
+        assertEquals(16, black.getY().get(0) & 0xff);
+        assertEquals(235, white.getY().get(7) & 0xff);
+        assertEquals(2, black.getUvRowStride());
+        assertEquals(10, white.getTimestampNanos());
+        black.close();
+        white.close();
+        source.close();
+    }
+}
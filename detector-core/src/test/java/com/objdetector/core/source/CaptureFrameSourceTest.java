@@ -0,0 +1,86 @@
+package com.objdetector.core.source;
+
+import com.objdetector.core.capture.CaptureWriter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CaptureFrameSourceTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void open_deliversRecordedFramesWithRotation() throws IOException, InterruptedException {
+        final File directory = writeCapture(3);
+        final CaptureFrameSource source = CaptureFrameSource.open(directory, 90, 4);
+        assertEquals(8, source.getWidth());
+        assertEquals(4, source.getHeight());
+        assertEquals(90, source.getRotation());
+
+        final LinkedBlockingQueue<SourceFrame> frames = new LinkedBlockingQueue<>();
+        source.start(frames::add);
+        assertTrue(source.awaitCompletion(5, TimeUnit.SECONDS));
+        assertNull(source.getFailure());
+        assertEquals(3, frames.size());
+        for (int i = 0; i < 3; i++) {
+            final SourceFrame frame = frames.poll();
+            assertEquals(1000L * i, frame.getTimestampNanos());
+            assertEquals(i, frame.getY().get(0));
+            assertEquals(8, frame.getYRowStride());
+            assertEquals(2, frame.getUvPixelStride());
+            frame.close();
+        }
+        source.close();
+    }
+
+    @Test
+    public void looping_keepsTimestampsIncreasing() throws IOException, InterruptedException {
+        final CaptureFrameSource source = CaptureFrameSource.open(writeCapture(2), 0, 1);
+        source.setLooping(true);
+        final LinkedBlockingQueue<SourceFrame> frames = new LinkedBlockingQueue<>();
+        source.start(frames::add);
+
+        long previous = -1;
+        for (int i = 0; i < 5; i++) {
+            final SourceFrame frame = frames.poll(5, TimeUnit.SECONDS);
+            assertTrue(frame.getTimestampNanos() > previous);
+            assertEquals(i % 2, frame.getY().get(0));
+            previous = frame.getTimestampNanos();
+            frame.close();
+        }
+        source.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void emptyDirectory_isRejected() throws IOException {
+        CaptureFrameSource.open(folder.newFolder(), 0, 1);
+    }
+
+    private File writeCapture(final int frames) throws IOException {
+        final File directory = new File(folder.getRoot(), "capture");
+        try (CaptureWriter writer = new CaptureWriter(directory, 1 << 16)) {
+            for (int i = 0; i < frames; i++) {
+                writer.write(filled(32, i), filled(15, i), filled(15, i), 8, 4, 8, 8, 2, 1000L * i);
+            }
+        }
+        return directory;
+    }
+
+    private static ByteBuffer filled(final int length, final int value) {
+        final ByteBuffer plane = ByteBuffer.allocateDirect(length);
+        while (plane.hasRemaining()) {
+            plane.put((byte) value);
+        }
+        plane.flip();
+        return plane;
+    }
+}
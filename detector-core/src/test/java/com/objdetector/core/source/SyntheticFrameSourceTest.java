@@ -0,0 +1,114 @@
+package com.objdetector.core.source;
+
+import org.junit.Test;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SyntheticFrameSourceTest {
+    @Test
+    public void frames_havePlanarPlanesWithMovingSquare() throws InterruptedException {
+        final SyntheticFrameSource source = new SyntheticFrameSource(64, 48, 2, 3);
+        final LinkedBlockingQueue<SourceFrame> frames = new LinkedBlockingQueue<>();
+        source.start(frames::add);
+
+        final SourceFrame first = frames.poll(5, TimeUnit.SECONDS);
+        final SourceFrame second = frames.poll(5, TimeUnit.SECONDS);
+        assertTrue(source.awaitCompletion(5, TimeUnit.SECONDS));
+
+        assertEquals(64, first.getWidth());
+        assertEquals(48, first.getHeight());
+        assertEquals(64, first.getYRowStride());
+        assertEquals(32, first.getUvRowStride());
+        assertEquals(1, first.getUvPixelStride());
+        assertEquals(64 * 48, first.getY().remaining());
+        assertEquals(32 * 24, first.getU().remaining());
+        assertTrue(second.getTimestampNanos() > first.getTimestampNanos());
+        final int squareRow = 24 * 64;
+        assertEquals(200, first.getY().get(squareRow + source.squareLeft(0)) & 0xff);
+        assertNotEquals(source.squareLeft(0), source.squareLeft(1));
+        assertEquals(2, source.getDeliveredCount());
+        assertNull(source.getFailure());
+        first.close();
+        second.close();
+        source.close();
+    }
+
+    @Test
+    public void squareLeft_staysInsideFrame() {
+        final SyntheticFrameSource source = new SyntheticFrameSource(100, 40, 0, 1);
+        for (int i = 0; i < 500; i++) {
+            final int left = source.squareLeft(i);
+            assertTrue(left >= 0);
+            assertTrue(left + source.getSquareSize() <= 100);
+            assertEquals(0, left % 2);
+        }
+    }
+
+    @Test
+    public void source_waitsForFramesToBeClosed() throws InterruptedException {
+        final SyntheticFrameSource source = new SyntheticFrameSource(16, 16, 0, 2);
+        final LinkedBlockingQueue<SourceFrame> frames = new LinkedBlockingQueue<>();
+        source.start(frames::add);
+
+        final SourceFrame first = frames.poll(5, TimeUnit.SECONDS);
+        assertNotNull(frames.poll(5, TimeUnit.SECONDS));
+        assertNull(frames.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(2, source.getDeliveredCount());
+
+        first.close();
+        assertNotNull(frames.poll(5, TimeUnit.SECONDS));
+        assertEquals(3, source.getDeliveredCount());
+        source.close();
+        assertNull(source.getFailure());
+    }
+
+    @Test
+    public void looping_restartsAtEnd() throws InterruptedException {
+        final SyntheticFrameSource source = new SyntheticFrameSource(16, 16, 3, 1);
+        source.setLooping(true);
+        final LinkedBlockingQueue<SourceFrame> frames = new LinkedBlockingQueue<>();
+        source.start(frames::add);
+
+        long previous = -1;
+        for (int i = 0; i < 3; i++) {
+            final SourceFrame frame = frames.poll(5, TimeUnit.SECONDS);
+            assertTrue(frame.getTimestampNanos() > previous);
+            previous = frame.getTimestampNanos();
+            frame.close();
+        }
+        // The synthetic pattern ends after three frames, so a fourth only comes from looping
+        final SourceFrame fourth = frames.poll(5, TimeUnit.SECONDS);
+        assertNotNull(fourth);
+        fourth.close();
+        assertFalse(source.awaitCompletion(50, TimeUnit.MILLISECONDS));
+        source.close();
+        assertTrue(source.awaitCompletion(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void frameRate_capsDelivery() throws InterruptedException {
+        final SyntheticFrameSource source = new SyntheticFrameSource(16, 16, 5, 1);
+        source.setFrameRate(50);
+        final long start = System.nanoTime();
+        source.start(SourceFrame::close);
+
+        assertTrue(source.awaitCompletion(5, TimeUnit.SECONDS));
+        assertEquals(5, source.getDeliveredCount());
+        // Four intervals of 20ms between five frames
+        assertTrue(System.nanoTime() - start >= 80_000_000L);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void start_twice_throws() {
+        final SyntheticFrameSource source = new SyntheticFrameSource(16, 16, 1, 1);
+        source.start(SourceFrame::close);
+        try {
+            source.start(SourceFrame::close);
+        } finally {
+            source.close();
+        }
+    }
+}
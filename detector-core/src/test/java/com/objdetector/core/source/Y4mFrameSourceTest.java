@@ -0,0 +1,132 @@
+package com.objdetector.core.source;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class Y4mFrameSourceTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void open_readsHeaderAndFrames() throws IOException, InterruptedException {
+        // Odd sizes round the chroma planes up: 5x3 luma, 3x2 chroma
+        final File file = writeY4m("W5 H3 F25:1 Ip A1:1 C420jpeg", 5, 3, 2, Integer.MAX_VALUE);
+        final Y4mFrameSource source = Y4mFrameSource.open(file, 3);
+        assertEquals(5, source.getWidth());
+        assertEquals(3, source.getHeight());
+        assertEquals(40_000_000L, source.getFrameIntervalNanos());
+
+        final LinkedBlockingQueue<SourceFrame> frames = new LinkedBlockingQueue<>();
+        source.start(frames::add);
+        assertTrue(source.awaitCompletion(5, TimeUnit.SECONDS));
+        assertNull(source.getFailure());
+        assertEquals(2, frames.size());
+
+        final SourceFrame first = frames.poll();
+        final SourceFrame second = frames.poll();
+        assertEquals(15, first.getY().remaining());
+        assertEquals(6, first.getU().remaining());
+        assertEquals(6, first.getV().remaining());
+        assertEquals(3, first.getUvRowStride());
+        assertEquals(1, first.getUvPixelStride());
+        assertEquals(0, first.getY().get(0));
+        assertEquals(14, first.getY().get(14));
+        assertEquals(100, first.getU().get(0));
+        assertEquals(107, second.getV().get(1));
+        assertEquals(1, second.getY().get(0));
+        assertEquals(40_000_000L, second.getTimestampNanos() - first.getTimestampNanos());
+        first.close();
+        second.close();
+        source.close();
+    }
+
+    @Test
+    public void truncatedFrame_failsSource() throws IOException, InterruptedException {
+        final File file = writeY4m("W4 H4 F30:1", 4, 4, 2, 60);
+        final Y4mFrameSource source = Y4mFrameSource.open(file, 2);
+        final LinkedBlockingQueue<SourceFrame> frames = new LinkedBlockingQueue<>();
+        source.start(frames::add);
+
+        assertTrue(source.awaitCompletion(5, TimeUnit.SECONDS));
+        assertEquals(1, frames.size());
+        assertTrue(source.getFailure() instanceof IOException);
+    }
+
+    @Test
+    public void looping_rereadsFirstFrame() throws IOException, InterruptedException {
+        final File file = writeY4m("W4 H2 F30:1", 4, 2, 2, Integer.MAX_VALUE);
+        final Y4mFrameSource source = Y4mFrameSource.open(file, 1);
+        source.setLooping(true);
+        final LinkedBlockingQueue<SourceFrame> frames = new LinkedBlockingQueue<>();
+        source.start(frames::add);
+
+        final byte[] firstBytes = new byte[3];
+        for (int i = 0; i < 3; i++) {
+            final SourceFrame frame = frames.poll(5, TimeUnit.SECONDS);
+            firstBytes[i] = frame.getY().get(0);
+            frame.close();
+        }
+        source.close();
+        assertArrayEquals(new byte[]{0, 1, 0}, firstBytes);
+    }
+
+    @Test(expected = IOException.class)
+    public void unsupportedColourSpace_isRejected() throws IOException {
+        Y4mFrameSource.open(writeY4m("W4 H4 F30:1 C444", 4, 4, 1, Integer.MAX_VALUE), 1);
+    }
+
+    @Test(expected = IOException.class)
+    public void highBitDepthColourSpace_isRejected() throws IOException {
+        Y4mFrameSource.open(writeY4m("W4 H4 F30:1 C420p10", 4, 4, 1, Integer.MAX_VALUE), 1);
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFile_isRejected() throws IOException {
+        final File file = folder.newFile("not.y4m");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("RIFF....WAVE\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        Y4mFrameSource.open(file, 1);
+    }
+
+    /**
+     * Frame {@code f} has luma {@code f + i} at byte {@code i}, U {@code 100 + f + i} and V
+     * {@code 105 + f + i}. The file is cut after {@code maxBytes}.
+     */
+    private File writeY4m(final String parameters, final int width, final int height, final int frames,
+                          final int maxBytes) throws IOException {
+        final int chroma = ((width + 1) / 2) * ((height + 1) / 2);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(("YUV4MPEG2 " + parameters + "\n").getBytes(StandardCharsets.US_ASCII));
+        for (int f = 0; f < frames; f++) {
+            bytes.write("FRAME\n".getBytes(StandardCharsets.US_ASCII));
+            for (int i = 0; i < width * height; i++) {
+                bytes.write(f + i);
+            }
+            for (int i = 0; i < chroma; i++) {
+                bytes.write(100 + f + i);
+            }
+            for (int i = 0; i < chroma; i++) {
+                bytes.write(105 + f + i);
+            }
+        }
+        final byte[] all = bytes.toByteArray();
+        final File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(Arrays.copyOf(all, Math.min(all.length, maxBytes)));
+        }
+        return file;
+    }
+}
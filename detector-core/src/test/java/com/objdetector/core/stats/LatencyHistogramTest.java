@@ -0,0 +1,105 @@
+package com.objdetector.core.stats;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+    @Test
+    public void percentiles_areWithinBucketPrecision() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final long[] values = new long[10_000];
+        final Random random = new Random(5);
+        for (int i = 0; i < values.length; i++) {
+            // Log-uniform between 100us and 10s
+            values[i] = (long) (1e5 * Math.pow(1e5, random.nextDouble()));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (final double percentile : new double[]{1, 50, 95, 99, 100}) {
+            final double exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1] / 1e6;
+            assertEquals("p" + percentile, exact, histogram.getPercentileMillis(percentile), exact * 0.04);
+        }
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[values.length - 1] / 1e6, histogram.getMaxMillis(), 1e-3);
+    }
+
+    @Test
+    public void smallValues_areExact() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5_000);
+        histogram.record(20_000);
+        histogram.record(31_000);
+
+        assertEquals(0.005, histogram.getPercentileMillis(0), 0);
+        assertEquals(0.020, histogram.getPercentileMillis(50), 0);
+        assertEquals(0.031, histogram.getPercentileMillis(100), 0);
+        assertEquals(0.056 / 3, histogram.getMeanMillis(), 1e-9);
+    }
+
+    @Test
+    public void bucketValues_increaseWithBuckets() {
+        for (long micros = 1; micros < 1L << 30; micros = micros * 3 / 2 + 1) {
+            final int bucket = LatencyHistogram.bucketOf(micros);
+            final double value = LatencyHistogram.valueOf(bucket);
+            assertEquals("value of " + micros + "us", micros, value, micros / 16.0);
+            assertTrue(LatencyHistogram.valueOf(bucket + 1) > value);
+        }
+    }
+
+    @Test
+    public void concurrentRecords_areAllCounted() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final long nanos = (t + 1) * 1_000_000L;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(nanos);
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40_000, histogram.getCount());
+        assertEquals(4.0, histogram.getMaxMillis(), 0);
+        assertEquals(2.5, histogram.getMeanMillis(), 1e-9);
+    }
+
+    @Test
+    public void record_allocatesNothing() {
+        final com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1);
+
+        final long start = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 10_000; i++) {
+            histogram.record(i * 1_000L);
+        }
+        final long allocated = threadBean.getThreadAllocatedBytes(threadId) - start;
+
+        // Allow a little slack for allocation done by the measurement itself.
+        assertTrue("Histogram allocated " + allocated + " bytes over 10000 records", allocated < 1024);
+    }
+
+    @Test
+    public void reset_forgetsValues() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_000);
+
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileMillis(50), 0);
+    }
+}
@@ -0,0 +1,47 @@
+package com.objdetector.core.stats;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencySamplesTest {
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void percentiles_useNearestRank() {
+        final LatencySamples samples = new LatencySamples(16);
+        for (int ms = 10; ms >= 1; ms--) {
+            samples.add(ms * 1_000_000L);
+        }
+
+        assertEquals(10, samples.getCount());
+        assertEquals(1.0, samples.getMinMillis(), DELTA);
+        assertEquals(5.0, samples.getPercentileMillis(50), DELTA);
+        assertEquals(9.0, samples.getPercentileMillis(90), DELTA);
+        assertEquals(10.0, samples.getMaxMillis(), DELTA);
+        assertEquals(5.5, samples.getMeanMillis(), DELTA);
+    }
+
+    @Test
+    public void add_ignoresSamplesPastCapacity() {
+        final LatencySamples samples = new LatencySamples(2);
+        samples.add(1_000_000L);
+        samples.add(2_000_000L);
+        samples.add(100_000_000L);
+
+        assertEquals(2, samples.getCount());
+        assertEquals(2.0, samples.getMaxMillis(), DELTA);
+    }
+
+    @Test
+    public void clear_resetsToEmpty() {
+        final LatencySamples samples = new LatencySamples(4);
+        samples.add(3_000_000L);
+        samples.clear();
+
+        assertEquals(0, samples.getCount());
+        assertEquals(0.0, samples.getPercentileMillis(50), DELTA);
+        samples.add(7_000_000L);
+        assertEquals(7.0, samples.getPercentileMillis(50), DELTA);
+    }
+}
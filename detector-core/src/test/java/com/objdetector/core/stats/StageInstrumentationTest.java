@@ -0,0 +1,37 @@
+package com.objdetector.core.stats;
+
+import com.objdetector.core.stats.StageInstrumentation.Stage;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StageInstrumentationTest {
+    @Test
+    public void report_hasLineForEveryStage() {
+        final StageInstrumentation instrumentation = new StageInstrumentation();
+        instrumentation.record(Stage.INFERENCE, 40_000_000L);
+        instrumentation.recordDrop(Stage.ACQUIRE);
+        instrumentation.recordDrop(Stage.ACQUIRE);
+
+        final String[] lines = instrumentation.report().split("\n");
+
+        assertEquals(Stage.values().length, lines.length);
+        assertTrue(lines[0], lines[0].startsWith("acquire") && lines[0].endsWith("drops=2"));
+        assertTrue(lines[2], lines[2].startsWith("inference") && lines[2].contains("n=1"));
+        assertEquals(1, instrumentation.getHistogram(Stage.INFERENCE).getCount());
+        assertEquals(2, instrumentation.getDropCount(Stage.ACQUIRE));
+    }
+
+    @Test
+    public void reset_clearsHistogramsAndDrops() {
+        final StageInstrumentation instrumentation = new StageInstrumentation();
+        instrumentation.record(Stage.DRAW, 1_000_000L);
+        instrumentation.recordDrop(Stage.DRAW);
+
+        instrumentation.reset();
+
+        assertEquals(0, instrumentation.getHistogram(Stage.DRAW).getCount());
+        assertEquals(0, instrumentation.getDropCount(Stage.DRAW));
+    }
+}
@@ -0,0 +1,154 @@
+package com.objdetector.core.tracking;
+
+import com.objdetector.core.detection.DetectionBatch;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ObjectTrackerTest {
+    private static final float SIZE = 40f;
+
+    @Test
+    public void advance_schedulesKeyframeEveryInterval() {
+        final ObjectTracker tracker = new ObjectTracker(3);
+        final StringBuilder pattern = new StringBuilder();
+        for (int frame = 0; frame < 7; frame++) {
+            pattern.append(tracker.advance() ? 'K' : '-');
+        }
+
+        assertEquals("K--K--K", pattern.toString());
+        assertEquals(3, tracker.getKeyframeCount());
+        assertEquals(4, tracker.getTrackedFrameCount());
+    }
+
+    @Test
+    public void tracks_keepIdsAndPredictConstantMotion() {
+        final ObjectTracker tracker = new ObjectTracker(3);
+        final float[] predicted = new float[4];
+        int id = -1;
+        for (int frame = 0; frame < 30; frame++) {
+            final float x = 10 + 2 * frame;
+            if (tracker.advance()) {
+                tracker.update(new float[]{x, 50, x + SIZE, 50 + SIZE}, new String[]{"cup"}, new float[]{0.9f}, 1);
+            }
+            assertEquals(1, tracker.getTracks().size());
+            final ObjectTracker.Track track = tracker.getTracks().get(0);
+            if (id < 0) {
+                id = track.getId();
+            }
+            assertEquals(id, track.getId());
+
+            if (frame >= 15) {
+                track.getBox(predicted, 0);
+                assertEquals(x, predicted[0], 1.5f);
+                assertEquals(50, predicted[1], 1.5f);
+                assertEquals(x + SIZE, predicted[2], 1.5f);
+            }
+        }
+        assertEquals(2f, tracker.getTracks().get(0).getVelocityX(), 0.2f);
+    }
+
+    @Test
+    public void batch_matchesOnClassIdAndWritesTracksBack() {
+        final ObjectTracker tracker = new ObjectTracker(1);
+        final DetectionBatch detections = new DetectionBatch(4);
+        detections.add(0, 47, 0.8f, 0, 0, SIZE, SIZE);
+        detections.add(1, 72, 0.7f, 100, 100, 100 + SIZE, 100 + SIZE);
+        tracker.advance();
+        tracker.update(detections);
+        final DetectionBatch tracked = new DetectionBatch(4);
+        tracker.writeTo(tracked);
+        final int cupId = tracked.getId(0);
+
+        detections.clear();
+        detections.add(0, 72, 0.9f, 1, 1, SIZE + 1, SIZE + 1);
+        detections.add(1, 47, 0.6f, 2, 2, SIZE + 2, SIZE + 2);
+        tracker.advance();
+        tracker.update(detections);
+        tracker.writeTo(tracked);
+
+        assertEquals(3, tracked.getCount());
+        assertEquals(cupId, tracked.getId(0));
+        assertEquals(47, tracked.getClassId(0));
+        assertEquals(0.6f, tracked.getScore(0), 0f);
+        assertNull(tracker.getTracks().get(0).getLabel());
+        assertEquals(72, tracked.getClassId(2));
+        assertEquals(1, tracked.getBoxes()[8], 1f);
+    }
+
+    @Test
+    public void update_matchesOnlyWithinLabel() {
+        final ObjectTracker tracker = new ObjectTracker(1);
+        tracker.advance();
+        tracker.update(new float[]{0, 0, SIZE, SIZE, 100, 100, 100 + SIZE, 100 + SIZE},
+                new String[]{"cup", "tv"}, new float[]{0.8f, 0.7f}, 2);
+        final int cupId = findByLabel(tracker, "cup").getId();
+        final int tvId = findByLabel(tracker, "tv").getId();
+        assertNotEquals(cupId, tvId);
+
+        tracker.advance();
+        // A "tv" where the cup was does not continue the cup's track.
+        tracker.update(new float[]{1, 1, SIZE + 1, SIZE + 1, 101, 101, 101 + SIZE, 101 + SIZE},
+                new String[]{"tv", "tv"}, new float[]{0.8f, 0.7f}, 2);
+
+        assertEquals(tvId, findTrackAt(tracker, "tv", 101).getId());
+        final ObjectTracker.Track newTv = findTrackAt(tracker, "tv", 1);
+        assertNotEquals(cupId, newTv.getId());
+        assertNotEquals(tvId, newTv.getId());
+    }
+
+    @Test
+    public void update_dropsTracksAfterMissedKeyframes() {
+        final ObjectTracker tracker = new ObjectTracker(1, 0.3f, 0.95f, 0.4f, 1);
+        tracker.advance();
+        tracker.update(new float[]{0, 0, SIZE, SIZE}, new String[]{"cup"}, new float[]{0.9f}, 1);
+
+        tracker.advance();
+        tracker.update(new float[0], new String[0], new float[0], 0);
+        assertEquals(1, tracker.getTracks().size());
+
+        tracker.advance();
+        tracker.update(new float[0], new String[0], new float[0], 0);
+        assertTrue(tracker.getTracks().isEmpty());
+    }
+
+    @Test
+    public void advance_forcesKeyframeWhenConfidenceDecays() {
+        final ObjectTracker tracker = new ObjectTracker(100, 0.3f, 0.5f, 0.4f, 1);
+        assertTrue(tracker.advance());
+        tracker.update(new float[]{0, 0, SIZE, SIZE}, new String[]{"cup"}, new float[]{0.9f}, 1);
+
+        // 0.9 -> 0.45 stays above the floor, 0.225 falls below it.
+        assertFalse(tracker.advance());
+        assertTrue(tracker.advance());
+    }
+
+    @Test
+    public void iou_ofHalfOverlappingBoxes() {
+        final float[] boxes = {0, 0, 2, 2, 1, 0, 3, 2};
+        assertEquals(1f / 3f, ObjectTracker.iou(boxes, 0, boxes, 4), 1e-6f);
+        assertEquals(1f, ObjectTracker.iou(boxes, 0, boxes, 0), 1e-6f);
+    }
+
+    private static ObjectTracker.Track findByLabel(final ObjectTracker tracker, final String label) {
+        for (final ObjectTracker.Track track : tracker.getTracks()) {
+            if (track.getLabel().equals(label)) {
+                return track;
+            }
+        }
+        throw new AssertionError("No track labelled " + label);
+    }
+
+    private static ObjectTracker.Track findTrackAt(final ObjectTracker tracker, final String label,
+                                                   final float left) {
+        final float[] box = new float[4];
+        for (final ObjectTracker.Track track : tracker.getTracks()) {
+            track.getBox(box, 0);
+            if (track.getLabel().equals(label) && Math.abs(box[0] - left) < 5) {
+                return track;
+            }
+        }
+        throw new AssertionError("No " + label + " track near x=" + left);
+    }
+}